@@ -0,0 +1,67 @@
+package org.hisp.dhis.common;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Receiver of grid rows which are produced one at a time, as an alternative
+ * to materializing a full {@link Grid} in memory. Implementations typically
+ * write each row straight to an output stream, which keeps memory usage
+ * bounded regardless of the size of the result.
+ */
+@FunctionalInterface
+public interface GridRowSink
+{
+    /**
+     * Invoked once before any rows are added.
+     *
+     * @param headers the grid headers.
+     * @param metaData the grid meta-data, may be empty.
+     */
+    default void start( List<GridHeader> headers, Map<String, Object> metaData )
+    {
+    }
+
+    /**
+     * Adds a row. The row list may be reused by the caller after this method
+     * returns, and should not be retained.
+     *
+     * @param row the row values, in the order of the headers.
+     */
+    void addRow( List<Object> row );
+
+    /**
+     * Invoked once after all rows have been added.
+     */
+    default void finish()
+    {
+    }
+}
@@ -0,0 +1,75 @@
+package org.hisp.dhis.expression;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.hisp.dhis.common.DimensionalItemObject;
+import org.hisp.dhis.common.MapMap;
+import org.hisp.dhis.period.Period;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Expression which has been parsed and bound to a parse type, constants and
+ * a missing value strategy, and which can be evaluated repeatedly for
+ * different values. Evaluators are immutable and may be used by several
+ * threads at the same time.
+ *
+ * @see ExpressionService#compileExpression(String, ParseType, Map, MissingValueStrategy)
+ */
+public interface ExpressionEvaluator
+{
+    /**
+     * Evaluates the expression.
+     *
+     * @param valueMap the DimensionalItemObject values to use for calculation.
+     * @param orgUnitCountMap the map of organisation unit group member counts.
+     * @param days the number of days to use in the calculation.
+     * @param samplePeriods periods for samples to aggregate, can be null.
+     * @param periodValueMap values for aggregate functions by period, can
+     *        be null.
+     * @return the calculated value.
+     */
+    Object evaluate( Map<DimensionalItemObject, Double> valueMap, Map<String, Integer> orgUnitCountMap,
+        Integer days, List<Period> samplePeriods, MapMap<Period, DimensionalItemObject, Double> periodValueMap );
+
+    /**
+     * Evaluates the expression without sampled values.
+     *
+     * @param valueMap the DimensionalItemObject values to use for calculation.
+     * @param orgUnitCountMap the map of organisation unit group member counts.
+     * @param days the number of days to use in the calculation.
+     * @return the calculated value.
+     */
+    default Object evaluate( Map<DimensionalItemObject, Double> valueMap, Map<String, Integer> orgUnitCountMap,
+        Integer days )
+    {
+        return evaluate( valueMap, orgUnitCountMap, days, null, null );
+    }
+}
@@ -142,6 +142,28 @@ public interface ExpressionService
         Map<DimensionalItemObject, Double> valueMap, Map<String, Constant> constantMap,
         Map<String, Integer> orgUnitCountMap );
 
+    /**
+     * Generates the calculated values of an indicator for a number of rows
+     * in one pass. The operand values are column-oriented, with one array
+     * per item holding the value of each row, where a missing value is
+     * represented by {@link Double#NaN}. The result for each row is the same
+     * as calling {@link #getIndicatorValueObject} for that row.
+     *
+     * @param indicator the indicator for which to calculate the values.
+     * @param size the number of rows.
+     * @param valueColumns the map of data value columns.
+     * @param days the number of days in the periods of each row, or null
+     *        if no periods apply.
+     * @param orgUnitCountMaps the maps of organisation unit group member
+     *        counts of each row, or null.
+     * @param constantMap the map of constants.
+     * @return a list with the calculated value of each row, where a row
+     *         without a value is null.
+     */
+    List<IndicatorValue> getIndicatorValueObjects( Indicator indicator, int size,
+        Map<DimensionalItemObject, double[]> valueColumns, int[] days,
+        List<Map<String, Integer>> orgUnitCountMaps, Map<String, Constant> constantMap );
+
     /**
      * Substitutes any constants and org unit group member counts in the
      * numerator and denominator on all indicators in the given collection.
@@ -308,4 +330,20 @@ public interface ExpressionService
         Map<String, Integer> orgUnitCountMap, Integer days,
         MissingValueStrategy missingValueStrategy, List<Period> samplePeriods,
         MapMap<Period, DimensionalItemObject, Double> periodValueMap );
+
+    /**
+     * Compiles an expression into an evaluator which can be evaluated
+     * repeatedly for different values without parsing the expression again.
+     * Use this when the same expression is evaluated for many organisation
+     * units, periods or attribute option combos.
+     *
+     * @param expression the expression holding the formula for calculation.
+     * @param parseType the type of expression to parse.
+     * @param constantMap map of constants to use for calculation.
+     * @param missingValueStrategy the strategy to use when data values are
+     *        missing when calculating the expression.
+     * @return the expression evaluator.
+     */
+    ExpressionEvaluator compileExpression( String expression, ParseType parseType,
+        Map<String, Constant> constantMap, MissingValueStrategy missingValueStrategy );
 }
@@ -178,6 +178,8 @@ public enum ErrorCode
     E7129( "Program is specified but does not exist: `{0}`" ),
     E7130( "Program stage is specified but does not exist: `{0}`" ),
     E7131( "Query failed, likely because the query timed out" ),
+    E7132( "Query cost: `{0}` exceeds max query cost: `{1}`, reduce the number of dimension items or periods" ),
+    E7133( "Query could not be started because the server is busy, try again later" ),
 
     /* Event analytics */
     E7200( "At least one organisation unit must be specified" ),
@@ -0,0 +1,309 @@
+package org.hisp.dhis.organisationunit;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Immutable index of the organisation unit hierarchy which answers ancestor
+ * and subtree questions in constant time without walking parents.
+ *
+ * Organisation units are numbered in pre-order by a depth-first walk from the
+ * roots, and the highest number within the subtree of each unit is recorded.
+ * A unit is then a descendant of another unit if its number falls within the
+ * interval of the other unit. Units are looked up by identifier through an
+ * open addressing hash table backed by primitive arrays.
+ *
+ * Units which cannot be reached from a root, such as units in a cyclic
+ * graph, are not indexed.
+ */
+public class OrganisationUnitHierarchyIndex
+{
+    /**
+     * Identifier marking an empty hash table slot and the absent parent of a
+     * root, as organisation unit identifiers are always positive.
+     */
+    private static final long EMPTY = 0;
+
+    private final long[] keys;
+
+    private final int[] slots;
+
+    private final int mask;
+
+    private final int size;
+
+    private final long[] parentIds;
+
+    private final int[] start;
+
+    private final int[] end;
+
+    // -------------------------------------------------------------------------
+    // Constructor
+    // -------------------------------------------------------------------------
+
+    public OrganisationUnitHierarchyIndex( Collection<OrganisationUnitRelationship> relations )
+    {
+        int capacity = 1;
+
+        while ( capacity < relations.size() * 2 )
+        {
+            capacity <<= 1;
+        }
+
+        keys = new long[capacity];
+        slots = new int[capacity];
+        mask = capacity - 1;
+
+        parentIds = new long[relations.size()];
+
+        int n = 0;
+
+        for ( OrganisationUnitRelationship relation : relations )
+        {
+            long id = relation.getChildId();
+
+            if ( id == EMPTY || indexOf( id ) >= 0 )
+            {
+                continue;
+            }
+
+            parentIds[n] = relation.getParentId() == id ? EMPTY : relation.getParentId();
+
+            put( id, n++ );
+        }
+
+        size = n;
+        start = new int[n];
+        end = new int[n];
+
+        // Children of each unit, as ranges of offsets into one array
+
+        int[] parents = new int[n];
+        int[] offsets = new int[n + 1];
+
+        for ( int i = 0; i < n; i++ )
+        {
+            parents[i] = indexOf( parentIds[i] );
+
+            if ( parents[i] >= 0 )
+            {
+                offsets[parents[i] + 1]++;
+            }
+        }
+
+        for ( int i = 0; i < n; i++ )
+        {
+            offsets[i + 1] += offsets[i];
+        }
+
+        int[] children = new int[n];
+        int[] next = Arrays.copyOf( offsets, n );
+
+        for ( int i = 0; i < n; i++ )
+        {
+            if ( parents[i] >= 0 )
+            {
+                children[next[parents[i]]++] = i;
+            }
+        }
+
+        // Number the units depth-first from each root
+
+        Arrays.fill( start, -1 );
+        System.arraycopy( offsets, 0, next, 0, n );
+
+        int[] stack = new int[n];
+        int number = 0;
+
+        for ( int root = 0; root < n; root++ )
+        {
+            if ( parents[root] >= 0 )
+            {
+                continue;
+            }
+
+            int depth = 0;
+            stack[0] = root;
+            start[root] = number++;
+
+            while ( depth >= 0 )
+            {
+                int unit = stack[depth];
+
+                if ( next[unit] < offsets[unit + 1] )
+                {
+                    int child = children[next[unit]++];
+                    start[child] = number++;
+                    stack[++depth] = child;
+                }
+                else
+                {
+                    end[unit] = number - 1;
+                    depth--;
+                }
+            }
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Logic
+    // -------------------------------------------------------------------------
+
+    /**
+     * Indicates whether the organisation unit with the given identifier is
+     * part of this index.
+     *
+     * @param id the organisation unit identifier.
+     * @return true if the organisation unit is indexed.
+     */
+    public boolean contains( long id )
+    {
+        int unit = indexOf( id );
+
+        return unit >= 0 && start[unit] >= 0;
+    }
+
+    /**
+     * Indicates whether an organisation unit is equal to or a descendant of
+     * another organisation unit.
+     *
+     * @param id the organisation unit identifier.
+     * @param ancestorId the identifier of the possible ancestor.
+     * @return true if both are indexed and the first is in the subtree of the
+     *         second.
+     */
+    public boolean isDescendant( long id, long ancestorId )
+    {
+        int unit = indexOf( id );
+
+        return unit >= 0 && start[unit] >= 0 && isInSubtree( start[unit], indexOf( ancestorId ) );
+    }
+
+    /**
+     * Indicates whether an organisation unit is equal to or a descendant of
+     * any of the given organisation units.
+     *
+     * @param id the organisation unit identifier.
+     * @param ancestors the possible ancestors.
+     * @return true if the organisation unit is in the subtree of any of the
+     *         indexed ancestors.
+     */
+    public boolean isDescendant( long id, Collection<OrganisationUnit> ancestors )
+    {
+        int unit = indexOf( id );
+
+        if ( unit < 0 || start[unit] < 0 || ancestors == null )
+        {
+            return false;
+        }
+
+        for ( OrganisationUnit ancestor : ancestors )
+        {
+            if ( isInSubtree( start[unit], indexOf( ancestor.getId() ) ) )
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns the parent identifier of an organisation unit.
+     *
+     * @param id the organisation unit identifier.
+     * @return the parent identifier, or 0 if the organisation unit is a root
+     *         or is unknown.
+     */
+    public long getParentId( long id )
+    {
+        int unit = indexOf( id );
+
+        return unit >= 0 ? parentIds[unit] : EMPTY;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private boolean isInSubtree( int number, int ancestor )
+    {
+        return ancestor >= 0 && start[ancestor] >= 0 && number >= start[ancestor] && number <= end[ancestor];
+    }
+
+    private void put( long id, int unit )
+    {
+        int slot = hash( id ) & mask;
+
+        while ( keys[slot] != EMPTY )
+        {
+            slot = ( slot + 1 ) & mask;
+        }
+
+        keys[slot] = id;
+        slots[slot] = unit;
+    }
+
+    private int indexOf( long id )
+    {
+        if ( id == EMPTY )
+        {
+            return -1;
+        }
+
+        int slot = hash( id ) & mask;
+
+        while ( keys[slot] != EMPTY )
+        {
+            if ( keys[slot] == id )
+            {
+                return slots[slot];
+            }
+
+            slot = ( slot + 1 ) & mask;
+        }
+
+        return -1;
+    }
+
+    private static int hash( long id )
+    {
+        long h = id * 0x9E3779B97F4A7C15L;
+
+        return (int) ( h ^ ( h >>> 32 ) );
+    }
+}
@@ -368,8 +368,9 @@ public interface OrganisationUnitService
 
     /**
      * Equal to {@link OrganisationUnitService#isInUserHierarchy(OrganisationUnit)}
-     * except adds a caching layer on top. Use this method when performance is
-     * imperative and the risk of a stale result is tolerable.
+     * except answers from an in-memory index of the hierarchy. Use this method
+     * when performance is imperative and the risk of a stale result is
+     * tolerable.
      *
      * @param organisationUnit the organisation unit.
      * @return true if the given organisation unit is part of the hierarchy.
@@ -378,8 +379,9 @@ public interface OrganisationUnitService
     
     /**
      * Equal to {@link OrganisationUnitService#isInUserHierarchy(User,OrganisationUnit)}
-     * except adds a caching layer on top. Use this method when performance is
-     * imperative and the risk of a stale result is tolerable.
+     * except answers from an in-memory index of the hierarchy. Use this method
+     * when performance is imperative and the risk of a stale result is
+     * tolerable.
      *
      * @param user the user to check for.
      * @param organisationUnit the organisation unit.
@@ -411,8 +413,9 @@ public interface OrganisationUnitService
 
     /**
      * Equal to {@link OrganisationUnitService#isInUserSearchHierarchy(OrganisationUnit)}
-     * except adds a caching layer on top. Use this method when performance is
-     * imperative and the risk of a stale result is tolerable.
+     * except answers from an in-memory index of the hierarchy. Use this method
+     * when performance is imperative and the risk of a stale result is
+     * tolerable.
      *
      * @param organisationUnit the organisation unit.
      * @return true if the given organisation unit is part of the hierarchy.
@@ -421,8 +424,9 @@ public interface OrganisationUnitService
     
     /**
      * Equal to {@link OrganisationUnitService#isInUserSearchHierarchy(User,OrganisationUnit)}
-     * except adds a caching layer on top. Use this method when performance is
-     * imperative and the risk of a stale result is tolerable.
+     * except answers from an in-memory index of the hierarchy. Use this method
+     * when performance is imperative and the risk of a stale result is
+     * tolerable.
      *
      * @param user the user to check for.
      * @param organisationUnit the organisation unit.
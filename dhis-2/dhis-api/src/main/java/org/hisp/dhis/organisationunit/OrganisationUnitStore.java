@@ -133,6 +133,13 @@ public interface OrganisationUnitStore
      */
     OrganisationUnitHierarchy getOrganisationUnitHierarchy();
 
+    /**
+     * Get an interval index of the OrganisationUnit hierarchy.
+     *
+     * @return an index of all OrganisationUnit relationships.
+     */
+    OrganisationUnitHierarchyIndex getOrganisationUnitHierarchyIndex();
+
     /**
      * Updates the parent id of the organisation unit with the given id.
      *
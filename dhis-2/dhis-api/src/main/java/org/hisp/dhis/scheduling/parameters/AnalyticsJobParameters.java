@@ -59,6 +59,8 @@ public class AnalyticsJobParameters
 
     private boolean skipResourceTables = false;
 
+    private boolean dirtyPartitionsOnly = false;
+
     public AnalyticsJobParameters()
     {
     }
@@ -70,6 +72,13 @@ public class AnalyticsJobParameters
         this.skipResourceTables = skipResourceTables;
     }
 
+    public AnalyticsJobParameters( Integer lastYears, Set<AnalyticsTableType> skipTableTypes, boolean skipResourceTables,
+        boolean dirtyPartitionsOnly )
+    {
+        this( lastYears, skipTableTypes, skipResourceTables );
+        this.dirtyPartitionsOnly = dirtyPartitionsOnly;
+    }
+
     @JsonProperty
     @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
     public Integer getLastYears()
@@ -107,6 +116,18 @@ public class AnalyticsJobParameters
         this.skipResourceTables = skipResourceTables;
     }
 
+    @JsonProperty
+    @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
+    public boolean isDirtyPartitionsOnly()
+    {
+        return dirtyPartitionsOnly;
+    }
+
+    public void setDirtyPartitionsOnly( boolean dirtyPartitionsOnly )
+    {
+        this.dirtyPartitionsOnly = dirtyPartitionsOnly;
+    }
+
     @Override
     public Optional<ErrorReport> validate()
     {
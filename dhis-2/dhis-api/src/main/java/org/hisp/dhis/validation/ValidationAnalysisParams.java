@@ -71,6 +71,8 @@ public final class ValidationAnalysisParams
 
     private boolean persistResults = false;
 
+    private boolean streamResults = false;
+
     private int dayInPeriod = -1;
 
     /**
@@ -144,6 +146,17 @@ public final class ValidationAnalysisParams
         return persistResults;
     }
 
+    /**
+     * Gets whether or not persisted results should be written to the database as they are found,
+     * instead of being kept in memory until the analysis is completed
+     *
+     * @return true if results should be streamed, false if not.
+     */
+    public boolean isStreamResults()
+    {
+        return streamResults;
+    }
+
     /**
      * Gets which day of a period the analysis should be run for. If a validation rule is utilizing sliding windows,
      * this property will decide the positioning of the window relative to the period checked. In cases where the
@@ -217,6 +230,20 @@ public final class ValidationAnalysisParams
             return this;
         }
 
+        /**
+         * If set to true together with persistResults, results will be written to the database in batches as they
+         * are found. Streamed results are not returned by the analysis. When notifications are sent, the results of
+         * rules with notification templates are also kept in memory and returned, as the notifications need them.
+         *
+         * @param streamResults true if results should be streamed, false if not.
+         * @return the updated builder object
+         */
+        public Builder withStreamResults( boolean streamResults )
+        {
+            this.params.streamResults = streamResults;
+            return this;
+        }
+
         /**
          * If set to true, notifications will be sent after the analysis is completed if any results where found
          *
@@ -0,0 +1,132 @@
+package org.hisp.dhis.organisationunit;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class OrganisationUnitHierarchyIndexTest
+{
+    // 1 -> 2 -> 4, 5
+    // 1 -> 3 -> 6 -> 7
+    // 8
+    // 9 <-> 10 (cycle)
+
+    private OrganisationUnitHierarchyIndex createIndex()
+    {
+        List<OrganisationUnitRelationship> relationships = new ArrayList<>();
+
+        relationships.add( new OrganisationUnitRelationship( 0, 1 ) );
+        relationships.add( new OrganisationUnitRelationship( 1, 2 ) );
+        relationships.add( new OrganisationUnitRelationship( 1, 3 ) );
+        relationships.add( new OrganisationUnitRelationship( 2, 4 ) );
+        relationships.add( new OrganisationUnitRelationship( 2, 5 ) );
+        relationships.add( new OrganisationUnitRelationship( 3, 6 ) );
+        relationships.add( new OrganisationUnitRelationship( 6, 7 ) );
+        relationships.add( new OrganisationUnitRelationship( 0, 8 ) );
+        relationships.add( new OrganisationUnitRelationship( 10, 9 ) );
+        relationships.add( new OrganisationUnitRelationship( 9, 10 ) );
+
+        return new OrganisationUnitHierarchyIndex( relationships );
+    }
+
+    private OrganisationUnit createOrganisationUnit( long id )
+    {
+        OrganisationUnit unit = new OrganisationUnit( "Unit" + id );
+        unit.setId( id );
+
+        return unit;
+    }
+
+    @Test
+    public void testContains()
+    {
+        OrganisationUnitHierarchyIndex index = createIndex();
+
+        assertEquals( 10, index.size() );
+        assertTrue( index.contains( 1 ) );
+        assertTrue( index.contains( 7 ) );
+        assertTrue( index.contains( 8 ) );
+        assertFalse( index.contains( 9 ) );
+        assertFalse( index.contains( 10 ) );
+        assertFalse( index.contains( 11 ) );
+        assertFalse( index.contains( 0 ) );
+    }
+
+    @Test
+    public void testIsDescendant()
+    {
+        OrganisationUnitHierarchyIndex index = createIndex();
+
+        assertTrue( index.isDescendant( 1, 1 ) );
+        assertTrue( index.isDescendant( 4, 1 ) );
+        assertTrue( index.isDescendant( 4, 2 ) );
+        assertTrue( index.isDescendant( 7, 3 ) );
+        assertTrue( index.isDescendant( 7, 6 ) );
+
+        assertFalse( index.isDescendant( 1, 4 ) );
+        assertFalse( index.isDescendant( 4, 3 ) );
+        assertFalse( index.isDescendant( 5, 4 ) );
+        assertFalse( index.isDescendant( 8, 1 ) );
+        assertFalse( index.isDescendant( 9, 10 ) );
+        assertFalse( index.isDescendant( 4, 11 ) );
+        assertFalse( index.isDescendant( 11, 1 ) );
+    }
+
+    @Test
+    public void testIsDescendantOfAny()
+    {
+        OrganisationUnitHierarchyIndex index = createIndex();
+
+        assertTrue( index.isDescendant( 7, Lists.newArrayList( createOrganisationUnit( 2 ), createOrganisationUnit( 3 ) ) ) );
+        assertTrue( index.isDescendant( 8, Lists.newArrayList( createOrganisationUnit( 2 ), createOrganisationUnit( 8 ) ) ) );
+        assertFalse( index.isDescendant( 3, Lists.newArrayList( createOrganisationUnit( 2 ), createOrganisationUnit( 8 ) ) ) );
+        assertFalse( index.isDescendant( 3, new ArrayList<>() ) );
+        assertFalse( index.isDescendant( 3, null ) );
+    }
+
+    @Test
+    public void testGetParentId()
+    {
+        OrganisationUnitHierarchyIndex index = createIndex();
+
+        assertEquals( 0, index.getParentId( 1 ) );
+        assertEquals( 2, index.getParentId( 5 ) );
+        assertEquals( 6, index.getParentId( 7 ) );
+        assertEquals( 0, index.getParentId( 11 ) );
+    }
+}
@@ -0,0 +1,261 @@
+package org.hisp.dhis.analytics;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hisp.dhis.analytics.table.AbstractJdbcTableManager.PREFIX_ORGUNITLEVEL;
+import static org.hisp.dhis.common.DimensionalObject.DATA_X_DIM_ID;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+
+import org.hisp.dhis.period.BiMonthlyPeriodType;
+import org.hisp.dhis.period.DailyPeriodType;
+import org.hisp.dhis.period.FinancialAprilPeriodType;
+import org.hisp.dhis.period.FinancialJulyPeriodType;
+import org.hisp.dhis.period.FinancialNovemberPeriodType;
+import org.hisp.dhis.period.FinancialOctoberPeriodType;
+import org.hisp.dhis.period.MonthlyPeriodType;
+import org.hisp.dhis.period.PeriodType;
+import org.hisp.dhis.period.QuarterlyPeriodType;
+import org.hisp.dhis.period.SixMonthlyAprilPeriodType;
+import org.hisp.dhis.period.SixMonthlyNovemberPeriodType;
+import org.hisp.dhis.period.SixMonthlyPeriodType;
+import org.hisp.dhis.period.YearlyPeriodType;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Class representing a pre-aggregated analytics rollup table. A rollup table
+ * contains the data of the analytics table summed up to an organisation unit
+ * level and a period type, keeping only a subset of the dimensions. The data
+ * dimension and the year are always kept.
+ */
+public class AnalyticsRollup
+{
+    public static final String PREFIX_ROLLUP = "rollup";
+
+    private static final String COL_YEAR = "year";
+
+    /**
+     * Period types made up of whole months, mapped to the number of months of
+     * each period and the month offset of the first period of the year.
+     */
+    private static final Map<String, int[]> MONTH_PERIOD_TYPES = ImmutableMap.<String, int[]>builder()
+        .put( MonthlyPeriodType.NAME, new int[] { 1, 0 } )
+        .put( BiMonthlyPeriodType.NAME, new int[] { 2, 0 } )
+        .put( QuarterlyPeriodType.NAME, new int[] { 3, 0 } )
+        .put( SixMonthlyPeriodType.NAME, new int[] { 6, 0 } )
+        .put( SixMonthlyAprilPeriodType.NAME, new int[] { 6, 3 } )
+        .put( SixMonthlyNovemberPeriodType.NAME, new int[] { 6, 10 } )
+        .put( YearlyPeriodType.NAME, new int[] { 12, 0 } )
+        .put( FinancialAprilPeriodType.NAME, new int[] { 12, 3 } )
+        .put( FinancialJulyPeriodType.NAME, new int[] { 12, 6 } )
+        .put( FinancialOctoberPeriodType.NAME, new int[] { 12, 9 } )
+        .put( FinancialNovemberPeriodType.NAME, new int[] { 12, 10 } )
+        .build();
+
+    /**
+     * The organisation unit level to sum up to.
+     */
+    private final int orgUnitLevel;
+
+    /**
+     * The lowest period type to sum up to.
+     */
+    private final PeriodType periodType;
+
+    /**
+     * The dimensions to keep in addition to data and period and organisation
+     * unit.
+     */
+    private final List<String> dimensions;
+
+    /**
+     * Names of the period columns which can be answered from this rollup.
+     */
+    private final Set<String> periodColumns;
+
+    /**
+     * @param orgUnitLevel the organisation unit level.
+     * @param periodType the period type.
+     * @param dimensions the dimensions to keep.
+     */
+    public AnalyticsRollup( int orgUnitLevel, PeriodType periodType, Collection<String> dimensions )
+    {
+        this.orgUnitLevel = orgUnitLevel;
+        this.periodType = periodType;
+        this.dimensions = ImmutableList.copyOf( new TreeSet<>( dimensions ) );
+        this.periodColumns = PeriodType.getAvailablePeriodTypes().stream()
+            .filter( pt -> isAggregatable( periodType, pt ) )
+            .map( pt -> pt.getName().toLowerCase() )
+            .collect( Collectors.toSet() );
+    }
+
+    // -------------------------------------------------------------------------
+    // Logic
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the name of this rollup, which is unique for the combination of
+     * organisation unit level, period type and dimensions.
+     */
+    public String getName()
+    {
+        String name = PREFIX_ROLLUP + "_l" + orgUnitLevel + "_" + periodType.getName().toLowerCase();
+
+        if ( !dimensions.isEmpty() )
+        {
+            CRC32 crc = new CRC32();
+            crc.update( String.join( ",", dimensions ).getBytes( StandardCharsets.UTF_8 ) );
+
+            name += "_" + Long.toHexString( crc.getValue() );
+        }
+
+        return name;
+    }
+
+    /**
+     * Indicates whether the analytics table column with the given unquoted name
+     * is kept in this rollup.
+     *
+     * @param column the column name.
+     */
+    public boolean hasColumn( String column )
+    {
+        if ( DATA_X_DIM_ID.equals( column ) || COL_YEAR.equals( column ) ||
+            periodColumns.contains( column ) || dimensions.contains( column ) )
+        {
+            return true;
+        }
+
+        if ( column != null && column.startsWith( PREFIX_ORGUNITLEVEL ) )
+        {
+            String level = column.substring( PREFIX_ORGUNITLEVEL.length() );
+
+            return level.matches( "\\d+" ) && Integer.parseInt( level ) <= orgUnitLevel;
+        }
+
+        return false;
+    }
+
+    /**
+     * Indicates whether all the analytics table columns with the given unquoted
+     * names are kept in this rollup.
+     *
+     * @param columns the column names.
+     */
+    public boolean hasColumns( Collection<String> columns )
+    {
+        return columns.stream().allMatch( this::hasColumn );
+    }
+
+    /**
+     * Indicates whether the periods of the given period type can be summed up
+     * from periods of the given rollup period type, meaning that every period
+     * of the period type is made up of whole periods of the rollup period type.
+     *
+     * @param rollupPeriodType the rollup period type.
+     * @param periodType the period type.
+     */
+    public static boolean isAggregatable( PeriodType rollupPeriodType, PeriodType periodType )
+    {
+        if ( rollupPeriodType.equals( periodType ) || DailyPeriodType.NAME.equals( rollupPeriodType.getName() ) )
+        {
+            return true;
+        }
+
+        int[] rollupMonths = MONTH_PERIOD_TYPES.get( rollupPeriodType.getName() );
+        int[] months = MONTH_PERIOD_TYPES.get( periodType.getName() );
+
+        if ( rollupMonths == null || months == null )
+        {
+            return false;
+        }
+
+        return months[0] % rollupMonths[0] == 0 && Math.floorMod( months[1] - rollupMonths[1], rollupMonths[0] ) == 0;
+    }
+
+    // -------------------------------------------------------------------------
+    // Getters
+    // -------------------------------------------------------------------------
+
+    public int getOrgUnitLevel()
+    {
+        return orgUnitLevel;
+    }
+
+    public PeriodType getPeriodType()
+    {
+        return periodType;
+    }
+
+    public List<String> getDimensions()
+    {
+        return dimensions;
+    }
+
+    // -------------------------------------------------------------------------
+    // hashCode, equals, toString
+    // -------------------------------------------------------------------------
+
+    @Override
+    public int hashCode()
+    {
+        return getName().hashCode();
+    }
+
+    @Override
+    public boolean equals( Object object )
+    {
+        if ( this == object )
+        {
+            return true;
+        }
+
+        if ( object == null || getClass() != object.getClass() )
+        {
+            return false;
+        }
+
+        return getName().equals( ((AnalyticsRollup) object).getName() );
+    }
+
+    @Override
+    public String toString()
+    {
+        return "[Rollup: " + getName() + ", level: " + orgUnitLevel + ", period type: " + periodType.getName() + ", dimensions: " + dimensions + "]";
+    }
+}
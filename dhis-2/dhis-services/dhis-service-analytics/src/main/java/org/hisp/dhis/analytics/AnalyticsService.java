@@ -30,6 +30,7 @@ package org.hisp.dhis.analytics;
 
 import org.hisp.dhis.common.AnalyticalObject;
 import org.hisp.dhis.common.Grid;
+import org.hisp.dhis.common.GridRowSink;
 import org.hisp.dhis.common.event.ApplicationCacheClearedEvent;
 import org.hisp.dhis.dxf2.datavalueset.DataValueSet;
 
@@ -100,6 +101,11 @@ public interface AnalyticsService
      * If meta data is included in the query, the meta data map of the grid
      * will contain keys described in {@link AnalyticsMetaDataKey}.
      *
+     * The grid is always built in memory, as indicators, totals, sorting,
+     * limits, empty row handling and caching need the complete result. Use
+     * {@link #streamRawDataValues(DataQueryParams, GridRowSink)} for large
+     * extracts of non-aggregated values.
+     *
      * @param params the data query parameters.
      * @return aggregated data as a Grid object.
      */
@@ -132,6 +138,18 @@ public interface AnalyticsService
      */
     Grid getRawDataValues( DataQueryParams params );
 
+    /**
+     * Streams raw data values for the given query to the given row sink. The
+     * headers, meta-data and rows are equal to those of the grid returned by
+     * {@link #getRawDataValues(DataQueryParams)}, but rows are passed to the
+     * sink as they are read, which keeps memory usage bounded for large
+     * results.
+     *
+     * @param params the data query parameters.
+     * @param sink the row sink.
+     */
+    void streamRawDataValues( DataQueryParams params, GridRowSink sink );
+
     /**
      * Generates a data value set for the given query. The query must contain
      * a data, period and organisation unit dimension.
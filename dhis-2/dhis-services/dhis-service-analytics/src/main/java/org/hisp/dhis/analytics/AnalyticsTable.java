@@ -63,6 +63,11 @@ public class AnalyticsTable
      */
     private Program program;
 
+    /**
+     * Rollup for pre-aggregated analytics tables, applies to data values.
+     */
+    private AnalyticsRollup rollup;
+
     /**
      * Analytics table partitions for this base analytics table.
      */
@@ -89,6 +94,12 @@ public class AnalyticsTable
         this.program = program;
     }
 
+    public AnalyticsTable( AnalyticsTableType tableType, List<AnalyticsTableColumn> dimensionColumns, List<AnalyticsTableColumn> valueColumns, AnalyticsRollup rollup )
+    {
+        this( tableType, dimensionColumns, valueColumns );
+        this.rollup = rollup;
+    }
+
     // -------------------------------------------------------------------------
     // Logic
     // -------------------------------------------------------------------------
@@ -125,6 +136,11 @@ public class AnalyticsTable
             name += PartitionUtils.SEP + program.getUid().toLowerCase();
         }
 
+        if ( rollup != null )
+        {
+            name += PartitionUtils.SEP + rollup.getName();
+        }
+
         return name;
     }
 
@@ -137,6 +153,11 @@ public class AnalyticsTable
             name += PartitionUtils.SEP + program.getUid().toLowerCase();
         }
 
+        if ( rollup != null )
+        {
+            name += PartitionUtils.SEP + rollup.getName();
+        }
+
         return name;
     }
 
@@ -145,6 +166,11 @@ public class AnalyticsTable
         return program != null;
     }
 
+    public boolean isRollup()
+    {
+        return rollup != null;
+    }
+
     public boolean hasPartitionTables()
     {
         return !tablePartitions.isEmpty();
@@ -181,6 +207,11 @@ public class AnalyticsTable
         return program;
     }
 
+    public AnalyticsRollup getRollup()
+    {
+        return rollup;
+    }
+
     public List<AnalyticsTablePartition> getTablePartitions()
     {
         return tablePartitions;
@@ -197,6 +228,7 @@ public class AnalyticsTable
         int result = 1;
         result = prime * result + ( ( tableType == null ) ? 0 : tableType.hashCode() );
         result = prime * result + ( ( program == null ) ? 0 : program.hashCode() );
+        result = prime * result + ( ( rollup == null ) ? 0 : rollup.hashCode() );
         return result;
     }
 
@@ -244,6 +276,18 @@ public class AnalyticsTable
             return false;
         }
 
+        if ( rollup == null )
+        {
+            if ( other.rollup != null )
+            {
+                return false;
+            }
+        }
+        else if ( !rollup.equals( other.rollup ) )
+        {
+            return false;
+        }
+
         return true;
     }
 
@@ -103,6 +103,13 @@ public interface AnalyticsTableManager
      */
     Future<?> createIndexesAsync( ConcurrentLinkedQueue<AnalyticsIndex> indexes );
 
+    /**
+     * Creates the given index on the analytics table of the index.
+     *
+     * @param index the analytics index.
+     */
+    void createIndex( AnalyticsIndex index );
+
     /**
      * Attempts to drop the analytics table with partitions and rename the temporary
      * table with partitions as replacement.
@@ -126,6 +133,14 @@ public interface AnalyticsTableManager
      */
     Future<?> populateTablesAsync( AnalyticsTableUpdateParams params, ConcurrentLinkedQueue<AnalyticsTablePartition> tablePartitions );
 
+    /**
+     * Copies and denormalizes rows into the given analytics table partition.
+     *
+     * @param params the {@link AnalyticsTableUpdateParams}.
+     * @param partition the analytics table partition.
+     */
+    void populateTablePartition( AnalyticsTableUpdateParams params, AnalyticsTablePartition partition );
+
     /**
      * Invokes analytics table SQL hooks for the table type.
      *
@@ -174,6 +189,15 @@ public interface AnalyticsTableManager
     Future<?> applyAggregationLevels( ConcurrentLinkedQueue<AnalyticsTablePartition> partitions,
         Collection<String> dataElements, int aggregationLevel );
 
+    /**
+     * Applies aggregation level logic to the given analytics table partition.
+     *
+     * @param partition the analytics table partition.
+     * @param dataElements the data element identifiers to apply aggregation levels for.
+     * @param aggregationLevel the aggregation level.
+     */
+    void applyAggregationLevels( AnalyticsTablePartition partition, Collection<String> dataElements, int aggregationLevel );
+
     /**
      * Performs vacuum or optimization of the given table. The type of operation
      * performed is dependent on the underlying DBMS.
@@ -183,6 +207,33 @@ public interface AnalyticsTableManager
      */
     Future<?> vacuumTablesAsync( ConcurrentLinkedQueue<AnalyticsTablePartition> partitions );
 
+    /**
+     * Performs vacuum or optimization of the given table partition.
+     *
+     * @param partition the analytics table partition.
+     */
+    void vacuumTable( AnalyticsTablePartition partition );
+
+    /**
+     * Returns the pre-aggregated rollup tables to generate from the given
+     * analytics tables, with one partition per yearly partition of the
+     * analytics tables. Rollup tables are not generated for "latest"
+     * partition updates.
+     *
+     * @param params the {@link AnalyticsTableUpdateParams}.
+     * @param tables the list of {@link AnalyticsTable}.
+     * @return a list of rollup {@link AnalyticsTable}, empty if none apply.
+     */
+    List<AnalyticsTable> getRollupTables( AnalyticsTableUpdateParams params, List<AnalyticsTable> tables );
+
+    /**
+     * Populates the given rollup table partition by summing up the rows of the
+     * corresponding populated analytics table partition.
+     *
+     * @param partition the rollup table partition.
+     */
+    void populateRollupTablePartition( AnalyticsTablePartition partition );
+
     /**
      * Returns a list of non-dynamic {@link AnalyticsTableColumn}.
      *
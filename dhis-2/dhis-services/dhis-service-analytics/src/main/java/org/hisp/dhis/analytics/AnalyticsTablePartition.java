@@ -90,6 +90,11 @@ public class AnalyticsTablePartition
             name += PartitionUtils.SEP + masterTable.getProgram().getUid().toLowerCase();
         }
 
+        if ( masterTable.getRollup() != null )
+        {
+            name += PartitionUtils.SEP + masterTable.getRollup().getName();
+        }
+
         if ( year != null )
         {
             name += PartitionUtils.SEP + year;
@@ -107,6 +112,11 @@ public class AnalyticsTablePartition
             name += PartitionUtils.SEP + masterTable.getProgram().getUid().toLowerCase();
         }
 
+        if ( masterTable.getRollup() != null )
+        {
+            name += PartitionUtils.SEP + masterTable.getRollup().getName();
+        }
+
         if ( year != null )
         {
             name += PartitionUtils.SEP + year;
@@ -56,6 +56,12 @@ public class AnalyticsTableUpdateParams
      */
     private Integer lastYears;
 
+    /**
+     * Indicates whether to update only the partitions with data which changed
+     * since the last successful analytics table update.
+     */
+    private boolean dirtyPartitionsOnly;
+
     /**
      * Indicates whether to skip update of resource tables.
      */
@@ -101,6 +107,11 @@ public class AnalyticsTableUpdateParams
         return lastYears;
     }
 
+    public boolean isDirtyPartitionsOnly()
+    {
+        return dirtyPartitionsOnly;
+    }
+
     public boolean isSkipResourceTables()
     {
         return skipResourceTables;
@@ -133,7 +144,7 @@ public class AnalyticsTableUpdateParams
      */
     public boolean isPartialUpdate()
     {
-        return lastYears != null || isLatestUpdate();
+        return lastYears != null || isLatestUpdate() || dirtyPartitionsOnly;
     }
 
     /**
@@ -153,6 +164,7 @@ public class AnalyticsTableUpdateParams
     {
         return MoreObjects.toStringHelper( this )
             .add( "last years", lastYears )
+            .add( "dirty partitions only", dirtyPartitionsOnly )
             .add( "skip resource tables", skipResourceTables )
             .add( "skip table types", skipTableTypes )
             .add( "start time", DateUtils.getLongDateString( startTime ) )
@@ -195,6 +207,7 @@ public class AnalyticsTableUpdateParams
         AnalyticsTableUpdateParams params = new AnalyticsTableUpdateParams();
 
         params.lastYears = this.lastYears;
+        params.dirtyPartitionsOnly = this.dirtyPartitionsOnly;
         params.skipResourceTables = this.skipResourceTables;
         params.skipTableTypes = new HashSet<>( this.skipTableTypes );
         params.jobId = this.jobId;
@@ -243,6 +256,12 @@ public class AnalyticsTableUpdateParams
             return this;
         }
 
+        public Builder withDirtyPartitionsOnly( boolean dirtyPartitionsOnly )
+        {
+            this.params.dirtyPartitionsOnly = dirtyPartitionsOnly;
+            return this;
+        }
+
         public Builder withSkipResourceTables( boolean skipResourceTables )
         {
             this.params.skipResourceTables = skipResourceTables;
@@ -0,0 +1,69 @@
+package org.hisp.dhis.analytics;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.function.Supplier;
+
+import org.hisp.dhis.common.IllegalQueryException;
+import org.hisp.dhis.common.QueryRuntimeException;
+
+/**
+ * Controls admission of analytics queries to the database. Queries are given
+ * a cost based on the cardinality of their dimensions and the number of
+ * partitions they span. Queries above the max cost are rejected, and the
+ * number of queries running concurrently can be bounded, both in total and
+ * per user. Waiting queries are admitted in order of cost, so that cheap
+ * queries can overtake expensive queries. A max cost or concurrency limit of
+ * 0 means no limit, and no query waits when both concurrency limits are 0.
+ */
+public interface QueryAdmissionController
+{
+    /**
+     * Returns the estimated cost of the given query.
+     *
+     * @param params the {@link DataQueryParams}.
+     * @return the estimated cost.
+     */
+    long getQueryCost( DataQueryParams params );
+
+    /**
+     * Executes the given query when admitted, waiting for a free slot if the
+     * concurrency budgets are exhausted. Queries executed as part of an
+     * already admitted query on the same thread are run directly.
+     *
+     * @param params the {@link DataQueryParams}.
+     * @param query the query to execute.
+     * @return the result of the query.
+     * @throws IllegalQueryException if the cost of the query exceeds the
+     *         max query cost.
+     * @throws QueryRuntimeException if the query could not be admitted within
+     *         the queue timeout.
+     */
+    <T> T execute( DataQueryParams params, Supplier<T> query );
+}
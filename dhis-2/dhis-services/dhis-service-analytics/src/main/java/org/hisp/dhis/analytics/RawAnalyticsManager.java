@@ -29,6 +29,7 @@ package org.hisp.dhis.analytics;
  */
 
 import org.hisp.dhis.common.Grid;
+import org.hisp.dhis.common.GridRowSink;
 
 /**
  * Manager for queries for retrieval of raw analytics data.
@@ -44,5 +45,14 @@ public interface RawAnalyticsManager
      * @param grid the grid.
      * @return a grid with data.
      */
-    Grid getRawDataValues( DataQueryParams params, Grid grid );    
+    Grid getRawDataValues( DataQueryParams params, Grid grid );
+
+    /**
+     * Passes raw analytics data to the given row sink based on the given query,
+     * one row at a time, without materializing the result in memory.
+     *
+     * @param params the query.
+     * @param sink the row sink.
+     */
+    void streamRawDataValues( DataQueryParams params, GridRowSink sink );
 }
@@ -35,6 +35,11 @@ import static org.apache.commons.logging.LogFactory.getLog;
 import static org.hisp.dhis.commons.util.SystemUtils.isTestRun;
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 
 import javax.annotation.PostConstruct;
@@ -65,6 +70,17 @@ public class AnalyticsCache
 
     private final AnalyticsCacheSettings analyticsCacheSettings;
 
+    /**
+     * Computations currently in progress, keyed by the query key. Concurrent
+     * callers missing the cache for the same key wait on the same future
+     * instead of running the same query against the analytics tables.
+     */
+    private final ConcurrentMap<String, CompletableFuture<Grid>> inFlightQueries = new ConcurrentHashMap<>();
+
+    private final AtomicLong executedQueries = new AtomicLong();
+
+    private final AtomicLong coalescedQueries = new AtomicLong();
+
     private static final int MAX_CACHE_ENTRIES = 20000;
 
     private static final String CACHE_REGION = "analyticsResponse";
@@ -91,6 +107,12 @@ public class AnalyticsCache
      * fetched by the function provided. In this case, the fetched Grid will be
      * cached, so the next consumers can hit the cache only.
      * 
+     * Concurrent calls which miss the cache for the same key are coalesced: only
+     * the first caller executes the function, while the others wait for and
+     * share its result (or its exception). The coalescing happens in this JVM,
+     * in front of the underlying cache, hence it applies to both the local and
+     * the Redis backed cache.
+     * 
      * The TTL of the cached object will be set accordingly to the cache settings
      * available at {@link org.hisp.dhis.analytics.cache.AnalyticsCacheSettings}.
      * 
@@ -100,20 +122,93 @@ public class AnalyticsCache
      */
     public Grid getOrFetch( final DataQueryParams params, final Function<DataQueryParams, Grid> function )
     {
-        final Optional<Grid> cachedGrid = get( params.getKey() );
+        final String key = params.getKey();
+
+        final Optional<Grid> cachedGrid = get( key );
 
         if ( cachedGrid.isPresent() )
         {
             return cachedGrid.get();
         }
-        else
+
+        final CompletableFuture<Grid> future = new CompletableFuture<>();
+
+        final CompletableFuture<Grid> inFlight = inFlightQueries.putIfAbsent( key, future );
+
+        if ( inFlight != null )
+        {
+            coalescedQueries.incrementAndGet();
+
+            return await( inFlight );
+        }
+
+        try
         {
-            final Grid grid = function.apply( params );
+            final Grid grid = fetch( params, function );
 
-            put( params, grid );
+            future.complete( grid );
 
             return grid;
         }
+        catch ( RuntimeException | Error ex )
+        {
+            future.completeExceptionally( ex );
+
+            throw ex;
+        }
+        finally
+        {
+            inFlightQueries.remove( key, future );
+        }
+    }
+
+    /**
+     * Fetches and caches the Grid for the given DataQueryParams. The cache is
+     * checked again first, as another caller might have populated it between the
+     * initial cache miss and the registration of the in-flight computation.
+     */
+    private Grid fetch( final DataQueryParams params, final Function<DataQueryParams, Grid> function )
+    {
+        final Optional<Grid> cachedGrid = get( params.getKey() );
+
+        if ( cachedGrid.isPresent() )
+        {
+            return cachedGrid.get();
+        }
+
+        executedQueries.incrementAndGet();
+
+        final Grid grid = function.apply( params );
+
+        put( params, grid );
+
+        return grid;
+    }
+
+    /**
+     * Waits for the given in-flight computation and returns its Grid. A failure
+     * of the computation is propagated to the waiting caller unwrapped.
+     */
+    private Grid await( final CompletableFuture<Grid> inFlight )
+    {
+        try
+        {
+            return inFlight.join();
+        }
+        catch ( CompletionException ex )
+        {
+            if ( ex.getCause() instanceof RuntimeException )
+            {
+                throw (RuntimeException) ex.getCause();
+            }
+
+            if ( ex.getCause() instanceof Error )
+            {
+                throw (Error) ex.getCause();
+            }
+
+            throw ex;
+        }
     }
 
     /**
@@ -167,6 +262,32 @@ public class AnalyticsCache
         return analyticsCacheSettings.isCachingEnabled();
     }
 
+    /**
+     * @return the number of queries which were executed against the database
+     *         by {@link #getOrFetch(DataQueryParams, Function)}.
+     */
+    public long getExecutedQueries()
+    {
+        return executedQueries.get();
+    }
+
+    /**
+     * @return the number of queries which were served by waiting on an
+     *         identical in-flight query instead of being executed.
+     */
+    public long getCoalescedQueries()
+    {
+        return coalescedQueries.get();
+    }
+
+    /**
+     * @return the number of queries currently being computed.
+     */
+    public int getInFlightQueries()
+    {
+        return inFlightQueries.size();
+    }
+
     @PostConstruct
     public void init()
     {
@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2004-2019, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.hisp.dhis.analytics.cache;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hisp.dhis.commons.util.SystemUtils.isTestRun;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+
+import org.hisp.dhis.analytics.AnalyticsTableType;
+import org.hisp.dhis.analytics.DataQueryParams;
+import org.hisp.dhis.analytics.QueryKey;
+import org.hisp.dhis.cache.Cache;
+import org.hisp.dhis.cache.CacheProvider;
+import org.hisp.dhis.common.event.ApplicationCacheClearedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Second tier of the analytics cache which holds the aggregated values of the
+ * individual sub-queries produced by the query planner, as returned by
+ * {@link org.hisp.dhis.analytics.AnalyticsManager#getAggregatedDataValues}.
+ * Requests which differ only partially are planned into partly identical
+ * sub-queries, and can hence reuse each other's database work.
+ * <p>
+ * Each analytics table or partition has a version which is part of the key of
+ * every entry read from that table. Swapping a table increments its version,
+ * which makes all entries derived from the previous table unreachable. Stale
+ * entries are removed through the size bound and the expiration time.
+ * <p>
+ * The table versions are held in memory, hence this cache is always kept in
+ * memory as well, also when the response cache is Redis backed.
+ */
+@Slf4j
+@Component
+public class AnalyticsPartialResultCache
+{
+    private static final int MAX_CACHE_ENTRIES = 5000;
+
+    private static final String CACHE_REGION = "analyticsPartialResult";
+
+    private final CacheProvider cacheProvider;
+
+    private final Environment environment;
+
+    private final AnalyticsCacheSettings analyticsCacheSettings;
+
+    private final ConcurrentMap<String, AtomicLong> tableVersions = new ConcurrentHashMap<>();
+
+    private Cache<Map<String, Object>> resultCache;
+
+    public AnalyticsPartialResultCache( CacheProvider cacheProvider, Environment environment,
+        AnalyticsCacheSettings analyticsCacheSettings )
+    {
+        checkNotNull( cacheProvider );
+        checkNotNull( environment );
+        checkNotNull( analyticsCacheSettings );
+
+        this.cacheProvider = cacheProvider;
+        this.environment = environment;
+        this.analyticsCacheSettings = analyticsCacheSettings;
+    }
+
+    /**
+     * Returns a key for the given planned sub-query. The key reflects the state
+     * of the given source tables at the time of invocation, and must hence be
+     * obtained before the query is executed.
+     *
+     * @param params the planned sub-query, as requested by the query planner.
+     * @param tableType the {@link AnalyticsTableType}.
+     * @param maxLimit the max number of records to return.
+     * @param sourceTables the names of the analytics tables or partitions which
+     *        the query reads from.
+     * @return a cache key.
+     */
+    public String getKey( DataQueryParams params, AnalyticsTableType tableType, int maxLimit,
+        Collection<String> sourceTables )
+    {
+        QueryKey key = new QueryKey()
+            .add( "query", params.getKey() )
+            .add( "tableType", tableType )
+            .add( "maxLimit", maxLimit )
+            .addIgnoreNull( "tableName", params.getTableName() )
+            .addIgnoreNull( "partitions", params.getPartitions() )
+            .addIgnoreNull( "dataType", params.getDataType() )
+            .addIgnoreNull( "periodType", params.getPeriodType() )
+            .addIgnoreNull( "dataPeriodType", params.getDataPeriodType(), () -> params.getDataPeriodType().getName() )
+            .add( "skipPartitioning", params.isSkipPartitioning() )
+            .add( "timely", params.isTimely() )
+            .add( "restrictByOrgUnitOpeningClosedDate", params.isRestrictByOrgUnitOpeningClosedDate() )
+            .add( "restrictByCategoryOptionStartEndDate", params.isRestrictByCategoryOptionStartEndDate() )
+            .addIgnoreNull( "startDateRestriction", params.getStartDateRestriction() )
+            .addIgnoreNull( "endDateRestriction", params.getEndDateRestriction() );
+
+        params.getDataApprovalLevels().entrySet().stream()
+            .sorted( Comparator.comparing( e -> e.getKey().getUid() ) )
+            .forEach( e -> key.add( "approvalLevel", e.getKey().getUid() + e.getValue() ) );
+
+        sourceTables.stream().sorted()
+            .forEach( table -> key.add( table, getTableVersion( table ).get() ) );
+
+        return key.build();
+    }
+
+    /**
+     * Returns a copy of the cached values for the given key.
+     *
+     * @param key the key, see {@link #getKey}.
+     * @return the cached values, or an empty optional if not present or if caching
+     *         is disabled.
+     */
+    public Optional<Map<String, Object>> get( String key )
+    {
+        if ( !isEnabled() )
+        {
+            return Optional.empty();
+        }
+
+        return resultCache.get( key ).map( HashMap::new );
+    }
+
+    /**
+     * Caches a copy of the given values for the given key. The expiration time
+     * follows the fixed expiration time of the analytics cache settings.
+     *
+     * @param key the key, see {@link #getKey}.
+     * @param values the aggregated values of the sub-query.
+     */
+    public void put( String key, Map<String, Object> values )
+    {
+        if ( isEnabled() )
+        {
+            resultCache.put( key, new HashMap<>( values ), analyticsCacheSettings.fixedExpirationTimeOrDefault() );
+        }
+    }
+
+    /**
+     * Invalidates all entries read from the given analytics tables or partitions.
+     * To be invoked when the tables are swapped.
+     *
+     * @param tableNames the names of the swapped analytics tables or partitions.
+     */
+    public void invalidateTables( Collection<String> tableNames )
+    {
+        tableNames.forEach( table -> getTableVersion( table ).incrementAndGet() );
+
+        log.info( "Analytics partial result cache invalidated for tables: " + tableNames );
+    }
+
+    /**
+     * Clean the current cache by removing all existing entries.
+     */
+    public void invalidateAll()
+    {
+        resultCache.invalidateAll();
+    }
+
+    @EventListener
+    public void handleApplicationCachesCleared( ApplicationCacheClearedEvent event )
+    {
+        invalidateAll();
+    }
+
+    public boolean isEnabled()
+    {
+        return analyticsCacheSettings.isCachingEnabled();
+    }
+
+    @PostConstruct
+    public void init()
+    {
+        final boolean nonTestEnv = !isTestRun( this.environment.getActiveProfiles() );
+
+        resultCache = cacheProvider.newCacheBuilder( String.class, Object.class ).forRegion( CACHE_REGION )
+            .expireAfterWrite( analyticsCacheSettings.fixedExpirationTimeOrDefault(), SECONDS )
+            .withMaximumSize( nonTestEnv ? MAX_CACHE_ENTRIES : 0 )
+            .forceInMemory()
+            .build();
+    }
+
+    private AtomicLong getTableVersion( String tableName )
+    {
+        return tableVersions.computeIfAbsent( tableName, t -> new AtomicLong() );
+    }
+}
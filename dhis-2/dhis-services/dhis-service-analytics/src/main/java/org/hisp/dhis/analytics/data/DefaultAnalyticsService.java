@@ -70,12 +70,14 @@ import static org.hisp.dhis.period.PeriodType.getPeriodTypeFromIsoString;
 import static org.hisp.dhis.visualization.Visualization.addListIfEmpty;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.Future;
 import java.util.function.Function;
@@ -93,6 +95,7 @@ import org.hisp.dhis.analytics.DataQueryService;
 import org.hisp.dhis.analytics.DimensionItem;
 import org.hisp.dhis.analytics.OutputFormat;
 import org.hisp.dhis.analytics.ProcessingHint;
+import org.hisp.dhis.analytics.QueryAdmissionController;
 import org.hisp.dhis.analytics.QueryPlanner;
 import org.hisp.dhis.analytics.QueryPlannerParams;
 import org.hisp.dhis.analytics.QueryValidator;
@@ -114,6 +117,7 @@ import org.hisp.dhis.common.DimensionalObject;
 import org.hisp.dhis.common.DimensionalObjectUtils;
 import org.hisp.dhis.common.Grid;
 import org.hisp.dhis.common.GridHeader;
+import org.hisp.dhis.common.GridRowSink;
 import org.hisp.dhis.common.IdentifiableObjectUtils;
 import org.hisp.dhis.common.ReportingRateMetric;
 import org.hisp.dhis.common.ValueType;
@@ -136,6 +140,7 @@ import org.hisp.dhis.period.Period;
 import org.hisp.dhis.period.PeriodType;
 import org.hisp.dhis.setting.SettingKey;
 import org.hisp.dhis.setting.SystemSettingManager;
+import org.hisp.dhis.system.grid.ColumnarGrid;
 import org.hisp.dhis.system.grid.ListGrid;
 import org.hisp.dhis.system.util.MathUtils;
 import org.hisp.dhis.util.ObjectUtils;
@@ -190,6 +195,8 @@ public class DefaultAnalyticsService
 
     private final AnalyticsCache analyticsCache;
 
+    private final QueryAdmissionController admissionController;
+
     // -------------------------------------------------------------------------
     // AnalyticsService implementation
     // -------------------------------------------------------------------------
@@ -200,7 +207,7 @@ public class DefaultAnalyticsService
         ConstantService constantService, ExpressionService expressionService,
         OrganisationUnitService organisationUnitService, SystemSettingManager systemSettingManager,
         EventAnalyticsService eventAnalyticsService, DataQueryService dataQueryService, ExpressionResolver resolver,
-        AnalyticsCache analyticsCache )
+        AnalyticsCache analyticsCache, QueryAdmissionController admissionController )
     {
         checkNotNull( analyticsManager );
         checkNotNull( rawAnalyticsManager );
@@ -215,6 +222,7 @@ public class DefaultAnalyticsService
         checkNotNull( dataQueryService );
         checkNotNull( resolver );
         checkNotNull(analyticsCache);
+        checkNotNull( admissionController );
 
         this.analyticsManager = analyticsManager;
         this.rawAnalyticsManager = rawAnalyticsManager;
@@ -229,6 +237,7 @@ public class DefaultAnalyticsService
         this.dataQueryService = dataQueryService;
         this.resolver = resolver;
         this.analyticsCache = analyticsCache;
+        this.admissionController = admissionController;
     }
 
     @Override
@@ -245,13 +254,15 @@ public class DefaultAnalyticsService
 
         queryValidator.validate( params );
 
+        final DataQueryParams immutableParams = DataQueryParams.newBuilder( params ).build();
+
         if ( analyticsCache.isEnabled() )
         {
-            final DataQueryParams immutableParams = DataQueryParams.newBuilder( params ).build();
-            return analyticsCache.getOrFetch( params, p -> getAggregatedDataValueGridInternal( immutableParams ) );
+            return analyticsCache.getOrFetch( params, p -> admissionController.execute(
+                immutableParams, () -> getAggregatedDataValueGridInternal( immutableParams ) ) );
         }
 
-        return getAggregatedDataValueGridInternal( params );
+        return admissionController.execute( immutableParams, () -> getAggregatedDataValueGridInternal( immutableParams ) );
     }
 
     @Override
@@ -272,7 +283,27 @@ public class DefaultAnalyticsService
 
         queryValidator.validate( params );
 
-        return getRawDataGrid( params );
+        final DataQueryParams query = params;
+
+        return admissionController.execute( query, () -> getRawDataGrid( query ) );
+    }
+
+    @Override
+    public void streamRawDataValues( DataQueryParams params, GridRowSink sink )
+    {
+        securityManager.decideAccess( params );
+
+        params = securityManager.withDataApprovalConstraints( params );
+        params = securityManager.withUserConstraints( params );
+
+        queryValidator.validate( params );
+
+        final DataQueryParams query = params;
+
+        admissionController.execute( query, () -> {
+            streamRawData( query, sink );
+            return null;
+        } );
     }
 
     @Override
@@ -285,7 +316,7 @@ public class DefaultAnalyticsService
             .withOutputFormat( OutputFormat.DATA_VALUE_SET )
             .build();
 
-        Grid grid = getAggregatedDataValueGridInternal( query );
+        Grid grid = admissionController.execute( query, () -> getAggregatedDataValueGridInternal( query ) );
 
         return AnalyticsUtils.getDataValueSetFromGrid( params, grid );
     }
@@ -340,7 +371,7 @@ public class DefaultAnalyticsService
         // Headers
         // ---------------------------------------------------------------------
 
-        Grid grid = new ListGrid();
+        Grid grid = createGrid();
 
         addHeaders( params, grid );
 
@@ -497,29 +528,63 @@ public class DefaultAnalyticsService
 
             handleEmptyDimensionItemPermutations( dimensionItemPermutations );
 
-            for ( Indicator indicator : indicators )
+            // -----------------------------------------------------------------
+            // Arrange operand values in columns with one row per permutation
+            // -----------------------------------------------------------------
+
+            int size = dimensionItemPermutations.size();
+
+            Map<DimensionalItemObject, double[]> valueColumns = new HashMap<>();
+
+            int[] days = new int[size];
+
+            List<Map<String, Integer>> orgUnitCountMaps = new ArrayList<>( size );
+
+            for ( int i = 0; i < size; i++ )
             {
-                for ( List<DimensionItem> dimensionItems : dimensionItemPermutations )
+                List<DimensionItem> dimensionItems = dimensionItemPermutations.get( i );
+
+                String permKey = DimensionItem.asItemKey( dimensionItems );
+
+                Map<DimensionalItemObject, Double> valueMap = permutationDimensionItemValueMap
+                    .getOrDefault( permKey, Collections.emptyMap() );
+
+                for ( Map.Entry<DimensionalItemObject, Double> entry : valueMap.entrySet() )
                 {
-                    String permKey = DimensionItem.asItemKey( dimensionItems );
+                    if ( entry.getValue() != null )
+                    {
+                        valueColumns.computeIfAbsent( entry.getKey(), k -> newValueColumn( size ) )[i] = entry.getValue();
+                    }
+                }
 
-                    Map<DimensionalItemObject, Double> valueMap = permutationDimensionItemValueMap
-                        .getOrDefault( permKey, new HashMap<>() );
+                List<Period> periods = !filterPeriods.isEmpty() ? filterPeriods
+                    : Collections.singletonList( (Period) DimensionItem.getPeriodItem( dimensionItems ) );
 
-                    List<Period> periods = !filterPeriods.isEmpty() ? filterPeriods
-                        : Collections.singletonList( (Period) DimensionItem.getPeriodItem( dimensionItems ) );
+                days[i] = periods.stream().filter( Objects::nonNull ).mapToInt( Period::getDaysInPeriod ).sum();
 
-                    OrganisationUnit unit = (OrganisationUnit) DimensionItem.getOrganisationUnitItem( dimensionItems );
+                OrganisationUnit unit = (OrganisationUnit) DimensionItem.getOrganisationUnitItem( dimensionItems );
+
+                String ou = unit != null ? unit.getUid() : null;
+
+                orgUnitCountMaps.add( permutationOrgUnitTargetMap != null ? permutationOrgUnitTargetMap.get( ou ) : null );
+            }
 
-                    String ou = unit != null ? unit.getUid() : null;
+            // -----------------------------------------------------------------
+            // Evaluate each indicator for all permutations
+            // -----------------------------------------------------------------
 
-                    Map<String, Integer> orgUnitCountMap = permutationOrgUnitTargetMap != null ? permutationOrgUnitTargetMap.get( ou ) : null;
+            for ( Indicator indicator : indicators )
+            {
+                List<IndicatorValue> values = expressionService.getIndicatorValueObjects( indicator, size,
+                    valueColumns, days, orgUnitCountMaps, constantMap );
 
-                    IndicatorValue value = expressionService.getIndicatorValueObject( indicator, periods, valueMap, constantMap, orgUnitCountMap );
+                for ( int i = 0; i < size; i++ )
+                {
+                    IndicatorValue value = values.get( i );
 
                     if ( value != null && satisfiesMeasureCriteria( params, value, indicator ) )
                     {
-                        List<DimensionItem> row = new ArrayList<>( dimensionItems );
+                        List<DimensionItem> row = new ArrayList<>( dimensionItemPermutations.get( i ) );
 
                         row.add( DX_INDEX, new DimensionItem( DATA_X_DIM_ID, indicator ) );
 
@@ -541,6 +606,21 @@ public class DefaultAnalyticsService
         }
     }
 
+    /**
+     * Returns a value column of the given size where all values are missing.
+     *
+     * @param size the number of rows.
+     * @return an array of the given size filled with {@link Double#NaN}.
+     */
+    private static double[] newValueColumn( int size )
+    {
+        double[] column = new double[size];
+
+        Arrays.fill( column, Double.NaN );
+
+        return column;
+    }
+
     /**
      * Checks whether the measure criteria in query parameters is satisfied for the given indicator value.
      *
@@ -962,6 +1042,24 @@ public class DefaultAnalyticsService
      * @param grid the grid.
      */
     private void applyIdScheme( DataQueryParams params, Grid grid )
+    {
+        Map<String, String> map = getIdSchemeMap( params );
+
+        if ( !map.isEmpty() )
+        {
+            grid.substituteMetaData( map );
+        }
+    }
+
+    /**
+     * Returns a mapping between the identifiers of the dimension items of the
+     * query and the identifier scheme property indicated in the query. Returns
+     * an empty map if no substitution applies.
+     *
+     * @param params the {@link DataQueryParams}.
+     * @return a mapping between identifiers and identifier scheme properties.
+     */
+    private Map<String, String> getIdSchemeMap( DataQueryParams params )
     {
         if ( !params.isSkipMeta() && params.hasNonUidOutputIdScheme() )
         {
@@ -972,8 +1070,10 @@ public class DefaultAnalyticsService
                 map.putAll( DimensionalObjectUtils.getDataElementOperandIdSchemeMap( asTypedList( params.getDataElementOperands() ), params.getOutputIdScheme() ) );
             }
 
-            grid.substituteMetaData( map );
+            return map;
         }
+
+        return new HashMap<>();
     }
 
     /**
@@ -1257,7 +1357,7 @@ public class DefaultAnalyticsService
      */
     private Grid getRawDataGrid( DataQueryParams params )
     {
-        Grid grid = new ListGrid();
+        Grid grid = createGrid();
 
         params = preHandleRawDataQuery( params );
 
@@ -1272,6 +1372,63 @@ public class DefaultAnalyticsService
         return grid;
     }
 
+    /**
+     * Passes headers, meta data and raw data to the given row sink. Identifier
+     * scheme substitution is applied to each row as it is read.
+     *
+     * @param params the {@link DataQueryParams}.
+     * @param sink the {@link GridRowSink}.
+     */
+    private void streamRawData( DataQueryParams params, GridRowSink sink )
+    {
+        Grid grid = new ListGrid();
+
+        params = preHandleRawDataQuery( params );
+
+        addHeaders( params, grid );
+
+        addMetaData( params, grid );
+
+        applyIdScheme( params, grid );
+
+        sink.start( grid.getHeaders(), grid.getMetaData() );
+
+        if ( !params.isSkipData() )
+        {
+            QueryPlannerParams plannerParams = QueryPlannerParams.newBuilder()
+                .withTableType( AnalyticsTableType.DATA_VALUE ).build();
+
+            DataQueryParams queryParams = queryPlanner.withTableNameAndPartitions( params, plannerParams );
+
+            Map<String, String> idSchemeMap = getIdSchemeMap( params );
+
+            if ( idSchemeMap.isEmpty() )
+            {
+                rawAnalyticsManager.streamRawDataValues( queryParams, sink );
+            }
+            else
+            {
+                List<Integer> metaColumns = grid.getMetaColumnIndexes();
+
+                rawAnalyticsManager.streamRawDataValues( queryParams, row -> {
+                    for ( Integer column : metaColumns )
+                    {
+                        String value = idSchemeMap.get( row.get( column ) );
+
+                        if ( value != null )
+                        {
+                            row.set( column, value );
+                        }
+                    }
+
+                    sink.addRow( row );
+                } );
+            }
+        }
+
+        sink.finish();
+    }
+
     /**
      * Prepares the given data query parameters.
      *
@@ -1414,4 +1571,17 @@ public class DefaultAnalyticsService
 
         return (cores == null || cores == 0) ? SystemUtils.getCpuCores() : cores;
     }
+
+    /**
+     * Creates a grid for analytics results. Uses a {@link ColumnarGrid} if
+     * enabled through system setting, a {@link ListGrid} if not.
+     *
+     * @return a grid.
+     */
+    private Grid createGrid()
+    {
+        boolean columnar = Boolean.TRUE.equals( systemSettingManager.getSystemSetting( SettingKey.ANALYTICS_COLUMNAR_GRID ) );
+
+        return columnar ? new ColumnarGrid() : new ListGrid();
+    }
 }
@@ -0,0 +1,329 @@
+package org.hisp.dhis.analytics.data;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.hisp.dhis.analytics.DataQueryParams;
+import org.hisp.dhis.analytics.Partitions;
+import org.hisp.dhis.analytics.QueryAdmissionController;
+import org.hisp.dhis.analytics.table.PartitionUtils;
+import org.hisp.dhis.common.DimensionalObject;
+import org.hisp.dhis.common.IllegalQueryException;
+import org.hisp.dhis.common.QueryRuntimeException;
+import org.hisp.dhis.feedback.ErrorCode;
+import org.hisp.dhis.feedback.ErrorMessage;
+import org.hisp.dhis.setting.SettingKey;
+import org.hisp.dhis.setting.SystemSettingManager;
+import org.hisp.dhis.user.CurrentUserService;
+import org.springframework.stereotype.Component;
+
+import com.google.common.math.LongMath;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Admission controller which estimates the cost of a query as the product of
+ * the number of items of each dimension and filter and the number of yearly
+ * table partitions spanned by the query. Waiting queries are ordered by
+ * cost, where the cost used for ordering is halved for every aging interval a
+ * query has waited so that expensive queries are not starved.
+ */
+@Slf4j
+@Component( "org.hisp.dhis.analytics.QueryAdmissionController" )
+public class DefaultQueryAdmissionController
+    implements QueryAdmissionController
+{
+    private static final long AGING_INTERVAL_MILLIS = 5000;
+
+    private static final String ANONYMOUS_USER = "";
+
+    private final SystemSettingManager systemSettingManager;
+
+    private final CurrentUserService currentUserService;
+
+    /**
+     * Indicates whether the current thread is executing an admitted query.
+     */
+    private final ThreadLocal<Boolean> admitted = ThreadLocal.withInitial( () -> Boolean.FALSE );
+
+    /**
+     * Waiting queries, guarded by this.
+     */
+    private final List<QueuedQuery> queue = new ArrayList<>();
+
+    /**
+     * Number of running queries per user, guarded by this.
+     */
+    private final Map<String, Integer> userQueries = new HashMap<>();
+
+    /**
+     * Number of running queries, guarded by this.
+     */
+    private int runningQueries = 0;
+
+    private long sequence = 0;
+
+    public DefaultQueryAdmissionController( SystemSettingManager systemSettingManager, CurrentUserService currentUserService )
+    {
+        checkNotNull( systemSettingManager );
+        checkNotNull( currentUserService );
+
+        this.systemSettingManager = systemSettingManager;
+        this.currentUserService = currentUserService;
+    }
+
+    // -------------------------------------------------------------------------
+    // QueryAdmissionController implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public long getQueryCost( DataQueryParams params )
+    {
+        long cost = 1;
+
+        for ( DimensionalObject dimension : params.getDimensionsAndFilters() )
+        {
+            cost = LongMath.saturatedMultiply( cost, Math.max( 1, dimension.getItems().size() ) );
+        }
+
+        Partitions partitions = params.hasStartEndDate() ?
+            PartitionUtils.getPartitions( params.getStartDate(), params.getEndDate() ) :
+            PartitionUtils.getPartitions( params.getAllPeriods() );
+
+        return LongMath.saturatedMultiply( cost, Math.max( 1, partitions.getPartitions().size() ) );
+    }
+
+    @Override
+    public <T> T execute( DataQueryParams params, Supplier<T> query )
+    {
+        if ( admitted.get() )
+        {
+            return query.get();
+        }
+
+        long cost = getQueryCost( params );
+
+        long maxCost = getIntegerSetting( SettingKey.ANALYTICS_MAX_QUERY_COST );
+
+        if ( maxCost > 0 && cost > maxCost )
+        {
+            log.warn( String.format( "Rejected analytics query with cost: %d, max cost: %d", cost, maxCost ) );
+
+            throw new IllegalQueryException( new ErrorMessage( ErrorCode.E7132, cost, maxCost ) );
+        }
+
+        if ( getIntegerSetting( SettingKey.ANALYTICS_MAX_CONCURRENT_QUERIES ) <= 0 &&
+            getIntegerSetting( SettingKey.ANALYTICS_MAX_CONCURRENT_QUERIES_PER_USER ) <= 0 )
+        {
+            return query.get();
+        }
+
+        String user = getUsername( params );
+
+        acquire( user, cost );
+
+        admitted.set( Boolean.TRUE );
+
+        try
+        {
+            return query.get();
+        }
+        finally
+        {
+            admitted.remove();
+
+            release( user );
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Waits until the query is the cheapest admissible query in the queue and
+     * there is a free slot for the user, then occupies the slot.
+     *
+     * @param user the username.
+     * @param cost the cost of the query.
+     * @throws QueryRuntimeException if the queue timeout is exceeded or the
+     *         thread is interrupted.
+     */
+    private synchronized void acquire( String user, long cost )
+    {
+        long start = System.currentTimeMillis();
+        long deadline = start + getIntegerSetting( SettingKey.ANALYTICS_QUERY_QUEUE_TIMEOUT ) * 1000L;
+
+        QueuedQuery queuedQuery = new QueuedQuery( user, cost, start, sequence++ );
+
+        queue.add( queuedQuery );
+
+        try
+        {
+            while ( getNextAdmissible() != queuedQuery )
+            {
+                long now = System.currentTimeMillis();
+
+                if ( now >= deadline )
+                {
+                    log.warn( String.format( "Analytics query with cost: %d for user: '%s' timed out after waiting: %d ms, running queries: %d, queued: %d",
+                        cost, user, now - start, runningQueries, queue.size() ) );
+
+                    throw new QueryRuntimeException( ErrorCode.E7133, null );
+                }
+
+                wait( Math.min( deadline - now, AGING_INTERVAL_MILLIS ) );
+            }
+
+            runningQueries++;
+            userQueries.merge( user, 1, Integer::sum );
+
+            log.debug( String.format( "Admitted analytics query with cost: %d for user: '%s' after waiting: %d ms",
+                cost, user, System.currentTimeMillis() - start ) );
+        }
+        catch ( InterruptedException ex )
+        {
+            Thread.currentThread().interrupt();
+
+            throw new QueryRuntimeException( ErrorCode.E7133, ex );
+        }
+        finally
+        {
+            queue.remove( queuedQuery );
+
+            notifyAll();
+        }
+    }
+
+    private synchronized void release( String user )
+    {
+        runningQueries--;
+        userQueries.computeIfPresent( user, ( u, count ) -> count > 1 ? count - 1 : null );
+
+        notifyAll();
+    }
+
+    /**
+     * Returns the queued query to admit next, or null if no query can be
+     * admitted. A query can be admitted if the global budget is not exhausted
+     * and its user budget is not exhausted, where a budget of 0 is unlimited. Among those, the query with the
+     * lowest aged cost is admitted first, then the query queued first.
+     */
+    private QueuedQuery getNextAdmissible()
+    {
+        int maxQueries = getIntegerSetting( SettingKey.ANALYTICS_MAX_CONCURRENT_QUERIES );
+
+        if ( maxQueries > 0 && runningQueries >= maxQueries )
+        {
+            return null;
+        }
+
+        int maxUserQueries = getIntegerSetting( SettingKey.ANALYTICS_MAX_CONCURRENT_QUERIES_PER_USER );
+
+        long now = System.currentTimeMillis();
+
+        QueuedQuery next = null;
+
+        for ( QueuedQuery query : queue )
+        {
+            if ( maxUserQueries > 0 && userQueries.getOrDefault( query.user, 0 ) >= maxUserQueries )
+            {
+                continue;
+            }
+
+            if ( next == null || query.compareTo( next, now ) < 0 )
+            {
+                next = query;
+            }
+        }
+
+        return next;
+    }
+
+    private String getUsername( DataQueryParams params )
+    {
+        String username = params.hasCurrentUser() ?
+            params.getCurrentUser().getUsername() : currentUserService.getCurrentUsername();
+
+        return username != null ? username : ANONYMOUS_USER;
+    }
+
+    private int getIntegerSetting( SettingKey key )
+    {
+        Integer value = (Integer) systemSettingManager.getSystemSetting( key );
+
+        return value != null ? value : 0;
+    }
+
+    /**
+     * A query waiting for admission.
+     */
+    private static class QueuedQuery
+    {
+        private final String user;
+
+        private final long cost;
+
+        private final long queuedTime;
+
+        private final long sequence;
+
+        QueuedQuery( String user, long cost, long queuedTime, long sequence )
+        {
+            this.user = user;
+            this.cost = cost;
+            this.queuedTime = queuedTime;
+            this.sequence = sequence;
+        }
+
+        /**
+         * Returns the cost halved for every aging interval waited.
+         */
+        long getAgedCost( long now )
+        {
+            long intervals = ( now - queuedTime ) / AGING_INTERVAL_MILLIS;
+
+            return intervals >= Long.SIZE ? 0 : cost >> intervals;
+        }
+
+        int compareTo( QueuedQuery other, long now )
+        {
+            int result = Long.compare( getAgedCost( now ), other.getAgedCost( now ) );
+
+            return result != 0 ? result : Long.compare( sequence, other.sequence );
+        }
+    }
+}
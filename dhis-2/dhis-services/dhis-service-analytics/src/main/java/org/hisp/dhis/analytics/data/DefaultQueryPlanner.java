@@ -37,14 +37,19 @@ import static org.hisp.dhis.analytics.util.AnalyticsUtils.throwIllegalQueryEx;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import org.hisp.dhis.analytics.AggregationType;
 import org.hisp.dhis.analytics.AnalyticsAggregationType;
+import org.hisp.dhis.analytics.AnalyticsRollup;
+import org.hisp.dhis.analytics.AnalyticsRollupService;
 import org.hisp.dhis.analytics.AnalyticsTableType;
 import org.hisp.dhis.analytics.DataQueryGroups;
 import org.hisp.dhis.analytics.DataQueryParams;
 import org.hisp.dhis.analytics.DataType;
+import org.hisp.dhis.analytics.AnalyticsTablePartition;
 import org.hisp.dhis.analytics.Partitions;
 import org.hisp.dhis.analytics.QueryPlanner;
 import org.hisp.dhis.analytics.QueryPlannerParams;
@@ -84,13 +89,18 @@ public class DefaultQueryPlanner
 
     private final PartitionManager partitionManager;
 
-    public DefaultQueryPlanner( QueryValidator queryValidator, PartitionManager partitionManager )
+    private final AnalyticsRollupService rollupService;
+
+    public DefaultQueryPlanner( QueryValidator queryValidator, PartitionManager partitionManager,
+        AnalyticsRollupService rollupService )
     {
         checkNotNull( queryValidator );
         checkNotNull( partitionManager );
+        checkNotNull( rollupService );
 
         this.queryValidator = queryValidator;
         this.partitionManager = partitionManager;
+        this.rollupService = rollupService;
     }
 
     // -------------------------------------------------------------------------
@@ -131,6 +141,12 @@ public class DefaultQueryPlanner
             currentQueries.forEach( query -> queries.addAll( grouper.apply( query ) ) );
         }
 
+        // ---------------------------------------------------------------------
+        // Route queries to rollup tables where possible
+        // ---------------------------------------------------------------------
+
+        queries.replaceAll( query -> withRollupTable( query, plannerParams ) );
+
         // ---------------------------------------------------------------------
         // Split queries until optimal number
         // ---------------------------------------------------------------------
@@ -188,6 +204,87 @@ public class DefaultQueryPlanner
             .build();
     }
 
+    // -------------------------------------------------------------------------
+    // Supportive rollup methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the given query with the table name of the smallest rollup table
+     * which contains all columns referenced by the query and for which all
+     * partitions of the query exist. Returns the query unchanged if the query
+     * is not eligible for rollups or if no such rollup table exists. Existing
+     * partitions are looked up in the cached set of analytics partitions.
+     *
+     * @param params the {@link DataQueryParams}.
+     * @param plannerParams the {@link QueryPlannerParams}.
+     * @return a {@link DataQueryParams}.
+     */
+    private DataQueryParams withRollupTable( DataQueryParams params, QueryPlannerParams plannerParams )
+    {
+        List<AnalyticsRollup> rollups = rollupService.getRollups();
+
+        if ( rollups.isEmpty() || AnalyticsTableType.DATA_VALUE != plannerParams.getTableType() || !isRollupEligible( params ) )
+        {
+            return params;
+        }
+
+        Set<String> existingPartitions = partitionManager.getAnalyticsPartitions( plannerParams.getTableType() );
+
+        Set<String> columns = params.getDimensionsAndFilters().stream()
+            .map( DimensionalObject::getDimensionName )
+            .collect( Collectors.toSet() );
+
+        for ( AnalyticsRollup rollup : rollups )
+        {
+            if ( !rollup.hasColumns( columns ) )
+            {
+                continue;
+            }
+
+            String tableName = plannerParams.getTableName() + PartitionUtils.SEP + rollup.getName();
+
+            boolean partitionsExist = params.getPartitions().getPartitions().stream()
+                .allMatch( partition -> existingPartitions.contains( PartitionUtils.getPartitionName( tableName, partition ) ) );
+
+            if ( partitionsExist )
+            {
+                log.debug( String.format( "Using rollup table: '%s'", tableName ) );
+
+                return DataQueryParams.newBuilder( params )
+                    .withTableName( tableName )
+                    .build();
+            }
+        }
+
+        return params;
+    }
+
+    /**
+     * Indicates whether the given query can be answered from a rollup table.
+     * Rollup tables hold summed numeric values only and lack the columns
+     * required for disaggregation, approval, timeliness, value criteria and
+     * start and end date restrictions. The latest partition is never rolled up.
+     *
+     * @param params the {@link DataQueryParams}.
+     * @return true if the query can be answered from a rollup table.
+     */
+    private boolean isRollupEligible( DataQueryParams params )
+    {
+        return params.getAggregationType() != null &&
+            params.getAggregationType().isAggregationType( AggregationType.SUM ) &&
+            params.getAggregationType().isPeriodAggregationType( AggregationType.SUM ) &&
+            params.isDataType( DataType.NUMERIC ) &&
+            !params.isDisaggregation() &&
+            !params.hasStartEndDate() &&
+            !params.hasStartEndDateRestriction() &&
+            !params.isDataApproval() &&
+            !params.isTimely() &&
+            !params.hasPreAggregateMeasureCriteria() &&
+            !params.isSkipPartitioning() &&
+            params.hasPartitions() &&
+            !params.getPartitions().getPartitions().contains( AnalyticsTablePartition.LATEST_PARTITION );
+    }
+
     // -------------------------------------------------------------------------
     // Supportive split methods
     // -------------------------------------------------------------------------
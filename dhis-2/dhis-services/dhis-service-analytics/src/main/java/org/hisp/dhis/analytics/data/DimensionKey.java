@@ -0,0 +1,116 @@
+package org.hisp.dhis.analytics.data;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.Arrays;
+
+/**
+ * Compact key of an aggregated analytics value. Holds the identifiers of the
+ * dimension item values of a row, as assigned by a {@link DimensionKeyDictionary},
+ * in the order of the query dimensions. The hash code is computed once, which
+ * makes instances cheap to use as map keys.
+ */
+public final class DimensionKey
+{
+    private final int[] ids;
+
+    private final int hash;
+
+    DimensionKey( int[] ids )
+    {
+        this.ids = ids;
+        this.hash = Arrays.hashCode( ids );
+    }
+
+    // -------------------------------------------------------------------------
+    // Logic
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the number of dimension values in this key.
+     */
+    public int size()
+    {
+        return ids.length;
+    }
+
+    /**
+     * Returns the dictionary identifier at the given index.
+     *
+     * @param index the dimension index.
+     */
+    public int getId( int index )
+    {
+        return ids[index];
+    }
+
+    /**
+     * Returns a copy of this key where the identifier at the given index is
+     * replaced with the given identifier.
+     *
+     * @param index the dimension index.
+     * @param id the replacement dictionary identifier.
+     */
+    public DimensionKey withId( int index, int id )
+    {
+        int[] copy = ids.clone();
+        copy[index] = id;
+        return new DimensionKey( copy );
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return hash;
+    }
+
+    @Override
+    public boolean equals( Object object )
+    {
+        if ( this == object )
+        {
+            return true;
+        }
+
+        if ( object == null || getClass() != object.getClass() )
+        {
+            return false;
+        }
+
+        DimensionKey other = (DimensionKey) object;
+
+        return hash == other.hash && Arrays.equals( ids, other.ids );
+    }
+
+    @Override
+    public String toString()
+    {
+        return Arrays.toString( ids );
+    }
+}
@@ -0,0 +1,158 @@
+package org.hisp.dhis.analytics.data;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hisp.dhis.common.DimensionalObject.DIMENSION_SEP;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-query dictionary which assigns a sequential integer identifier to each
+ * distinct dimension item value, such as an organisation unit identifier or a
+ * period ISO string. Each distinct value is stored once, and rows of aggregated
+ * values are keyed on {@link DimensionKey} tuples of identifiers. String keys
+ * joined with {@link org.hisp.dhis.common.DimensionalObject#DIMENSION_SEP} are
+ * only created once the final key and value map is produced.
+ * <p>
+ * This class is not thread-safe and is meant to be confined to a single query.
+ */
+public class DimensionKeyDictionary
+{
+    private final Map<String, Integer> ids = new HashMap<>();
+
+    private final List<String> values = new ArrayList<>();
+
+    // -------------------------------------------------------------------------
+    // Logic
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the identifier of the given value, assigning a new identifier if
+     * the value has not been seen before. Null values are allowed.
+     *
+     * @param value the dimension item value.
+     * @return the identifier of the value.
+     */
+    public int getId( String value )
+    {
+        Integer id = ids.get( value );
+
+        if ( id == null )
+        {
+            id = values.size();
+            ids.put( value, id );
+            values.add( value );
+        }
+
+        return id;
+    }
+
+    /**
+     * Returns the value for the given identifier.
+     *
+     * @param id the identifier.
+     * @return the dimension item value.
+     */
+    public String getValue( int id )
+    {
+        return values.get( id );
+    }
+
+    /**
+     * Returns the number of distinct values in this dictionary.
+     */
+    public int size()
+    {
+        return values.size();
+    }
+
+    /**
+     * Creates a key for the given dimension item values.
+     *
+     * @param keyValues the dimension item values.
+     * @return a {@link DimensionKey}.
+     */
+    public DimensionKey getKey( String... keyValues )
+    {
+        int[] keyIds = new int[keyValues.length];
+
+        for ( int i = 0; i < keyValues.length; i++ )
+        {
+            keyIds[i] = getId( keyValues[i] );
+        }
+
+        return new DimensionKey( keyIds );
+    }
+
+    /**
+     * Returns the string key for the given key, where dimension item values
+     * are separated by {@link org.hisp.dhis.common.DimensionalObject#DIMENSION_SEP}.
+     *
+     * @param key the {@link DimensionKey}.
+     * @return the string key.
+     */
+    public String toString( DimensionKey key )
+    {
+        StringBuilder builder = new StringBuilder();
+
+        for ( int i = 0; i < key.size(); i++ )
+        {
+            if ( i > 0 )
+            {
+                builder.append( DIMENSION_SEP );
+            }
+
+            builder.append( values.get( key.getId( i ) ) );
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Converts the given map with {@link DimensionKey} keys to a map with string
+     * keys.
+     *
+     * @param map the map to convert.
+     * @return a map with string keys.
+     */
+    public <V> Map<String, V> toStringKeyMap( Map<DimensionKey, V> map )
+    {
+        Map<String, V> stringKeyMap = new HashMap<>( map.size() * 4 / 3 + 1 );
+
+        for ( Map.Entry<DimensionKey, V> entry : map.entrySet() )
+        {
+            stringKeyMap.put( toString( entry.getKey() ), entry.getValue() );
+        }
+
+        return stringKeyMap;
+    }
+}
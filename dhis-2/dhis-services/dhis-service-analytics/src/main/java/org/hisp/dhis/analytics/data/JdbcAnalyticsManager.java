@@ -57,6 +57,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.Future;
 import java.util.stream.Collectors;
@@ -69,6 +70,7 @@ import org.hisp.dhis.analytics.DataQueryParams;
 import org.hisp.dhis.analytics.DataType;
 import org.hisp.dhis.analytics.MeasureFilter;
 import org.hisp.dhis.analytics.QueryPlanner;
+import org.hisp.dhis.analytics.cache.AnalyticsPartialResultCache;
 import org.hisp.dhis.analytics.table.PartitionUtils;
 import org.hisp.dhis.analytics.util.AnalyticsSqlUtils;
 import org.hisp.dhis.analytics.util.AnalyticsUtils;
@@ -127,13 +129,18 @@ public class JdbcAnalyticsManager
 
     private final JdbcTemplate jdbcTemplate;
 
-    public JdbcAnalyticsManager( QueryPlanner queryPlanner, @Qualifier( "readOnlyJdbcTemplate" ) JdbcTemplate jdbcTemplate )
+    private final AnalyticsPartialResultCache partialResultCache;
+
+    public JdbcAnalyticsManager( QueryPlanner queryPlanner, @Qualifier( "readOnlyJdbcTemplate" ) JdbcTemplate jdbcTemplate,
+        AnalyticsPartialResultCache partialResultCache )
     {
         checkNotNull( queryPlanner );
         checkNotNull( jdbcTemplate );
+        checkNotNull( partialResultCache );
 
         this.queryPlanner = queryPlanner;
         this.jdbcTemplate = jdbcTemplate;
+        this.partialResultCache = partialResultCache;
     }
 
     // -------------------------------------------------------------------------
@@ -151,6 +158,8 @@ public class JdbcAnalyticsManager
             ListMap<DimensionalItemObject, DimensionalItemObject> dataPeriodAggregationPeriodMap =
                 params.getDataPeriodAggregationPeriodMap();
 
+            final DataQueryParams plannedParams = params;
+
             if ( params.isDisaggregation() && params.hasDataPeriodType() )
             {
                 params = DataQueryParams.newBuilder( params )
@@ -160,6 +169,15 @@ public class JdbcAnalyticsManager
                 params = queryPlanner.assignPartitionsFromQueryPeriods( params, tableType );
             }
 
+            String cacheKey = partialResultCache.getKey( plannedParams, tableType, maxLimit, getSourceTables( params ) );
+
+            Optional<Map<String, Object>> cachedMap = partialResultCache.get( cacheKey );
+
+            if ( cachedMap.isPresent() )
+            {
+                return new AsyncResult<>( cachedMap.get() );
+            }
+
             String sql = getSelectClause( params );
 
             sql += getFromClause( params );
@@ -179,7 +197,20 @@ public class JdbcAnalyticsManager
 
             try
             {
-                map = getKeyValueMap( params, sql, maxLimit );
+                if ( params.isDisaggregation() && params.getPeriodDimensionIndex() != -1 )
+                {
+                    DimensionKeyDictionary dictionary = new DimensionKeyDictionary();
+
+                    Map<DimensionKey, Object> keyMap = getKeyValueMap( params, sql, maxLimit, dictionary );
+
+                    replaceDataPeriodsWithAggregationPeriods( keyMap, dictionary, params, dataPeriodAggregationPeriodMap );
+
+                    map = dictionary.toStringKeyMap( keyMap );
+                }
+                else
+                {
+                    map = getKeyValueMap( params, sql, maxLimit );
+                }
             }
             catch ( BadSqlGrammarException ex )
             {
@@ -187,7 +218,7 @@ public class JdbcAnalyticsManager
                 return new AsyncResult<>( Maps.newHashMap() );
             }
 
-            replaceDataPeriodsWithAggregationPeriods( map, params, dataPeriodAggregationPeriodMap );
+            partialResultCache.put( cacheKey, map );
 
             return new AsyncResult<>( map );
         }
@@ -216,42 +247,37 @@ public class JdbcAnalyticsManager
                 return; // Period is filter, nothing to replace
             }
 
+            Map<String, List<Period>> aggregationPeriodCache = new HashMap<>();
+
             Set<String> keys = new HashSet<>( dataValueMap.keySet() );
 
             for ( String key : keys )
             {
                 String[] keyArray = key.split( DIMENSION_SEP );
 
-                String periodKey = keyArray[periodIndex];
-
-                Assert.notNull( periodKey, String.format( "Period key cannot be null, key: '%s'", key ) );
-
-                List<DimensionalItemObject> periods = dataPeriodAggregationPeriodMap.get( PeriodType.getPeriodFromIsoString( periodKey ) );
-
-                Assert.notNull( periods, String.format( "Period list cannot be null, key: '%s', map: '%s'", key, dataPeriodAggregationPeriodMap.toString() ) );
+                List<Period> periods = aggregationPeriodCache.computeIfAbsent( keyArray[periodIndex],
+                    periodKey -> getAggregationPeriods( periodKey, dataPeriodAggregationPeriodMap ) );
 
                 Object value = dataValueMap.get( key );
 
-                for ( DimensionalItemObject period : periods )
+                for ( Period period : periods )
                 {
-                    String[] keyCopy = keyArray.clone();
+                    keyArray[periodIndex] = period.getIsoDate();
 
-                    keyCopy[periodIndex] = ((Period) period).getIsoDate();
-
-                    String replacementKey = TextUtils.toString( keyCopy, DIMENSION_SEP );
+                    String replacementKey = TextUtils.toString( keyArray, DIMENSION_SEP );
 
                     if ( dataValueMap.containsKey( replacementKey )
-                        && ((Period) period).getPeriodType().spansMultipleCalendarYears() )
+                        && period.getPeriodType().spansMultipleCalendarYears() )
                     {
                         Object weightedAverage = AnalyticsUtils.calculateYearlyWeightedAverage(
                             (Double) dataValueMap.get( replacementKey ), (Double) value,
-                                AnalyticsUtils.getBaseMonth( ((Period) period).getPeriodType() ) );
+                                AnalyticsUtils.getBaseMonth( period.getPeriodType() ) );
 
-                        dataValueMap.put( TextUtils.toString( keyCopy, DIMENSION_SEP ), weightedAverage );
+                        dataValueMap.put( replacementKey, weightedAverage );
                     }
                     else
                     {
-                        dataValueMap.put( TextUtils.toString( keyCopy, DIMENSION_SEP ), value );
+                        dataValueMap.put( replacementKey, value );
                     }
                 }
 
@@ -260,6 +286,79 @@ public class JdbcAnalyticsManager
         }
     }
 
+    /**
+     * Replaces the data periods of the keys of the given map with the aggregation
+     * periods they map to. Operates on {@link DimensionKey} keys, where the
+     * aggregation periods of each distinct data period are resolved only once.
+     * Only used for disaggregation queries where period is a dimension.
+     *
+     * @param dataValueMap map of {@link DimensionKey} and value.
+     * @param dictionary the {@link DimensionKeyDictionary} of the keys.
+     * @param params the {@link DataQueryParams}.
+     * @param dataPeriodAggregationPeriodMap mapping of data period to aggregation periods.
+     */
+    private void replaceDataPeriodsWithAggregationPeriods( Map<DimensionKey, Object> dataValueMap, DimensionKeyDictionary dictionary,
+        DataQueryParams params, ListMap<DimensionalItemObject, DimensionalItemObject> dataPeriodAggregationPeriodMap )
+    {
+        int periodIndex = params.getPeriodDimensionIndex();
+
+        Map<Integer, List<Period>> aggregationPeriodCache = new HashMap<>();
+
+        Set<DimensionKey> keys = new HashSet<>( dataValueMap.keySet() );
+
+        for ( DimensionKey key : keys )
+        {
+            int periodId = key.getId( periodIndex );
+
+            List<Period> periods = aggregationPeriodCache.computeIfAbsent( periodId,
+                id -> getAggregationPeriods( dictionary.getValue( id ), dataPeriodAggregationPeriodMap ) );
+
+            Object value = dataValueMap.get( key );
+
+            for ( Period period : periods )
+            {
+                DimensionKey replacementKey = key.withId( periodIndex, dictionary.getId( period.getIsoDate() ) );
+
+                if ( dataValueMap.containsKey( replacementKey )
+                    && period.getPeriodType().spansMultipleCalendarYears() )
+                {
+                    Object weightedAverage = AnalyticsUtils.calculateYearlyWeightedAverage(
+                        (Double) dataValueMap.get( replacementKey ), (Double) value,
+                            AnalyticsUtils.getBaseMonth( period.getPeriodType() ) );
+
+                    dataValueMap.put( replacementKey, weightedAverage );
+                }
+                else
+                {
+                    dataValueMap.put( replacementKey, value );
+                }
+            }
+
+            dataValueMap.remove( key );
+        }
+    }
+
+    /**
+     * Returns the aggregation periods for the given data period ISO string.
+     *
+     * @param periodKey the data period ISO string.
+     * @param dataPeriodAggregationPeriodMap mapping of data period to aggregation periods.
+     * @return a list of aggregation periods.
+     */
+    private List<Period> getAggregationPeriods( String periodKey,
+        ListMap<DimensionalItemObject, DimensionalItemObject> dataPeriodAggregationPeriodMap )
+    {
+        Assert.notNull( periodKey, "Period key cannot be null" );
+
+        List<DimensionalItemObject> periods = dataPeriodAggregationPeriodMap.get( PeriodType.getPeriodFromIsoString( periodKey ) );
+
+        Assert.notNull( periods, String.format( "Period list cannot be null, period: '%s', map: '%s'", periodKey, dataPeriodAggregationPeriodMap.toString() ) );
+
+        return periods.stream()
+            .map( period -> (Period) period )
+            .collect( Collectors.toList() );
+    }
+
     // -------------------------------------------------------------------------
     // Supportive methods
     // -------------------------------------------------------------------------
@@ -361,6 +460,24 @@ public class JdbcAnalyticsManager
         return sql + " as " + ANALYTICS_TBL_ALIAS + " ";
     }
 
+    /**
+     * Returns the names of the analytics tables or partitions which the query
+     * reads from, corresponding to {@link #getFromSourceClause(DataQueryParams)}.
+     */
+    private List<String> getSourceTables( DataQueryParams params )
+    {
+        if ( !params.isSkipPartitioning() && params.hasPartitions() )
+        {
+            return params.getPartitions().getPartitions().stream()
+                .map( partition -> PartitionUtils.getPartitionName( params.getTableName(), partition ) )
+                .collect( Collectors.toList() );
+        }
+        else
+        {
+            return Lists.newArrayList( params.getTableName() );
+        }
+    }
+
     /**
      * Returns the query from source clause. Can be any of table name, partition
      * name or inner select union all query.
@@ -700,6 +817,65 @@ public class JdbcAnalyticsManager
         return map;
     }
 
+    /**
+     * Retrieves data from the database based on the given query and SQL and puts
+     * into a value key and value mapping. Dimension item values are interned in
+     * the given {@link DimensionKeyDictionary}. Used for disaggregation queries,
+     * where data periods are replaced with aggregation periods before the string
+     * keys are produced.
+     */
+    private Map<DimensionKey, Object> getKeyValueMap( DataQueryParams params, String sql, int maxLimit,
+        DimensionKeyDictionary dictionary )
+    {
+        Map<DimensionKey, Object> map = new HashMap<>();
+
+        log.debug( String.format( "Analytics SQL: %s", sql ) );
+
+        SqlRowSet rowSet = jdbcTemplate.queryForRowSet( sql );
+
+        List<DimensionalObject> dimensions = params.getDimensions();
+
+        int counter = 0;
+
+        while ( rowSet.next() )
+        {
+            boolean exceedsMaxLimit = maxLimit > 0 && ++counter > maxLimit;
+
+            if ( exceedsMaxLimit )
+            {
+                throwIllegalQueryEx( ErrorCode.E7128, maxLimit );
+            }
+
+            int[] keyIds = new int[dimensions.size()];
+
+            for ( int i = 0; i < keyIds.length; i++ )
+            {
+                DimensionalObject dim = dimensions.get( i );
+
+                String value = dim.isFixed() ? dim.getDimensionName() : rowSet.getString( dim.getDimensionName() );
+
+                keyIds[i] = dictionary.getId( value );
+            }
+
+            DimensionKey key = new DimensionKey( keyIds );
+
+            if ( params.isDataType( TEXT ) )
+            {
+                String value = rowSet.getString( VALUE_ID );
+
+                map.put( key, value );
+            }
+            else // NUMERIC
+            {
+                Double value = rowSet.getDouble( VALUE_ID );
+
+                map.put( key, value );
+            }
+        }
+
+        return map;
+    }
+
     /**
      * Generates a comma-delimited string based on the dimension names of the
      * given dimensions where each dimension name is quoted.
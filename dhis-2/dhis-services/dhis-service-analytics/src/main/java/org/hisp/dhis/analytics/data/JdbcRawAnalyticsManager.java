@@ -51,7 +51,6 @@ import org.hisp.dhis.util.DateUtils;
 import org.hisp.dhis.util.ObjectUtils;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Component;
 import org.springframework.util.Assert;
 
@@ -84,6 +83,14 @@ public class JdbcRawAnalyticsManager
 
     @Override
     public Grid getRawDataValues( DataQueryParams params, Grid grid )
+    {
+        streamRawDataValues( params, row -> grid.addRow().addValuesAsList( row ) );
+
+        return grid;
+    }
+
+    @Override
+    public void streamRawDataValues( DataQueryParams params, GridRowSink sink )
     {
         Assert.isTrue( params.hasStartEndDate(), "Start and end dates must be specified" );
 
@@ -101,21 +108,20 @@ public class JdbcRawAnalyticsManager
 
         log.debug( "Get raw data SQL: " + sql );
 
-        SqlRowSet rowSet = jdbcTemplate.queryForRowSet( sql );
+        List<Object> row = new ArrayList<>( dimensions.size() + 1 );
 
-        while ( rowSet.next() )
-        {
-            grid.addRow();
+        AnalyticsUtils.queryStreaming( jdbcTemplate, sql, rowSet -> {
+            row.clear();
 
             for ( DimensionalObject dim : dimensions )
             {
-                grid.addValue( rowSet.getString( dim.getDimensionName() ) );
+                row.add( rowSet.getString( dim.getDimensionName() ) );
             }
 
-            grid.addValue( rowSet.getDouble( "value" ) );
-        }
+            row.add( rowSet.getDouble( "value" ) );
 
-        return grid;
+            sink.addRow( row );
+        } );
     }
 
     // -------------------------------------------------------------------------
@@ -28,7 +28,11 @@ package org.hisp.dhis.analytics.event;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import java.util.List;
+
 import org.hisp.dhis.common.Grid;
+import org.hisp.dhis.common.GridHeader;
+import org.hisp.dhis.common.GridRowSink;
 
 import org.hisp.dhis.analytics.Rectangle;
 
@@ -41,6 +45,17 @@ public interface EventAnalyticsManager
 
     Grid getEvents( EventQueryParams params, Grid grid, int maxLimit );
 
+    /**
+     * Passes events to the given row sink one row at a time, without
+     * materializing the result in memory.
+     *
+     * @param params the {@link EventQueryParams}.
+     * @param headers the grid headers, which determine the row values.
+     * @param sink the {@link GridRowSink}.
+     * @param maxLimit the max number of records to retrieve.
+     */
+    void streamEvents( EventQueryParams params, List<GridHeader> headers, GridRowSink sink, int maxLimit );
+
     Grid getEventClusters( EventQueryParams params, Grid grid, int maxLimit );
 
     long getEventCount( EventQueryParams params );
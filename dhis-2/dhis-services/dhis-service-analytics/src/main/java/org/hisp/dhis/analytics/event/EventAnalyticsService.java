@@ -32,6 +32,7 @@ import org.hisp.dhis.analytics.AnalyticsMetaDataKey;
 import org.hisp.dhis.analytics.Rectangle;
 import org.hisp.dhis.common.AnalyticalObject;
 import org.hisp.dhis.common.Grid;
+import org.hisp.dhis.common.GridRowSink;
 import org.hisp.dhis.common.event.ApplicationCacheClearedEvent;
 
 import java.util.List;
@@ -102,6 +103,18 @@ public interface EventAnalyticsService
      */
     Grid getEvents( EventQueryParams params );
 
+    /**
+     * Streams events matching the given query to the given row sink. Headers,
+     * meta-data and rows are equal to those of {@link #getEvents(EventQueryParams)},
+     * except that the pager is not included in the meta-data. Rows are passed
+     * to the sink as they are read, which keeps memory usage bounded for
+     * large results.
+     *
+     * @param params the event query parameters.
+     * @param sink the row sink.
+     */
+    void streamEvents( EventQueryParams params, GridRowSink sink );
+
     /**
      * Returns a list of event clusters matching the given query.
      *
@@ -79,31 +79,13 @@ public abstract class AbstractAnalyticsService
         // Decide access, add constraints and validate
         // ---------------------------------------------------------------------
 
-        securityManager.decideAccessEventQuery( params );
-
-        params = securityManager.withUserConstraints( params );
-
-        queryValidator.validate( params );
-
-        params = new EventQueryParams.Builder( params )
-            .withStartEndDatesForPeriods()
-            .build();
+        params = decideAccessAndValidate( params );
 
         // ---------------------------------------------------------------------
         // Headers
         // ---------------------------------------------------------------------
 
-        Grid grid = createGridWithHeaders( params );
-
-        for ( DimensionalObject dimension : params.getDimensions() )
-        {
-            grid.addHeader( new GridHeader( dimension.getDimension(), dimension.getDisplayProperty( params.getDisplayProperty() ), ValueType.TEXT, String.class.getName(), false, true ) );
-        }
-
-        for ( QueryItem item : params.getItems() )
-        {
-            grid.addHeader( new GridHeader( item.getItem().getUid(), item.getItem().getDisplayProperty( params.getDisplayProperty() ), item.getValueType(), item.getTypeAsString(), false, true, item.getOptionSet(), item.getLegendSet() ) );
-        }
+        Grid grid = createGridWithAllHeaders( params );
 
         // ---------------------------------------------------------------------
         // Data
@@ -140,6 +122,92 @@ public abstract class AbstractAnalyticsService
         return grid;
     }
 
+    /**
+     * Decides access, adds user constraints and validates the given query.
+     *
+     * @param params the {@link EventQueryParams}.
+     * @return the {@link EventQueryParams} with constraints and start and end
+     *         dates for periods.
+     */
+    protected EventQueryParams decideAccessAndValidate( EventQueryParams params )
+    {
+        securityManager.decideAccessEventQuery( params );
+
+        params = securityManager.withUserConstraints( params );
+
+        queryValidator.validate( params );
+
+        return new EventQueryParams.Builder( params )
+            .withStartEndDatesForPeriods()
+            .build();
+    }
+
+    /**
+     * Creates a grid with the fixed headers of the query type, followed by
+     * headers for the dimensions and items of the given query.
+     *
+     * @param params the {@link EventQueryParams}.
+     * @return a {@link Grid} with headers.
+     */
+    protected Grid createGridWithAllHeaders( EventQueryParams params )
+    {
+        Grid grid = createGridWithHeaders( params );
+
+        for ( DimensionalObject dimension : params.getDimensions() )
+        {
+            grid.addHeader( new GridHeader( dimension.getDimension(), dimension.getDisplayProperty( params.getDisplayProperty() ), ValueType.TEXT, String.class.getName(), false, true ) );
+        }
+
+        for ( QueryItem item : params.getItems() )
+        {
+            grid.addHeader( new GridHeader( item.getItem().getUid(), item.getItem().getDisplayProperty( params.getDisplayProperty() ), item.getValueType(), item.getTypeAsString(), false, true, item.getOptionSet(), item.getLegendSet() ) );
+        }
+
+        return grid;
+    }
+
+    /**
+     * Returns a {@link GridRowSink} which substitutes option codes and legend
+     * identifiers with names in the columns of the given headers which have
+     * an option set or legend set, and passes the row on to the given sink.
+     *
+     * @param headers the list of {@link GridHeader}.
+     * @param sink the {@link GridRowSink} to pass substituted rows to.
+     * @return a {@link GridRowSink}.
+     */
+    protected GridRowSink withDataIdScheme( List<GridHeader> headers, GridRowSink sink )
+    {
+        Map<Integer, Map<String, String>> columnMaps = new HashMap<>();
+
+        for ( int i = 0; i < headers.size(); i++ )
+        {
+            GridHeader header = headers.get( i );
+
+            if ( header.hasOptionSet() )
+            {
+                columnMaps.put( i, header.getOptionSetObject().getOptionCodePropertyMap( IdScheme.NAME ) );
+            }
+            else if ( header.hasLegendSet() )
+            {
+                columnMaps.put( i, header.getLegendSetObject().getLegendUidPropertyMap( IdScheme.NAME ) );
+            }
+        }
+
+        return row -> {
+            for ( Map.Entry<Integer, Map<String, String>> entry : columnMaps.entrySet() )
+            {
+                String value = entry.getValue().get( row.get( entry.getKey() ) );
+
+                if ( value != null )
+                {
+                    row.set( entry.getKey(), value );
+                }
+            }
+
+            sink.addRow( row );
+        };
+    }
+
     protected abstract Grid createGridWithHeaders( EventQueryParams params );
 
     protected abstract long addEventData( Grid grid, EventQueryParams params );
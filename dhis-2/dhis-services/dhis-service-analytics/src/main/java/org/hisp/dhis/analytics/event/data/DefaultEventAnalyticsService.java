@@ -78,6 +78,7 @@ import org.hisp.dhis.common.DimensionalObject;
 import org.hisp.dhis.common.EventAnalyticalObject;
 import org.hisp.dhis.common.Grid;
 import org.hisp.dhis.common.GridHeader;
+import org.hisp.dhis.common.GridRowSink;
 import org.hisp.dhis.common.IdentifiableObjectUtils;
 import org.hisp.dhis.common.MetadataItem;
 import org.hisp.dhis.common.QueryItem;
@@ -563,6 +564,29 @@ public class DefaultEventAnalyticsService
         return getGrid( params );
     }
 
+    @Override
+    public void streamEvents( EventQueryParams params, GridRowSink sink )
+    {
+        params = decideAccessAndValidate( params );
+
+        Grid grid = createGridWithAllHeaders( params );
+
+        addMetadata( params, grid );
+
+        sink.start( grid.getHeaders(), grid.getMetaData() );
+
+        params = queryPlanner.planEventQuery( params );
+
+        if ( params.getPartitions().hasAny() )
+        {
+            GridRowSink rowSink = params.hasDataIdScheme() ? withDataIdScheme( grid.getHeaders(), sink ) : sink;
+
+            eventAnalyticsManager.streamEvents( params, grid.getHeaders(), rowSink, queryValidator.getMaxLimit() );
+        }
+
+        sink.finish();
+    }
+
     @Override
     public Grid getEventClusters( EventQueryParams params )
     {
@@ -43,6 +43,7 @@ import static org.hisp.dhis.commons.util.TextUtils.getQuotedCommaDelimitedString
 import static org.hisp.dhis.commons.util.TextUtils.removeLastOr;
 import static org.hisp.dhis.util.DateUtils.getMediumDateString;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -60,6 +61,7 @@ import org.hisp.dhis.common.DimensionalItemObject;
 import org.hisp.dhis.common.DimensionalObject;
 import org.hisp.dhis.common.Grid;
 import org.hisp.dhis.common.GridHeader;
+import org.hisp.dhis.common.GridRowSink;
 import org.hisp.dhis.common.OrganisationUnitSelectionMode;
 import org.hisp.dhis.common.QueryFilter;
 import org.hisp.dhis.common.QueryItem;
@@ -115,6 +117,24 @@ public class JdbcEventAnalyticsManager
         return grid;
     }
 
+    @Override
+    public void streamEvents( EventQueryParams params, List<GridHeader> headers, GridRowSink sink, int maxLimit )
+    {
+        String sql = getEventsOrEnrollmentsSql( params, maxLimit );
+
+        log.debug( String.format( "Analytics event query SQL: %s", sql ) );
+
+        List<Object> row = new ArrayList<>( headers.size() );
+
+        withExceptionHandling( () -> AnalyticsUtils.queryStreaming( jdbcTemplate, sql, rowSet -> {
+            row.clear();
+
+            addEventValues( params, headers, rowSet, row );
+
+            sink.addRow( row );
+        } ) );
+    }
+
     /**
      * Adds event to the given grid based on the given parameters and SQL statement.
      *
@@ -128,31 +148,49 @@ public class JdbcEventAnalyticsManager
 
         SqlRowSet rowSet = jdbcTemplate.queryForRowSet( sql );
 
+        List<Object> row = new ArrayList<>( grid.getHeaders().size() );
+
         while ( rowSet.next() )
         {
-            grid.addRow();
+            row.clear();
 
-            int index = 1;
+            addEventValues( params, grid.getHeaders(), rowSet, row );
 
-            for ( GridHeader header : grid.getHeaders() )
-            {
-                if ( ITEM_LONGITUDE.equals( header.getName() ) || ITEM_LATITUDE.equals( header.getName() ) )
-                {
-                    double val = rowSet.getDouble( index );
-                    grid.addValue( Precision.round( val, COORD_DEC ) );
-                }
-                else if ( Double.class.getName().equals( header.getType() ) && !header.hasLegendSet() )
-                {
-                    double val = rowSet.getDouble( index );
-                    grid.addValue( params.isSkipRounding() ? val : MathUtils.getRounded( val ) );
-                }
-                else
-                {
-                    grid.addValue( rowSet.getString( index ) );
-                }
+            grid.addRow().addValuesAsList( row );
+        }
+    }
+
+    /**
+     * Adds the values of the current row of the given row set to the given row
+     * list, in the order of the given headers.
+     *
+     * @param params the {@link EventQueryParams}.
+     * @param headers the list of {@link GridHeader}.
+     * @param rowSet the {@link SqlRowSet}, positioned on the current row.
+     * @param row the row list to add values to.
+     */
+    private void addEventValues( EventQueryParams params, List<GridHeader> headers, SqlRowSet rowSet, List<Object> row )
+    {
+        int index = 1;
 
-                index++;
+        for ( GridHeader header : headers )
+        {
+            if ( ITEM_LONGITUDE.equals( header.getName() ) || ITEM_LATITUDE.equals( header.getName() ) )
+            {
+                double val = rowSet.getDouble( index );
+                row.add( Precision.round( val, COORD_DEC ) );
+            }
+            else if ( Double.class.getName().equals( header.getType() ) && !header.hasLegendSet() )
+            {
+                double val = rowSet.getDouble( index );
+                row.add( params.isSkipRounding() ? val : MathUtils.getRounded( val ) );
             }
+            else
+            {
+                row.add( rowSet.getString( index ) );
+            }
+
+            index++;
         }
     }
 
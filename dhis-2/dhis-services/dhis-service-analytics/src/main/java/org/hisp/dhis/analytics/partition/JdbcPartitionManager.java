@@ -28,10 +28,10 @@ package org.hisp.dhis.analytics.partition;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import org.hisp.dhis.analytics.AnalyticsTableType;
@@ -53,7 +53,7 @@ import lombok.extern.slf4j.Slf4j;
 public class JdbcPartitionManager
     implements PartitionManager
 {
-    private Map<AnalyticsTableType, Set<String>> analyticsPartitions = new HashMap<>();
+    private Map<AnalyticsTableType, Set<String>> analyticsPartitions = new ConcurrentHashMap<>();
 
     @Autowired
     private JdbcTemplate jdbcTemplate;
@@ -111,11 +111,17 @@ public class JdbcPartitionManager
 
     }
 
+    @Override
+    public void clearCaches()
+    {
+        analyticsPartitions = new ConcurrentHashMap<>();
+        log.info( "Analytics partition cache cleared" );
+    }
+
     @Override
     @EventListener
     public void handleApplicationCachesCleared( ApplicationCacheClearedEvent event )
     {
-        analyticsPartitions = new HashMap<>();
-        log.info( "Analytics partition cache cleared" );
+        clearCaches();
     }
 }
@@ -64,6 +64,11 @@ public interface PartitionManager
      */
     void filterNonExistingPartitions( Partitions partitions, String tableName );
 
+    /**
+     * Clears the cached analytics partitions.
+     */
+    void clearCaches();
+
     /**
      * Event handler for {@link ApplicationCacheClearedEvent}.
      *
@@ -200,27 +200,33 @@ public abstract class AbstractJdbcTableManager
                 break taskLoop;
             }
 
-            final String indexName = inx.getIndexName( getAnalyticsTableType() );
-            final String indexType = inx.hasType() ? " using " + inx.getType() : "";
-            final String indexColumns = StringUtils.join( inx.getColumns(), "," );
+            createIndex( inx );
+        }
 
-            final String sql = "create index " + indexName + " on " + inx.getTable() + indexType + " (" + indexColumns + ")";
+        return null;
+    }
 
-            log.debug( "Create index: " + indexName + " SQL: " + sql );
+    @Override
+    public void createIndex( AnalyticsIndex index )
+    {
+        final String indexName = index.getIndexName( getAnalyticsTableType() );
+        final String indexType = index.hasType() ? " using " + index.getType() : "";
+        final String indexColumns = StringUtils.join( index.getColumns(), "," );
 
-            jdbcTemplate.execute( sql );
+        final String sql = "create index " + indexName + " on " + index.getTable() + indexType + " (" + indexColumns + ")";
 
-            log.debug( "Created index: " + indexName );
-        }
+        log.debug( "Create index: " + indexName + " SQL: " + sql );
 
-        return null;
+        jdbcTemplate.execute( sql );
+
+        log.debug( "Created index: " + indexName );
     }
 
     @Override
     public void swapTable( AnalyticsTableUpdateParams params, AnalyticsTable table )
     {
         boolean tableExists = partitionManager.tableExists( table.getTableName() );
-        boolean skipMasterTable = params.isPartialUpdate() && tableExists;
+        boolean skipMasterTable = params.isPartialUpdate() && tableExists && table.hasPartitionTables();
 
         log.info( String.format( "Swapping table, master table exists: %b, skip master table: %b", tableExists, skipMasterTable ) );
 
@@ -235,6 +241,17 @@ public abstract class AbstractJdbcTableManager
             table.getTablePartitions().stream().forEach( p -> swapInheritance( p.getTableName(),table.getTempTableName(), table.getTableName() ) );
             dropTempTable( table );
         }
+
+        if ( skipMasterTable && params.isDirtyPartitionsOnly() && getAnalyticsTableType().hasLatestPartition() )
+        {
+            // Data of the latest partition is now contained in the swapped partitions
+
+            dropTable( PartitionUtils.getPartitionName( table.getTableName(), AnalyticsTablePartition.LATEST_PARTITION ) );
+        }
+
+        // The cached set of existing partitions is stale after swapping
+
+        partitionManager.clearCaches();
     }
 
     @Override
@@ -282,6 +299,36 @@ public abstract class AbstractJdbcTableManager
         return null;
     }
 
+    @Override
+    public void populateTablePartition( AnalyticsTableUpdateParams params, AnalyticsTablePartition partition )
+    {
+        populateTable( params, partition );
+    }
+
+    @Override
+    public void applyAggregationLevels( AnalyticsTablePartition partition, Collection<String> dataElements, int aggregationLevel )
+    {
+        // Aggregation levels do not apply by default
+    }
+
+    @Override
+    public void vacuumTable( AnalyticsTablePartition partition )
+    {
+        // Vacuum is not required by default
+    }
+
+    @Override
+    public List<AnalyticsTable> getRollupTables( AnalyticsTableUpdateParams params, List<AnalyticsTable> tables )
+    {
+        return new ArrayList<>(); // Rollup tables do not apply by default
+    }
+
+    @Override
+    public void populateRollupTablePartition( AnalyticsTablePartition partition )
+    {
+        // Rollup tables do not apply by default
+    }
+
     @Override
     public int invokeAnalyticsTableSqlHooks()
     {
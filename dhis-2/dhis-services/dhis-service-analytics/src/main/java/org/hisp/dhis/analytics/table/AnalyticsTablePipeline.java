@@ -0,0 +1,333 @@
+package org.hisp.dhis.analytics.table;
+
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.hisp.dhis.analytics.AnalyticsTablePartition;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Moves analytics table partitions through a sequence of stages, such as
+ * populate, index and analyze, using a bounded number of worker threads. Each
+ * partition moves on to its next stage as soon as its current stage is done,
+ * without waiting for other partitions. A stage may split the work for a
+ * partition into several tasks, such as one task per index, which run in
+ * parallel. Tasks of later stages run before tasks of earlier stages so that
+ * partitions are completed as early as possible.
+ */
+@Slf4j
+class AnalyticsTablePipeline
+{
+    private final int workerNo;
+
+    private final List<String> stageNames = new ArrayList<>();
+
+    private final List<Function<AnalyticsTablePartition, List<Runnable>>> stageTasks = new ArrayList<>();
+
+    /**
+     * @param workerNo the maximum number of tasks to run concurrently.
+     */
+    AnalyticsTablePipeline( int workerNo )
+    {
+        this.workerNo = Math.max( 1, workerNo );
+    }
+
+    /**
+     * Adds a stage which runs a single task per partition.
+     *
+     * @param name the stage name.
+     * @param task the task to run for each partition.
+     * @return this pipeline.
+     */
+    AnalyticsTablePipeline addStage( String name, Consumer<AnalyticsTablePartition> task )
+    {
+        return addStageTasks( name, partition -> Collections.<Runnable>singletonList( () -> task.accept( partition ) ) );
+    }
+
+    /**
+     * Adds a stage which runs the given list of tasks per partition. The tasks
+     * of a partition may run in parallel.
+     *
+     * @param name the stage name.
+     * @param tasks function returning the tasks to run for a partition.
+     * @return this pipeline.
+     */
+    AnalyticsTablePipeline addStageTasks( String name, Function<AnalyticsTablePartition, List<Runnable>> tasks )
+    {
+        stageNames.add( name );
+        stageTasks.add( tasks );
+        return this;
+    }
+
+    /**
+     * Runs all stages for the given partitions and blocks until done. The
+     * given listener is invoked with the partition and the time in
+     * milliseconds spent in each stage when a partition has passed all stages.
+     * The first exception thrown by a task stops the remaining tasks from
+     * running and is rethrown.
+     *
+     * @param partitions the analytics table partitions.
+     * @param listener the listener for completed partitions.
+     * @return the total time in milliseconds spent in each stage.
+     */
+    Map<String, Long> run( List<AnalyticsTablePartition> partitions, BiConsumer<AnalyticsTablePartition, Map<String, Long>> listener )
+    {
+        Execution execution = new Execution( partitions.size(), listener );
+
+        try
+        {
+            partitions.forEach( partition -> execution.startStage( new PartitionState( partition ), 0 ) );
+
+            execution.await();
+        }
+        finally
+        {
+            execution.executor.shutdownNow();
+        }
+
+        if ( execution.failure.get() != null )
+        {
+            throw new RuntimeException( "Exception during execution", execution.failure.get() );
+        }
+
+        return toStageMap( execution.stageNanos );
+    }
+
+    private Map<String, Long> toStageMap( AtomicLongArray nanos )
+    {
+        Map<String, Long> map = new LinkedHashMap<>();
+
+        for ( int i = 0; i < stageNames.size(); i++ )
+        {
+            map.put( stageNames.get( i ), TimeUnit.NANOSECONDS.toMillis( nanos.get( i ) ) );
+        }
+
+        return map;
+    }
+
+    /**
+     * State of a single run of the pipeline.
+     */
+    private class Execution
+    {
+        private final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            workerNo, workerNo, 0L, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>() );
+
+        private final AtomicLongArray stageNanos = new AtomicLongArray( stageNames.size() );
+
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        private final AtomicLong sequence = new AtomicLong();
+
+        private final CountDownLatch remainingPartitions;
+
+        private final BiConsumer<AnalyticsTablePartition, Map<String, Long>> listener;
+
+        Execution( int partitionNo, BiConsumer<AnalyticsTablePartition, Map<String, Long>> listener )
+        {
+            this.remainingPartitions = new CountDownLatch( partitionNo );
+            this.listener = listener;
+        }
+
+        void await()
+        {
+            try
+            {
+                remainingPartitions.await();
+            }
+            catch ( InterruptedException ex )
+            {
+                failure.compareAndSet( null, ex );
+
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        void startStage( PartitionState state, int stage )
+        {
+            if ( failure.get() != null )
+            {
+                remainingPartitions.countDown();
+                return;
+            }
+
+            if ( stage == stageNames.size() )
+            {
+                completePartition( state );
+                return;
+            }
+
+            List<Runnable> tasks;
+
+            try
+            {
+                tasks = stageTasks.get( stage ).apply( state.partition );
+            }
+            catch ( RuntimeException ex )
+            {
+                log.error( String.format( "Stage '%s' failed for partition: %s", stageNames.get( stage ), state.partition ), ex );
+
+                failure.compareAndSet( null, ex );
+                remainingPartitions.countDown();
+                return;
+            }
+
+            if ( tasks.isEmpty() )
+            {
+                startStage( state, stage + 1 );
+                return;
+            }
+
+            AtomicInteger remainingTasks = new AtomicInteger( tasks.size() );
+
+            for ( Runnable task : tasks )
+            {
+                executor.execute( new StageTask( stage, sequence.getAndIncrement(), () -> {
+                    runTask( state, stage, task );
+
+                    if ( remainingTasks.decrementAndGet() == 0 )
+                    {
+                        startStage( state, stage + 1 );
+                    }
+                } ) );
+            }
+        }
+
+        private void runTask( PartitionState state, int stage, Runnable task )
+        {
+            if ( failure.get() != null )
+            {
+                return;
+            }
+
+            long start = System.nanoTime();
+
+            try
+            {
+                task.run();
+            }
+            catch ( Throwable ex )
+            {
+                log.error( String.format( "Stage '%s' failed for partition: %s", stageNames.get( stage ), state.partition ), ex );
+
+                failure.compareAndSet( null, ex );
+            }
+            finally
+            {
+                long nanos = System.nanoTime() - start;
+
+                stageNanos.addAndGet( stage, nanos );
+                state.stageNanos.addAndGet( stage, nanos );
+            }
+        }
+
+        private void completePartition( PartitionState state )
+        {
+            try
+            {
+                listener.accept( state.partition, toStageMap( state.stageNanos ) );
+            }
+            catch ( RuntimeException ex )
+            {
+                log.warn( "Partition listener failed", ex );
+            }
+            finally
+            {
+                remainingPartitions.countDown();
+            }
+        }
+    }
+
+    /**
+     * Time spent in each stage for a partition.
+     */
+    private class PartitionState
+    {
+        private final AnalyticsTablePartition partition;
+
+        private final AtomicLongArray stageNanos = new AtomicLongArray( stageNames.size() );
+
+        PartitionState( AnalyticsTablePartition partition )
+        {
+            this.partition = partition;
+        }
+    }
+
+    /**
+     * Task ordered by stage in descending order, then by submission order.
+     */
+    private static class StageTask
+        implements Runnable, Comparable<StageTask>
+    {
+        private final int stage;
+
+        private final long sequence;
+
+        private final Runnable runnable;
+
+        StageTask( int stage, long sequence, Runnable runnable )
+        {
+            this.stage = stage;
+            this.sequence = sequence;
+            this.runnable = runnable;
+        }
+
+        @Override
+        public void run()
+        {
+            runnable.run();
+        }
+
+        @Override
+        public int compareTo( StageTask other )
+        {
+            int result = Integer.compare( other.stage, stage );
+
+            return result != 0 ? result : Long.compare( sequence, other.sequence );
+        }
+    }
+}
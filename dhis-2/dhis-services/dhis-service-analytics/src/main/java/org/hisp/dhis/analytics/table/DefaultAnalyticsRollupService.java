@@ -0,0 +1,151 @@
+package org.hisp.dhis.analytics.table;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.apache.commons.lang3.StringUtils;
+import org.hisp.dhis.analytics.AnalyticsRollup;
+import org.hisp.dhis.analytics.AnalyticsRollupService;
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.hisp.dhis.period.PeriodType;
+import org.springframework.stereotype.Service;
+
+import com.google.common.collect.ImmutableList;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Reads rollups from the <code>analytics.rollup.tables</code> configuration
+ * property. The property holds rollups separated by semicolon, where each
+ * rollup is on the format <code>level:periodType[:dimension,dimension]</code>,
+ * for example <code>2:Monthly;3:Quarterly:co,ao</code>. Dimensions refer to
+ * analytics table columns such as <code>co</code>, <code>ao</code> and the
+ * identifiers of group sets and categories.
+ */
+@Slf4j
+@Service( "org.hisp.dhis.analytics.AnalyticsRollupService" )
+public class DefaultAnalyticsRollupService
+    implements AnalyticsRollupService
+{
+    private static final Comparator<AnalyticsRollup> SIZE_ORDER = Comparator
+        .comparingInt( AnalyticsRollup::getOrgUnitLevel )
+        .thenComparing( r -> r.getPeriodType().getFrequencyOrder(), Comparator.reverseOrder() )
+        .thenComparingInt( r -> r.getDimensions().size() );
+
+    private final List<AnalyticsRollup> rollups;
+
+    public DefaultAnalyticsRollupService( DhisConfigurationProvider config )
+    {
+        checkNotNull( config );
+
+        this.rollups = parseRollups( config.getProperty( ConfigurationKey.ANALYTICS_ROLLUP_TABLES ) );
+
+        if ( !rollups.isEmpty() )
+        {
+            log.info( "Analytics rollup tables: " + rollups );
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // AnalyticsRollupService implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public List<AnalyticsRollup> getRollups()
+    {
+        return rollups;
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Parses the given rollup configuration. Invalid rollups are logged and
+     * skipped.
+     *
+     * @param config the rollup configuration.
+     * @return an immutable list of {@link AnalyticsRollup} in size order.
+     */
+    static List<AnalyticsRollup> parseRollups( String config )
+    {
+        if ( StringUtils.isBlank( config ) )
+        {
+            return Collections.emptyList();
+        }
+
+        List<AnalyticsRollup> rollups = new ArrayList<>();
+
+        for ( String entry : config.split( ";" ) )
+        {
+            if ( StringUtils.isBlank( entry ) )
+            {
+                continue;
+            }
+
+            String[] parts = entry.trim().split( ":" );
+
+            Integer level = parts.length >= 2 && parts.length <= 3 && parts[0].trim().matches( "\\d+" ) ?
+                Integer.valueOf( parts[0].trim() ) : null;
+
+            PeriodType periodType = parts.length >= 2 ? PeriodType.getByNameIgnoreCase( parts[1] ) : null;
+
+            if ( level == null || level < 1 || periodType == null )
+            {
+                log.warn( String.format( "Ignoring invalid analytics rollup: '%s'", entry ) );
+                continue;
+            }
+
+            List<String> dimensions = parts.length == 3 ? Arrays.stream( parts[2].split( "," ) )
+                .map( String::trim )
+                .filter( StringUtils::isNotEmpty )
+                .collect( Collectors.toList() ) : Collections.emptyList();
+
+            AnalyticsRollup rollup = new AnalyticsRollup( level, periodType, dimensions );
+
+            if ( !rollups.contains( rollup ) )
+            {
+                rollups.add( rollup );
+            }
+        }
+
+        rollups.sort( SIZE_ORDER );
+
+        return ImmutableList.copyOf( rollups );
+    }
+}
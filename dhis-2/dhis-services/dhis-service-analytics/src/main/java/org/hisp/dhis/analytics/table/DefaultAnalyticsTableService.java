@@ -37,8 +37,9 @@ import org.hisp.dhis.analytics.AnalyticsTablePartition;
 import org.hisp.dhis.analytics.AnalyticsTableService;
 import org.hisp.dhis.analytics.AnalyticsTableType;
 import org.hisp.dhis.analytics.AnalyticsTableUpdateParams;
+import org.hisp.dhis.analytics.cache.AnalyticsPartialResultCache;
 import org.hisp.dhis.common.IdentifiableObjectUtils;
-import org.hisp.dhis.commons.util.ConcurrentUtils;
+import org.hisp.dhis.commons.collection.ListUtils;
 import org.hisp.dhis.commons.util.SystemUtils;
 import org.hisp.dhis.dataelement.DataElementService;
 import org.hisp.dhis.organisationunit.OrganisationUnitService;
@@ -53,10 +54,12 @@ import com.google.common.collect.Lists;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import static org.hisp.dhis.util.DateUtils.getLongDateString;
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -68,6 +71,12 @@ import static com.google.common.base.Preconditions.checkNotNull;
 public class DefaultAnalyticsTableService
     implements AnalyticsTableService
 {
+    private static final String STAGE_POPULATE = "populate";
+    private static final String STAGE_AGGREGATION_LEVELS = "aggregation levels";
+    private static final String STAGE_VACUUM = "vacuum";
+    private static final String STAGE_INDEX = "index";
+    private static final String STAGE_ANALYZE = "analyze";
+
     private AnalyticsTableManager tableManager;
 
     private OrganisationUnitService organisationUnitService;
@@ -80,9 +89,12 @@ public class DefaultAnalyticsTableService
 
     private SystemSettingManager systemSettingManager;
 
+    private AnalyticsPartialResultCache partialResultCache;
+
     public DefaultAnalyticsTableService( AnalyticsTableManager tableManager,
         OrganisationUnitService organisationUnitService, DataElementService dataElementService,
-        ResourceTableService resourceTableService, Notifier notifier, SystemSettingManager systemSettingManager )
+        ResourceTableService resourceTableService, Notifier notifier, SystemSettingManager systemSettingManager,
+        AnalyticsPartialResultCache partialResultCache )
     {
         checkNotNull( tableManager );
         checkNotNull( organisationUnitService );
@@ -90,6 +102,7 @@ public class DefaultAnalyticsTableService
         checkNotNull( resourceTableService );
         checkNotNull( notifier );
         checkNotNull( systemSettingManager );
+        checkNotNull( partialResultCache );
 
         this.tableManager = tableManager;
         this.organisationUnitService = organisationUnitService;
@@ -97,6 +110,7 @@ public class DefaultAnalyticsTableService
         this.resourceTableService = resourceTableService;
         this.notifier = notifier;
         this.systemSettingManager = systemSettingManager;
+        this.partialResultCache = partialResultCache;
     }
 
     // -------------------------------------------------------------------------
@@ -116,8 +130,6 @@ public class DefaultAnalyticsTableService
 
         final int processNo = getProcessNo();
 
-        int tableUpdates = 0;
-
         log.info( String.format( "Analytics table update parameters: %s", params ) );
 
         AnalyticsTableType tableType = tableManager.getAnalyticsTableType();
@@ -163,45 +175,41 @@ public class DefaultAnalyticsTableService
         clock.logTime( "Created analytics tables" );
         notifier.notify( jobId, "Populating analytics tables" );
 
-        populateTables( params, tables );
+        populateTablePartitions( params, tables );
 
         clock.logTime( "Populated analytics tables" );
         notifier.notify( jobId, "Invoking analytics table hooks" );
 
-        tableUpdates += tableManager.invokeAnalyticsTableSqlHooks();
+        int tableUpdates = tableManager.invokeAnalyticsTableSqlHooks();
 
         clock.logTime( "Invoked analytics table hooks" );
-        notifier.notify( jobId, "Applying aggregation levels" );
+        notifier.notify( jobId, "Applying aggregation levels, indexing and analyzing analytics tables" );
 
-        tableUpdates += applyAggregationLevels( tables );
+        processTablePartitions( params, tables, tableUpdates > 0 );
 
-        clock.logTime( "Applied aggregation levels" );
-
-        if ( tableUpdates > 0 )
-        {
-            notifier.notify( jobId, "Vacuuming tables" );
-            vacuumTables( tables );
-            clock.logTime( "Tables vacuumed" );
-        }
+        clock.logTime( "Applied aggregation levels, indexed and analyzed analytics tables" );
+        notifier.notify( jobId, "Removing updated and deleted data" );
 
-        notifier.notify( jobId, "Creating indexes" );
+        tableManager.removeUpdatedData( params, tables );
 
-        createIndexes( tables );
+        clock.logTime( "Removed updated and deleted data" );
 
-        clock.logTime( "Created indexes" );
-        notifier.notify( jobId, "Analyzing analytics tables" );
+        final List<AnalyticsTable> rollupTables = tableManager.getRollupTables( params, tables );
 
-        analyzeTables( tables );
+        if ( !rollupTables.isEmpty() )
+        {
+            notifier.notify( jobId, "Populating, indexing and analyzing rollup tables" );
 
-        clock.logTime( "Analyzed tables" );
-        notifier.notify( jobId, "Removing updated and deleted data" );
+            dropTempTables( rollupTables );
+            createTables( rollupTables );
+            processRollupTablePartitions( params, rollupTables );
 
-        tableManager.removeUpdatedData( params, tables );
+            clock.logTime( "Populated, indexed and analyzed rollup tables" );
+        }
 
-        clock.logTime( "Removed updated and deleted data" );
         notifier.notify( jobId, "Swapping analytics tables" );
 
-        swapTables( params, tables );
+        swapTables( params, ListUtils.union( tables, rollupTables ) );
 
         clock.logTime( "Table update done: " + tableType.getTableName() );
         notifier.notify( jobId, "Table update done" );
@@ -252,142 +260,175 @@ public class DefaultAnalyticsTableService
     }
 
     /**
-     * Populates the given analytics tables.
+     * Populates the partitions of the given analytics tables, bounded by the
+     * number of available processes. The time spent populating is reported
+     * through the notifier.
      *
+     * @param params the {@link AnalyticsTableUpdateParams}.
      * @param tables the list of {@link AnalyticsTable}.
      */
-    private void populateTables( AnalyticsTableUpdateParams params, List<AnalyticsTable> tables )
+    private void populateTablePartitions( AnalyticsTableUpdateParams params, List<AnalyticsTable> tables )
     {
         List<AnalyticsTablePartition> partitions = PartitionUtils.getTablePartitions( tables );
 
-        int taskNo = Math.min( getProcessNo(), partitions.size() );
-
-        log.info( "Populate table task number: " + taskNo );
-
-        ConcurrentLinkedQueue<AnalyticsTablePartition> partitionQ = new ConcurrentLinkedQueue<>( partitions );
-
-        List<Future<?>> futures = new ArrayList<>();
-
-        for ( int i = 0; i < taskNo; i++ )
-        {
-            futures.add( tableManager.populateTablesAsync( params, partitionQ ) );
-        }
+        AnalyticsTablePipeline pipeline = new AnalyticsTablePipeline( getProcessNo() )
+            .addStage( STAGE_POPULATE, partition -> tableManager.populateTablePartition( params, partition ) );
 
-        ConcurrentUtils.waitForCompletion( futures );
+        runPipeline( params.getJobId(), pipeline, partitions );
     }
 
     /**
-     * Applies aggregation levels to the given analytics tables.
+     * Applies aggregation levels to, indexes and analyzes the populated
+     * partitions of the given analytics tables. Each partition moves through
+     * the stages independently of other partitions, bounded by the number of
+     * available processes. Partitions are vacuumed before indexing if
+     * aggregation levels exist or if the analytics table hooks updated
+     * tables. The time spent in each stage is reported through the notifier.
      *
+     * @param params the {@link AnalyticsTableUpdateParams}.
      * @param tables the list of {@link AnalyticsTable}.
-     * @return the number of aggregation levels applied for data elements.
+     * @param hookUpdates whether the analytics table hooks updated tables.
      */
-    private int applyAggregationLevels( List<AnalyticsTable> tables )
+    private void processTablePartitions( AnalyticsTableUpdateParams params, List<AnalyticsTable> tables, boolean hookUpdates )
     {
         List<AnalyticsTablePartition> partitions = PartitionUtils.getTablePartitions( tables );
 
-        int maxLevels = organisationUnitService.getNumberOfOrganisationalLevels();
+        Map<Integer, Collection<String>> aggregationLevels = getAggregationLevelDataElements();
 
-        int aggLevels = 0;
+        int taskNo = getProcessNo();
 
-        levelLoop : for ( int i = 0; i < maxLevels; i++ )
-        {
-            int level = maxLevels - i;
+        log.info( String.format( "Table partitions: %d, task number: %d, aggregation levels: %s",
+            partitions.size(), taskNo, aggregationLevels.keySet() ) );
 
-            Collection<String> dataElements = IdentifiableObjectUtils.getUids(
-                dataElementService.getDataElementsByAggregationLevel( level ) );
+        AnalyticsTablePipeline pipeline = new AnalyticsTablePipeline( taskNo );
 
-            if ( dataElements.isEmpty() )
-            {
-                continue levelLoop;
-            }
+        if ( !aggregationLevels.isEmpty() )
+        {
+            pipeline.addStage( STAGE_AGGREGATION_LEVELS, partition -> aggregationLevels.forEach(
+                ( level, dataElements ) -> tableManager.applyAggregationLevels( partition, dataElements, level ) ) );
+        }
 
-            ConcurrentLinkedQueue<AnalyticsTablePartition> partitionQ = new ConcurrentLinkedQueue<>( partitions );
+        if ( !aggregationLevels.isEmpty() || hookUpdates )
+        {
+            pipeline.addStage( STAGE_VACUUM, tableManager::vacuumTable );
+        }
 
-            List<Future<?>> futures = new ArrayList<>();
+        pipeline
+            .addStageTasks( STAGE_INDEX, partition -> getIndexes( partition ).stream()
+                .map( index -> (Runnable) () -> tableManager.createIndex( index ) )
+                .collect( Collectors.toList() ) )
+            .addStage( STAGE_ANALYZE, partition -> tableManager.analyzeTable( partition.getTempTableName() ) );
 
-            for ( int j = 0; j < getProcessNo(); j++ )
-            {
-                futures.add( tableManager.applyAggregationLevels( partitionQ, dataElements, level ) );
-            }
+        runPipeline( params.getJobId(), pipeline, partitions );
+    }
 
-            aggLevels += dataElements.size();
+    /**
+     * Populates, indexes and analyzes the partitions of the given rollup
+     * tables from the populated analytics table partitions.
+     *
+     * @param params the {@link AnalyticsTableUpdateParams}.
+     * @param rollupTables the list of rollup {@link AnalyticsTable}.
+     */
+    private void processRollupTablePartitions( AnalyticsTableUpdateParams params, List<AnalyticsTable> rollupTables )
+    {
+        List<AnalyticsTablePartition> partitions = PartitionUtils.getTablePartitions( rollupTables );
 
-            ConcurrentUtils.waitForCompletion( futures );
-        }
+        log.info( String.format( "Rollup tables: %d, table partitions: %d", rollupTables.size(), partitions.size() ) );
 
-        return aggLevels;
+        AnalyticsTablePipeline pipeline = new AnalyticsTablePipeline( getProcessNo() )
+            .addStage( STAGE_POPULATE, tableManager::populateRollupTablePartition )
+            .addStageTasks( STAGE_INDEX, partition -> getIndexes( partition ).stream()
+                .map( index -> (Runnable) () -> tableManager.createIndex( index ) )
+                .collect( Collectors.toList() ) )
+            .addStage( STAGE_ANALYZE, partition -> tableManager.analyzeTable( partition.getTempTableName() ) );
+
+        runPipeline( params.getJobId(), pipeline, partitions );
     }
 
     /**
-     * Vacuums the given analytics tables.
+     * Runs the given pipeline for the given partitions and notifies the time
+     * spent in each stage per partition and in total.
      *
-     * @param tables the list of {@link AnalyticsTable}.
+     * @param jobId the {@link JobConfiguration}.
+     * @param pipeline the {@link AnalyticsTablePipeline}.
+     * @param partitions the list of {@link AnalyticsTablePartition}.
      */
-    private void vacuumTables( List<AnalyticsTable> tables )
+    private void runPipeline( JobConfiguration jobId, AnalyticsTablePipeline pipeline, List<AnalyticsTablePartition> partitions )
     {
-        List<AnalyticsTablePartition> partitions = PartitionUtils.getTablePartitions( tables );
-
-        ConcurrentLinkedQueue<AnalyticsTablePartition> partitionQ = new ConcurrentLinkedQueue<>( partitions );
-
-        List<Future<?>> futures = new ArrayList<>();
+        AtomicInteger completed = new AtomicInteger();
 
-        for ( int i = 0; i < getProcessNo(); i++ )
-        {
-            tableManager.vacuumTablesAsync( partitionQ );
-        }
+        Map<String, Long> stageTimes = pipeline.run( partitions, ( partition, partitionStageTimes ) ->
+            notifyProgress( jobId, String.format( "Processed table partition %d of %d: '%s', %s",
+                completed.incrementAndGet(), partitions.size(), partition.getTempTableName(),
+                getStageTimeString( partitionStageTimes ) ) ) );
 
-        ConcurrentUtils.waitForCompletion( futures );
+        notifyProgress( jobId, "Processed table partitions, total time per stage: " + getStageTimeString( stageTimes ) );
     }
 
     /**
-     * Creates indexes on the given analytics tables.
-     *
-     * @param tables the list of {@link AnalyticsTable}.
+     * Returns a mapping between organisation unit level and the identifiers of
+     * data elements with that aggregation level, ordered from the lowest
+     * level in the hierarchy to the highest.
      */
-    private void createIndexes( List<AnalyticsTable> tables )
+    private Map<Integer, Collection<String>> getAggregationLevelDataElements()
     {
-        List<AnalyticsTablePartition> partitions = PartitionUtils.getTablePartitions( tables );
+        Map<Integer, Collection<String>> aggregationLevels = new LinkedHashMap<>();
 
-        ConcurrentLinkedQueue<AnalyticsIndex> indexes = new ConcurrentLinkedQueue<>();
+        int maxLevels = organisationUnitService.getNumberOfOrganisationalLevels();
 
-        for ( AnalyticsTablePartition partition : partitions )
+        for ( int level = maxLevels; level > 0; level-- )
         {
-            List<AnalyticsTableColumn> columns = partition.getMasterTable().getDimensionColumns();
+            Collection<String> dataElements = IdentifiableObjectUtils.getUids(
+                dataElementService.getDataElementsByAggregationLevel( level ) );
 
-            for ( AnalyticsTableColumn col : columns )
+            if ( !dataElements.isEmpty() )
             {
-                if ( !col.isSkipIndex() )
-                {
-                    List<String> indexColumns = col.hasIndexColumns() ? col.getIndexColumns() : Lists.newArrayList( col.getName() );
-
-                    indexes.add( new AnalyticsIndex( partition.getTempTableName(), indexColumns, col.getIndexType() ) );
-                }
+                aggregationLevels.put( level, dataElements );
             }
         }
 
-        log.info( "No of analytics table indexes: " + indexes.size() );
+        return aggregationLevels;
+    }
+
+    /**
+     * Returns the indexes to create for the given partition.
+     *
+     * @param partition the {@link AnalyticsTablePartition}.
+     * @return a list of {@link AnalyticsIndex}.
+     */
+    private List<AnalyticsIndex> getIndexes( AnalyticsTablePartition partition )
+    {
+        List<AnalyticsIndex> indexes = new ArrayList<>();
 
-        List<Future<?>> futures = new ArrayList<>();
+        List<AnalyticsTableColumn> columns = partition.getMasterTable().getDimensionColumns();
 
-        for ( int i = 0; i < getProcessNo(); i++ )
+        for ( AnalyticsTableColumn col : columns )
         {
-            futures.add( tableManager.createIndexesAsync( indexes ) );
+            if ( !col.isSkipIndex() )
+            {
+                List<String> indexColumns = col.hasIndexColumns() ? col.getIndexColumns() : Lists.newArrayList( col.getName() );
+
+                indexes.add( new AnalyticsIndex( partition.getTempTableName(), indexColumns, col.getIndexType() ) );
+            }
         }
 
-        ConcurrentUtils.waitForCompletion( futures );
+        return indexes;
     }
 
     /**
-     * Analyzes the given analytics tables.
-     *
-     * @param tables the list of {@link AnalyticsTable}.
+     * Notifies progress. Partitions complete on worker threads, so
+     * notifications are serialized.
      */
-    private void analyzeTables( List<AnalyticsTable> tables )
+    private synchronized void notifyProgress( JobConfiguration jobId, String message )
     {
-        List<AnalyticsTablePartition> partitions = PartitionUtils.getTablePartitions( tables );
+        notifier.notify( jobId, message );
+    }
 
-        partitions.forEach( table -> tableManager.analyzeTable( table.getTempTableName() ) );
+    private String getStageTimeString( Map<String, Long> stageTimes )
+    {
+        return stageTimes.entrySet().stream()
+            .map( e -> String.format( "%s: %.1f s", e.getKey(), e.getValue() / 1000d ) )
+            .collect( Collectors.joining( ", " ) );
     }
 
     /**
@@ -403,6 +444,28 @@ public class DefaultAnalyticsTableService
         tables.forEach( table -> tableManager.swapTable( params, table ) );
 
         resourceTableService.createAllSqlViews();
+
+        invalidatePartialResults( tables );
+    }
+
+    /**
+     * Invalidates the cached partial analytics results read from the given
+     * analytics tables and their partitions.
+     *
+     * @param tables the list of swapped {@link AnalyticsTable}.
+     */
+    private void invalidatePartialResults( List<AnalyticsTable> tables )
+    {
+        List<String> tableNames = new ArrayList<>();
+
+        for ( AnalyticsTable table : tables )
+        {
+            tableNames.add( table.getTableName() );
+
+            table.getTablePartitions().forEach( partition -> tableNames.add( partition.getTableName() ) );
+        }
+
+        partialResultCache.invalidateTables( tableNames );
     }
 
     /**
@@ -28,10 +28,12 @@ package org.hisp.dhis.analytics.table;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.collect.Lists.newArrayList;
 import static org.hisp.dhis.analytics.ColumnDataType.*;
 import static org.hisp.dhis.analytics.ColumnNotNullConstraint.NOT_NULL;
 import static org.hisp.dhis.analytics.util.AnalyticsSqlUtils.quote;
+import static org.hisp.dhis.analytics.util.AnalyticsSqlUtils.removeQuote;
 import static org.hisp.dhis.commons.util.TextUtils.getQuotedCommaDelimitedString;
 import static org.hisp.dhis.dataapproval.DataApprovalLevelService.APPROVAL_LEVEL_UNAPPROVED;
 import static org.hisp.dhis.util.DateUtils.getLongDateString;
@@ -43,10 +45,13 @@ import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.hisp.dhis.analytics.AggregationType;
+import org.hisp.dhis.analytics.AnalyticsRollup;
+import org.hisp.dhis.analytics.AnalyticsRollupService;
 import org.hisp.dhis.analytics.AnalyticsTable;
 import org.hisp.dhis.analytics.AnalyticsTableColumn;
 import org.hisp.dhis.analytics.AnalyticsTableHookService;
@@ -58,6 +63,7 @@ import org.hisp.dhis.analytics.DataQueryParams;
 import org.hisp.dhis.analytics.partition.PartitionManager;
 import org.hisp.dhis.analytics.util.AnalyticsUtils;
 import org.hisp.dhis.category.Category;
+import org.hisp.dhis.common.AuditType;
 import org.hisp.dhis.category.CategoryOptionGroupSet;
 import org.hisp.dhis.category.CategoryService;
 import org.hisp.dhis.common.IdentifiableObjectManager;
@@ -107,16 +113,22 @@ import com.google.common.collect.Sets;
 public class JdbcAnalyticsTableManager
     extends AbstractJdbcTableManager
 {
+    private final AnalyticsRollupService rollupService;
+
     public JdbcAnalyticsTableManager( IdentifiableObjectManager idObjectManager,
         OrganisationUnitService organisationUnitService, CategoryService categoryService,
         SystemSettingManager systemSettingManager, DataApprovalLevelService dataApprovalLevelService,
         ResourceTableService resourceTableService, AnalyticsTableHookService tableHookService,
         StatementBuilder statementBuilder, PartitionManager partitionManager, DatabaseInfo databaseInfo,
-        JdbcTemplate jdbcTemplate )
+        JdbcTemplate jdbcTemplate, AnalyticsRollupService rollupService )
     {
         super( idObjectManager, organisationUnitService, categoryService, systemSettingManager,
             dataApprovalLevelService, resourceTableService, tableHookService, statementBuilder, partitionManager,
             databaseInfo, jdbcTemplate );
+
+        checkNotNull( rollupService );
+
+        this.rollupService = rollupService;
     }
 
     private static final List<AnalyticsTableColumn> FIXED_COLS = Lists.newArrayList(
@@ -132,6 +144,10 @@ public class JdbcAnalyticsTableManager
         new AnalyticsTableColumn( quote( "ou" ), CHARACTER_11, NOT_NULL, "ou.uid" ),
         new AnalyticsTableColumn( quote( "level" ), INTEGER, "ous.level" ) );
 
+    private static final List<AnalyticsTableColumn> ROLLUP_VALUE_COLS = Lists.newArrayList(
+        new AnalyticsTableColumn( quote( "daysxvalue" ), DOUBLE, "sum(daysxvalue)" ),
+        new AnalyticsTableColumn( quote( "value" ), DOUBLE, "sum(value)" ) );
+
     // -------------------------------------------------------------------------
     // Implementation
     // -------------------------------------------------------------------------
@@ -146,9 +162,20 @@ public class JdbcAnalyticsTableManager
     @Transactional
     public List<AnalyticsTable> getAnalyticsTables( AnalyticsTableUpdateParams params )
     {
-        AnalyticsTable table = params.isLatestUpdate() ?
-            getLatestAnalyticsTable( params, getDimensionColumns(), getValueColumns() ) :
-            getRegularAnalyticsTable( params, getDataYears( params ), getDimensionColumns(), getValueColumns() );
+        AnalyticsTable table;
+
+        if ( params.isLatestUpdate() )
+        {
+            table = getLatestAnalyticsTable( params, getDimensionColumns(), getValueColumns() );
+        }
+        else if ( params.isDirtyPartitionsOnly() )
+        {
+            table = getRegularAnalyticsTable( params, getDirtyDataYears( params ), getDimensionColumns(), getValueColumns() );
+        }
+        else
+        {
+            table = getRegularAnalyticsTable( params, getDataYears( params ), getDimensionColumns(), getValueColumns() );
+        }
 
         return table.hasPartitionTables() ? newArrayList( table ) : newArrayList();
     }
@@ -225,6 +252,11 @@ public class JdbcAnalyticsTableManager
     @Override
     protected List<String> getPartitionChecks( AnalyticsTablePartition partition )
     {
+        if ( partition.getMasterTable().isRollup() )
+        {
+            return newArrayList( "year = " + partition.getYear() + "" );
+        }
+
         return partition.isLatestPartition() ?
             newArrayList() :
             newArrayList(
@@ -471,6 +503,55 @@ public class JdbcAnalyticsTableManager
         return jdbcTemplate.queryForList( sql, Integer.class );
     }
 
+    /**
+     * Returns the years of data which changed since the last successful analytics
+     * table update, i.e. the years of data values which were added, updated or
+     * soft deleted, and the years of data values which were hard deleted
+     * according to the data value audit. Returns all data years if no analytics
+     * table update was completed before.
+     *
+     * @param params the {@link AnalyticsTableUpdateParams}.
+     * @return the years of changed data.
+     */
+    private List<Integer> getDirtyDataYears( AnalyticsTableUpdateParams params )
+    {
+        Date lastSuccessfulUpdate = params.getLastSuccessfulUpdate();
+
+        if ( lastSuccessfulUpdate == null )
+        {
+            log.info( "No successful analytics table update found, updating all partitions" );
+
+            return getDataYears( params );
+        }
+
+        String fromDateClause = params.getFromDate() != null ?
+            "and pe.startdate >= '" + DateUtils.getMediumDateString( params.getFromDate() ) + "' " : "";
+
+        String sql =
+            "select distinct(extract(year from pe.startdate)) " +
+            "from datavalue dv " +
+            "inner join period pe on dv.periodid=pe.periodid " +
+            "where pe.startdate is not null " +
+            "and dv.lastupdated >= '" + getLongDateString( lastSuccessfulUpdate ) + "' " +
+            "and dv.lastupdated < '" + getLongDateString( params.getStartTime() ) + "' " +
+            fromDateClause +
+            "union " +
+            "select distinct(extract(year from pe.startdate)) " +
+            "from datavalueaudit dva " +
+            "inner join period pe on dva.periodid=pe.periodid " +
+            "where pe.startdate is not null " +
+            "and dva.audittype = '" + AuditType.DELETE.name() + "' " +
+            "and dva.created >= '" + getLongDateString( lastSuccessfulUpdate ) + "' " +
+            "and dva.created < '" + getLongDateString( params.getStartTime() ) + "' " +
+            fromDateClause;
+
+        List<Integer> dataYears = jdbcTemplate.queryForList( sql, Integer.class );
+
+        log.info( String.format( "Found dirty data years since '%s': %s", getLongDateString( lastSuccessfulUpdate ), dataYears ) );
+
+        return dataYears;
+    }
+
     @Override
     @Async
     public Future<?> applyAggregationLevels( ConcurrentLinkedQueue<AnalyticsTablePartition> partitions, Collection<String> dataElements, int aggregationLevel )
@@ -485,28 +566,34 @@ public class JdbcAnalyticsTableManager
                 break taskLoop;
             }
 
-            StringBuilder sql = new StringBuilder( "update " + partition.getTempTableName() + " set " );
+            applyAggregationLevels( partition, dataElements, aggregationLevel );
+        }
+
+        return ConcurrentUtils.getImmediateFuture();
+    }
 
-            for ( int i = 0; i < aggregationLevel; i++ )
-            {
-                int level = i + 1;
+    @Override
+    public void applyAggregationLevels( AnalyticsTablePartition partition, Collection<String> dataElements, int aggregationLevel )
+    {
+        StringBuilder sql = new StringBuilder( "update " + partition.getTempTableName() + " set " );
 
-                String column = quote( DataQueryParams.LEVEL_PREFIX + level );
+        for ( int i = 0; i < aggregationLevel; i++ )
+        {
+            int level = i + 1;
 
-                sql.append( column + " = null," );
-            }
+            String column = quote( DataQueryParams.LEVEL_PREFIX + level );
 
-            sql.deleteCharAt( sql.length() - ",".length() );
+            sql.append( column + " = null," );
+        }
 
-            sql.append( " where level > " + aggregationLevel );
-            sql.append( " and dx in (" + getQuotedCommaDelimitedString( dataElements ) + ")" );
+        sql.deleteCharAt( sql.length() - ",".length() );
 
-            log.debug( "Aggregation level SQL: " + sql.toString() );
+        sql.append( " where level > " + aggregationLevel );
+        sql.append( " and dx in (" + getQuotedCommaDelimitedString( dataElements ) + ")" );
 
-            jdbcTemplate.execute( sql.toString() );
-        }
+        log.debug( "Aggregation level SQL: " + sql.toString() );
 
-        return ConcurrentUtils.getImmediateFuture();
+        jdbcTemplate.execute( sql.toString() );
     }
 
     @Override
@@ -523,14 +610,92 @@ public class JdbcAnalyticsTableManager
                 break taskLoop;
             }
 
-            final String sql = statementBuilder.getVacuum( partition.getTempTableName() );
+            vacuumTable( partition );
+        }
+
+        return ConcurrentUtils.getImmediateFuture();
+    }
+
+    @Override
+    public void vacuumTable( AnalyticsTablePartition partition )
+    {
+        final String sql = statementBuilder.getVacuum( partition.getTempTableName() );
 
-            log.debug( "Vacuum SQL: " + sql );
+        log.debug( "Vacuum SQL: " + sql );
+
+        jdbcTemplate.execute( sql );
+    }
 
-            jdbcTemplate.execute( sql );
+    @Override
+    public List<AnalyticsTable> getRollupTables( AnalyticsTableUpdateParams params, List<AnalyticsTable> tables )
+    {
+        List<AnalyticsTable> rollupTables = new ArrayList<>();
+
+        if ( params.isLatestUpdate() )
+        {
+            return rollupTables;
         }
 
-        return ConcurrentUtils.getImmediateFuture();
+        for ( AnalyticsRollup rollup : rollupService.getRollups() )
+        {
+            for ( AnalyticsTable table : tables )
+            {
+                List<AnalyticsTableColumn> columns = table.getDimensionColumns().stream()
+                    .filter( col -> rollup.hasColumn( removeQuote( col.getName() ) ) )
+                    .map( col -> new AnalyticsTableColumn( col.getName(), col.getDataType(), col.getNotNull(), col.getName() ) )
+                    .collect( Collectors.toList() );
+
+                Set<String> columnNames = columns.stream()
+                    .map( col -> removeQuote( col.getName() ) )
+                    .collect( Collectors.toSet() );
+
+                List<String> missingDimensions = rollup.getDimensions().stream()
+                    .filter( dim -> !columnNames.contains( dim ) )
+                    .collect( Collectors.toList() );
+
+                if ( !missingDimensions.isEmpty() )
+                {
+                    log.warn( String.format( "Skipping analytics rollup: %s, dimensions are not analytics table columns: %s", rollup, missingDimensions ) );
+                    continue;
+                }
+
+                AnalyticsTable rollupTable = new AnalyticsTable( getAnalyticsTableType(), columns, ROLLUP_VALUE_COLS, rollup );
+
+                table.getTablePartitions().stream()
+                    .filter( partition -> !partition.isLatestPartition() )
+                    .forEach( partition -> rollupTable.addPartitionTable( partition.getYear(), partition.getStartDate(), partition.getEndDate() ) );
+
+                if ( rollupTable.hasPartitionTables() )
+                {
+                    rollupTables.add( rollupTable );
+                }
+            }
+        }
+
+        return rollupTables;
+    }
+
+    @Override
+    public void populateRollupTablePartition( AnalyticsTablePartition partition )
+    {
+        final String sourceTableName = PartitionUtils.getPartitionName( getTableName() + TABLE_TEMP_SUFFIX, partition.getYear() );
+
+        List<AnalyticsTableColumn> columns = partition.getMasterTable().getDimensionColumns();
+        List<AnalyticsTableColumn> values = partition.getMasterTable().getValueColumns();
+
+        String groupBy = columns.stream()
+            .map( AnalyticsTableColumn::getAlias )
+            .collect( Collectors.joining( "," ) );
+
+        String sql = "insert into " + partition.getTempTableName() + " (" +
+            ListUtils.union( columns, values ).stream().map( AnalyticsTableColumn::getName ).collect( Collectors.joining( "," ) ) + ") " +
+            "select " + groupBy + "," +
+            values.stream().map( col -> col.getAlias() + " as " + col.getName() ).collect( Collectors.joining( "," ) ) + " " +
+            "from " + sourceTableName + " " +
+            "where value is not null " +
+            "group by " + groupBy;
+
+        invokeTimeAndLog( sql, String.format( "Populate rollup %s", partition.getTempTableName() ) );
     }
 
     @Override
@@ -74,6 +74,7 @@ public class AnalyticsTableJob
 
         AnalyticsTableUpdateParams params = AnalyticsTableUpdateParams.newBuilder()
             .withLastYears( parameters.getLastYears() )
+            .withDirtyPartitionsOnly( parameters.isDirtyPartitionsOnly() )
             .withSkipResourceTables( parameters.isSkipResourceTables() )
             .withSkipTableTypes( parameters.getSkipTableTypes() )
             .withJobId( jobConfiguration )
@@ -39,12 +39,15 @@ import static org.hisp.dhis.dataelement.DataElementOperand.TotalType;
 import static org.hisp.dhis.expression.ExpressionService.SYMBOL_WILDCARD;
 import static org.hisp.dhis.util.DateUtils.getMediumDateString;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.ObjectUtils;
@@ -92,6 +95,10 @@ import org.hisp.dhis.system.util.MathUtils;
 import org.hisp.dhis.system.util.ReflectionUtils;
 import org.hisp.dhis.util.DateUtils;
 import org.joda.time.DateTime;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.rowset.ResultSetWrappingSqlRowSet;
+import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.util.Assert;
 
 import com.google.common.collect.Lists;
@@ -109,6 +116,8 @@ public class AnalyticsUtils
 
     public static final String ERR_MSG_TABLE_NOT_EXISTING = "Query failed, likely because the requested analytics table does not exist";
 
+    public static final int STREAMING_FETCH_SIZE = 1000;
+
     /**
      * Returns an SQL statement for retrieving raw data values for
      * an aggregate query.
@@ -873,4 +882,54 @@ public class AnalyticsUtils
     {
         throw new IllegalQueryException( new ErrorMessage( errorCode, args ) );
     }
+
+    /**
+     * Executes the given SQL query and passes each row to the given handler
+     * without holding the full result set in memory. Rows are fetched from
+     * the database in batches of {@link #STREAMING_FETCH_SIZE}. PostgreSQL
+     * only honours the fetch size outside of auto-commit mode, so auto-commit
+     * is disabled for the duration of the query if needed.
+     *
+     * @param jdbcTemplate the {@link JdbcTemplate}.
+     * @param sql the SQL query.
+     * @param rowHandler the handler to invoke for each row, positioned on the
+     *        current row.
+     */
+    public static void queryStreaming( JdbcTemplate jdbcTemplate, String sql, Consumer<SqlRowSet> rowHandler )
+    {
+        jdbcTemplate.execute( (ConnectionCallback<Void>) connection -> {
+            boolean autoCommit = connection.getAutoCommit();
+
+            if ( autoCommit )
+            {
+                connection.setAutoCommit( false );
+            }
+
+            try ( PreparedStatement statement = connection.prepareStatement( sql,
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY ) )
+            {
+                statement.setFetchSize( STREAMING_FETCH_SIZE );
+
+                try ( ResultSet resultSet = statement.executeQuery() )
+                {
+                    SqlRowSet rowSet = new ResultSetWrappingSqlRowSet( resultSet );
+
+                    while ( rowSet.next() )
+                    {
+                        rowHandler.accept( rowSet );
+                    }
+                }
+            }
+            finally
+            {
+                if ( autoCommit )
+                {
+                    connection.rollback();
+                    connection.setAutoCommit( true );
+                }
+            }
+
+            return null;
+        } );
+    }
 }
@@ -0,0 +1,105 @@
+package org.hisp.dhis.analytics;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+
+import org.hisp.dhis.period.FinancialAprilPeriodType;
+import org.hisp.dhis.period.MonthlyPeriodType;
+import org.hisp.dhis.period.QuarterlyPeriodType;
+import org.hisp.dhis.period.SixMonthlyAprilPeriodType;
+import org.hisp.dhis.period.SixMonthlyPeriodType;
+import org.hisp.dhis.period.WeeklyPeriodType;
+import org.hisp.dhis.period.YearlyPeriodType;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class AnalyticsRollupTest
+{
+    @Test
+    public void testGetName()
+    {
+        AnalyticsRollup rollupA = new AnalyticsRollup( 2, new MonthlyPeriodType(), Collections.emptyList() );
+        AnalyticsRollup rollupB = new AnalyticsRollup( 2, new MonthlyPeriodType(), Lists.newArrayList( "co", "ao" ) );
+        AnalyticsRollup rollupC = new AnalyticsRollup( 2, new MonthlyPeriodType(), Lists.newArrayList( "ao", "co" ) );
+
+        assertThat( rollupA.getName(), is( "rollup_l2_monthly" ) );
+        assertTrue( rollupB.getName().startsWith( "rollup_l2_monthly_" ) );
+        assertThat( rollupB.getName(), is( rollupC.getName() ) );
+        assertThat( rollupB, is( rollupC ) );
+        assertNotEquals( rollupA, rollupB );
+    }
+
+    @Test
+    public void testHasColumn()
+    {
+        AnalyticsRollup rollup = new AnalyticsRollup( 2, new QuarterlyPeriodType(), Lists.newArrayList( "co" ) );
+
+        assertTrue( rollup.hasColumn( "dx" ) );
+        assertTrue( rollup.hasColumn( "year" ) );
+        assertTrue( rollup.hasColumn( "co" ) );
+        assertTrue( rollup.hasColumn( "uidlevel1" ) );
+        assertTrue( rollup.hasColumn( "uidlevel2" ) );
+        assertTrue( rollup.hasColumn( "quarterly" ) );
+        assertTrue( rollup.hasColumn( "sixmonthly" ) );
+        assertTrue( rollup.hasColumn( "sixmonthlyapril" ) );
+        assertTrue( rollup.hasColumn( "yearly" ) );
+
+        assertFalse( rollup.hasColumn( "uidlevel3" ) );
+        assertFalse( rollup.hasColumn( "monthly" ) );
+        assertFalse( rollup.hasColumn( "bimonthly" ) );
+        assertFalse( rollup.hasColumn( "ao" ) );
+        assertFalse( rollup.hasColumn( "ou" ) );
+
+        assertTrue( rollup.hasColumns( Lists.newArrayList( "dx", "uidlevel2", "yearly" ) ) );
+        assertFalse( rollup.hasColumns( Lists.newArrayList( "dx", "uidlevel2", "monthly" ) ) );
+    }
+
+    @Test
+    public void testIsAggregatable()
+    {
+        assertTrue( AnalyticsRollup.isAggregatable( new MonthlyPeriodType(), new MonthlyPeriodType() ) );
+        assertTrue( AnalyticsRollup.isAggregatable( new MonthlyPeriodType(), new QuarterlyPeriodType() ) );
+        assertTrue( AnalyticsRollup.isAggregatable( new MonthlyPeriodType(), new FinancialAprilPeriodType() ) );
+        assertTrue( AnalyticsRollup.isAggregatable( new QuarterlyPeriodType(), new SixMonthlyAprilPeriodType() ) );
+        assertTrue( AnalyticsRollup.isAggregatable( new SixMonthlyPeriodType(), new YearlyPeriodType() ) );
+
+        assertFalse( AnalyticsRollup.isAggregatable( new QuarterlyPeriodType(), new MonthlyPeriodType() ) );
+        assertFalse( AnalyticsRollup.isAggregatable( new SixMonthlyPeriodType(), new FinancialAprilPeriodType() ) );
+        assertFalse( AnalyticsRollup.isAggregatable( new MonthlyPeriodType(), new WeeklyPeriodType() ) );
+        assertFalse( AnalyticsRollup.isAggregatable( new WeeklyPeriodType(), new MonthlyPeriodType() ) );
+    }
+}
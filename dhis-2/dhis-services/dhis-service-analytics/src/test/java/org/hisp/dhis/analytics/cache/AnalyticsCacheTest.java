@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.hisp.dhis.analytics.cache;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.hisp.dhis.analytics.DataQueryParams;
+import org.hisp.dhis.cache.CacheBuilder;
+import org.hisp.dhis.cache.CacheProvider;
+import org.hisp.dhis.cache.TestCache;
+import org.hisp.dhis.common.Grid;
+import org.hisp.dhis.system.grid.ListGrid;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.core.env.Environment;
+
+public class AnalyticsCacheTest
+{
+    @Mock
+    private CacheProvider cacheProvider;
+
+    @Mock
+    private Environment environment;
+
+    @Mock
+    private AnalyticsCacheSettings analyticsCacheSettings;
+
+    @Mock
+    private DataQueryParams params;
+
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    private AnalyticsCache analyticsCache;
+
+    private ExecutorService executor;
+
+    @Before
+    @SuppressWarnings( "unchecked" )
+    public void setUp()
+    {
+        CacheBuilder<Grid> cacheBuilder = mock( CacheBuilder.class, RETURNS_SELF );
+
+        when( cacheBuilder.build() ).thenReturn( new TestCache<>() );
+        when( cacheProvider.newCacheBuilder( Grid.class ) ).thenReturn( cacheBuilder );
+        when( environment.getActiveProfiles() ).thenReturn( new String[0] );
+        when( analyticsCacheSettings.fixedExpirationTimeOrDefault() ).thenReturn( 60L );
+        when( params.getKey() ).thenReturn( "key" );
+
+        analyticsCache = new AnalyticsCache( cacheProvider, environment, analyticsCacheSettings );
+        analyticsCache.init();
+
+        executor = Executors.newFixedThreadPool( 2 );
+    }
+
+    @After
+    public void tearDown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testGetOrFetchCachesFetchedGrid()
+    {
+        AtomicInteger fetches = new AtomicInteger();
+
+        Grid first = analyticsCache.getOrFetch( params, p -> fetchGrid( fetches ) );
+        Grid second = analyticsCache.getOrFetch( params, p -> fetchGrid( fetches ) );
+
+        assertThat( second, is( sameInstance( first ) ) );
+        assertThat( fetches.get(), is( 1 ) );
+        assertThat( analyticsCache.getExecutedQueries(), is( 1L ) );
+        assertThat( analyticsCache.getCoalescedQueries(), is( 0L ) );
+    }
+
+    @Test
+    public void testGetOrFetchCoalescesConcurrentMisses()
+        throws Exception
+    {
+        AtomicInteger fetches = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch( 1 );
+
+        Future<Grid> first = executor.submit( () -> analyticsCache.getOrFetch( params, p -> {
+            await( release );
+            return fetchGrid( fetches );
+        } ) );
+
+        waitUntil( () -> analyticsCache.getInFlightQueries() == 1 );
+
+        Future<Grid> second = executor.submit( () -> analyticsCache.getOrFetch( params, p -> fetchGrid( fetches ) ) );
+
+        waitUntil( () -> analyticsCache.getCoalescedQueries() == 1 );
+
+        release.countDown();
+
+        assertThat( second.get( 10, TimeUnit.SECONDS ), is( sameInstance( first.get( 10, TimeUnit.SECONDS ) ) ) );
+        assertThat( fetches.get(), is( 1 ) );
+        assertThat( analyticsCache.getExecutedQueries(), is( 1L ) );
+        assertThat( analyticsCache.getInFlightQueries(), is( 0 ) );
+    }
+
+    @Test( expected = IllegalStateException.class )
+    public void testGetOrFetchPropagatesFailureAndDoesNotRetainIt()
+    {
+        try
+        {
+            analyticsCache.getOrFetch( params, p -> {
+                throw new IllegalStateException( "Query failed" );
+            } );
+        }
+        finally
+        {
+            assertThat( analyticsCache.getInFlightQueries(), is( 0 ) );
+        }
+    }
+
+    private Grid fetchGrid( AtomicInteger fetches )
+    {
+        fetches.incrementAndGet();
+        return new ListGrid();
+    }
+
+    private void await( CountDownLatch latch )
+    {
+        try
+        {
+            latch.await( 10, TimeUnit.SECONDS );
+        }
+        catch ( InterruptedException ex )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void waitUntil( BooleanSupplier condition )
+        throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + 10_000;
+
+        while ( !condition.getAsBoolean() && System.currentTimeMillis() < deadline )
+        {
+            Thread.sleep( 10 );
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.hisp.dhis.analytics.cache;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hisp.dhis.DhisConvenienceTest.createDataElement;
+import static org.hisp.dhis.DhisConvenienceTest.createPeriod;
+import static org.hisp.dhis.common.DimensionalObjectUtils.getList;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hisp.dhis.analytics.AnalyticsTableType;
+import org.hisp.dhis.analytics.DataQueryParams;
+import org.hisp.dhis.cache.CacheProvider;
+import org.hisp.dhis.cache.ExtendedCacheBuilder;
+import org.hisp.dhis.cache.TestCache;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.core.env.Environment;
+
+import com.google.common.collect.Lists;
+
+public class AnalyticsPartialResultCacheTest
+{
+    @Mock
+    private CacheProvider cacheProvider;
+
+    @Mock
+    private Environment environment;
+
+    @Mock
+    private AnalyticsCacheSettings analyticsCacheSettings;
+
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    private AnalyticsPartialResultCache partialResultCache;
+
+    private DataQueryParams params;
+
+    @Before
+    @SuppressWarnings( "unchecked" )
+    public void setUp()
+    {
+        ExtendedCacheBuilder<Map<String, Object>> cacheBuilder = mock( ExtendedCacheBuilder.class, RETURNS_SELF );
+
+        when( cacheBuilder.build() ).thenReturn( new TestCache<>() );
+        when( cacheProvider.newCacheBuilder( String.class, Object.class ) ).thenReturn( cacheBuilder );
+        when( environment.getActiveProfiles() ).thenReturn( new String[0] );
+        when( analyticsCacheSettings.isCachingEnabled() ).thenReturn( true );
+        when( analyticsCacheSettings.fixedExpirationTimeOrDefault() ).thenReturn( 60L );
+
+        partialResultCache = new AnalyticsPartialResultCache( cacheProvider, environment, analyticsCacheSettings );
+        partialResultCache.init();
+
+        params = DataQueryParams.newBuilder()
+            .withDataElements( getList( createDataElement( 'A' ) ) )
+            .withPeriods( getList( createPeriod( "2017" ) ) )
+            .withTableName( "analytics" ).build();
+    }
+
+    @Test
+    public void testPutAndGet()
+    {
+        String key = partialResultCache.getKey( params, AnalyticsTableType.DATA_VALUE, 0, tables( "analytics_2017" ) );
+
+        Map<String, Object> values = new HashMap<>();
+        values.put( "deabcdefghA-2017", 3d );
+
+        assertFalse( partialResultCache.get( key ).isPresent() );
+
+        partialResultCache.put( key, values );
+
+        assertTrue( partialResultCache.get( key ).isPresent() );
+        assertThat( partialResultCache.get( key ).get(), is( equalTo( values ) ) );
+    }
+
+    @Test
+    public void testKeyIsStableUntilTableIsInvalidated()
+    {
+        String keyA = partialResultCache.getKey( params, AnalyticsTableType.DATA_VALUE, 0, tables( "analytics_2017" ) );
+        String keyB = partialResultCache.getKey( params, AnalyticsTableType.DATA_VALUE, 0, tables( "analytics_2017" ) );
+
+        assertThat( keyA, is( equalTo( keyB ) ) );
+
+        partialResultCache.invalidateTables( tables( "analytics_2016" ) );
+
+        String keyC = partialResultCache.getKey( params, AnalyticsTableType.DATA_VALUE, 0, tables( "analytics_2017" ) );
+
+        assertThat( keyC, is( equalTo( keyA ) ) );
+
+        partialResultCache.invalidateTables( tables( "analytics", "analytics_2017" ) );
+
+        String keyD = partialResultCache.getKey( params, AnalyticsTableType.DATA_VALUE, 0, tables( "analytics_2017" ) );
+
+        assertThat( keyD, is( not( equalTo( keyA ) ) ) );
+    }
+
+    @Test
+    public void testKeyReflectsTableTypeAndLimit()
+    {
+        String keyA = partialResultCache.getKey( params, AnalyticsTableType.DATA_VALUE, 0, tables( "analytics" ) );
+        String keyB = partialResultCache.getKey( params, AnalyticsTableType.COMPLETENESS, 0, tables( "analytics" ) );
+        String keyC = partialResultCache.getKey( params, AnalyticsTableType.DATA_VALUE, 50000, tables( "analytics" ) );
+
+        assertThat( keyA, is( not( equalTo( keyB ) ) ) );
+        assertThat( keyA, is( not( equalTo( keyC ) ) ) );
+    }
+
+    @Test
+    public void testGetWhenCachingIsDisabled()
+    {
+        String key = partialResultCache.getKey( params, AnalyticsTableType.DATA_VALUE, 0, tables( "analytics" ) );
+
+        partialResultCache.put( key, new HashMap<>() );
+
+        when( analyticsCacheSettings.isCachingEnabled() ).thenReturn( false );
+
+        assertFalse( partialResultCache.get( key ).isPresent() );
+    }
+
+    private List<String> tables( String... tables )
+    {
+        return Lists.newArrayList( tables );
+    }
+}
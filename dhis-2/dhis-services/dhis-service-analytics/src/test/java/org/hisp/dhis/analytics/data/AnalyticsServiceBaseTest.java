@@ -39,6 +39,7 @@ import org.hisp.dhis.external.conf.DhisConfigurationProvider;
 import org.hisp.dhis.organisationunit.OrganisationUnitService;
 import org.hisp.dhis.setting.SettingKey;
 import org.hisp.dhis.setting.SystemSettingManager;
+import org.hisp.dhis.user.CurrentUserService;
 import org.junit.Before;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
@@ -101,6 +102,9 @@ public abstract class AnalyticsServiceBaseTest
     @Mock
     private NestedIndicatorCyclicDependencyInspector nestedIndicatorCyclicDependencyInspector;
 
+    @Mock
+    private CurrentUserService currentUserService;
+
     AnalyticsService target;
 
     @Before
@@ -110,7 +114,8 @@ public abstract class AnalyticsServiceBaseTest
 
         target = new DefaultAnalyticsService( analyticsManager, rawAnalyticsManager, securityManager, queryPlanner,
             queryValidator, constantService, expressionService, organisationUnitService, systemSettingManager,
-            eventAnalyticsService, dataQueryService, resolver, analyticsCache );
+            eventAnalyticsService, dataQueryService, resolver, analyticsCache,
+            new DefaultQueryAdmissionController( systemSettingManager, currentUserService ) );
 
         when( systemSettingManager.getSystemSetting( SettingKey.ANALYTICS_MAINTENANCE_MODE ) ).thenReturn( false );
         when( analyticsCacheSettings.fixedExpirationTimeOrDefault() ).thenReturn( 0L );
@@ -0,0 +1,306 @@
+package org.hisp.dhis.analytics.data;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hisp.dhis.DhisConvenienceTest.createDataElement;
+import static org.hisp.dhis.DhisConvenienceTest.createOrganisationUnit;
+import static org.hisp.dhis.common.DimensionalObject.DATA_X_DIM_ID;
+import static org.hisp.dhis.common.DimensionalObject.ORGUNIT_DIM_ID;
+import static org.hisp.dhis.common.DimensionalObject.PERIOD_DIM_ID;
+import static org.hisp.dhis.common.DimensionalObjectUtils.getList;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import org.hisp.dhis.analytics.DataQueryParams;
+import org.hisp.dhis.common.BaseDimensionalObject;
+import org.hisp.dhis.common.DimensionType;
+import org.hisp.dhis.common.IllegalQueryException;
+import org.hisp.dhis.common.QueryRuntimeException;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.feedback.ErrorCode;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.period.PeriodType;
+import org.hisp.dhis.setting.SettingKey;
+import org.hisp.dhis.setting.SystemSettingManager;
+import org.hisp.dhis.user.CurrentUserService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+public class DefaultQueryAdmissionControllerTest
+{
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private SystemSettingManager systemSettingManager;
+
+    @Mock
+    private CurrentUserService currentUserService;
+
+    private DefaultQueryAdmissionController subject;
+
+    private ExecutorService executor;
+
+    private DataElement deA;
+
+    private DataElement deB;
+
+    private OrganisationUnit ouA;
+
+    private OrganisationUnit ouB;
+
+    private OrganisationUnit ouC;
+
+    @Before
+    public void setUp()
+    {
+        subject = new DefaultQueryAdmissionController( systemSettingManager, currentUserService );
+
+        executor = Executors.newCachedThreadPool();
+
+        deA = createDataElement( 'A' );
+        deB = createDataElement( 'B' );
+        ouA = createOrganisationUnit( 'A' );
+        ouB = createOrganisationUnit( 'B' );
+        ouC = createOrganisationUnit( 'C' );
+
+        when( currentUserService.getCurrentUsername() ).thenReturn( "admin" );
+        setSetting( SettingKey.ANALYTICS_MAX_QUERY_COST, 0 );
+        setSetting( SettingKey.ANALYTICS_MAX_CONCURRENT_QUERIES, 1 );
+        setSetting( SettingKey.ANALYTICS_MAX_CONCURRENT_QUERIES_PER_USER, 0 );
+        setSetting( SettingKey.ANALYTICS_QUERY_QUEUE_TIMEOUT, 10 );
+    }
+
+    @After
+    public void tearDown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testGetQueryCost()
+    {
+        DataQueryParams params = DataQueryParams.newBuilder()
+            .addDimension( new BaseDimensionalObject( DATA_X_DIM_ID, DimensionType.DATA_X, getList( deA, deB ) ) )
+            .addDimension( new BaseDimensionalObject( ORGUNIT_DIM_ID, DimensionType.ORGANISATION_UNIT, getList( ouA, ouB, ouC ) ) )
+            .addFilter( new BaseDimensionalObject( PERIOD_DIM_ID, DimensionType.PERIOD, getList(
+                PeriodType.getPeriodFromIsoString( "2019" ), PeriodType.getPeriodFromIsoString( "2020" ) ) ) )
+            .build();
+
+        // 2 data elements x 3 org units x 2 periods x 2 partitions
+
+        assertThat( subject.getQueryCost( params ), is( 24L ) );
+    }
+
+    @Test
+    public void testRejectQueryAboveMaxCost()
+    {
+        setSetting( SettingKey.ANALYTICS_MAX_QUERY_COST, 1 );
+
+        try
+        {
+            subject.execute( createParams( deA, deB ), () -> "result" );
+
+            fail( "Expected query to be rejected" );
+        }
+        catch ( IllegalQueryException ex )
+        {
+            assertThat( ex.getErrorCode(), is( ErrorCode.E7132 ) );
+        }
+
+        assertThat( subject.execute( createParams( deA ), () -> "result" ), is( "result" ) );
+    }
+
+    @Test
+    public void testNestedExecutionIsAdmittedDirectly()
+    {
+        DataQueryParams params = createParams( deA );
+
+        String result = subject.execute( params, () -> subject.execute( params, () -> "nested" ) );
+
+        assertThat( result, is( "nested" ) );
+    }
+
+    @Test( timeout = 10000 )
+    public void testUnlimitedConcurrencyByDefault()
+        throws Exception
+    {
+        setSetting( SettingKey.ANALYTICS_MAX_CONCURRENT_QUERIES, 0 );
+
+        CountDownLatch running = new CountDownLatch( 1 );
+        CountDownLatch release = new CountDownLatch( 1 );
+
+        Future<?> blocking = executor.submit( () -> subject.execute( createParams( deA ), () -> {
+            running.countDown();
+            await( release );
+            return null;
+        } ) );
+
+        running.await();
+
+        try
+        {
+            assertThat( subject.execute( createParams( deA ), () -> "result" ), is( "result" ) );
+        }
+        finally
+        {
+            release.countDown();
+        }
+
+        blocking.get();
+    }
+
+    @Test( timeout = 10000 )
+    public void testCheapQueryOvertakesExpensiveQuery()
+        throws Exception
+    {
+        CountDownLatch running = new CountDownLatch( 1 );
+        CountDownLatch release = new CountDownLatch( 1 );
+        List<String> order = new CopyOnWriteArrayList<>();
+
+        // The queue timeout is read while holding the admission lock right
+        // before a query is queued, and the lock is only released once the
+        // query waits in the queue
+
+        Semaphore queued = new Semaphore( 0 );
+
+        when( systemSettingManager.getSystemSetting( SettingKey.ANALYTICS_QUERY_QUEUE_TIMEOUT ) ).thenAnswer( invocation -> {
+            queued.release();
+            return 10;
+        } );
+
+        Future<?> blocking = executor.submit( () -> subject.execute( createParams( deA ), () -> {
+            running.countDown();
+            await( release );
+            return null;
+        } ) );
+
+        running.await();
+        queued.acquire();
+
+        Future<?> expensive = executor.submit( () -> subject.execute( createParams( deA, deB ), () -> order.add( "expensive" ) ) );
+        queued.acquire();
+
+        Future<?> cheap = executor.submit( () -> subject.execute( createParams( deA ), () -> order.add( "cheap" ) ) );
+        queued.acquire();
+
+        release.countDown();
+
+        blocking.get();
+        expensive.get();
+        cheap.get();
+
+        assertThat( order, contains( "cheap", "expensive" ) );
+    }
+
+    @Test( timeout = 10000 )
+    public void testUserBudgetTimesOut()
+        throws Exception
+    {
+        setSetting( SettingKey.ANALYTICS_MAX_CONCURRENT_QUERIES, 4 );
+        setSetting( SettingKey.ANALYTICS_MAX_CONCURRENT_QUERIES_PER_USER, 1 );
+        setSetting( SettingKey.ANALYTICS_QUERY_QUEUE_TIMEOUT, 0 );
+
+        CountDownLatch running = new CountDownLatch( 1 );
+        CountDownLatch release = new CountDownLatch( 1 );
+
+        Future<?> blocking = executor.submit( () -> subject.execute( createParams( deA ), () -> {
+            running.countDown();
+            await( release );
+            return null;
+        } ) );
+
+        running.await();
+
+        try
+        {
+            subject.execute( createParams( deA ), () -> "result" );
+
+            fail( "Expected query to time out" );
+        }
+        catch ( QueryRuntimeException ex )
+        {
+            assertThat( ex.getErrorCode(), is( ErrorCode.E7133 ) );
+        }
+        finally
+        {
+            release.countDown();
+        }
+
+        blocking.get();
+
+        assertThat( subject.execute( createParams( deA ), () -> "result" ), is( "result" ) );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private DataQueryParams createParams( DataElement... dataElements )
+    {
+        return DataQueryParams.newBuilder()
+            .addDimension( new BaseDimensionalObject( DATA_X_DIM_ID, DimensionType.DATA_X, getList( dataElements ) ) )
+            .addDimension( new BaseDimensionalObject( PERIOD_DIM_ID, DimensionType.PERIOD, getList( PeriodType.getPeriodFromIsoString( "202001" ) ) ) )
+            .addFilter( new BaseDimensionalObject( ORGUNIT_DIM_ID, DimensionType.ORGANISATION_UNIT, getList( ouA ) ) )
+            .build();
+    }
+
+    private void setSetting( SettingKey key, int value )
+    {
+        when( systemSettingManager.getSystemSetting( key ) ).thenReturn( value );
+    }
+
+    private static void await( CountDownLatch latch )
+    {
+        try
+        {
+            latch.await();
+        }
+        catch ( InterruptedException ex )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
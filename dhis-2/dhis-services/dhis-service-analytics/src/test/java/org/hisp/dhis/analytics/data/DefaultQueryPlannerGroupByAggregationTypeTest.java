@@ -72,13 +72,16 @@ public class DefaultQueryPlannerGroupByAggregationTypeTest
     @Mock
     private PartitionManager partitionManager;
 
+    @Mock
+    private AnalyticsRollupService rollupService;
+
     @Rule
     public MockitoRule mockitoRule = MockitoJUnit.rule();
 
     @Before
     public void setUp()
     {
-        subject = new DefaultQueryPlanner( queryValidator, partitionManager );
+        subject = new DefaultQueryPlanner( queryValidator, partitionManager, rollupService );
     }
 
     @Test
@@ -0,0 +1,200 @@
+package org.hisp.dhis.analytics.data;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hisp.dhis.DhisConvenienceTest.createDataElement;
+import static org.hisp.dhis.DhisConvenienceTest.createOrganisationUnit;
+import static org.hisp.dhis.common.DimensionalObject.DATA_X_DIM_ID;
+import static org.hisp.dhis.common.DimensionalObject.ORGUNIT_DIM_ID;
+import static org.hisp.dhis.common.DimensionalObject.PERIOD_DIM_ID;
+import static org.hisp.dhis.common.DimensionalObjectUtils.getList;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.hisp.dhis.analytics.AnalyticsAggregationType;
+import org.hisp.dhis.analytics.AnalyticsRollup;
+import org.hisp.dhis.analytics.AnalyticsRollupService;
+import org.hisp.dhis.analytics.AnalyticsTableType;
+import org.hisp.dhis.analytics.DataQueryParams;
+import org.hisp.dhis.analytics.QueryPlannerParams;
+import org.hisp.dhis.analytics.QueryValidator;
+import org.hisp.dhis.analytics.partition.PartitionManager;
+import org.hisp.dhis.common.BaseDimensionalObject;
+import org.hisp.dhis.common.DimensionType;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.period.MonthlyPeriodType;
+import org.hisp.dhis.period.Period;
+import org.hisp.dhis.period.PeriodType;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+public class DefaultQueryPlannerRollupTest
+{
+    private static final String TABLE_NAME = AnalyticsTableType.DATA_VALUE.getTableName();
+
+    private static final String ROLLUP_TABLE_NAME = TABLE_NAME + "_rollup_l2_monthly";
+
+    @Mock
+    private QueryValidator queryValidator;
+
+    @Mock
+    private PartitionManager partitionManager;
+
+    @Mock
+    private AnalyticsRollupService rollupService;
+
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    private DefaultQueryPlanner subject;
+
+    private DataElement deA;
+
+    private OrganisationUnit ouA;
+
+    private OrganisationUnit ouB;
+
+    private OrganisationUnit ouC;
+
+    @Before
+    public void setUp()
+    {
+        subject = new DefaultQueryPlanner( queryValidator, partitionManager, rollupService );
+
+        deA = createDataElement( 'A' );
+        ouA = createOrganisationUnit( 'A' );
+        ouB = createOrganisationUnit( 'B', ouA );
+        ouC = createOrganisationUnit( 'C', ouB );
+
+        ouA.getPath();
+        ouB.getPath();
+        ouC.getPath();
+
+        when( rollupService.getRollups() ).thenReturn( Lists.newArrayList(
+            new AnalyticsRollup( 2, new MonthlyPeriodType(), Lists.newArrayList() ) ) );
+        when( partitionManager.getAnalyticsPartitions( AnalyticsTableType.DATA_VALUE ) ).thenReturn(
+            Sets.newHashSet( TABLE_NAME + "_2019", ROLLUP_TABLE_NAME + "_2019" ) );
+    }
+
+    @Test
+    public void testRouteEligibleQueryToRollup()
+    {
+        DataQueryParams query = planQuery( createParams( ouB, "201904" ).build() );
+
+        assertEquals( ROLLUP_TABLE_NAME, query.getTableName() );
+
+        verify( partitionManager, never() ).tableExists( anyString() );
+    }
+
+    @Test
+    public void testKeepQueryWithMissingRollupPartition()
+    {
+        DataQueryParams query = planQuery( createParams( ouB, "201804" ).build() );
+
+        assertEquals( TABLE_NAME, query.getTableName() );
+
+        verify( partitionManager, never() ).tableExists( anyString() );
+    }
+
+    @Test
+    public void testKeepQueryBelowRollupLevel()
+    {
+        DataQueryParams query = planQuery( createParams( ouC, "201904" ).build() );
+
+        assertEquals( TABLE_NAME, query.getTableName() );
+    }
+
+    @Test
+    public void testKeepQueryWithIneligibleAggregationType()
+    {
+        DataQueryParams query = planQuery( createParams( ouB, "201904" )
+            .withAggregationType( AnalyticsAggregationType.AVERAGE ).build() );
+
+        assertEquals( TABLE_NAME, query.getTableName() );
+    }
+
+    @Test
+    public void testKeepQueryWithStartEndDate()
+    {
+        Period period = PeriodType.getPeriodFromIsoString( "201904" );
+
+        DataQueryParams query = planQuery( createParams( ouB, "201904" )
+            .withStartDateRestriction( period.getStartDate() )
+            .withEndDateRestriction( period.getEndDate() ).build() );
+
+        assertEquals( TABLE_NAME, query.getTableName() );
+    }
+
+    @Test
+    public void testKeepQueryWithoutRollups()
+    {
+        when( rollupService.getRollups() ).thenReturn( Lists.newArrayList() );
+
+        DataQueryParams query = planQuery( createParams( ouB, "201904" ).build() );
+
+        assertEquals( TABLE_NAME, query.getTableName() );
+
+        verify( partitionManager, never() ).getAnalyticsPartitions( AnalyticsTableType.DATA_VALUE );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private DataQueryParams.Builder createParams( OrganisationUnit orgUnit, String isoPeriod )
+    {
+        return DataQueryParams.newBuilder()
+            .addDimension( new BaseDimensionalObject( DATA_X_DIM_ID, DimensionType.DATA_X, getList( deA ) ) )
+            .addDimension( new BaseDimensionalObject( PERIOD_DIM_ID, DimensionType.PERIOD, getList( PeriodType.getPeriodFromIsoString( isoPeriod ) ) ) )
+            .addFilter( new BaseDimensionalObject( ORGUNIT_DIM_ID, DimensionType.ORGANISATION_UNIT, getList( orgUnit ) ) );
+    }
+
+    private DataQueryParams planQuery( DataQueryParams params )
+    {
+        List<DataQueryParams> queries = subject.planQuery( params, QueryPlannerParams.newBuilder()
+            .withTableType( AnalyticsTableType.DATA_VALUE ).build() ).getAllQueries();
+
+        assertEquals( 1, queries.size() );
+
+        return queries.get( 0 );
+    }
+}
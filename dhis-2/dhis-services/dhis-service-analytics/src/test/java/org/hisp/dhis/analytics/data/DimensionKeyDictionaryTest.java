@@ -0,0 +1,86 @@
+package org.hisp.dhis.analytics.data;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class DimensionKeyDictionaryTest
+{
+    @Test
+    public void testGetIdInternsValues()
+    {
+        DimensionKeyDictionary dictionary = new DimensionKeyDictionary();
+
+        int idA = dictionary.getId( "ouA" );
+        int idB = dictionary.getId( "ouB" );
+
+        assertThat( dictionary.getId( "ouA" ), is( idA ) );
+        assertThat( idB, is( not( idA ) ) );
+        assertThat( dictionary.getValue( idB ), is( "ouB" ) );
+        assertThat( dictionary.size(), is( 2 ) );
+    }
+
+    @Test
+    public void testKeyEquality()
+    {
+        DimensionKeyDictionary dictionary = new DimensionKeyDictionary();
+
+        DimensionKey keyA = dictionary.getKey( "deA", "201901", "ouA" );
+        DimensionKey keyB = dictionary.getKey( "deA", "201901", "ouA" );
+        DimensionKey keyC = dictionary.getKey( "deA", "201902", "ouA" );
+
+        assertThat( keyA, is( keyB ) );
+        assertThat( keyA.hashCode(), is( keyB.hashCode() ) );
+        assertThat( keyA, is( not( keyC ) ) );
+        assertThat( keyA.withId( 1, dictionary.getId( "201902" ) ), is( keyC ) );
+    }
+
+    @Test
+    public void testToStringKeyMap()
+    {
+        DimensionKeyDictionary dictionary = new DimensionKeyDictionary();
+
+        Map<DimensionKey, Object> map = new HashMap<>();
+        map.put( dictionary.getKey( "deA", "201901", "ouA" ), 3d );
+        map.put( dictionary.getKey( "deB", "201901", null ), 5d );
+
+        Map<String, Object> stringKeyMap = dictionary.toStringKeyMap( map );
+
+        assertThat( stringKeyMap.size(), is( 2 ) );
+        assertThat( stringKeyMap.get( "deA-201901-ouA" ), is( 3d ) );
+        assertThat( stringKeyMap.get( "deB-201901-null" ), is( 5d ) );
+    }
+}
@@ -0,0 +1,258 @@
+package org.hisp.dhis.analytics.data;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hisp.dhis.DhisConvenienceTest.createDataElement;
+import static org.hisp.dhis.DhisConvenienceTest.createOrganisationUnit;
+import static org.hisp.dhis.common.DimensionalObject.DATA_X_DIM_ID;
+import static org.hisp.dhis.common.DimensionalObject.ORGUNIT_DIM_ID;
+import static org.hisp.dhis.common.DimensionalObject.PERIOD_DIM_ID;
+import static org.hisp.dhis.common.DimensionalObjectUtils.getList;
+import static org.mockito.Mockito.mock;
+
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetMetaDataImpl;
+import javax.sql.rowset.RowSetProvider;
+
+import org.hisp.dhis.analytics.AggregationType;
+import org.hisp.dhis.analytics.AnalyticsAggregationType;
+import org.hisp.dhis.analytics.AnalyticsTableType;
+import org.hisp.dhis.analytics.DataQueryParams;
+import org.hisp.dhis.analytics.DataType;
+import org.hisp.dhis.analytics.QueryPlanner;
+import org.hisp.dhis.analytics.cache.AnalyticsPartialResultCache;
+import org.hisp.dhis.analytics.partition.PartitionManager;
+import org.hisp.dhis.common.BaseDimensionalObject;
+import org.hisp.dhis.common.DimensionType;
+import org.hisp.dhis.common.DimensionalItemObject;
+import org.hisp.dhis.common.ListMap;
+import org.hisp.dhis.common.ValueType;
+import org.hisp.dhis.period.PeriodType;
+import org.hisp.dhis.period.YearlyPeriodType;
+import org.hisp.dhis.setting.SystemSettingManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.rowset.ResultSetWrappingSqlRowSet;
+import org.springframework.jdbc.support.rowset.SqlRowSet;
+
+/**
+ * Measures the key and value maps produced by
+ * {@link JdbcAnalyticsManager#getAggregatedDataValues} from an in-memory row
+ * set. Compares aggregation queries, which use string keys, with
+ * disaggregation queries, which replace yearly data periods with monthly
+ * aggregation periods either on string keys as before or on
+ * {@link DimensionKey} tuples as now. Not run as part of the test suite, run
+ * the main method from the test class path. The GC profiler reports the bytes
+ * allocated per operation as gc.alloc.rate.norm.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class JdbcAnalyticsManagerBenchmark
+{
+    private static final int DX_ITEMS = 20;
+    private static final int OU_ITEMS = 500;
+
+    @Param( { "10000" } )
+    private int rows;
+
+    private JdbcAnalyticsManager manager;
+
+    private DataQueryParams aggregationParams;
+
+    private DataQueryParams disaggregationParams;
+
+    private ListMap<DimensionalItemObject, DimensionalItemObject> dataPeriodAggregationPeriodMap;
+
+    @Setup( Level.Trial )
+    public void setUp()
+        throws SQLException
+    {
+        QueryPlanner queryPlanner = new DefaultQueryPlanner(
+            new DefaultQueryValidator( mock( SystemSettingManager.class ), mock( NestedIndicatorCyclicDependencyInspector.class ) ),
+            mock( PartitionManager.class ), mock( AnalyticsRollupService.class ) );
+
+        CachedRowSet rowSet = createRowSet();
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate()
+        {
+            @Override
+            public SqlRowSet queryForRowSet( String sql )
+            {
+                try
+                {
+                    rowSet.beforeFirst();
+                }
+                catch ( SQLException ex )
+                {
+                    throw new IllegalStateException( ex );
+                }
+
+                return new ResultSetWrappingSqlRowSet( rowSet );
+            }
+        };
+
+        manager = new JdbcAnalyticsManager( queryPlanner, jdbcTemplate, mock( AnalyticsPartialResultCache.class ) );
+
+        aggregationParams = createParams( new AnalyticsAggregationType( AggregationType.SUM, AggregationType.SUM ) );
+
+        disaggregationParams = DataQueryParams.newBuilder( createParams(
+            new AnalyticsAggregationType( AggregationType.SUM, AggregationType.AVERAGE, DataType.NUMERIC, true ) ) )
+            .withDataPeriodType( new YearlyPeriodType() )
+            .build();
+
+        dataPeriodAggregationPeriodMap = disaggregationParams.getDataPeriodAggregationPeriodMap();
+    }
+
+    @Benchmark
+    public Map<String, Object> aggregation()
+        throws InterruptedException, ExecutionException
+    {
+        return manager.getAggregatedDataValues( aggregationParams, AnalyticsTableType.DATA_VALUE, 0 ).get();
+    }
+
+    @Benchmark
+    public Map<String, Object> disaggregationStringKeys()
+        throws InterruptedException, ExecutionException
+    {
+        Map<String, Object> map = manager.getAggregatedDataValues( aggregationParams, AnalyticsTableType.DATA_VALUE, 0 ).get();
+
+        manager.replaceDataPeriodsWithAggregationPeriods( map, disaggregationParams, dataPeriodAggregationPeriodMap );
+
+        return map;
+    }
+
+    @Benchmark
+    public Map<String, Object> disaggregationDimensionKeys()
+        throws InterruptedException, ExecutionException
+    {
+        return manager.getAggregatedDataValues( disaggregationParams, AnalyticsTableType.DATA_VALUE, 0 ).get();
+    }
+
+    /**
+     * Creates a row set with yearly data periods, as returned for data
+     * elements with a yearly data set queried by month.
+     */
+    private CachedRowSet createRowSet()
+        throws SQLException
+    {
+        RowSetMetaDataImpl metaData = new RowSetMetaDataImpl();
+        metaData.setColumnCount( 4 );
+        setColumn( metaData, 1, DATA_X_DIM_ID, Types.VARCHAR );
+        setColumn( metaData, 2, ORGUNIT_DIM_ID, Types.VARCHAR );
+        setColumn( metaData, 3, PERIOD_DIM_ID, Types.VARCHAR );
+        setColumn( metaData, 4, "value", Types.DOUBLE );
+
+        CachedRowSet rowSet = RowSetProvider.newFactory().createCachedRowSet();
+        rowSet.setMetaData( metaData );
+
+        Random random = new Random( 42 );
+
+        for ( int i = 0; i < rows; i++ )
+        {
+            rowSet.moveToInsertRow();
+            rowSet.updateString( 1, "dataElem" + ( i % DX_ITEMS ) );
+            rowSet.updateString( 2, "orgUnit" + ( i / DX_ITEMS % OU_ITEMS ) );
+            rowSet.updateString( 3, "2019" );
+            rowSet.updateDouble( 4, random.nextInt( 100000 ) / 10d );
+            rowSet.insertRow();
+            rowSet.moveToCurrentRow();
+        }
+
+        return rowSet;
+    }
+
+    private void setColumn( RowSetMetaDataImpl metaData, int index, String name, int type )
+        throws SQLException
+    {
+        metaData.setColumnName( index, name );
+        metaData.setColumnLabel( index, name );
+        metaData.setColumnType( index, type );
+    }
+
+    private DataQueryParams createParams( AnalyticsAggregationType aggregationType )
+    {
+        List<DimensionalItemObject> periods = new ArrayList<>();
+
+        for ( int i = 1; i <= 12; i++ )
+        {
+            periods.add( PeriodType.getPeriodFromIsoString( String.format( "2019%02d", i ) ) );
+        }
+
+        return DataQueryParams.newBuilder()
+            .withDataType( DataType.NUMERIC )
+            .withTableName( "analytics" )
+            .withAggregationType( aggregationType )
+            .addDimension( new BaseDimensionalObject( DATA_X_DIM_ID, DimensionType.DATA_X,
+                getList( createDataElement( 'A', ValueType.INTEGER, AggregationType.SUM ) ) ) )
+            .addDimension( new BaseDimensionalObject( ORGUNIT_DIM_ID, DimensionType.ORGANISATION_UNIT,
+                getList( createOrganisationUnit( 'A' ) ) ) )
+            .addDimension( new BaseDimensionalObject( PERIOD_DIM_ID, DimensionType.PERIOD, periods ) )
+            .build();
+    }
+
+    public static void main( String[] args )
+        throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+            .include( JdbcAnalyticsManagerBenchmark.class.getSimpleName() )
+            .addProfiler( GCProfiler.class )
+            .build();
+
+        new Runner( options ).run();
+    }
+}
@@ -32,10 +32,21 @@ import static org.hamcrest.Matchers.containsString;
 import static org.hisp.dhis.DhisConvenienceTest.*;
 import static org.hisp.dhis.common.DimensionalObject.*;
 import static org.hisp.dhis.common.DimensionalObjectUtils.getList;
+import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+
 import org.hisp.dhis.analytics.*;
+import org.hisp.dhis.analytics.cache.AnalyticsPartialResultCache;
 import org.hisp.dhis.analytics.partition.PartitionManager;
 import org.hisp.dhis.common.BaseDimensionalObject;
 import org.hisp.dhis.common.DimensionType;
@@ -44,6 +55,7 @@ import org.hisp.dhis.dataelement.DataElement;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.period.Period;
 import org.hisp.dhis.period.PeriodType;
+import org.hisp.dhis.period.YearlyPeriodType;
 import org.hisp.dhis.setting.SystemSettingManager;
 import org.junit.Before;
 import org.junit.Rule;
@@ -70,6 +82,9 @@ public class JdbcAnalyticsManagerTest
     @Mock
     private PartitionManager partitionManager;
 
+    @Mock
+    private AnalyticsRollupService rollupService;
+
     @Mock
     private JdbcTemplate jdbcTemplate;
 
@@ -79,6 +94,9 @@ public class JdbcAnalyticsManagerTest
     @Mock
     private NestedIndicatorCyclicDependencyInspector nestedIndicatorCyclicDependencyInspector;
 
+    @Mock
+    private AnalyticsPartialResultCache partialResultCache;
+
     @Captor
     private ArgumentCaptor<String> sql;
 
@@ -89,13 +107,13 @@ public class JdbcAnalyticsManagerTest
     {
         QueryPlanner queryPlanner = new DefaultQueryPlanner(
             new DefaultQueryValidator( this.systemSettingManager, nestedIndicatorCyclicDependencyInspector ),
-            partitionManager );
+            partitionManager, rollupService );
 
         mockRowSet();
 
         when( jdbcTemplate.queryForRowSet( sql.capture() ) ).thenReturn( rowSet );
 
-        subject = new JdbcAnalyticsManager( queryPlanner, jdbcTemplate );
+        subject = new JdbcAnalyticsManager( queryPlanner, jdbcTemplate, partialResultCache );
     }
 
     @Test
@@ -118,6 +136,65 @@ public class JdbcAnalyticsManagerTest
         assertExpectedSql("desc");
     }
 
+    @Test
+    public void verifyCachedPartialResultIsReturnedWithoutQuery()
+        throws InterruptedException, ExecutionException
+    {
+        DataQueryParams params = createParams( AggregationType.SUM );
+
+        Map<String, Object> cachedValues = Collections.singletonMap( "key", 1d );
+
+        when( partialResultCache.getKey( eq( params ), eq( AnalyticsTableType.DATA_VALUE ), eq( 20000 ),
+            eq( Collections.singletonList( "analytics" ) ) ) ).thenReturn( "cacheKey" );
+        when( partialResultCache.get( "cacheKey" ) ).thenReturn( Optional.of( cachedValues ) );
+
+        Map<String, Object> values = subject.getAggregatedDataValues( params, AnalyticsTableType.DATA_VALUE, 20000 ).get();
+
+        assertThat( values, is( cachedValues ) );
+        verify( jdbcTemplate, never() ).queryForRowSet( anyString() );
+    }
+
+    @Test
+    public void verifyQueriedResultIsCached()
+    {
+        DataQueryParams params = createParams( AggregationType.SUM );
+
+        when( partialResultCache.getKey( eq( params ), eq( AnalyticsTableType.DATA_VALUE ), eq( 20000 ),
+            eq( Collections.singletonList( "analytics" ) ) ) ).thenReturn( "cacheKey" );
+
+        subject.getAggregatedDataValues( params, AnalyticsTableType.DATA_VALUE, 20000 );
+
+        verify( partialResultCache ).put( eq( "cacheKey" ), eq( Collections.emptyMap() ) );
+    }
+
+    @Test
+    public void verifyDataPeriodsAreReplacedWithAggregationPeriodsForDisaggregation()
+        throws InterruptedException, ExecutionException
+    {
+        DataElement deA = createDataElement( 'A', ValueType.INTEGER, AggregationType.SUM );
+        OrganisationUnit ouA = createOrganisationUnit( 'A' );
+
+        DataQueryParams params = DataQueryParams.newBuilder().withDataType( DataType.NUMERIC )
+            .withTableName( "analytics" )
+            .withAggregationType( new AnalyticsAggregationType( AggregationType.SUM, AggregationType.AVERAGE, DataType.NUMERIC, true ) )
+            .withDataPeriodType( new YearlyPeriodType() )
+            .addDimension( new BaseDimensionalObject( DATA_X_DIM_ID, DimensionType.DATA_X, getList( deA ) ) )
+            .addFilter( new BaseDimensionalObject( ORGUNIT_DIM_ID, DimensionType.ORGANISATION_UNIT, getList( ouA ) ) )
+            .addDimension( new BaseDimensionalObject( PERIOD_DIM_ID, DimensionType.PERIOD, getList(
+                PeriodType.getPeriodFromIsoString( "201501" ), PeriodType.getPeriodFromIsoString( "201502" ) ) ) ).build();
+
+        when( rowSet.next() ).thenReturn( true, false );
+        when( rowSet.getString( DATA_X_DIM_ID ) ).thenReturn( "deA" );
+        when( rowSet.getString( PERIOD_DIM_ID ) ).thenReturn( "2015" );
+        when( rowSet.getDouble( "value" ) ).thenReturn( 12d );
+
+        Map<String, Object> values = subject.getAggregatedDataValues( params, AnalyticsTableType.DATA_VALUE, 20000 ).get();
+
+        assertThat( values.size(), is( 2 ) );
+        assertThat( values.get( "deA-201501" ), is( 12d ) );
+        assertThat( values.get( "deA-201502" ), is( 12d ) );
+    }
+
     private void mockRowSet()
     {
         // Simulate no rows
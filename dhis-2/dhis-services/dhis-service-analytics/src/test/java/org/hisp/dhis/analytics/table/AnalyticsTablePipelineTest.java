@@ -0,0 +1,128 @@
+package org.hisp.dhis.analytics.table;
+
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.hisp.dhis.analytics.AnalyticsTable;
+import org.hisp.dhis.analytics.AnalyticsTablePartition;
+import org.hisp.dhis.analytics.AnalyticsTableType;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class AnalyticsTablePipelineTest
+{
+    private final AnalyticsTable table = new AnalyticsTable( AnalyticsTableType.DATA_VALUE, Lists.newArrayList(), Lists.newArrayList() );
+
+    private final AnalyticsTablePartition partitionA = new AnalyticsTablePartition( table, 2018, null, null, false );
+
+    private final AnalyticsTablePartition partitionB = new AnalyticsTablePartition( table, 2019, null, null, false );
+
+    private final AnalyticsTablePartition partitionC = new AnalyticsTablePartition( table, 2020, null, null, false );
+
+    @Test
+    public void testStagesRunInOrderPerPartition()
+    {
+        Map<Integer, List<String>> stages = new ConcurrentHashMap<>();
+        List<AnalyticsTablePartition> completed = new CopyOnWriteArrayList<>();
+
+        Map<String, Long> stageTimes = new AnalyticsTablePipeline( 2 )
+            .addStage( "populate", p -> record( stages, p, "populate" ) )
+            .addStageTasks( "index", p -> Lists.newArrayList(
+                () -> record( stages, p, "index" ), () -> record( stages, p, "index" ), () -> record( stages, p, "index" ) ) )
+            .addStage( "analyze", p -> record( stages, p, "analyze" ) )
+            .run( Lists.newArrayList( partitionA, partitionB, partitionC ), ( p, times ) -> {
+                assertThat( times.keySet(), contains( "populate", "index", "analyze" ) );
+                completed.add( p );
+            } );
+
+        assertThat( stageTimes.keySet(), contains( "populate", "index", "analyze" ) );
+        assertThat( completed, hasSize( 3 ) );
+
+        for ( AnalyticsTablePartition partition : completed )
+        {
+            assertThat( stages.get( partition.getYear() ), contains( "populate", "index", "index", "index", "analyze" ) );
+        }
+    }
+
+    @Test
+    public void testStageWithoutTasks()
+    {
+        Map<Integer, List<String>> stages = new ConcurrentHashMap<>();
+
+        new AnalyticsTablePipeline( 1 )
+            .addStage( "populate", p -> record( stages, p, "populate" ) )
+            .addStageTasks( "index", p -> Collections.emptyList() )
+            .addStage( "analyze", p -> record( stages, p, "analyze" ) )
+            .run( Lists.newArrayList( partitionA ), ( p, times ) -> {} );
+
+        assertThat( stages.get( 2018 ), contains( "populate", "analyze" ) );
+    }
+
+    @Test
+    public void testFailureIsRethrownAndStopsLaterStages()
+    {
+        Map<Integer, List<String>> stages = new ConcurrentHashMap<>();
+
+        try
+        {
+            new AnalyticsTablePipeline( 1 )
+                .addStage( "populate", p -> {
+                    throw new IllegalStateException( "Populate failed" );
+                } )
+                .addStage( "analyze", p -> record( stages, p, "analyze" ) )
+                .run( Lists.newArrayList( partitionA, partitionB ), ( p, times ) -> {} );
+
+            fail( "Expected exception" );
+        }
+        catch ( RuntimeException ex )
+        {
+            assertThat( ex.getCause().getMessage(), is( "Populate failed" ) );
+        }
+
+        assertThat( stages.isEmpty(), is( true ) );
+    }
+
+    private void record( Map<Integer, List<String>> stages, AnalyticsTablePartition partition, String stage )
+    {
+        stages.computeIfAbsent( partition.getYear(), k -> new CopyOnWriteArrayList<>() ).add( stage );
+    }
+}
@@ -0,0 +1,64 @@
+package org.hisp.dhis.analytics.table;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.hisp.dhis.analytics.AnalyticsRollup;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class DefaultAnalyticsRollupServiceTest
+{
+    @Test
+    public void testParseRollups()
+    {
+        List<AnalyticsRollup> rollups = DefaultAnalyticsRollupService.parseRollups(
+            "3:Monthly:co,ao; 2:Yearly ;2:Monthly;3:Monthly:ao,co;x:Monthly;2:Unknown;0:Yearly;" );
+
+        assertThat( rollups.size(), is( 3 ) );
+
+        assertThat( rollups.get( 0 ).getName(), is( "rollup_l2_yearly" ) );
+        assertThat( rollups.get( 1 ).getName(), is( "rollup_l2_monthly" ) );
+        assertThat( rollups.get( 2 ).getOrgUnitLevel(), is( 3 ) );
+        assertThat( rollups.get( 2 ).getDimensions(), is( Lists.newArrayList( "ao", "co" ) ) );
+    }
+
+    @Test
+    public void testParseEmptyRollups()
+    {
+        assertTrue( DefaultAnalyticsRollupService.parseRollups( null ).isEmpty() );
+        assertTrue( DefaultAnalyticsRollupService.parseRollups( " " ).isEmpty() );
+    }
+}
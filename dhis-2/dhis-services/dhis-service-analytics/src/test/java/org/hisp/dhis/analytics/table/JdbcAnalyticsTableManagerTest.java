@@ -31,6 +31,7 @@ package org.hisp.dhis.analytics.table;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatchers;
 import org.mockito.Mock;
 import org.mockito.Mockito;
@@ -45,10 +46,14 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 
+import org.hisp.dhis.analytics.AnalyticsRollup;
+import org.hisp.dhis.analytics.AnalyticsRollupService;
 import org.hisp.dhis.analytics.AnalyticsTable;
+import org.hisp.dhis.analytics.AnalyticsTableColumn;
 import org.hisp.dhis.analytics.AnalyticsTableHookService;
 import org.hisp.dhis.analytics.AnalyticsTableManager;
 import org.hisp.dhis.analytics.AnalyticsTablePartition;
+import org.hisp.dhis.analytics.AnalyticsTableType;
 import org.hisp.dhis.analytics.AnalyticsTableUpdateParams;
 import org.hisp.dhis.analytics.partition.PartitionManager;
 import org.hisp.dhis.category.CategoryService;
@@ -56,12 +61,17 @@ import org.hisp.dhis.common.IdentifiableObjectManager;
 import org.hisp.dhis.dataapproval.DataApprovalLevelService;
 import org.hisp.dhis.jdbc.StatementBuilder;
 import org.hisp.dhis.organisationunit.OrganisationUnitService;
+import org.hisp.dhis.period.MonthlyPeriodType;
 import org.hisp.dhis.resourcetable.ResourceTableService;
 import org.hisp.dhis.setting.SettingKey;
 import org.hisp.dhis.setting.SystemSettingManager;
 import org.hisp.dhis.system.database.DatabaseInfo;
 import org.joda.time.DateTime;
 
+import static org.hisp.dhis.analytics.ColumnDataType.CHARACTER_11;
+import static org.hisp.dhis.analytics.ColumnDataType.INTEGER;
+import static org.hisp.dhis.analytics.ColumnDataType.TEXT;
+import static org.hisp.dhis.analytics.util.AnalyticsSqlUtils.quote;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -80,6 +90,9 @@ public class JdbcAnalyticsTableManagerTest
     @Mock
     private JdbcTemplate jdbcTemplate;
 
+    @Mock
+    private AnalyticsRollupService rollupService;
+
     @Rule
     public MockitoRule mockitoRule = MockitoJUnit.rule();
 
@@ -91,7 +104,7 @@ public class JdbcAnalyticsTableManagerTest
         subject = new JdbcAnalyticsTableManager( mock( IdentifiableObjectManager.class ), mock( OrganisationUnitService.class ),
             mock( CategoryService.class ), systemSettingManager, mock( DataApprovalLevelService.class ),
             mock( ResourceTableService.class ), mock( AnalyticsTableHookService.class ), mock( StatementBuilder.class ),
-            mock( PartitionManager.class ), mock( DatabaseInfo.class ), jdbcTemplate );
+            mock( PartitionManager.class ), mock( DatabaseInfo.class ), jdbcTemplate, rollupService );
     }
 
     @Test
@@ -130,6 +143,36 @@ public class JdbcAnalyticsTableManagerTest
         assertEquals( partitionB.getYear().intValue(), new DateTime( partitionB.getStartDate() ).getYear() );
     }
 
+    @Test
+    public void testGetDirtyPartitionsAnalyticsTable()
+    {
+        Date lastFullTableUpdate = new DateTime( 2019, 3, 1, 2, 0 ).toDate();
+        Date startTime = new DateTime( 2019, 3, 2, 2, 0 ).toDate();
+        List<Integer> dirtyYears = Lists.newArrayList( 2017 );
+
+        AnalyticsTableUpdateParams params = AnalyticsTableUpdateParams.newBuilder()
+            .withStartTime( startTime )
+            .withLastSuccessfulUpdate( lastFullTableUpdate )
+            .withDirtyPartitionsOnly( true )
+            .build();
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass( String.class );
+
+        when( jdbcTemplate.queryForList( sql.capture(), ArgumentMatchers.<Class<Integer>>any() ) ).thenReturn( dirtyYears );
+
+        List<AnalyticsTable> tables = subject.getAnalyticsTables( params );
+
+        assertTrue( params.isPartialUpdate() );
+        assertEquals( 1, tables.size() );
+
+        AnalyticsTable table = tables.get( 0 );
+
+        assertEquals( 1, table.getTablePartitions().size() );
+        assertEquals( 2017, table.getTablePartitions().get( 0 ).getYear().intValue() );
+        assertTrue( sql.getValue().contains( "dv.lastupdated >= '2019-03-01T02:00:00" ) );
+        assertTrue( sql.getValue().contains( "from datavalueaudit" ) );
+    }
+
     @Test
     public void testGetLatestAnalyticsTable()
     {
@@ -183,4 +226,46 @@ public class JdbcAnalyticsTableManagerTest
 
         subject.getAnalyticsTables( params );
     }
+
+    @Test
+    public void testPopulateRollupTablePartition()
+    {
+        Date startTime = new DateTime( 2019, 3, 1, 10, 0 ).toDate();
+
+        AnalyticsTableUpdateParams params = AnalyticsTableUpdateParams.newBuilder()
+            .withStartTime( startTime )
+            .build();
+
+        AnalyticsTable table = new AnalyticsTable( AnalyticsTableType.DATA_VALUE, Lists.newArrayList(
+            new AnalyticsTableColumn( quote( "dx" ), CHARACTER_11, "de.uid" ),
+            new AnalyticsTableColumn( quote( "uidlevel1" ), CHARACTER_11, "ous.uidlevel1" ),
+            new AnalyticsTableColumn( quote( "uidlevel3" ), CHARACTER_11, "ous.uidlevel3" ),
+            new AnalyticsTableColumn( quote( "daily" ), TEXT, "ps.daily" ),
+            new AnalyticsTableColumn( quote( "monthly" ), TEXT, "ps.monthly" ),
+            new AnalyticsTableColumn( quote( "year" ), INTEGER, "ps.year" ) ), Lists.newArrayList() );
+
+        table.addPartitionTable( 2019, new DateTime( 2019, 1, 1, 0, 0 ).toDate(), new DateTime( 2019, 12, 31, 0, 0 ).toDate() );
+
+        when( rollupService.getRollups() ).thenReturn( Lists.newArrayList(
+            new AnalyticsRollup( 2, new MonthlyPeriodType(), Lists.newArrayList() ) ) );
+
+        List<AnalyticsTable> rollupTables = subject.getRollupTables( params, Lists.newArrayList( table ) );
+
+        assertEquals( 1, rollupTables.size() );
+        assertEquals( 1, rollupTables.get( 0 ).getTablePartitions().size() );
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass( String.class );
+
+        subject.populateRollupTablePartition( rollupTables.get( 0 ).getTablePartitions().get( 0 ) );
+
+        Mockito.verify( jdbcTemplate ).execute( sql.capture() );
+
+        assertEquals( "insert into analytics_temp_rollup_l2_monthly_2019 " +
+            "(\"dx\",\"uidlevel1\",\"monthly\",\"year\",\"daysxvalue\",\"value\") " +
+            "select \"dx\",\"uidlevel1\",\"monthly\",\"year\"," +
+            "sum(daysxvalue) as \"daysxvalue\",sum(value) as \"value\" " +
+            "from analytics_temp_2019 " +
+            "where value is not null " +
+            "group by \"dx\",\"uidlevel1\",\"monthly\",\"year\"", sql.getValue() );
+    }
 }
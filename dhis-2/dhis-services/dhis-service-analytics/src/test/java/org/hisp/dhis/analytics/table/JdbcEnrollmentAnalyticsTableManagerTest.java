@@ -32,12 +32,18 @@ import static org.hamcrest.CoreMatchers.containsString;
 import static org.hisp.dhis.DhisConvenienceTest.createProgram;
 import static org.hisp.dhis.DhisConvenienceTest.createProgramTrackedEntityAttribute;
 import static org.hisp.dhis.DhisConvenienceTest.createTrackedEntityAttribute;
+import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 
+import org.hisp.dhis.analytics.AnalyticsTable;
 import org.hisp.dhis.analytics.AnalyticsTableHookService;
+import org.hisp.dhis.analytics.AnalyticsTablePartition;
 import org.hisp.dhis.analytics.AnalyticsTableUpdateParams;
 import org.hisp.dhis.analytics.partition.PartitionManager;
 import org.hisp.dhis.category.CategoryService;
@@ -49,6 +55,7 @@ import org.hisp.dhis.organisationunit.OrganisationUnitService;
 import org.hisp.dhis.program.Program;
 import org.hisp.dhis.program.ProgramTrackedEntityAttribute;
 import org.hisp.dhis.resourcetable.ResourceTableService;
+import org.hisp.dhis.setting.SettingKey;
 import org.hisp.dhis.setting.SystemSettingManager;
 import org.hisp.dhis.system.database.DatabaseInfo;
 import org.hisp.dhis.trackedentity.TrackedEntityAttribute;
@@ -78,6 +85,9 @@ public class JdbcEnrollmentAnalyticsTableManagerTest
     @Mock
     private JdbcTemplate jdbcTemplate;
 
+    @Mock
+    private SystemSettingManager systemSettingManager;
+
     @Rule
     public MockitoRule mockitoRule = MockitoJUnit.rule();
 
@@ -89,7 +99,7 @@ public class JdbcEnrollmentAnalyticsTableManagerTest
     public void setUp()
     {
         subject = new JdbcEnrollmentAnalyticsTableManager( idObjectManager, mock( OrganisationUnitService.class ),
-            mock( CategoryService.class ), mock( SystemSettingManager.class ), mock( DataApprovalLevelService.class ),
+            mock( CategoryService.class ), systemSettingManager, mock( DataApprovalLevelService.class ),
             mock( ResourceTableService.class ), mock( AnalyticsTableHookService.class ),
             new PostgreSQLStatementBuilder(), mock( PartitionManager.class ), databaseInfo, jdbcTemplate );
     }
@@ -123,4 +133,47 @@ public class JdbcEnrollmentAnalyticsTableManagerTest
 
         assertThat( sql.getValue(), containsString( ouQuery ) );
     }
+
+    @Test
+    public void verifyGetLatestAnalyticsTables()
+    {
+        Program prA = createProgram( 'A' );
+        Program prB = createProgram( 'B' );
+        prA.setId( 1 );
+        prB.setId( 2 );
+
+        Date lastFullTableUpdate = new DateTime( 2019, 3, 1, 2, 0 ).toDate();
+        Date lastLatestPartitionUpdate = new DateTime( 2019, 3, 1, 9, 0 ).toDate();
+        Date startTime = new DateTime( 2019, 3, 1, 10, 0 ).toDate();
+
+        AnalyticsTableUpdateParams params = AnalyticsTableUpdateParams.newBuilder()
+            .withStartTime( startTime ).withLatestPartition().build();
+
+        when( idObjectManager.getAllNoAcl( Program.class ) ).thenReturn( Lists.newArrayList( prA, prB ) );
+        when( systemSettingManager.getSystemSetting( SettingKey.LAST_SUCCESSFUL_ANALYTICS_TABLES_UPDATE ) ).thenReturn( lastFullTableUpdate );
+        when( systemSettingManager.getSystemSetting( SettingKey.LAST_SUCCESSFUL_LATEST_ANALYTICS_PARTITION_UPDATE ) ).thenReturn( lastLatestPartitionUpdate );
+        when( jdbcTemplate.queryForList( anyString() ) )
+            .thenReturn( Lists.newArrayList( Collections.singletonMap( "programinstanceid", 1 ) ) )
+            .thenReturn( Lists.newArrayList() );
+
+        List<AnalyticsTable> tables = subject.getAnalyticsTables( params );
+
+        assertThat( tables.size(), is( 1 ) );
+
+        AnalyticsTable table = tables.get( 0 );
+        AnalyticsTablePartition partition = table.getLatestPartition();
+
+        assertThat( table.getProgram(), is( prA ) );
+        assertThat( partition.isLatestPartition(), is( true ) );
+        assertThat( partition.getStartDate(), is( lastFullTableUpdate ) );
+        assertThat( partition.getEndDate(), is( startTime ) );
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass( String.class );
+
+        subject.populateTable( params, partition );
+
+        verify( jdbcTemplate ).execute( sql.capture() );
+
+        assertThat( sql.getValue(), containsString( "and pi.lastupdated >= '2019-03-01T02:00:00' " ) );
+    }
 }
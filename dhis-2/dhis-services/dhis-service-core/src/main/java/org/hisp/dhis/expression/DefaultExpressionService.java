@@ -30,8 +30,8 @@ package org.hisp.dhis.expression;
 
 import com.google.common.collect.ImmutableMap;
 import lombok.extern.slf4j.Slf4j;
+import org.antlr.v4.runtime.tree.ParseTree;
 import org.hisp.dhis.analytics.DataType;
-import org.hisp.dhis.antlr.Parser;
 import org.hisp.dhis.antlr.ParserException;
 import org.hisp.dhis.category.CategoryService;
 import org.hisp.dhis.common.DimensionService;
@@ -49,6 +49,7 @@ import org.hisp.dhis.expression.dataitem.DimItemProgramAttribute;
 import org.hisp.dhis.expression.dataitem.DimItemProgramDataElement;
 import org.hisp.dhis.expression.dataitem.DimItemProgramIndicator;
 import org.hisp.dhis.expression.dataitem.DimItemReportingRate;
+import org.hisp.dhis.expression.dataitem.DimensionalItem;
 import org.hisp.dhis.expression.dataitem.ItemDays;
 import org.hisp.dhis.expression.dataitem.ItemOrgUnitGroup;
 import org.hisp.dhis.hibernate.HibernateGenericStore;
@@ -56,6 +57,7 @@ import org.hisp.dhis.indicator.Indicator;
 import org.hisp.dhis.indicator.IndicatorValue;
 import org.hisp.dhis.organisationunit.OrganisationUnitGroup;
 import org.hisp.dhis.organisationunit.OrganisationUnitGroupService;
+import org.hisp.dhis.parser.expression.CachingParser;
 import org.hisp.dhis.parser.expression.CommonExpressionVisitor;
 import org.hisp.dhis.parser.expression.ExpressionItem;
 import org.hisp.dhis.parser.expression.ExpressionItemMethod;
@@ -75,7 +77,9 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -323,6 +327,68 @@ public class DefaultExpressionService
         return null;
     }
 
+    @Override
+    public List<IndicatorValue> getIndicatorValueObjects( Indicator indicator, int size,
+        Map<DimensionalItemObject, double[]> valueColumns, int[] days,
+        List<Map<String, Integer>> orgUnitCountMaps, Map<String, Constant> constantMap )
+    {
+        List<IndicatorValue> indicatorValues = new ArrayList<>( Collections.nCopies( size, null ) );
+
+        if ( indicator == null || indicator.getNumerator() == null || indicator.getDenominator() == null )
+        {
+            return indicatorValues;
+        }
+
+        Map<String, double[]> itemColumns = valueColumns.entrySet().stream().collect(
+            Collectors.toMap( e -> e.getKey().getDimensionItem(), Map.Entry::getValue, ( a, b ) -> a ) );
+
+        VectorizedExpression vectorizedDenominator = getVectorizedExpression(
+            indicator.getDenominator(), constantMap, days != null );
+
+        VectorizedExpression vectorizedNumerator = getVectorizedExpression(
+            indicator.getNumerator(), constantMap, days != null );
+
+        // Row value maps are only needed for row by row evaluation, and are
+        // restricted to the items of this indicator
+
+        List<Map<DimensionalItemObject, Double>> rowValueMaps = null;
+
+        if ( vectorizedDenominator == null || vectorizedNumerator == null )
+        {
+            Set<String> itemIds = getExpressionItemIds( indicator.getNumerator() );
+            itemIds.addAll( getExpressionItemIds( indicator.getDenominator() ) );
+
+            rowValueMaps = getRowValueMaps( size, valueColumns, itemIds );
+        }
+
+        double[] denominatorValues = getIndicatorExpressionValues( indicator.getDenominator(),
+            vectorizedDenominator, size, itemColumns, rowValueMaps, days, orgUnitCountMaps, constantMap );
+
+        double[] numeratorValues = getIndicatorExpressionValues( indicator.getNumerator(),
+            vectorizedNumerator, size, itemColumns, rowValueMaps, days, orgUnitCountMaps, constantMap );
+
+        int factor = indicator.getIndicatorType().getFactor();
+
+        boolean annualized = indicator.isAnnualized() && days != null;
+
+        for ( int i = 0; i < size; i++ )
+        {
+            double denominatorValue = denominatorValues[i];
+            double numeratorValue = numeratorValues[i];
+
+            if ( !Double.isNaN( denominatorValue ) && denominatorValue != 0d && !Double.isNaN( numeratorValue ) )
+            {
+                indicatorValues.set( i, new IndicatorValue()
+                    .setNumeratorValue( numeratorValue )
+                    .setDenominatorValue( denominatorValue )
+                    .setMultiplier( annualized ? factor * DateUtils.DAYS_IN_YEAR : factor )
+                    .setDivisor( annualized ? days[i] : 1 ) );
+            }
+        }
+
+        return indicatorValues;
+    }
+
     @Override
     @Transactional
     public void substituteIndicatorExpressions( Collection<Indicator> indicators )
@@ -525,6 +591,215 @@ public class DefaultExpressionService
             return null;
         }
 
+        return evaluate( expression, null, parseType, valueMap, constantMap, orgUnitCountMap, days,
+            missingValueStrategy, samplePeriods, periodValueMap );
+    }
+
+    @Override
+    public ExpressionEvaluator compileExpression( String expression, ParseType parseType,
+        Map<String, Constant> constantMap, MissingValueStrategy missingValueStrategy )
+    {
+        if ( isEmpty( expression ) )
+        {
+            return ( valueMap, orgUnitCountMap, days, samplePeriods, periodValueMap ) -> null;
+        }
+
+        ParseTree parseTree = null;
+
+        try
+        {
+            parseTree = CachingParser.getParseTree( expression );
+        }
+        catch ( ParserException ex )
+        {
+            log.warn( ex.getMessage() + " parsing expression '" + expression + "'" );
+        }
+
+        final ParseTree compiledTree = parseTree;
+
+        return ( valueMap, orgUnitCountMap, days, samplePeriods, periodValueMap ) -> evaluate( expression,
+            compiledTree, parseType, valueMap, constantMap, orgUnitCountMap, days, missingValueStrategy,
+            samplePeriods != null ? samplePeriods : DEFAULT_SAMPLE_PERIODS,
+            periodValueMap != null ? periodValueMap : new MapMap<>() );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Evaluates an indicator numerator or denominator for a number of rows,
+     * skipping rows where all item values are missing. Expressions which were
+     * compiled to a {@link VectorizedExpression} are evaluated column-wise,
+     * any other expression is evaluated row by row from the row value maps.
+     *
+     * @return the value of each row, where a skipped row is NaN.
+     */
+    private double[] getIndicatorExpressionValues( String expression, VectorizedExpression vectorizedExpression,
+        int size, Map<String, double[]> itemColumns, List<Map<DimensionalItemObject, Double>> rowValueMaps,
+        int[] days, List<Map<String, Integer>> orgUnitCountMaps, Map<String, Constant> constantMap )
+    {
+        if ( vectorizedExpression != null )
+        {
+            boolean[] valueFound = new boolean[size];
+
+            double[] values = vectorizedExpression.evaluate( size, itemColumns, days, valueFound );
+
+            if ( vectorizedExpression.getItemCount() != 0 )
+            {
+                for ( int i = 0; i < size; i++ )
+                {
+                    if ( !valueFound[i] )
+                    {
+                        values[i] = Double.NaN;
+                    }
+                }
+            }
+
+            return values;
+        }
+
+        ExpressionEvaluator evaluator = compileExpression( expression, INDICATOR_EXPRESSION,
+            constantMap, SKIP_IF_ALL_VALUES_MISSING );
+
+        double[] values = new double[size];
+
+        for ( int i = 0; i < size; i++ )
+        {
+            Double value = (Double) evaluator.evaluate( rowValueMaps.get( i ),
+                orgUnitCountMaps != null ? orgUnitCountMaps.get( i ) : null,
+                days != null ? days[i] : null );
+
+            values[i] = value != null ? value : Double.NaN;
+        }
+
+        return values;
+    }
+
+    /**
+     * Arranges the values of the given items as one value map per row.
+     *
+     * @param size the number of rows.
+     * @param valueColumns the map of data value columns.
+     * @param itemIds the identifiers of the items to include.
+     * @return a list with the value map of each row.
+     */
+    private List<Map<DimensionalItemObject, Double>> getRowValueMaps( int size,
+        Map<DimensionalItemObject, double[]> valueColumns, Set<String> itemIds )
+    {
+        List<Map<DimensionalItemObject, Double>> rowValueMaps = new ArrayList<>( size );
+
+        for ( int i = 0; i < size; i++ )
+        {
+            rowValueMaps.add( new HashMap<>() );
+        }
+
+        for ( Map.Entry<DimensionalItemObject, double[]> entry : valueColumns.entrySet() )
+        {
+            if ( itemIds.contains( entry.getKey().getDimensionItem() ) )
+            {
+                double[] column = entry.getValue();
+
+                for ( int i = 0; i < size; i++ )
+                {
+                    if ( !Double.isNaN( column[i] ) )
+                    {
+                        rowValueMaps.get( i ).put( entry.getKey(), column[i] );
+                    }
+                }
+            }
+        }
+
+        return rowValueMaps;
+    }
+
+    /**
+     * Gets the identifiers of the dimensional items in an indicator
+     * expression, as used for looking up item values during evaluation.
+     *
+     * @param expression the indicator expression.
+     * @return the set of item identifiers.
+     */
+    private Set<String> getExpressionItemIds( String expression )
+    {
+        Set<String> itemIds = new HashSet<>();
+
+        if ( isEmpty( expression ) )
+        {
+            return itemIds;
+        }
+
+        try
+        {
+            getExpressionItemIds( CachingParser.getParseTree( expression ), itemIds );
+        }
+        catch ( ParserException ex )
+        {
+            log.warn( ex.getMessage() + " parsing expression '" + expression + "'" );
+        }
+
+        return itemIds;
+    }
+
+    private void getExpressionItemIds( ParseTree parseTree, Set<String> itemIds )
+    {
+        if ( parseTree instanceof ExprContext && ( (ExprContext) parseTree ).it != null )
+        {
+            ExprContext ctx = (ExprContext) parseTree;
+
+            ExpressionItem item = PARSE_TYPE_EXPRESSION_ITEMS.get( INDICATOR_EXPRESSION ).get( ctx.it.getType() );
+
+            if ( item instanceof DimensionalItem )
+            {
+                itemIds.add( ( (DimensionalItem) item ).getId( ctx ) );
+            }
+        }
+
+        for ( int i = 0; i < parseTree.getChildCount(); i++ )
+        {
+            getExpressionItemIds( parseTree.getChild( i ), itemIds );
+        }
+    }
+
+    /**
+     * Compiles an indicator expression for column-wise evaluation.
+     *
+     * @return the compiled expression, or null if the expression must be
+     *         evaluated row by row.
+     */
+    private VectorizedExpression getVectorizedExpression( String expression,
+        Map<String, Constant> constantMap, boolean hasDays )
+    {
+        if ( isEmpty( expression ) )
+        {
+            return null;
+        }
+
+        try
+        {
+            return VectorizedExpression.compile( CachingParser.getParseTree( expression ),
+                PARSE_TYPE_EXPRESSION_ITEMS.get( INDICATOR_EXPRESSION ), constantMap, hasDays );
+        }
+        catch ( ParserException ex )
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Evaluates an expression.
+     *
+     * @param expression the expression to evaluate.
+     * @param parseTree the parse tree of the expression, or null to get it
+     *        from the parse tree cache.
+     * @return the calculated value.
+     */
+    private Object evaluate( String expression, ParseTree parseTree, ParseType parseType,
+        Map<DimensionalItemObject, Double> valueMap, Map<String, Constant> constantMap,
+        Map<String, Integer> orgUnitCountMap, Integer days,
+        MissingValueStrategy missingValueStrategy,
+        List<Period> samplePeriods, MapMap<Period, DimensionalItemObject, Double> periodValueMap )
+    {
         CommonExpressionVisitor visitor = newVisitor( parseType, ITEM_EVALUATE,
             samplePeriods, constantMap, missingValueStrategy );
 
@@ -548,7 +823,7 @@ public class DefaultExpressionService
             visitor.setDays( Double.valueOf( days ) );
         }
 
-        Object value = visit( expression, parseType.getDataType(), visitor, true );
+        Object value = visit( expression, parseTree, parseType.getDataType(), visitor, true );
 
         int itemsFound = visitor.getItemsFound();
         int itemValuesFound = visitor.getItemValuesFound();
@@ -587,10 +862,6 @@ public class DefaultExpressionService
         return value;
     }
 
-    // -------------------------------------------------------------------------
-    // Supportive methods
-    // -------------------------------------------------------------------------
-
     /**
      * Creates a new ExpressionItemsVisitor object.
      */
@@ -646,10 +917,27 @@ public class DefaultExpressionService
      * @return the expression value.
      */
     private Object visit( String expression, DataType dataType, CommonExpressionVisitor visitor, boolean logWarnings )
+    {
+        return visit( expression, null, dataType, visitor, logWarnings );
+    }
+
+    /**
+     * Visits an expression and returns the expected expression type.
+     *
+     * @param expression the expresion to visit.
+     * @param parseTree the parse tree of the expression, or null to get it
+     *        from the parse tree cache.
+     * @param dataType the expected data type of the expression value.
+     * @param visitor the visitor to use.
+     * @param logWarnings whether to log warnings or not.
+     * @return the expression value.
+     */
+    private Object visit( String expression, ParseTree parseTree, DataType dataType,
+        CommonExpressionVisitor visitor, boolean logWarnings )
     {
         try
         {
-            Object result = Parser.visit( expression, visitor );
+            Object result = visitor.visit( parseTree != null ? parseTree : CachingParser.getParseTree( expression ) );
 
             switch( dataType )
             {
@@ -0,0 +1,351 @@
+package org.hisp.dhis.expression;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.hisp.dhis.constant.Constant;
+import org.hisp.dhis.expression.dataitem.DimensionalItem;
+import org.hisp.dhis.expression.dataitem.ItemDays;
+import org.hisp.dhis.parser.expression.ExpressionItem;
+import org.hisp.dhis.parser.expression.dataitem.ItemConstant;
+import org.hisp.dhis.parser.expression.operator.OperatorGroupingParentheses;
+import org.hisp.dhis.parser.expression.operator.OperatorMathMinus;
+import org.hisp.dhis.parser.expression.operator.OperatorMathMultiply;
+import org.hisp.dhis.parser.expression.operator.OperatorMathPlus;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.hisp.dhis.parser.expression.ParserUtils.DOUBLE_VALUE_IF_NULL;
+import static org.hisp.dhis.parser.expression.antlr.ExpressionParser.ExprContext;
+
+/**
+ * Column-oriented evaluation of a numeric expression for many rows at once.
+ * The parse tree is compiled into a tree of columns, where each column is
+ * evaluated in a single loop over primitive arrays holding the values of all
+ * rows.
+ * <p>
+ * Only expressions made of numeric literals, constants, dimensional items,
+ * days, parentheses, addition, subtraction and multiplication can be
+ * compiled. Every item in such an expression is visited exactly once, which
+ * means that the missing value strategy can be applied from the number of
+ * items and whether any item value was found for a row. Other expressions
+ * must be evaluated one row at a time.
+ */
+class VectorizedExpression
+{
+    private final Column root;
+
+    private final int itemCount;
+
+    private VectorizedExpression( Column root, int itemCount )
+    {
+        this.root = root;
+        this.itemCount = itemCount;
+    }
+
+    /**
+     * Compiles a parse tree.
+     *
+     * @param parseTree the parse tree of the expression.
+     * @param itemMap the expression items of the parse type.
+     * @param constantMap map of constants to use for calculation.
+     * @param hasDays whether the number of days will be available.
+     * @return the compiled expression, or null if the expression cannot be
+     *         evaluated column-wise.
+     */
+    static VectorizedExpression compile( ParseTree parseTree, Map<Integer, ExpressionItem> itemMap,
+        Map<String, Constant> constantMap, boolean hasDays )
+    {
+        if ( parseTree == null || parseTree.getChildCount() == 0 || !( parseTree.getChild( 0 ) instanceof ExprContext ) )
+        {
+            return null;
+        }
+
+        Compiler compiler = new Compiler( itemMap, constantMap, hasDays );
+
+        Column root = compiler.compile( (ExprContext) parseTree.getChild( 0 ) );
+
+        return root != null ? new VectorizedExpression( root, compiler.itemCount ) : null;
+    }
+
+    /**
+     * Returns the number of dimensional items in the expression.
+     */
+    int getItemCount()
+    {
+        return itemCount;
+    }
+
+    /**
+     * Evaluates the expression for all rows. Missing item values are NaN and
+     * are replaced by {@link org.hisp.dhis.parser.expression.ParserUtils#DOUBLE_VALUE_IF_NULL}.
+     *
+     * @param size the number of rows.
+     * @param itemColumns the values of each item by item identifier, with
+     *        one value per row.
+     * @param days the number of days for each row, can be null if the
+     *        expression was compiled without days.
+     * @param valueFound set to true for each row where any item value was
+     *        found.
+     * @return the values of the expression for each row.
+     */
+    double[] evaluate( int size, Map<String, double[]> itemColumns, int[] days, boolean[] valueFound )
+    {
+        return root.evaluate( new Input( size, itemColumns, days, valueFound ) );
+    }
+
+    // -------------------------------------------------------------------------
+    // Columns
+    // -------------------------------------------------------------------------
+
+    @FunctionalInterface
+    private interface Column
+    {
+        double[] evaluate( Input input );
+    }
+
+    private static class Input
+    {
+        private final int size;
+
+        private final Map<String, double[]> itemColumns;
+
+        private final int[] days;
+
+        private final boolean[] valueFound;
+
+        private Input( int size, Map<String, double[]> itemColumns, int[] days, boolean[] valueFound )
+        {
+            this.size = size;
+            this.itemColumns = itemColumns;
+            this.days = days;
+            this.valueFound = valueFound;
+        }
+    }
+
+    private static class Compiler
+    {
+        private final Map<Integer, ExpressionItem> itemMap;
+
+        private final Map<String, Constant> constantMap;
+
+        private final boolean hasDays;
+
+        private int itemCount = 0;
+
+        private Compiler( Map<Integer, ExpressionItem> itemMap, Map<String, Constant> constantMap, boolean hasDays )
+        {
+            this.itemMap = itemMap;
+            this.constantMap = constantMap;
+            this.hasDays = hasDays;
+        }
+
+        private Column compile( ExprContext ctx )
+        {
+            if ( ctx.it == null )
+            {
+                if ( !ctx.expr().isEmpty() ) // Surrounding whitespace
+                {
+                    return compile( ctx.expr( 0 ) );
+                }
+
+                Double literal = getNumericLiteral( ctx.getText() );
+
+                return literal != null ? literal( literal ) : null;
+            }
+
+            ExpressionItem item = itemMap.get( ctx.it.getType() );
+
+            if ( item instanceof DimensionalItem )
+            {
+                itemCount++;
+
+                return item( ( (DimensionalItem) item ).getId( ctx ) );
+            }
+            else if ( item instanceof ItemConstant )
+            {
+                Constant constant = constantMap != null ? constantMap.get( ctx.uid0.getText() ) : null;
+
+                return constant != null ? literal( constant.getValue() ) : null;
+            }
+            else if ( item instanceof ItemDays )
+            {
+                return hasDays ? days() : null;
+            }
+            else if ( item instanceof OperatorGroupingParentheses )
+            {
+                return compile( ctx.expr( 0 ) );
+            }
+            else if ( item instanceof OperatorMathPlus || item instanceof OperatorMathMinus )
+            {
+                boolean minus = item instanceof OperatorMathMinus;
+
+                if ( ctx.expr().size() == 1 )
+                {
+                    Column operand = compile( ctx.expr( 0 ) );
+
+                    return operand == null || !minus ? operand : negate( operand );
+                }
+
+                return binary( compile( ctx.expr( 0 ) ), compile( ctx.expr( 1 ) ), minus ? Operator.MINUS : Operator.PLUS );
+            }
+            else if ( item instanceof OperatorMathMultiply )
+            {
+                return binary( compile( ctx.expr( 0 ) ), compile( ctx.expr( 1 ) ), Operator.MULTIPLY );
+            }
+
+            return null;
+        }
+
+        private static Double getNumericLiteral( String text )
+        {
+            try
+            {
+                double value = Double.parseDouble( text );
+
+                return Double.isFinite( value ) ? value : null;
+            }
+            catch ( NumberFormatException ex )
+            {
+                return null;
+            }
+        }
+
+        private static Column literal( double value )
+        {
+            return input -> {
+                double[] values = new double[input.size];
+                Arrays.fill( values, value );
+                return values;
+            };
+        }
+
+        private static Column item( String id )
+        {
+            return input -> {
+                double[] values = new double[input.size];
+                double[] column = input.itemColumns.get( id );
+
+                if ( column == null )
+                {
+                    Arrays.fill( values, DOUBLE_VALUE_IF_NULL );
+                    return values;
+                }
+
+                for ( int i = 0; i < input.size; i++ )
+                {
+                    if ( Double.isNaN( column[i] ) )
+                    {
+                        values[i] = DOUBLE_VALUE_IF_NULL;
+                    }
+                    else
+                    {
+                        values[i] = column[i];
+                        input.valueFound[i] = true;
+                    }
+                }
+
+                return values;
+            };
+        }
+
+        private static Column days()
+        {
+            return input -> {
+                double[] values = new double[input.size];
+
+                for ( int i = 0; i < input.size; i++ )
+                {
+                    values[i] = input.days[i];
+                }
+
+                return values;
+            };
+        }
+
+        private static Column negate( Column operand )
+        {
+            return input -> {
+                double[] values = operand.evaluate( input );
+
+                for ( int i = 0; i < input.size; i++ )
+                {
+                    values[i] = -values[i];
+                }
+
+                return values;
+            };
+        }
+
+        private static Column binary( Column left, Column right, Operator operator )
+        {
+            if ( left == null || right == null )
+            {
+                return null;
+            }
+
+            return input -> {
+                double[] values = left.evaluate( input );
+                double[] rightValues = right.evaluate( input );
+
+                switch ( operator )
+                {
+                    case PLUS:
+                        for ( int i = 0; i < input.size; i++ )
+                        {
+                            values[i] += rightValues[i];
+                        }
+                        break;
+
+                    case MINUS:
+                        for ( int i = 0; i < input.size; i++ )
+                        {
+                            values[i] -= rightValues[i];
+                        }
+                        break;
+
+                    case MULTIPLY:
+                        for ( int i = 0; i < input.size; i++ )
+                        {
+                            values[i] *= rightValues[i];
+                        }
+                        break;
+                }
+
+                return values;
+            };
+        }
+    }
+
+    private enum Operator
+    {
+        PLUS, MINUS, MULTIPLY
+    }
+}
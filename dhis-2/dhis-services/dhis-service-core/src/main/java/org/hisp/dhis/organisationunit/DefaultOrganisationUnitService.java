@@ -29,7 +29,6 @@ package org.hisp.dhis.organisationunit;
  */
 
 import static com.google.common.base.Preconditions.checkNotNull;
-import static org.hisp.dhis.commons.util.TextUtils.joinHyphen;
 
 import java.awt.geom.Point2D;
 import java.util.*;
@@ -39,8 +38,6 @@ import java.util.stream.Collectors;
 import javax.annotation.PostConstruct;
 
 import org.apache.commons.lang3.ObjectUtils;
-import org.hisp.dhis.cache.Cache;
-import org.hisp.dhis.cache.CacheProvider;
 import org.hisp.dhis.common.SortProperty;
 import org.hisp.dhis.commons.collection.ListUtils;
 import org.hisp.dhis.commons.filter.FilterUtils;
@@ -74,9 +71,17 @@ public class DefaultOrganisationUnitService
 {
     private static final String LEVEL_PREFIX = "Level ";
 
-    private static Cache<Boolean> IN_USER_ORG_UNIT_HIERARCHY_CACHE;
+    /**
+     * Maximum age of the hierarchy index, which bounds how long changes made
+     * to the hierarchy outside of this service can go unnoticed.
+     */
+    private static final long HIERARCHY_INDEX_MAX_AGE = TimeUnit.HOURS.toMillis( 3 );
+
+    private volatile OrganisationUnitHierarchyIndex hierarchyIndex;
+
+    private volatile long hierarchyIndexCreated;
 
-    private static Cache<Boolean> IN_USER_ORG_UNIT_SEARCH_HIERARCHY_CACHE;
+    private boolean useHierarchyIndex;
 
     // -------------------------------------------------------------------------
     // Dependencies
@@ -96,12 +101,10 @@ public class DefaultOrganisationUnitService
 
     private final UserSettingService userSettingService;
 
-    private final CacheProvider cacheProvider;
-
     public DefaultOrganisationUnitService( Environment env, OrganisationUnitStore organisationUnitStore,
         DataSetService dataSetService, OrganisationUnitLevelStore organisationUnitLevelStore,
         CurrentUserService currentUserService, ConfigurationService configurationService,
-        UserSettingService userSettingService, CacheProvider cacheProvider )
+        UserSettingService userSettingService )
     {
         checkNotNull( env );
         checkNotNull( organisationUnitStore );
@@ -118,7 +121,6 @@ public class DefaultOrganisationUnitService
         this.currentUserService = currentUserService;
         this.configurationService = configurationService;
         this.userSettingService = userSettingService;
-        this.cacheProvider = cacheProvider;
     }
 
     /**
@@ -133,13 +135,7 @@ public class DefaultOrganisationUnitService
     @PostConstruct
     public void init()
     {
-        IN_USER_ORG_UNIT_HIERARCHY_CACHE = cacheProvider.newCacheBuilder( Boolean.class )
-            .forRegion( "inUserOuHierarchy" ).expireAfterWrite( 3, TimeUnit.HOURS ).withInitialCapacity( 1000 )
-            .forceInMemory().withMaximumSize( SystemUtils.isTestRun( env.getActiveProfiles() ) ? 0 : 20000 ).build();
-
-        IN_USER_ORG_UNIT_SEARCH_HIERARCHY_CACHE = cacheProvider.newCacheBuilder( Boolean.class )
-            .forRegion( "inUserSearchOuHierarchy" ).expireAfterWrite( 3, TimeUnit.HOURS ).withInitialCapacity( 1000 )
-            .forceInMemory().withMaximumSize( SystemUtils.isTestRun( env.getActiveProfiles() ) ? 0 : 20000 ).build();
+        useHierarchyIndex = !SystemUtils.isTestRun( env.getActiveProfiles() );
     }
 
     // -------------------------------------------------------------------------
@@ -167,6 +163,8 @@ public class DefaultOrganisationUnitService
     public void updateOrganisationUnit( OrganisationUnit organisationUnit )
     {
         organisationUnitStore.update( organisationUnit );
+
+        invalidateHierarchyIndex( organisationUnit );
     }
 
     @Override
@@ -466,10 +464,12 @@ public class DefaultOrganisationUnitService
     @Transactional( readOnly = true )
     public boolean isInUserHierarchyCached( User user, OrganisationUnit organisationUnit )
     {
-        String cacheKey = joinHyphen( user.getUsername(), organisationUnit.getUid() );
+        if ( user == null || user.getOrganisationUnits() == null || user.getOrganisationUnits().isEmpty() )
+        {
+            return false;
+        }
 
-        return IN_USER_ORG_UNIT_HIERARCHY_CACHE.get( cacheKey, ou -> isInUserHierarchy( user, organisationUnit ) )
-            .orElse( false );
+        return isDescendantIndexed( organisationUnit, user.getOrganisationUnits() );
     }
 
     @Override
@@ -502,10 +502,13 @@ public class DefaultOrganisationUnitService
     @Transactional( readOnly = true )
     public boolean isInUserSearchHierarchyCached( User user, OrganisationUnit organisationUnit )
     {
-        String cacheKey = joinHyphen( user.getUsername(), organisationUnit.getUid() );
+        if ( user == null || user.getTeiSearchOrganisationUnitsWithFallback() == null
+            || user.getTeiSearchOrganisationUnitsWithFallback().isEmpty() )
+        {
+            return false;
+        }
 
-        return IN_USER_ORG_UNIT_SEARCH_HIERARCHY_CACHE
-            .get( cacheKey, ou -> isInUserSearchHierarchy( user, organisationUnit ) ).orElse( false );
+        return isDescendantIndexed( organisationUnit, user.getTeiSearchOrganisationUnitsWithFallback() );
     }
 
     @Override
@@ -546,6 +549,8 @@ public class DefaultOrganisationUnitService
     public void updateOrganisationUnitParent( long organisationUnitId, long parentId )
     {
         organisationUnitStore.updateOrganisationUnitParent( organisationUnitId, parentId );
+
+        hierarchyIndex = null;
     }
 
     // -------------------------------------------------------------------------
@@ -761,6 +766,8 @@ public class DefaultOrganisationUnitService
     public void forceUpdatePaths()
     {
         organisationUnitStore.forceUpdatePaths();
+
+        hierarchyIndex = null;
     }
 
     @Override
@@ -919,4 +926,70 @@ public class DefaultOrganisationUnitService
 
         return new ArrayList<>();
     }
+
+    /**
+     * Checks whether an organisation unit is equal to or a descendant of any
+     * of the given ancestors using the hierarchy index. Organisation units
+     * added since the index was built are checked by walking their parents.
+     */
+    private boolean isDescendantIndexed( OrganisationUnit organisationUnit, Set<OrganisationUnit> ancestors )
+    {
+        OrganisationUnitHierarchyIndex index = getHierarchyIndex();
+
+        if ( index != null && index.contains( organisationUnit.getId() ) )
+        {
+            return index.isDescendant( organisationUnit.getId(), ancestors );
+        }
+
+        return organisationUnit.isDescendant( ancestors );
+    }
+
+    private OrganisationUnitHierarchyIndex getHierarchyIndex()
+    {
+        if ( !useHierarchyIndex )
+        {
+            return null;
+        }
+
+        OrganisationUnitHierarchyIndex index = hierarchyIndex;
+
+        if ( index == null || System.currentTimeMillis() - hierarchyIndexCreated > HIERARCHY_INDEX_MAX_AGE )
+        {
+            index = buildHierarchyIndex();
+        }
+
+        return index;
+    }
+
+    private synchronized OrganisationUnitHierarchyIndex buildHierarchyIndex()
+    {
+        OrganisationUnitHierarchyIndex index = hierarchyIndex;
+
+        if ( index == null || System.currentTimeMillis() - hierarchyIndexCreated > HIERARCHY_INDEX_MAX_AGE )
+        {
+            index = organisationUnitStore.getOrganisationUnitHierarchyIndex();
+
+            hierarchyIndexCreated = System.currentTimeMillis();
+            hierarchyIndex = index;
+        }
+
+        return index;
+    }
+
+    /**
+     * Discards the hierarchy index if the given organisation unit has been
+     * moved to another parent since the index was built.
+     */
+    private void invalidateHierarchyIndex( OrganisationUnit organisationUnit )
+    {
+        OrganisationUnitHierarchyIndex index = hierarchyIndex;
+
+        long parentId = organisationUnit.getParent() != null ? organisationUnit.getParent().getId() : 0;
+
+        if ( index != null && index.contains( organisationUnit.getId() )
+            && index.getParentId( organisationUnit.getId() ) != parentId )
+        {
+            hierarchyIndex = null;
+        }
+    }
 }
@@ -51,6 +51,7 @@ import org.hisp.dhis.dataset.DataSet;
 import org.hisp.dhis.dbms.DbmsManager;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.organisationunit.OrganisationUnitHierarchy;
+import org.hisp.dhis.organisationunit.OrganisationUnitHierarchyIndex;
 import org.hisp.dhis.organisationunit.OrganisationUnitQueryParams;
 import org.hisp.dhis.organisationunit.OrganisationUnitStore;
 import org.hisp.dhis.security.acl.AclService;
@@ -298,6 +299,14 @@ public class HibernateOrganisationUnitStore
         return new OrganisationUnitHierarchy( jdbcTemplate.query( sql, new OrganisationUnitRelationshipRowMapper() ) );
     }
 
+    @Override
+    public OrganisationUnitHierarchyIndex getOrganisationUnitHierarchyIndex()
+    {
+        final String sql = "select organisationunitid, parentid from organisationunit";
+
+        return new OrganisationUnitHierarchyIndex( jdbcTemplate.query( sql, new OrganisationUnitRelationshipRowMapper() ) );
+    }
+
     @Override
     public void updateOrganisationUnitParent( long organisationUnitId, long parentId )
     {
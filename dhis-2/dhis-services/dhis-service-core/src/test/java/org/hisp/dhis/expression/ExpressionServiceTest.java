@@ -1117,6 +1117,36 @@ public class ExpressionServiceTest
         assertEquals( "6 DeB DeC", evalPredictor( "sum(#{dataElemenB} + #{dataElemenC})", NEVER_SKIP ) );
     }
 
+    @Test
+    public void testCompileExpression()
+    {
+        List<String> expressions = Lists.newArrayList( "#{dataElemenA} + #{dataElemenB}",
+            "#{dataElemenA} * OUG{orgUnitGrpA} + [days]", "#{dataElemenC} + #{dataElemenE}" );
+
+        for ( String expression : expressions )
+        {
+            for ( MissingValueStrategy strategy : MissingValueStrategy.values() )
+            {
+                ExpressionEvaluator evaluator = expressionService.compileExpression( expression,
+                    INDICATOR_EXPRESSION, constantMap, strategy );
+
+                Object expected = expressionService.getExpressionValue( expression, INDICATOR_EXPRESSION,
+                    valueMap, constantMap, ORG_UNIT_COUNT_MAP, DAYS, strategy );
+
+                assertEquals( expected, evaluator.evaluate( valueMap, ORG_UNIT_COUNT_MAP, DAYS ) );
+                assertEquals( expected, evaluator.evaluate( valueMap, ORG_UNIT_COUNT_MAP, DAYS ) );
+            }
+        }
+
+        ExpressionEvaluator predictor = expressionService.compileExpression( "sum(#{dataElemenB} + #{dataElemenC})",
+            PREDICTOR_EXPRESSION, constantMap, NEVER_SKIP );
+
+        assertEquals( 6.0, predictor.evaluate( valueMap, ORG_UNIT_COUNT_MAP, DAYS, TEST_SAMPLE_PERIODS, samples ) );
+
+        assertNull( expressionService.compileExpression( "", INDICATOR_EXPRESSION, constantMap, NEVER_SKIP )
+            .evaluate( valueMap, ORG_UNIT_COUNT_MAP, DAYS ) );
+    }
+
     @Test
     public void testGetExpressionOrgUnitGroups()
     {
@@ -1258,6 +1288,94 @@ public class ExpressionServiceTest
         assertEquals( 146000.0, value.getValue(), DELTA );
     }
 
+    @Test
+    public void testGetIndicatorValueObjects()
+    {
+        Indicator indicatorA = createIndicator( 'A', indicatorTypeA );
+        indicatorA.setNumerator( "#{dataElemenA.catOptCombB}*C{xxxxxxxxx05}" );
+        indicatorA.setDenominator( "#{dataElemenA.catOptCombB}" );
+
+        Indicator indicatorB = createIndicator( 'B', indicatorTypeA );
+        indicatorB.setNumerator( "#{dataElemenA.catOptCombB} + #{dataElemenB.catOptCombA}" );
+        indicatorB.setDenominator( "#{dataElemenA.catOptCombB}" );
+        indicatorB.setAnnualized( true );
+
+        Indicator indicatorC = createIndicator( 'C', indicatorTypeA );
+        indicatorC.setNumerator( "-(#{dataElemenA} - 2) * [days]" );
+        indicatorC.setDenominator( "1" );
+
+        Indicator indicatorD = createIndicator( 'D', indicatorTypeA );
+        indicatorD.setNumerator( "#{dataElemenA} / #{dataElemenB}" );
+        indicatorD.setDenominator( "#{dataElemenA.catOptCombB} + OUG{orgUnitGrpA}" );
+
+        Period period = createPeriod( "20010101" );
+
+        Map<DimensionalItemObject, Double> partialValueMap = new HashMap<>( valueMap );
+        partialValueMap.remove( dataElementOperandA );
+        partialValueMap.remove( dataElementOperandB );
+        partialValueMap.remove( dataElementA );
+
+        Map<DimensionalItemObject, Double> zeroValueMap = valueMap.keySet().stream()
+            .collect( Collectors.toMap( item -> item, item -> 0d ) );
+
+        List<Map<DimensionalItemObject, Double>> rows = Lists.newArrayList( valueMap, new HashMap<>(),
+            partialValueMap, zeroValueMap );
+
+        int size = rows.size();
+
+        Map<DimensionalItemObject, double[]> valueColumns = new HashMap<>();
+
+        for ( int i = 0; i < size; i++ )
+        {
+            for ( Map.Entry<DimensionalItemObject, Double> entry : rows.get( i ).entrySet() )
+            {
+                valueColumns.computeIfAbsent( entry.getKey(), k -> {
+                    double[] column = new double[size];
+                    Arrays.fill( column, Double.NaN );
+                    return column;
+                } )[i] = entry.getValue();
+            }
+        }
+
+        int[] days = new int[size];
+        Arrays.fill( days, period.getDaysInPeriod() );
+
+        List<Map<String, Integer>> orgUnitCountMaps = Collections.nCopies( size, ORG_UNIT_COUNT_MAP );
+
+        for ( Indicator indicator : Lists.newArrayList( indicatorA, indicatorB, indicatorC, indicatorD ) )
+        {
+            List<IndicatorValue> values = expressionService.getIndicatorValueObjects( indicator, size,
+                valueColumns, days, orgUnitCountMaps, constantMap );
+
+            assertEquals( size, values.size() );
+
+            for ( int i = 0; i < size; i++ )
+            {
+                IndicatorValue expected = expressionService.getIndicatorValueObject( indicator,
+                    singletonList( period ), rows.get( i ), constantMap, ORG_UNIT_COUNT_MAP );
+
+                assertIndicatorValueEquals( expected, values.get( i ) );
+            }
+        }
+
+        assertNull( expressionService.getIndicatorValueObjects( indicatorC, size, valueColumns, days,
+            orgUnitCountMaps, constantMap ).get( 1 ) );
+    }
+
+    private void assertIndicatorValueEquals( IndicatorValue expected, IndicatorValue actual )
+    {
+        if ( expected == null )
+        {
+            assertNull( actual );
+            return;
+        }
+
+        assertEquals( expected.getNumeratorValue(), actual.getNumeratorValue(), DELTA );
+        assertEquals( expected.getDenominatorValue(), actual.getDenominatorValue(), DELTA );
+        assertEquals( expected.getMultiplier(), actual.getMultiplier() );
+        assertEquals( expected.getDivisor(), actual.getDivisor() );
+    }
+
     private Indicator createIndicator( char uniqueCharacter, IndicatorType type, String numerator )
     {
         Indicator indicator = createIndicator( uniqueCharacter, type );
@@ -0,0 +1,210 @@
+package org.hisp.dhis.organisationunit;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hisp.dhis.configuration.ConfigurationService;
+import org.hisp.dhis.dataset.DataSetService;
+import org.hisp.dhis.user.CurrentUserService;
+import org.hisp.dhis.user.User;
+import org.hisp.dhis.user.UserSettingService;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.core.env.Environment;
+
+import com.google.common.collect.Sets;
+
+/**
+ * Tests the hierarchy index of the cached hierarchy checks, which is disabled
+ * in integration tests.
+ */
+public class DefaultOrganisationUnitServiceTest
+{
+    @Mock
+    private Environment env;
+
+    @Mock
+    private OrganisationUnitStore organisationUnitStore;
+
+    @Mock
+    private DataSetService dataSetService;
+
+    @Mock
+    private OrganisationUnitLevelStore organisationUnitLevelStore;
+
+    @Mock
+    private CurrentUserService currentUserService;
+
+    @Mock
+    private ConfigurationService configurationService;
+
+    @Mock
+    private UserSettingService userSettingService;
+
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    private DefaultOrganisationUnitService subject;
+
+    // A -> B -> C
+    // D
+
+    private OrganisationUnit ouA;
+    private OrganisationUnit ouB;
+    private OrganisationUnit ouC;
+    private OrganisationUnit ouD;
+
+    private User user;
+
+    @Before
+    public void setUp()
+    {
+        when( env.getActiveProfiles() ).thenReturn( new String[0] );
+
+        subject = new DefaultOrganisationUnitService( env, organisationUnitStore, dataSetService,
+            organisationUnitLevelStore, currentUserService, configurationService, userSettingService );
+        subject.init();
+
+        ouA = createOrganisationUnit( 1, null );
+        ouB = createOrganisationUnit( 2, ouA );
+        ouC = createOrganisationUnit( 3, ouB );
+        ouD = createOrganisationUnit( 4, null );
+
+        user = new User();
+        user.setOrganisationUnits( Sets.newHashSet( ouB ) );
+
+        when( organisationUnitStore.getOrganisationUnitHierarchyIndex() ).then( invocation -> createIndex() );
+    }
+
+    @Test
+    public void testIsInUserHierarchyCached()
+    {
+        assertTrue( subject.isInUserHierarchyCached( user, ouB ) );
+        assertTrue( subject.isInUserHierarchyCached( user, ouC ) );
+        assertFalse( subject.isInUserHierarchyCached( user, ouA ) );
+        assertFalse( subject.isInUserHierarchyCached( user, ouD ) );
+
+        verify( organisationUnitStore, times( 1 ) ).getOrganisationUnitHierarchyIndex();
+    }
+
+    @Test
+    public void testMoveOrganisationUnitRebuildsIndex()
+    {
+        assertTrue( subject.isInUserHierarchyCached( user, ouC ) );
+
+        ouC.setParent( ouD );
+        subject.updateOrganisationUnit( ouC );
+
+        assertFalse( subject.isInUserHierarchyCached( user, ouC ) );
+
+        verify( organisationUnitStore, times( 2 ) ).getOrganisationUnitHierarchyIndex();
+    }
+
+    @Test
+    public void testUpdateOrganisationUnitKeepsIndex()
+    {
+        assertTrue( subject.isInUserHierarchyCached( user, ouC ) );
+
+        ouC.setName( "Renamed" );
+        subject.updateOrganisationUnit( ouC );
+
+        assertTrue( subject.isInUserHierarchyCached( user, ouC ) );
+
+        verify( organisationUnitStore, times( 1 ) ).getOrganisationUnitHierarchyIndex();
+    }
+
+    @Test
+    public void testUpdateOrganisationUnitParentRebuildsIndex()
+    {
+        assertTrue( subject.isInUserHierarchyCached( user, ouC ) );
+
+        ouC.setParent( ouD );
+        subject.updateOrganisationUnitParent( ouC.getId(), ouD.getId() );
+
+        assertFalse( subject.isInUserHierarchyCached( user, ouC ) );
+
+        verify( organisationUnitStore, times( 2 ) ).getOrganisationUnitHierarchyIndex();
+    }
+
+    @Test
+    public void testNewOrganisationUnitWalksParents()
+    {
+        assertTrue( subject.isInUserHierarchyCached( user, ouC ) );
+
+        OrganisationUnit ouE = createOrganisationUnit( 5, ouC );
+        OrganisationUnit ouF = createOrganisationUnit( 6, ouD );
+
+        assertTrue( subject.isInUserHierarchyCached( user, ouE ) );
+        assertFalse( subject.isInUserHierarchyCached( user, ouF ) );
+
+        verify( organisationUnitStore, times( 1 ) ).getOrganisationUnitHierarchyIndex();
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private OrganisationUnit createOrganisationUnit( long id, OrganisationUnit parent )
+    {
+        OrganisationUnit unit = new OrganisationUnit( "Unit" + id );
+        unit.setId( id );
+        unit.setParent( parent );
+
+        return unit;
+    }
+
+    /**
+     * Creates an index from the current parents of the indexed organisation
+     * units, as the store would from the database.
+     */
+    private OrganisationUnitHierarchyIndex createIndex()
+    {
+        List<OrganisationUnitRelationship> relationships = new ArrayList<>();
+
+        for ( OrganisationUnit unit : Sets.newHashSet( ouA, ouB, ouC, ouD ) )
+        {
+            relationships.add( new OrganisationUnitRelationship(
+                unit.getParent() != null ? unit.getParent().getId() : 0, unit.getId() ) );
+        }
+
+        return new OrganisationUnitHierarchyIndex( relationships );
+    }
+}
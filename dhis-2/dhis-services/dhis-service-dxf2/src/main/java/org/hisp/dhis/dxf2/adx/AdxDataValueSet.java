@@ -0,0 +1,473 @@
+package org.hisp.dhis.dxf2.adx;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.apache.commons.lang3.StringUtils.trimToNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.xerces.util.XMLChar;
+import org.hisp.dhis.category.Category;
+import org.hisp.dhis.category.CategoryCombo;
+import org.hisp.dhis.category.CategoryComboMap;
+import org.hisp.dhis.category.CategoryComboMap.CategoryComboMapException;
+import org.hisp.dhis.category.CategoryOptionCombo;
+import org.hisp.dhis.common.IdScheme;
+import org.hisp.dhis.common.IdentifiableObjectManager;
+import org.hisp.dhis.common.IdentifiableProperty;
+import org.hisp.dhis.commons.collection.CachingMap;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.dataset.DataSet;
+import org.hisp.dhis.dxf2.common.ImportOptions;
+import org.hisp.dhis.dxf2.datavalue.DataValue;
+import org.hisp.dhis.dxf2.datavalueset.DataValueSet;
+import org.hisp.dhis.dxf2.importsummary.ImportConflict;
+import org.hisp.dhis.period.Period;
+import org.hisp.dhis.system.callable.IdentifiableObjectCallable;
+import org.hisp.staxwax.reader.XMLReader;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Data value set which reads ADX groups and maps their data values directly
+ * to DXF data values. Meta-data is resolved while reading, which means that
+ * data values must be read on a thread with a bound session.
+ * <p>
+ * The conversion is sequential, as group attributes apply to the data values
+ * which follow them in the stream. With the system setting for data import
+ * threads greater than zero, it runs on the parser thread of the import
+ * pipeline and the checks of the data values run on the validation workers.
+ * With the default of zero threads, conversion, checks and writes all run on
+ * the calling thread.
+ * <p>
+ * Conflicts detected at ADX level for single data values are collected and
+ * the data value is skipped. A conflict at group level ends the data values
+ * of the set, and is available through {@link #getGroupException()}.
+ */
+@Slf4j
+class AdxDataValueSet
+    extends DataValueSet
+{
+    private static final String FIELD_STOREDBY = "storedBy";
+    private static final String FIELD_CREATED = "created";
+    private static final String FIELD_LAST_UPDATED = "lastUpdated";
+    private static final String FIELD_COMMENT = "comment";
+    private static final String FIELD_FOLLOWUP = "followUp";
+    private static final String FIELD_DELETED = "deleted";
+
+    private final XMLReader adxReader;
+
+    private final ImportOptions importOptions;
+
+    private final IdentifiableObjectManager identifiableObjectManager;
+
+    private final IdentifiableObjectCallable<DataSet> dataSetCallable;
+
+    private final IdentifiableObjectCallable<DataElement> dataElementCallable;
+
+    private final CachingMap<String, DataSet> dataSetMap = new CachingMap<>();
+
+    private final CachingMap<String, DataElement> dataElementMap = new CachingMap<>();
+
+    private final List<ImportConflict> adxConflicts = new ArrayList<>();
+
+    private boolean preheated = false;
+
+    private Map<String, String> groupAttributes;
+
+    private int groupCount = 0;
+
+    private AdxException groupException;
+
+    private DataValue nextDataValue;
+
+    AdxDataValueSet( XMLReader adxReader, ImportOptions importOptions, IdentifiableObjectManager identifiableObjectManager )
+    {
+        this.adxReader = adxReader;
+        this.importOptions = importOptions;
+        this.identifiableObjectManager = identifiableObjectManager;
+        this.dataSetCallable = new IdentifiableObjectCallable<>( identifiableObjectManager, DataSet.class,
+            importOptions.getIdSchemes().getDataSetIdScheme(), null );
+        this.dataElementCallable = new IdentifiableObjectCallable<>( identifiableObjectManager, DataElement.class,
+            importOptions.getIdSchemes().getDataElementIdScheme(), null );
+
+        this.adxReader.moveToStartElement( AdxDataService.ROOT, AdxDataService.NAMESPACE );
+    }
+
+    // -------------------------------------------------------------------------
+    // DataValueSet implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public boolean hasNextDataValue()
+    {
+        preheat();
+
+        nextDataValue = null;
+
+        while ( groupException == null )
+        {
+            if ( groupAttributes == null )
+            {
+                if ( !adxReader.moveToStartElement( AdxDataService.GROUP, AdxDataService.NAMESPACE ) )
+                {
+                    return false;
+                }
+
+                try
+                {
+                    groupAttributes = parseAdxGroup( adxReader.readAttributes() );
+                    groupCount++;
+                }
+                catch ( AdxException ex )
+                {
+                    groupException = ex;
+                    return false;
+                }
+            }
+
+            if ( !adxReader.moveToStartElement( AdxDataService.DATAVALUE, AdxDataService.GROUP ) )
+            {
+                groupAttributes = null;
+                continue;
+            }
+
+            try
+            {
+                nextDataValue = parseAdxDataValue( groupAttributes );
+                return true;
+            }
+            catch ( AdxException ex )
+            {
+                adxConflicts.add( ex.getImportConflict() );
+
+                log.info( "ADX data value conflict: " + ex.getImportConflict() );
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public DataValue getNextDataValue()
+    {
+        return nextDataValue;
+    }
+
+    // -------------------------------------------------------------------------
+    // Getters
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the conflicts which were detected at ADX level for single data
+     * values. The data values were not passed on for import.
+     */
+    List<ImportConflict> getAdxConflicts()
+    {
+        return adxConflicts;
+    }
+
+    /**
+     * Returns the number of groups which were read successfully.
+     */
+    int getGroupCount()
+    {
+        return groupCount;
+    }
+
+    /**
+     * Returns the exception for the group which ended the data values of
+     * this set, or null if all groups were read.
+     */
+    AdxException getGroupException()
+    {
+        return groupException;
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void preheat()
+    {
+        if ( preheated )
+        {
+            return;
+        }
+
+        preheated = true;
+
+        if ( importOptions.isPreheatCacheDefaultFalse() )
+        {
+            IdScheme dataSetIdScheme = importOptions.getIdSchemes().getDataSetIdScheme();
+            IdScheme dataElementIdScheme = importOptions.getIdSchemes().getDataElementIdScheme();
+
+            dataSetMap.load( identifiableObjectManager.getAll( DataSet.class ), o -> o.getPropertyValue( dataSetIdScheme ) );
+            dataElementMap.load( identifiableObjectManager.getAll( DataElement.class ), o -> o.getPropertyValue( dataElementIdScheme ) );
+        }
+    }
+
+    private Map<String, String> parseAdxGroup( Map<String, String> groupAttributes )
+        throws AdxException
+    {
+        IdScheme categoryOptionComboIdScheme = importOptions.getIdSchemes().getCategoryOptionComboIdScheme();
+        IdScheme categoryOptionIdScheme = importOptions.getIdSchemes().getCategoryOptionIdScheme();
+
+        if ( !groupAttributes.containsKey( AdxDataService.PERIOD ) )
+        {
+            throw new AdxException( AdxDataService.PERIOD + " attribute is required on 'group'" );
+        }
+
+        if ( !groupAttributes.containsKey( AdxDataService.ORGUNIT ) )
+        {
+            throw new AdxException( AdxDataService.ORGUNIT + " attribute is required on 'group'" );
+        }
+
+        // translate ADX period to DXF
+        String periodStr = groupAttributes.get( AdxDataService.PERIOD );
+        groupAttributes.remove( AdxDataService.PERIOD );
+        Period period = AdxPeriod.parse( periodStr );
+        groupAttributes.put( AdxDataService.PERIOD, period.getIsoDate() );
+
+        // process ADX group attributes
+        if ( !groupAttributes.containsKey( AdxDataService.ATTOPTCOMBO )
+            && groupAttributes.containsKey( AdxDataService.DATASET ) )
+        {
+            log.debug( "No attribute option combo present, check data set for attribute category combo" );
+
+            String dataSetStr = trimToNull( groupAttributes.get( AdxDataService.DATASET ) );
+            final DataSet dataSet = dataSetMap.get( dataSetStr, dataSetCallable.setId( dataSetStr ) );
+
+            if ( dataSet == null )
+            {
+                throw new AdxException( "No data set matching " + dataSetCallable.getIdScheme().name().toLowerCase()
+                    + " '" + groupAttributes.get( AdxDataService.DATASET ) + "'" );
+            }
+
+            groupAttributes.put( AdxDataService.DATASET, dataSet.getUid() );
+            CategoryCombo attributeCombo = dataSet.getCategoryCombo();
+            convertAttributesToDxf( groupAttributes, AdxDataService.ATTOPTCOMBO, attributeCombo,
+                categoryOptionIdScheme, categoryOptionComboIdScheme );
+        }
+
+        return groupAttributes;
+    }
+
+    private DataValue parseAdxDataValue( Map<String, String> groupAttributes )
+        throws AdxException
+    {
+        Map<String, String> dvAttributes = adxReader.readAttributes();
+
+        log.debug( "Processing data value: " + dvAttributes );
+
+        if ( !dvAttributes.containsKey( AdxDataService.DATAELEMENT ) )
+        {
+            throw new AdxException( AdxDataService.DATAELEMENT + " attribute is required on 'dataValue'" );
+        }
+
+        if ( !dvAttributes.containsKey( AdxDataService.VALUE ) )
+        {
+            throw new AdxException( AdxDataService.VALUE + " attribute is required on 'dataValue'" );
+        }
+
+        IdScheme categoryOptionComboIdScheme = importOptions.getIdSchemes().getCategoryOptionComboIdScheme();
+        IdScheme categoryOptionIdScheme = importOptions.getIdSchemes().getCategoryOptionIdScheme();
+
+        String dataElementStr = trimToNull( dvAttributes.get( AdxDataService.DATAELEMENT ) );
+        final DataElement dataElement = dataElementMap.get( dataElementStr, dataElementCallable.setId( dataElementStr ) );
+
+        if ( dataElement == null )
+        {
+            throw new AdxException( "No data element matching " + dataElementCallable.getIdScheme().name().toLowerCase()
+                + " '" + dataElementStr + "'" );
+        }
+
+        // process ADX data value attributes
+        if ( !dvAttributes.containsKey( AdxDataService.CATOPTCOMBO ) )
+        {
+            log.debug( "No category option combo present" );
+
+            //TODO expand to allow for category combos part of DataSetElements.
+
+            CategoryCombo categoryCombo = dataElement.getCategoryCombo();
+
+            convertAttributesToDxf( dvAttributes, AdxDataService.CATOPTCOMBO, categoryCombo,
+                categoryOptionIdScheme, categoryOptionComboIdScheme );
+        }
+
+        // if data element type is not numeric we need to pick out the
+        // 'annotation' element
+        if ( !dataElement.getValueType().isNumeric() )
+        {
+            adxReader.moveToStartElement( AdxDataService.ANNOTATION, AdxDataService.DATAVALUE );
+
+            if ( adxReader.isStartElement( AdxDataService.ANNOTATION ) )
+            {
+                String textValue = adxReader.getElementValue();
+                dvAttributes.put( AdxDataService.VALUE, textValue );
+            }
+            else
+            {
+                throw new AdxException( dvAttributes.get( AdxDataService.DATAELEMENT ),
+                    "DataElement expects text annotation" );
+            }
+        }
+
+        log.debug( "Processing data value as DXF: " + dvAttributes );
+
+        // data value attributes take precedence over group attributes
+        Map<String, String> attributes = new HashMap<>( groupAttributes );
+        attributes.putAll( dvAttributes );
+
+        DataValue dataValue = new DataValue();
+        dataValue.setDataElement( attributes.get( AdxDataService.DATAELEMENT ) );
+        dataValue.setPeriod( attributes.get( AdxDataService.PERIOD ) );
+        dataValue.setOrgUnit( attributes.get( AdxDataService.ORGUNIT ) );
+        dataValue.setCategoryOptionCombo( attributes.get( AdxDataService.CATOPTCOMBO ) );
+        dataValue.setAttributeOptionCombo( attributes.get( AdxDataService.ATTOPTCOMBO ) );
+        dataValue.setValue( attributes.get( AdxDataService.VALUE ) );
+        dataValue.setStoredBy( attributes.get( FIELD_STOREDBY ) );
+        dataValue.setCreated( attributes.get( FIELD_CREATED ) );
+        dataValue.setLastUpdated( attributes.get( FIELD_LAST_UPDATED ) );
+        dataValue.setComment( attributes.get( FIELD_COMMENT ) );
+        dataValue.setFollowup( Boolean.valueOf( attributes.get( FIELD_FOLLOWUP ) ) );
+        dataValue.setDeleted( Boolean.valueOf( attributes.get( FIELD_DELETED ) ) );
+        return dataValue;
+    }
+
+    private Map<String, Category> getCodeCategoryMap( CategoryCombo categoryCombo )
+        throws AdxException
+    {
+        Map<String, Category> categoryMap = new HashMap<>();
+
+        List<Category> categories = categoryCombo.getCategories();
+
+        for ( Category category : categories )
+        {
+            String categoryCode = category.getCode();
+
+            if ( categoryCode == null || !XMLChar.isValidName( categoryCode ) )
+            {
+                throw new AdxException(
+                    "Category code for " + category.getName() + " is missing or invalid: " + categoryCode );
+            }
+
+            categoryMap.put( category.getCode(), category );
+        }
+
+        return categoryMap;
+    }
+
+    private CategoryOptionCombo getCatOptComboFromAttributes( Map<String, String> attributes,
+        CategoryCombo catcombo, IdentifiableProperty scheme )
+        throws AdxException
+    {
+        CategoryComboMap catcomboMap;
+
+        try
+        {
+            catcomboMap = new CategoryComboMap( catcombo, scheme );
+        }
+        catch ( CategoryComboMapException ex )
+        {
+            log.info( "Failed to create category combo map from: " + catcombo );
+            throw new AdxException( ex.getMessage() );
+        }
+
+        String compositeIdentifier = StringUtils.EMPTY;
+
+        for ( Category category : catcomboMap.getCategories() )
+        {
+            String categoryCode = category.getCode();
+
+            if ( categoryCode == null )
+            {
+                throw new AdxException( "No category matching: " + categoryCode );
+            }
+
+            String catAttribute = attributes.get( categoryCode );
+
+            if ( catAttribute == null )
+            {
+                throw new AdxException( "Missing required attribute from category combo: " + categoryCode );
+            }
+
+            compositeIdentifier += "\"" + catAttribute + "\"";
+        }
+
+        CategoryOptionCombo catOptionCombo = catcomboMap.getCategoryOptionCombo( compositeIdentifier );
+
+        if ( catOptionCombo == null )
+        {
+            throw new AdxException( "Invalid attributes:" + attributes );
+        }
+
+        return catOptionCombo;
+    }
+
+    private void convertAttributesToDxf( Map<String, String> attributes, String optionComboName,
+        CategoryCombo catCombo, IdScheme catOptIdScheme, IdScheme catOptComboIdScheme )
+        throws AdxException
+    {
+        log.debug( "ADX attributes: " + attributes );
+
+        if ( catCombo.isDefault() )
+        {
+            return;
+        }
+
+        Map<String, Category> categoryMap = getCodeCategoryMap( catCombo );
+
+        Map<String, String> attributeOptions = new HashMap<>();
+
+        for ( String category : categoryMap.keySet() )
+        {
+            if ( attributes.containsKey( category ) )
+            {
+                attributeOptions.put( category, attributes.get( category ) );
+                attributes.remove( category );
+            }
+            else
+            {
+                throw new AdxException(
+                    "Category combo " + catCombo.getName() + " must have " + categoryMap.get( category ).getName() );
+            }
+        }
+
+        CategoryOptionCombo catOptCombo = getCatOptComboFromAttributes( attributeOptions, catCombo, catOptIdScheme.getIdentifiableProperty() );
+
+        attributes.put( optionComboName, catOptCombo.getPropertyValue( catOptComboIdScheme ) );
+
+        log.debug( "DXF attributes: " + attributes );
+    }
+}
@@ -102,6 +102,8 @@ public class ImportOptions
 
     private boolean skipLastUpdated;
 
+    private boolean bulkCopy;
+
     //--------------------------------------------------------------------------
     // Constructors
     //--------------------------------------------------------------------------
@@ -143,6 +145,7 @@ public class ImportOptions
         options.ignoreEmptyCollection = this.ignoreEmptyCollection;
         options.firstRowIsHeader = this.firstRowIsHeader;
         options.skipLastUpdated = this.skipLastUpdated;
+        options.bulkCopy = this.bulkCopy;
 
         return options;
     }
@@ -387,6 +390,13 @@ public class ImportOptions
         return skipLastUpdated;
     }
 
+    @JsonProperty
+    @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
+    public boolean isBulkCopy()
+    {
+        return bulkCopy;
+    }
+
     //--------------------------------------------------------------------------
     // Set methods
     //--------------------------------------------------------------------------
@@ -600,6 +610,12 @@ public class ImportOptions
         return this;
     }
 
+    public ImportOptions setBulkCopy( boolean bulkCopy )
+    {
+        this.bulkCopy = bulkCopy;
+        return this;
+    }
+
     @Override
     public String toString()
     {
@@ -625,6 +641,7 @@ public class ImportOptions
             .add( "force", force )
             .add( "firstRowIsHeader", firstRowIsHeader )
             .add( "skipLastUpdated", skipLastUpdated )
+            .add( "bulkCopy", bulkCopy )
             .toString();
     }
 }
@@ -0,0 +1,532 @@
+package org.hisp.dhis.dxf2.datavalueset;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hisp.dhis.dbms.DbmsUtils;
+import org.hisp.dhis.dxf2.datavalue.DataValue;
+import org.hisp.dhis.dxf2.importsummary.ImportConflict;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Staged pipeline for reading and validating data values during import. A
+ * parser thread reads data values from the data value set and hands them in
+ * chunks to a pool of validation workers, which run all checks of a data
+ * value, including identifier lookups, sharing, locking and approval.
+ * <p>
+ * Each worker creates its own {@link DataValueChecker} and, given a session
+ * factory, binds its own Hibernate session, so that no entities are shared
+ * between threads. Workers hand back the outcome of the checks with the
+ * database identifiers of the resolved meta-data only.
+ * <p>
+ * Chunks are handed back in input order, which means that the calling thread,
+ * which owns the Hibernate session and the transaction, remains the single
+ * writer and reports conflicts in the same order as a sequential import. With
+ * zero threads, data values are read from the data value set and checked on
+ * the calling thread.
+ * <p>
+ * Data value sets which resolve meta-data while reading, like ADX, require a
+ * session factory. A separate session is then bound to the parser thread,
+ * which must only hand plain data values with identifiers to the workers.
+ */
+@Slf4j
+class DataValueImportPipeline
+    implements AutoCloseable
+{
+    private static final int CHUNK_SIZE = 500;
+
+    private static final Future<List<CheckedDataValue>> END_OF_INPUT = CompletableFuture.completedFuture( null );
+
+    private final DataValueSet dataValueSet;
+
+    private final Supplier<DataValueChecker> checkerFactory;
+
+    private final SessionFactory sessionFactory;
+
+    private final Authentication authentication;
+
+    private final ExecutorService parser;
+
+    private final ExecutorService workers;
+
+    private final ThreadLocal<DataValueChecker> checkers;
+
+    private final BlockingQueue<Future<List<CheckedDataValue>>> chunks;
+
+    private DataValueChecker checker;
+
+    private Iterator<CheckedDataValue> chunk = Collections.emptyIterator();
+
+    private boolean endOfInput = false;
+
+    /**
+     * Creates and starts a pipeline.
+     *
+     * @param dataValueSet the data value set to read data values from.
+     * @param threads the number of validation workers, zero means that data
+     *        values are read and checked on the calling thread.
+     * @param sessionFactory the session factory to bind a session to the
+     *        parser and worker threads with, can be null if neither the data
+     *        value set nor the checker access the database.
+     * @param checkerFactory the factory of the checkers, called once on each
+     *        thread which checks data values.
+     */
+    DataValueImportPipeline( DataValueSet dataValueSet, int threads, SessionFactory sessionFactory,
+        Supplier<DataValueChecker> checkerFactory )
+    {
+        checkNotNull( dataValueSet );
+        checkNotNull( checkerFactory );
+
+        this.dataValueSet = dataValueSet;
+        this.checkerFactory = checkerFactory;
+        this.sessionFactory = sessionFactory;
+        this.authentication = SecurityContextHolder.getContext().getAuthentication();
+
+        if ( threads > 0 )
+        {
+            this.parser = Executors.newSingleThreadExecutor( new ThreadFactoryBuilder()
+                .setNameFormat( "data-value-import-parser-%d" ).setDaemon( true ).build() );
+            this.workers = Executors.newFixedThreadPool( threads, new ThreadFactoryBuilder()
+                .setNameFormat( "data-value-import-worker-%d" ).setDaemon( true )
+                .setThreadFactory( getWorkerThreadFactory() ).build() );
+            this.checkers = ThreadLocal.withInitial( checkerFactory );
+            this.chunks = new ArrayBlockingQueue<>( threads * 2 );
+
+            this.parser.execute( this::parse );
+        }
+        else
+        {
+            this.parser = null;
+            this.workers = null;
+            this.checkers = null;
+            this.chunks = null;
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Consumer methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Indicates whether there are more data values. Must be called exactly
+     * once before each call to {@link #getNextDataValue()}.
+     */
+    boolean hasNextDataValue()
+    {
+        if ( chunks == null )
+        {
+            return dataValueSet.hasNextDataValue();
+        }
+
+        while ( !chunk.hasNext() )
+        {
+            if ( endOfInput )
+            {
+                return false;
+            }
+
+            List<CheckedDataValue> values = takeChunk();
+
+            if ( values == null )
+            {
+                endOfInput = true;
+                return false;
+            }
+
+            chunk = values.iterator();
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the next checked data value in input order.
+     */
+    CheckedDataValue getNextDataValue()
+    {
+        if ( chunks == null )
+        {
+            if ( checker == null )
+            {
+                checker = checkerFactory.get();
+            }
+
+            CheckedDataValue checkedValue = new CheckedDataValue( dataValueSet.getNextDataValue() );
+            checker.check( checkedValue );
+            return checkedValue;
+        }
+
+        return chunk.next();
+    }
+
+    /**
+     * Stops the parser and the validation workers and waits for them to
+     * terminate, after which the data value set is no longer read and the
+     * sessions of the workers are closed. Does not close the underlying data
+     * value set.
+     */
+    @Override
+    public void close()
+    {
+        if ( parser != null )
+        {
+            parser.shutdownNow();
+            workers.shutdownNow();
+
+            awaitTermination( parser );
+            awaitTermination( workers );
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private List<CheckedDataValue> takeChunk()
+    {
+        try
+        {
+            return chunks.take().get();
+        }
+        catch ( InterruptedException ex )
+        {
+            Thread.currentThread().interrupt();
+
+            throw new IllegalStateException( "Data value import was interrupted", ex );
+        }
+        catch ( ExecutionException ex )
+        {
+            if ( ex.getCause() instanceof RuntimeException )
+            {
+                throw (RuntimeException) ex.getCause();
+            }
+
+            throw new IllegalStateException( ex.getCause() );
+        }
+    }
+
+    private void awaitTermination( ExecutorService executor )
+    {
+        try
+        {
+            while ( !executor.awaitTermination( 1, TimeUnit.MINUTES ) )
+            {
+                log.warn( "Waiting for data value import threads to terminate" );
+            }
+        }
+        catch ( InterruptedException ex )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns a thread factory for validation workers, which run with the
+     * authentication of the calling thread and, given a session factory,
+     * with their own session for the lifetime of the thread.
+     */
+    private ThreadFactory getWorkerThreadFactory()
+    {
+        return runnable -> new Thread( () -> {
+            SecurityContextHolder.getContext().setAuthentication( authentication );
+
+            if ( sessionFactory != null )
+            {
+                DbmsUtils.bindSessionToThread( sessionFactory );
+            }
+
+            try
+            {
+                runnable.run();
+            }
+            finally
+            {
+                if ( sessionFactory != null )
+                {
+                    DbmsUtils.unbindSessionFromThread( sessionFactory );
+                }
+
+                SecurityContextHolder.clearContext();
+            }
+        } );
+    }
+
+    /**
+     * Reads all data values on the parser thread. Data values are detached
+     * from the data value set, as streaming implementations read attributes
+     * lazily from a reader which is advanced by the next read.
+     */
+    private void parse()
+    {
+        SecurityContextHolder.getContext().setAuthentication( authentication );
+
+        if ( sessionFactory != null )
+        {
+            DbmsUtils.bindSessionToThread( sessionFactory );
+        }
+
+        try
+        {
+            try
+            {
+                List<DataValue> values = new ArrayList<>( CHUNK_SIZE );
+
+                while ( !Thread.currentThread().isInterrupted() && dataValueSet.hasNextDataValue() )
+                {
+                    values.add( detach( dataValueSet.getNextDataValue() ) );
+
+                    if ( values.size() >= CHUNK_SIZE )
+                    {
+                        submit( values );
+                        values = new ArrayList<>( CHUNK_SIZE );
+                    }
+                }
+
+                if ( !values.isEmpty() )
+                {
+                    submit( values );
+                }
+
+                chunks.put( END_OF_INPUT );
+            }
+            catch ( RuntimeException ex )
+            {
+                CompletableFuture<List<CheckedDataValue>> failure = new CompletableFuture<>();
+                failure.completeExceptionally( ex );
+
+                chunks.put( failure );
+            }
+        }
+        catch ( InterruptedException ex )
+        {
+            Thread.currentThread().interrupt();
+        }
+        finally
+        {
+            if ( sessionFactory != null )
+            {
+                DbmsUtils.unbindSessionFromThread( sessionFactory );
+            }
+
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    private void submit( List<DataValue> values )
+        throws InterruptedException
+    {
+        chunks.put( workers.submit( () -> check( values ) ) );
+    }
+
+    private List<CheckedDataValue> check( List<DataValue> values )
+    {
+        DataValueChecker workerChecker = checkers.get();
+
+        List<CheckedDataValue> checkedValues = new ArrayList<>( values.size() );
+
+        for ( DataValue value : values )
+        {
+            CheckedDataValue checkedValue = new CheckedDataValue( value );
+
+            workerChecker.check( checkedValue );
+
+            checkedValues.add( checkedValue );
+        }
+
+        return checkedValues;
+    }
+
+    private static DataValue detach( DataValue value )
+    {
+        DataValue copy = new DataValue();
+        copy.setDataElement( value.getDataElement() );
+        copy.setPeriod( value.getPeriod() );
+        copy.setOrgUnit( value.getOrgUnit() );
+        copy.setCategoryOptionCombo( value.getCategoryOptionCombo() );
+        copy.setAttributeOptionCombo( value.getAttributeOptionCombo() );
+        copy.setValue( value.getValue() );
+        copy.setStoredBy( value.getStoredBy() );
+        copy.setCreated( value.getCreated() );
+        copy.setLastUpdated( value.getLastUpdated() );
+        copy.setComment( value.getComment() );
+        copy.setFollowup( value.getFollowup() );
+        copy.setDeleted( value.getDeleted() );
+        return copy;
+    }
+
+    // -------------------------------------------------------------------------
+    // Checker
+    // -------------------------------------------------------------------------
+
+    /**
+     * Checks data values of an import. A checker is created on and only used
+     * by a single thread, and may hold entities of the session of that thread.
+     */
+    @FunctionalInterface
+    interface DataValueChecker
+    {
+        /**
+         * Checks the given data value, and either adds conflicts, marks it as
+         * ignored or sets the resolved meta-data identifiers.
+         *
+         * @param checkedValue the data value to check.
+         */
+        void check( CheckedDataValue checkedValue );
+    }
+
+    // -------------------------------------------------------------------------
+    // Checked data value
+    // -------------------------------------------------------------------------
+
+    /**
+     * Data value with the outcome of its checks. A valid data value refers to
+     * the resolved meta-data through database identifiers and the ISO period,
+     * which can be handed between threads and sessions.
+     */
+    static class CheckedDataValue
+    {
+        private final DataValue dataValue;
+
+        private final List<ImportConflict> conflicts = new ArrayList<>();
+
+        private boolean ignored;
+
+        private long dataElement;
+
+        private String period;
+
+        private long orgUnit;
+
+        private long categoryOptionCombo;
+
+        private long attributeOptionCombo;
+
+        private String storedBy;
+
+        CheckedDataValue( DataValue dataValue )
+        {
+            this.dataValue = dataValue;
+        }
+
+        DataValue getDataValue()
+        {
+            return dataValue;
+        }
+
+        /**
+         * Returns the conflicts of this data value, in the order in which
+         * they were found. A data value with conflicts is not imported.
+         */
+        List<ImportConflict> getConflicts()
+        {
+            return conflicts;
+        }
+
+        boolean isIgnored()
+        {
+            return ignored;
+        }
+
+        void setIgnored( boolean ignored )
+        {
+            this.ignored = ignored;
+        }
+
+        /**
+         * Sets the resolved meta-data of a valid data value.
+         *
+         * @param dataElement the data element identifier.
+         * @param period the ISO period.
+         * @param orgUnit the organisation unit identifier.
+         * @param categoryOptionCombo the category option combo identifier.
+         * @param attributeOptionCombo the attribute option combo identifier.
+         * @param storedBy the user name to store the data value with.
+         */
+        void setResolved( long dataElement, String period, long orgUnit, long categoryOptionCombo,
+            long attributeOptionCombo, String storedBy )
+        {
+            this.dataElement = dataElement;
+            this.period = period;
+            this.orgUnit = orgUnit;
+            this.categoryOptionCombo = categoryOptionCombo;
+            this.attributeOptionCombo = attributeOptionCombo;
+            this.storedBy = storedBy;
+        }
+
+        long getDataElement()
+        {
+            return dataElement;
+        }
+
+        String getPeriod()
+        {
+            return period;
+        }
+
+        long getOrgUnit()
+        {
+            return orgUnit;
+        }
+
+        long getCategoryOptionCombo()
+        {
+            return categoryOptionCombo;
+        }
+
+        long getAttributeOptionCombo()
+        {
+            return attributeOptionCombo;
+        }
+
+        String getStoredBy()
+        {
+            return storedBy;
+        }
+    }
+}
@@ -126,4 +126,17 @@ public interface DataValueSetService
     ImportSummary saveDataValueSetCsv( InputStream in, ImportOptions importOptions, JobConfiguration id );
 
     ImportSummary saveDataValueSetPdf( InputStream in, ImportOptions importOptions, JobConfiguration id );
+
+    /**
+     * Imports the data values of the given data value set. Data values are
+     * read through {@link DataValueSet#hasNextDataValue()} and
+     * {@link DataValueSet#getNextDataValue()}, possibly on a separate thread
+     * with its own session and the authentication of the current user.
+     *
+     * @param dataValueSet the data value set.
+     * @param importOptions the import options.
+     * @param id the job configuration, can be null.
+     * @return an import summary.
+     */
+    ImportSummary saveDataValueSet( DataValueSet dataValueSet, ImportOptions importOptions, JobConfiguration id );
 }
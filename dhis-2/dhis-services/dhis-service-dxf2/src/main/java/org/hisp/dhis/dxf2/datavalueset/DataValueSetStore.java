@@ -30,10 +30,13 @@ package org.hisp.dhis.dxf2.datavalueset;
 
 import org.hisp.dhis.common.IdSchemes;
 import org.hisp.dhis.datavalue.DataExportParams;
+import org.hisp.dhis.datavalue.DataValue;
 
 import java.io.OutputStream;
 import java.io.Writer;
+import java.util.Collection;
 import java.util.Date;
+import java.util.Map;
 
 /**
  * @author Lars Helge Overland
@@ -66,4 +69,44 @@ public interface DataValueSetStore
      */
     void writeDataValueSetJson( Date lastUpdated, OutputStream outputStream, IdSchemes idSchemes, int pageSize,
         int page );
+
+    /**
+     * Retrieves the persisted data values, including soft deleted ones, which
+     * match the given data values on data element, period, org unit, category
+     * option combo and attribute option combo, in one query.
+     *
+     * @param dataValues the data values to look up.
+     * @return a map of the given data values to the matching persisted data
+     *         values, which has no entries for data values which do not exist.
+     */
+    Map<DataValue, DataValue> getExistingDataValues( Collection<DataValue> dataValues );
+
+    /**
+     * Inserts the given data values, or updates them if data values with the
+     * same data element, period, org unit, category option combo and attribute
+     * option combo exist, as one batch. The data values must be unique.
+     *
+     * @param dataValues the data values to insert or update.
+     */
+    void upsertDataValues( Collection<DataValue> dataValues );
+
+    /**
+     * Copies the given data values into a staging table of the current
+     * transaction using the PostgreSQL COPY protocol. The staged data values
+     * are written to the data value table with {@link #mergeCopiedDataValues()}.
+     *
+     * @param dataValues the data values to copy.
+     */
+    void copyDataValues( Collection<DataValue> dataValues );
+
+    /**
+     * Inserts the data values staged with {@link #copyDataValues(Collection)}
+     * into the data value table in one statement and drops the staging table.
+     * Staged data values which already exist are ignored, unless the existing
+     * data value is soft deleted, in which case it is replaced. When a data
+     * value is staged multiple times, the first one is used.
+     *
+     * @return the number of data values inserted or replaced.
+     */
+    int mergeCopiedDataValues();
 }
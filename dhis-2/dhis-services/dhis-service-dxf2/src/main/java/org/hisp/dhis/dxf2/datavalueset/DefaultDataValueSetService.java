@@ -32,6 +32,7 @@ import com.csvreader.CsvReader;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.BooleanUtils;
+import org.hibernate.SessionFactory;
 import org.hisp.dhis.calendar.CalendarService;
 import org.hisp.dhis.category.CategoryOptionCombo;
 import org.hisp.dhis.category.CategoryService;
@@ -61,6 +62,8 @@ import org.hisp.dhis.datavalue.DataValue;
 import org.hisp.dhis.datavalue.DataValueAudit;
 import org.hisp.dhis.datavalue.DataValueService;
 import org.hisp.dhis.dxf2.common.ImportOptions;
+import org.hisp.dhis.dxf2.datavalueset.DataValueImportPipeline.CheckedDataValue;
+import org.hisp.dhis.dxf2.datavalueset.DataValueImportPipeline.DataValueChecker;
 import org.hisp.dhis.dxf2.importsummary.ImportConflict;
 import org.hisp.dhis.dxf2.importsummary.ImportCount;
 import org.hisp.dhis.dxf2.importsummary.ImportStatus;
@@ -114,8 +117,11 @@ import java.io.OutputStream;
 import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -137,6 +143,7 @@ public class DefaultDataValueSetService
 {
     private static final String ERROR_OBJECT_NEEDED_TO_COMPLETE = "Must be provided to complete data set";
     private static final int CACHE_MISS_THRESHOLD = 250;
+    private static final int COPY_BATCH_SIZE = 50000;
 
     private final IdentifiableObjectManager identifiableObjectManager;
 
@@ -178,6 +185,8 @@ public class DefaultDataValueSetService
 
     private final ObjectMapper jsonMapper;
 
+    private final SessionFactory sessionFactory;
+
     public DefaultDataValueSetService(
         IdentifiableObjectManager identifiableObjectManager,
         CategoryService categoryService,
@@ -198,7 +207,8 @@ public class DefaultDataValueSetService
         FileResourceService fileResourceService,
         AclService aclService,
         AggregateAccessManager accessManager,
-        ObjectMapper jsonMapper )
+        ObjectMapper jsonMapper,
+        SessionFactory sessionFactory )
     {
         checkNotNull( identifiableObjectManager );
         checkNotNull( categoryService );
@@ -220,6 +230,7 @@ public class DefaultDataValueSetService
         checkNotNull( aclService );
         checkNotNull( accessManager );
         checkNotNull( jsonMapper );
+        checkNotNull( sessionFactory );
 
         this.identifiableObjectManager = identifiableObjectManager;
         this.categoryService = categoryService;
@@ -241,6 +252,7 @@ public class DefaultDataValueSetService
         this.aclService = aclService;
         this.accessManager = accessManager;
         this.jsonMapper = jsonMapper;
+        this.sessionFactory = sessionFactory;
     }
 
     /**
@@ -716,6 +728,22 @@ public class DefaultDataValueSetService
         return saveDataValueSetPdf( in, importOptions, null );
     }
 
+    @Override
+    @Transactional
+    public ImportSummary saveDataValueSet( DataValueSet dataValueSet, ImportOptions importOptions, JobConfiguration id )
+    {
+        try
+        {
+            return saveDataValueSet( importOptions, id, dataValueSet );
+        }
+        catch ( RuntimeException ex )
+        {
+            log.error( DebugUtils.getStackTrace( ex ) );
+            notifier.clear( id ).notify( id, ERROR, "Process failed: " + ex.getMessage(), true );
+            return new ImportSummary( ImportStatus.ERROR, "The import process failed: " + ex.getMessage() );
+        }
+    }
+
     /**
      * There are specific id schemes for data elements and organisation units and
      * a generic id scheme for all objects. The specific id schemes will take
@@ -795,55 +823,31 @@ public class DefaultDataValueSetService
         boolean requireCategoryOptionCombo = importOptions.isRequireCategoryOptionCombo() || (Boolean) systemSettingManager.getSystemSetting( SettingKey.DATA_IMPORT_REQUIRE_CATEGORY_OPTION_COMBO );
         boolean requireAttrOptionCombo = importOptions.isRequireAttributeOptionCombo() || (Boolean) systemSettingManager.getSystemSetting( SettingKey.DATA_IMPORT_REQUIRE_ATTRIBUTE_OPTION_COMBO );
         boolean forceDataInput = inputUtils.canForceDataInput( currentUser, importOptions.isForce() );
+        boolean bulkCopy = importOptions.isBulkCopy() && strategy.isCreate() && !dryRun;
+
+        if ( importOptions.isBulkCopy() && !bulkCopy )
+        {
+            log.warn( "Bulk copy requires import strategy CREATE and no dry run, importing without bulk copy" );
+        }
 
         // ---------------------------------------------------------------------
         // Create meta-data maps
         // ---------------------------------------------------------------------
 
-        CachingMap<String, DataElement> dataElementMap = new CachingMap<>();
         CachingMap<String, OrganisationUnit> orgUnitMap = new CachingMap<>();
         CachingMap<String, CategoryOptionCombo> optionComboMap = new CachingMap<>();
-        CachingMap<String, DataSet> dataElementDataSetMap = new CachingMap<>();
         CachingMap<String, Period> periodMap = new CachingMap<>();
-        CachingMap<String, Set<PeriodType>> dataElementPeriodTypesMap = new CachingMap<>();
-        CachingMap<String, Set<CategoryOptionCombo>> dataElementCategoryOptionComboMap = new CachingMap<>();
-        CachingMap<String, Set<CategoryOptionCombo>> dataElementAttrOptionComboMap = new CachingMap<>();
-        CachingMap<String, Boolean> dataElementOrgUnitMap = new CachingMap<>();
-        CachingMap<String, Boolean> dataSetLockedMap = new CachingMap<>();
-        CachingMap<String, Period> dataElementLatestFuturePeriodMap = new CachingMap<>();
-        CachingMap<String, Boolean> orgUnitInHierarchyMap = new CachingMap<>();
-        CachingMap<String, DateRange> attrOptionComboDateRangeMap = new CachingMap<>();
-        CachingMap<String, Boolean> attrOptionComboOrgUnitMap = new CachingMap<>();
-        CachingMap<String, Optional<Set<String>>> dataElementOptionsMap = new CachingMap<>();
-        CachingMap<String, Boolean> approvalMap = new CachingMap<>();
-        CachingMap<String, Boolean> lowestApprovalLevelMap = new CachingMap<>();
-        CachingMap<String, Boolean> periodOpenForDataElement = new CachingMap<>();
 
         // ---------------------------------------------------------------------
         // Get meta-data maps
         // ---------------------------------------------------------------------
 
-        IdentifiableObjectCallable<DataElement> dataElementCallable = new IdentifiableObjectCallable<>(
-            identifiableObjectManager, DataElement.class, dataElementIdScheme, null );
         IdentifiableObjectCallable<OrganisationUnit> orgUnitCallable = new IdentifiableObjectCallable<>(
             identifiableObjectManager, OrganisationUnit.class, orgUnitIdScheme, trimToNull( dataValueSet.getOrgUnit() ) );
-        IdentifiableObjectCallable<CategoryOptionCombo> categoryOptionComboCallable = new CategoryOptionComboAclCallable(
-            categoryService, categoryOptComboIdScheme, null );
         IdentifiableObjectCallable<CategoryOptionCombo> attributeOptionComboCallable = new CategoryOptionComboAclCallable(
             categoryService, categoryOptComboIdScheme, null );
         IdentifiableObjectCallable<Period> periodCallable = new PeriodCallable( periodService, null, trimToNull( dataValueSet.getPeriod() ) );
 
-        // ---------------------------------------------------------------------
-        // Heat caches
-        // ---------------------------------------------------------------------
-
-        if ( importOptions.isPreheatCacheDefaultFalse() )
-        {
-            dataElementMap.load( identifiableObjectManager.getAll( DataElement.class ), o -> o.getPropertyValue( dataElementIdScheme ) );
-            orgUnitMap.load( identifiableObjectManager.getAll( OrganisationUnit.class ), o -> o.getPropertyValue( orgUnitIdScheme ) );
-            optionComboMap.load( identifiableObjectManager.getAll( CategoryOptionCombo.class ), o -> o.getPropertyValue( categoryOptComboIdScheme ) );
-        }
-
         // ---------------------------------------------------------------------
         // Get outer meta-data
         // ---------------------------------------------------------------------
@@ -924,15 +928,41 @@ public class DefaultDataValueSetService
             summary.setDataSetComplete( Boolean.FALSE.toString() );
         }
 
-        final Set<OrganisationUnit> currentOrgUnits = currentUserService.getCurrentUserOrganisationUnits();
-
         BatchHandler<DataValue> dataValueBatchHandler = batchHandlerFactory.createBatchHandler( DataValueBatchHandler.class ).init();
         BatchHandler<DataValueAudit> auditBatchHandler = batchHandlerFactory.createBatchHandler( DataValueAuditBatchHandler.class ).init();
 
-        int importCount = 0;
-        int updateCount = 0;
-        int deleteCount = 0;
-        int totalCount = 0;
+        int batchSize = (Integer) systemSettingManager.getSystemSetting( SettingKey.DATA_IMPORT_BATCH_SIZE );
+        int importThreads = (Integer) systemSettingManager.getSystemSetting( SettingKey.DATA_IMPORT_THREADS );
+
+        ImportContext context = new ImportContext( strategy, dryRun, skipAudit, skipExistingCheck, batchSize > 0,
+            dataValueBatchHandler, auditBatchHandler );
+
+        // ---------------------------------------------------------------------
+        // Validation settings, shared by the validators of all threads
+        // ---------------------------------------------------------------------
+
+        ValidationSettings settings = new ValidationSettings();
+
+        settings.dataElementIdScheme = dataElementIdScheme;
+        settings.orgUnitIdScheme = orgUnitIdScheme;
+        settings.categoryOptComboIdScheme = categoryOptComboIdScheme;
+        settings.preheatCache = importOptions.isPreheatCacheDefaultFalse();
+        settings.strictPeriods = strictPeriods;
+        settings.strictDataElements = strictDataElements;
+        settings.strictCategoryOptionCombos = strictCategoryOptionCombos;
+        settings.strictAttrOptionCombos = strictAttrOptionCombos;
+        settings.strictOrgUnits = strictOrgUnits;
+        settings.requireCategoryOptionCombo = requireCategoryOptionCombo;
+        settings.requireAttrOptionCombo = requireAttrOptionCombo;
+        settings.forceDataInput = forceDataInput;
+        settings.isIso8601 = isIso8601;
+        settings.skipLockExceptionCheck = skipLockExceptionCheck;
+        settings.dataSet = dataSet != null ? dataSet.getId() : null;
+        settings.outerPeriod = outerPeriod != null ? outerPeriod.getIsoDate() : null;
+        settings.outerOrgUnit = outerOrgUnit != null ? outerOrgUnit.getId() : null;
+        settings.outerAttrOptionCombo = outerAttrOptionCombo != null ? outerAttrOptionCombo.getId() : null;
+        settings.i18n = i18n;
+        settings.currentUserName = currentUserName;
 
         // ---------------------------------------------------------------------
         // Data values
@@ -943,547 +973,966 @@ public class DefaultDataValueSetService
         clock.logTime( "Validated outer meta-data" );
         notifier.notify( id, notificationLevel, "Importing data values" );
 
-        while ( dataValueSet.hasNextDataValue() )
+        if ( importThreads > 0 )
         {
-            org.hisp.dhis.dxf2.datavalue.DataValue dataValue = dataValueSet.getNextDataValue();
+            log.info( String.format( "Importing data values with %d validation threads", importThreads ) );
+        }
 
-            totalCount++;
+        int totalCount;
 
-            final DataElement dataElement =
-                dataElementMap.get( trimToNull( dataValue.getDataElement() ), dataElementCallable.setId( trimToNull( dataValue.getDataElement() ) ) );
-            final Period period = outerPeriod != null ? outerPeriod :
-                periodMap.get( trimToNull( dataValue.getPeriod() ), periodCallable.setId( trimToNull( dataValue.getPeriod() ) ) );
-            final OrganisationUnit orgUnit = outerOrgUnit != null ? outerOrgUnit :
-                orgUnitMap.get( trimToNull( dataValue.getOrgUnit() ), orgUnitCallable.setId( trimToNull( dataValue.getOrgUnit() ) ) );
-            CategoryOptionCombo categoryOptionCombo =
-                optionComboMap.get( trimToNull( dataValue.getCategoryOptionCombo() ), categoryOptionComboCallable.setId( trimToNull( dataValue.getCategoryOptionCombo() ) ) );
-            CategoryOptionCombo attrOptionCombo = outerAttrOptionCombo != null ? outerAttrOptionCombo :
-                optionComboMap.get( trimToNull( dataValue.getAttributeOptionCombo() ), attributeOptionComboCallable.setId( trimToNull( dataValue.getAttributeOptionCombo() ) ) );
+        try ( DataValueImportPipeline pipeline = new DataValueImportPipeline( dataValueSet, importThreads,
+            sessionFactory, () -> new DataValueValidator( settings ) ) )
+        {
+            totalCount = importDataValues( context, pipeline, summary, bulkCopy, batchSize, now );
+        }
 
-            // -----------------------------------------------------------------
-            // Potentially heat caches
-            // -----------------------------------------------------------------
+        if ( bulkCopy )
+        {
+            context.importCount.incrementImported( dataValueSetStore.mergeCopiedDataValues() );
+        }
 
-            if ( !dataElementMap.isCacheLoaded() && dataElementMap.getCacheMissCount() > CACHE_MISS_THRESHOLD )
-            {
-                dataElementMap.load( identifiableObjectManager.getAll( DataElement.class ), o -> o.getPropertyValue( dataElementIdScheme ) );
+        dataValueBatchHandler.flush();
+        auditBatchHandler.flush();
 
-                log.info( "Data element cache heated after cache miss threshold reached" );
-            }
+        ImportCount importCount = context.importCount;
 
-            if ( !orgUnitMap.isCacheLoaded() && orgUnitMap.getCacheMissCount() > CACHE_MISS_THRESHOLD )
-            {
-                orgUnitMap.load( identifiableObjectManager.getAll( OrganisationUnit.class ), o -> o.getPropertyValue( orgUnitIdScheme ) );
+        importCount.setIgnored( totalCount - importCount.getImported() - importCount.getUpdated() - importCount.getDeleted() );
 
-                log.info( "Org unit cache heated after cache miss threshold reached" );
-            }
+        summary.setImportCount( importCount );
+        summary.setStatus( summary.getConflicts().isEmpty() ? ImportStatus.SUCCESS : ImportStatus.WARNING );
+        summary.setDescription( "Import process completed successfully" );
 
-            if ( !optionComboMap.isCacheLoaded() && optionComboMap.getCacheMissCount() > CACHE_MISS_THRESHOLD )
-            {
-                optionComboMap.load( identifiableObjectManager.getAll( CategoryOptionCombo.class ), o -> o.getPropertyValue(
-                    categoryOptComboIdScheme ) );
+        if ( bulkCopy )
+        {
+            long valuesPerSecond = totalCount * 1000L / Math.max( 1L, clock.getTime() );
 
-                log.info( "Category Option Combo cache heated after cache miss threshold reached" );
-            }
+            summary.setDescription( String.format( "Import process completed successfully, bulk copy of %d data values at %d values per second",
+                totalCount, valuesPerSecond ) );
+        }
 
-            // -----------------------------------------------------------------
-            // Validation
-            // -----------------------------------------------------------------
+        clock.logTime( "Data value import done, total: " + totalCount + ", import: " + importCount.getImported() +
+            ", update: " + importCount.getUpdated() + ", delete: " + importCount.getDeleted() );
+        notifier.notify( id, notificationLevel, "Import done", true ).addJobSummary( id, notificationLevel, summary, ImportSummary.class );
 
-            if ( dataElement == null )
-            {
-                summary.getConflicts().add( new ImportConflict( dataValue.getDataElement(), "Data element not found or not accessible" ) );
-                continue;
-            }
+        dataValueSet.close();
 
-            if ( period == null )
-            {
-                summary.getConflicts().add( new ImportConflict( dataValue.getPeriod(), "Period not valid" ) );
-                continue;
-            }
+        return summary;
+    }
 
-            if ( orgUnit == null )
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Imports the data values of the given pipeline in input order. Data values
+     * arrive validated, and meta-data is resolved in the session of the calling
+     * thread from the identifiers found by the validators.
+     *
+     * @param context the {@link ImportContext}.
+     * @param pipeline the {@link DataValueImportPipeline}.
+     * @param summary the import summary to add conflicts to.
+     * @param bulkCopy whether to bulk copy data values.
+     * @param batchSize the size of batches of data values to save.
+     * @param now the created and last updated date of data values without one.
+     * @return the total number of data values.
+     */
+    private int importDataValues( ImportContext context, DataValueImportPipeline pipeline, ImportSummary summary,
+        boolean bulkCopy, int batchSize, Date now )
+    {
+        CachingMap<Long, DataElement> dataElementMap = new CachingMap<>();
+        CachingMap<String, Period> periodMap = new CachingMap<>();
+        CachingMap<Long, OrganisationUnit> orgUnitMap = new CachingMap<>();
+        CachingMap<Long, CategoryOptionCombo> optionComboMap = new CachingMap<>();
+
+        List<PendingDataValue> pendingValues = new ArrayList<>();
+        List<DataValue> copyValues = new ArrayList<>();
+
+        int totalCount = 0;
+
+        while ( pipeline.hasNextDataValue() )
+        {
+            CheckedDataValue checkedValue = pipeline.getNextDataValue();
+            org.hisp.dhis.dxf2.datavalue.DataValue dataValue = checkedValue.getDataValue();
+
+            totalCount++;
+
+            if ( !checkedValue.getConflicts().isEmpty() )
             {
-                summary.getConflicts().add( new ImportConflict( dataValue.getOrgUnit(), "Organisation unit not found or not accessible" ) );
+                summary.getConflicts().addAll( checkedValue.getConflicts() );
                 continue;
             }
 
-            if ( categoryOptionCombo == null && trimToNull( dataValue.getCategoryOptionCombo() ) != null )
+            if ( checkedValue.isIgnored() )
             {
-                summary.getConflicts().add( new ImportConflict( dataValue.getCategoryOptionCombo(), "Category option combo not found or not accessible for writing data" ) );
                 continue;
             }
 
-            if ( categoryOptionCombo != null )
-            {
-                List<String> errors = accessManager.canWrite( currentUser, categoryOptionCombo );
+            final DataElement dataElement = dataElementMap.get( checkedValue.getDataElement(),
+                () -> identifiableObjectManager.get( DataElement.class, checkedValue.getDataElement() ) );
+            final Period period = periodMap.get( checkedValue.getPeriod(),
+                () -> periodService.reloadIsoPeriod( checkedValue.getPeriod() ) );
+            final OrganisationUnit orgUnit = orgUnitMap.get( checkedValue.getOrgUnit(),
+                () -> identifiableObjectManager.get( OrganisationUnit.class, checkedValue.getOrgUnit() ) );
+            final CategoryOptionCombo categoryOptionCombo = optionComboMap.get( checkedValue.getCategoryOptionCombo(),
+                () -> identifiableObjectManager.get( CategoryOptionCombo.class, checkedValue.getCategoryOptionCombo() ) );
+            final CategoryOptionCombo attrOptionCombo = optionComboMap.get( checkedValue.getAttributeOptionCombo(),
+                () -> identifiableObjectManager.get( CategoryOptionCombo.class, checkedValue.getAttributeOptionCombo() ) );
 
-                if ( !errors.isEmpty() )
+            DataValue actualDataValue = null;
+            if ( context.strategy.isDelete() && dataElement.isFileType() )
+            {
+                actualDataValue = dataValueService.getDataValue( dataElement, period, orgUnit, categoryOptionCombo, attrOptionCombo );
+                if ( actualDataValue == null )
                 {
-                    summary.getConflicts().addAll( errors.stream().map( s -> new ImportConflict( "dataValueSet", s ) ).collect( Collectors.toList() ) );
+                    summary.getConflicts().add( new ImportConflict( dataElement.getUid(), "No data value for file resource exist for the given combination" ) );
                     continue;
                 }
             }
 
-            if ( attrOptionCombo == null && trimToNull( dataValue.getAttributeOptionCombo() ) != null )
-            {
-                summary.getConflicts().add( new ImportConflict( dataValue.getAttributeOptionCombo(), "Attribute option combo not found or not accessible for writing data" ) );
-                continue;
-            }
+            // -----------------------------------------------------------------
+            // Create data value
+            // -----------------------------------------------------------------
 
-            if ( attrOptionCombo != null )
-            {
-                List<String> errors = accessManager.canWrite( currentUser, attrOptionCombo );
+            DataValue internalValue = new DataValue();
 
-                if ( !errors.isEmpty() )
+            internalValue.setDataElement( dataElement );
+            internalValue.setPeriod( period );
+            internalValue.setSource( orgUnit );
+            internalValue.setCategoryOptionCombo( categoryOptionCombo );
+            internalValue.setAttributeOptionCombo( attrOptionCombo );
+            internalValue.setValue( trimToNull( dataValue.getValue() ) );
+            internalValue.setStoredBy( checkedValue.getStoredBy() );
+            internalValue.setCreated( dataValue.hasCreated() ? parseDate( dataValue.getCreated() ) : now );
+            internalValue.setLastUpdated( dataValue.hasLastUpdated() ? parseDate( dataValue.getLastUpdated() ) : now );
+            internalValue.setComment( trimToNull( dataValue.getComment() ) );
+            internalValue.setFollowup( dataValue.getFollowup() );
+            internalValue.setDeleted( BooleanUtils.isTrue( dataValue.getDeleted() ) );
+
+            // -----------------------------------------------------------------
+            // Save, update or delete data value
+            // -----------------------------------------------------------------
+
+            if ( bulkCopy && !dataElement.isFileType() )
+            {
+                if ( !internalValue.isNullValue() ) // Ignore null values
                 {
-                    summary.getConflicts().addAll( errors.stream().map( s -> new ImportConflict( "dataValueSet", s ) ).collect( Collectors.toList() ) );
-                    continue;
+                    copyValues.add( internalValue );
                 }
-            }
 
-            boolean inUserHierarchy = orgUnitInHierarchyMap.get( orgUnit.getUid(), () -> orgUnit.isDescendant( currentOrgUnits ) );
+                if ( copyValues.size() >= COPY_BATCH_SIZE )
+                {
+                    dataValueSetStore.copyDataValues( copyValues );
+                    copyValues.clear();
+                }
 
-            if ( !inUserHierarchy )
-            {
-                summary.getConflicts().add( new ImportConflict( orgUnit.getUid(), "Organisation unit not in hierarchy of current user: " + currentUserName ) );
                 continue;
             }
 
-            if ( dataValue.isNullValue() && !dataValue.isDeletedValue() )
+            if ( context.batch )
             {
-                summary.getConflicts().add( new ImportConflict( "Value", "Data value or comment not specified for data element: " + dataElement.getUid() ) );
+                pendingValues.add( new PendingDataValue( internalValue, actualDataValue ) );
+
+                if ( pendingValues.size() >= batchSize )
+                {
+                    saveDataValueBatch( context, pendingValues );
+                }
+
                 continue;
             }
 
-            dataValue.setValueForced(
-                ValidationUtils.normalizeBoolean( dataValue.getValue(), dataElement.getValueType() ) );
+            DataValue existingValue = !context.skipExistingCheck ? context.dataValueBatchHandler.findObject( internalValue ) : null;
 
-            String valueValid = ValidationUtils.dataValueIsValid( dataValue.getValue(), dataElement );
+            saveDataValue( context, internalValue, existingValue, actualDataValue );
+        }
 
-            if ( valueValid != null )
-            {
-                summary.getConflicts().add( new ImportConflict( dataValue.getValue(), i18n.getString( valueValid ) + ", must match data element type: " + dataElement.getUid() ) );
-                continue;
-            }
+        saveDataValueBatch( context, pendingValues );
 
-            String commentValid = ValidationUtils.commentIsValid( dataValue.getComment() );
+        if ( bulkCopy )
+        {
+            dataValueSetStore.copyDataValues( copyValues );
+        }
 
-            if ( commentValid != null )
-            {
-                summary.getConflicts().add( new ImportConflict( "Comment", i18n.getString( commentValid ) ) );
-                continue;
-            }
+        return totalCount;
+    }
 
-            Optional<Set<String>> optionCodes = dataElementOptionsMap.get( dataElement.getUid(), () -> dataElement.hasOptionSet() ?
-                Optional.of( dataElement.getOptionSet().getOptionCodesAsSet() ) : Optional.empty() );
+    /**
+     * Returns the stored period for the given ISO period, or a period which is
+     * not stored yet. Does not store periods, as validators may run outside of
+     * the transaction of the import.
+     *
+     * @param isoPeriod the ISO period.
+     * @return the period, or null if the ISO period is not valid.
+     */
+    private Period getPeriod( String isoPeriod )
+    {
+        Period period = periodService.getPeriod( isoPeriod );
 
-            if ( optionCodes.isPresent() && !optionCodes.get().contains( dataValue.getValue() ) )
-            {
-                summary.getConflicts().add( new ImportConflict( dataValue.getValue(), "Data value is not a valid option of the data element option set: " + dataElement.getUid() ) );
-                continue;
-            }
+        return period != null ? period : PeriodType.getPeriodFromIsoString( isoPeriod );
+    }
 
-            // -----------------------------------------------------------------
-            // Constraints
-            // -----------------------------------------------------------------
+    /**
+     * Saves, updates or deletes the given data value according to the import
+     * strategy and the existing data value, and writes audits for changed
+     * values.
+     *
+     * @param context the {@link ImportContext}.
+     * @param internalValue the data value to import.
+     * @param existingValue the existing data value, or null if none exists.
+     * @param actualDataValue the existing data value for file resource deletes.
+     */
+    private void saveDataValue( ImportContext context, DataValue internalValue, DataValue existingValue, DataValue actualDataValue )
+    {
+        final DataElement dataElement = internalValue.getDataElement();
 
-            if ( categoryOptionCombo == null )
-            {
-                if ( requireCategoryOptionCombo )
-                {
-                    summary.getConflicts().add( new ImportConflict( dataValue.getValue(), "Category option combo is required but is not specified" ) );
-                    continue;
-                }
-                else
-                {
-                    categoryOptionCombo = fallbackCategoryOptionCombo;
-                }
-            }
+        // ---------------------------------------------------------------------
+        // Check soft deleted data values on update and import
+        // ---------------------------------------------------------------------
 
-            if ( attrOptionCombo == null )
+        if ( !context.skipExistingCheck && existingValue != null && !existingValue.isDeleted() )
+        {
+            if ( context.strategy.isCreateAndUpdate() || context.strategy.isUpdate() )
             {
-                if ( requireAttrOptionCombo )
+                AuditType auditType = AuditType.UPDATE;
+
+                if ( internalValue.isNullValue() || internalValue.isDeleted() )
                 {
-                    summary.getConflicts().add( new ImportConflict( dataValue.getValue(), "Attribute option combo is required but is not specified" ) );
-                    continue;
+                    internalValue.setDeleted( true );
+
+                    auditType = AuditType.DELETE;
+
+                    context.importCount.incrementDeleted();
                 }
                 else
                 {
-                    attrOptionCombo = fallbackCategoryOptionCombo;
+                    context.importCount.incrementUpdated();
                 }
-            }
 
-            if ( strictPeriods && !dataElementPeriodTypesMap.get( dataElement.getUid(),
-                dataElement::getPeriodTypes ).contains( period.getPeriodType() ) )
-            {
-                summary.getConflicts().add( new ImportConflict( dataValue.getPeriod(),
-                    "Period type of period: " + period.getIsoDate() + " not valid for data element: " + dataElement.getUid() ) );
-                continue;
-            }
+                if ( !context.dryRun )
+                {
+                    context.updateDataValue( internalValue );
 
-            if ( strictDataElements && !dataSetDataElements.contains( dataElement ) )
-            {
-                summary.getConflicts().add( new ImportConflict( "DATA_IMPORT_STRICT_DATA_ELEMENTS",
-                    "Data element: " + dataValue.getDataElement() + " is not part of dataset: " + dataSet.getUid() ) );
-                continue;
-            }
+                    if ( !context.skipAudit )
+                    {
+                        DataValueAudit auditValue = new DataValueAudit( internalValue, existingValue.getValue(), internalValue.getStoredBy(), auditType );
 
-            if ( strictCategoryOptionCombos && !dataElementCategoryOptionComboMap.get( dataElement.getUid(),
-                dataElement::getCategoryOptionCombos ).contains( categoryOptionCombo ) )
-            {
-                summary.getConflicts().add( new ImportConflict( categoryOptionCombo.getUid(),
-                    "Category option combo: " + categoryOptionCombo.getUid() + " must be part of category combo of data element: " + dataElement.getUid() ) );
-                continue;
-            }
+                        context.auditBatchHandler.addObject( auditValue );
+                    }
 
-            if ( strictAttrOptionCombos && !dataElementAttrOptionComboMap.get( dataElement.getUid(),
-                dataElement::getDataSetCategoryOptionCombos ).contains( attrOptionCombo ) )
-            {
-                summary.getConflicts().add( new ImportConflict( attrOptionCombo.getUid(),
-                    "Attribute option combo: " + attrOptionCombo.getUid() + " must be part of category combo of data sets of data element: " + dataElement.getUid() ) );
-                continue;
-            }
+                    if ( dataElement.isFileType() )
+                    {
+                        FileResource fr = fileResourceService.getFileResource( internalValue.getValue() );
 
-            if ( strictOrgUnits && BooleanUtils.isFalse( dataElementOrgUnitMap.get( dataElement.getUid() + orgUnit.getUid(),
-                () -> orgUnit.hasDataElement( dataElement ) ) ) )
-            {
-                summary.getConflicts().add( new ImportConflict( orgUnit.getUid(),
-                    "Data element: " + dataElement.getUid() + " must be assigned through data sets to organisation unit: " + orgUnit.getUid() ) );
-                continue;
-            }
+                        fr.setAssigned( true );
 
-            boolean zeroAndInsignificant = ValidationUtils.dataValueIsZeroAndInsignificant( dataValue.getValue(), dataElement );
+                        fileResourceService.updateFileResource( fr );
+                    }
 
-            if ( zeroAndInsignificant )
-            {
-                continue; // Ignore value
+                }
             }
+            else if ( context.strategy.isDelete() )
+            {
+                internalValue.setDeleted( true );
 
-            String storedByValid = ValidationUtils.storedByIsValid( dataValue.getStoredBy() );
+                context.importCount.incrementDeleted();
 
-            if ( storedByValid != null )
-            {
-                summary.getConflicts().add( new ImportConflict( dataValue.getStoredBy(), i18n.getString( storedByValid ) ) );
-                continue;
-            }
+                if ( !context.dryRun )
+                {
+                    if ( dataElement.isFileType() && actualDataValue != null )
+                    {
+                        FileResource fr = fileResourceService.getFileResource( actualDataValue.getValue() );
 
-            String storedBy = dataValue.getStoredBy() == null || dataValue.getStoredBy().trim().isEmpty() ? currentUserName : dataValue.getStoredBy();
+                        fileResourceService.updateFileResource( fr );
+                    }
 
-            final CategoryOptionCombo aoc = attrOptionCombo;
+                    context.updateDataValue( internalValue );
 
-            DateRange aocDateRange = attrOptionComboDateRangeMap.get( attrOptionCombo.getUid(), aoc::getDateRange );
+                    if ( !context.skipAudit )
+                    {
+                        DataValueAudit auditValue = new DataValueAudit( internalValue, existingValue.getValue(), internalValue.getStoredBy(), AuditType.DELETE );
 
-            if ( (aocDateRange.getStartDate() != null && aocDateRange.getStartDate().compareTo( period.getStartDate() ) > 0)
-                || (aocDateRange.getEndDate() != null && aocDateRange.getEndDate().compareTo( period.getEndDate() ) < 0) )
+                        context.auditBatchHandler.addObject( auditValue );
+                    }
+                }
+            }
+        }
+        else
+        {
+            if ( context.strategy.isCreateAndUpdate() || context.strategy.isCreate() )
             {
-                summary.getConflicts().add( new ImportConflict( orgUnit.getUid(),
-                    "Period: " + period.getIsoDate() + " is not within date range of attribute option combo: " + attrOptionCombo.getUid() ) );
-                continue;
+                if ( !internalValue.isNullValue() ) // Ignore null values
+                {
+                    if ( existingValue != null && existingValue.isDeleted() )
+                    {
+                        context.importCount.incrementImported();
+
+                        if ( !context.dryRun )
+                        {
+                            context.updateDataValue( internalValue );
+
+                            if ( dataElement.isFileType() )
+                            {
+                                FileResource fr = fileResourceService.getFileResource( internalValue.getValue() );
+
+                                fr.setAssigned( true );
+
+                                fileResourceService.updateFileResource( fr );
+                            }
+                        }
+                    }
+                    else
+                    {
+                        boolean added = false;
+
+                        if ( !context.dryRun )
+                        {
+                            added = context.addDataValue( internalValue );
+
+                            if ( added && dataElement.isFileType() )
+                            {
+                                FileResource fr = fileResourceService.getFileResource( internalValue.getValue() );
+
+                                fr.setAssigned( true );
+
+                                fileResourceService.updateFileResource( fr );
+                            }
+                        }
+
+                        if ( context.dryRun || added )
+                        {
+                            context.importCount.incrementImported();
+                        }
+                    }
+                }
             }
+        }
+    }
 
-            if ( !attrOptionComboOrgUnitMap.get( attrOptionCombo.getUid() + orgUnit.getUid(), () ->
-            {
-                Set<OrganisationUnit> aocOrgUnits = aoc.getOrganisationUnits();
-                return aocOrgUnits == null || orgUnit.isDescendant( aocOrgUnits );
-            } ) )
+    /**
+     * Saves the given batch of data values. Existing data values are looked
+     * up for the whole batch in one query, and the resulting inserts and
+     * updates are written as one batch of upserts. A data value which occurs
+     * multiple times in the batch is treated as existing after its first
+     * occurrence, like in a sequential import. Clears the batch.
+     *
+     * @param context the {@link ImportContext}.
+     * @param batch the list of {@link PendingDataValue}.
+     */
+    private void saveDataValueBatch( ImportContext context, List<PendingDataValue> batch )
+    {
+        if ( batch.isEmpty() )
+        {
+            return;
+        }
+
+        Map<DataValue, DataValue> existingValues = context.skipExistingCheck ? new HashMap<>() :
+            dataValueSetStore.getExistingDataValues( batch.stream()
+                .map( pending -> pending.internalValue )
+                .collect( Collectors.toList() ) );
+
+        for ( PendingDataValue pending : batch )
+        {
+            DataValue internalValue = pending.internalValue;
+
+            saveDataValue( context, internalValue, existingValues.get( internalValue ), pending.actualDataValue );
+
+            if ( context.upserts.get( internalValue ) == internalValue )
             {
-                summary.getConflicts().add( new ImportConflict( orgUnit.getUid(),
-                    "Organisation unit: " + orgUnit.getUid() + " is not valid for attribute option combo: " + attrOptionCombo.getUid() ) );
-                continue;
+                existingValues.put( internalValue, internalValue );
             }
+        }
 
-            final DataSet approvalDataSet = dataSet != null ? dataSet : dataElementDataSetMap.get( dataElement.getUid(),
-                dataElement::getApprovalDataSet );
+        if ( !context.upserts.isEmpty() )
+        {
+            dataValueSetStore.upsertDataValues( context.upserts.values() );
+            context.upserts.clear();
+        }
 
-            if ( approvalDataSet != null && !forceDataInput ) // Data element is assigned to at least one data set
-            {
-                if ( dataSetLockedMap.get( approvalDataSet.getUid() + period.getUid() + orgUnit.getUid(),
-                    () -> isLocked( currentUser, approvalDataSet, period, orgUnit, skipLockExceptionCheck ) ) )
-                {
-                    summary.getConflicts().add( new ImportConflict( period.getIsoDate(), "Current date is past expiry days for period " +
-                        period.getIsoDate() + " and data set: " + approvalDataSet.getUid() ) );
-                    continue;
-                }
+        batch.clear();
+    }
 
-                Period latestFuturePeriod = dataElementLatestFuturePeriodMap.get( dataElement.getUid(), dataElement::getLatestOpenFuturePeriod );
+    private void handleComplete( DataSet dataSet, Date completeDate, Period period, OrganisationUnit orgUnit,
+        CategoryOptionCombo attributeOptionCombo, String currentUserName, ImportSummary summary )
+    {
+        if ( orgUnit == null )
+        {
+            summary.getConflicts().add( new ImportConflict( OrganisationUnit.class.getSimpleName(), ERROR_OBJECT_NEEDED_TO_COMPLETE ) );
+            return;
+        }
 
-                if ( period.isAfter( latestFuturePeriod ) && isIso8601 )
-                {
-                    summary.getConflicts().add( new ImportConflict( period.getIsoDate(), "Period: " +
-                        period.getIsoDate() + " is after latest open future period: " + latestFuturePeriod.getIsoDate() + " for data element: " + dataElement.getUid() ) );
-                    continue;
-                }
+        if ( period == null )
+        {
+            summary.getConflicts().add( new ImportConflict( Period.class.getSimpleName(), ERROR_OBJECT_NEEDED_TO_COMPLETE ) );
+            return;
+        }
 
-                DataApprovalWorkflow workflow = approvalDataSet.getWorkflow();
+        period = periodService.reloadPeriod( period );
 
-                if ( workflow != null )
-                {
-                    final String workflowPeriodAoc = workflow.getUid() + period.getUid() + attrOptionCombo.getUid();
+        CompleteDataSetRegistration completeAlready = registrationService
+            .getCompleteDataSetRegistration( dataSet, period, orgUnit, attributeOptionCombo );
 
-                    if ( approvalMap.get( orgUnit.getUid() + workflowPeriodAoc, () ->
-                    {
-                        DataApproval lowestApproval = DataApproval.getLowestApproval( new DataApproval( null, workflow, period, orgUnit, aoc ) );
+        if ( completeAlready != null )
+        {
+            // At this point, DataSet is completed. Override, eventual non-completeness
+            completeAlready.setDate( completeDate );
+            completeAlready.setStoredBy( currentUserName );
+            completeAlready.setLastUpdated( new Date() );
+            completeAlready.setLastUpdatedBy( currentUserName );
+            completeAlready.setCompleted( true );
 
-                        return lowestApproval != null && lowestApprovalLevelMap.get(
-                            lowestApproval.getDataApprovalLevel().getUid()
-                                + lowestApproval.getOrganisationUnit().getUid() + workflowPeriodAoc,
-                            () -> approvalService.getDataApproval( lowestApproval ) != null );
-                    } ) )
-                    {
-                        summary.getConflicts().add( new ImportConflict( orgUnit.getUid(),
-                            "Data is already approved for data set: " + approvalDataSet.getUid() + " period: " + period.getIsoDate()
-                                + " organisation unit: " + orgUnit.getUid() + " attribute option combo: " + attrOptionCombo.getUid() ) );
-                        continue;
-                    }
-                }
+            registrationService.updateCompleteDataSetRegistration( completeAlready );
+        }
+        else
+        {
+            CompleteDataSetRegistration registration = new CompleteDataSetRegistration( dataSet, period, orgUnit,
+                attributeOptionCombo, completeDate, currentUserName, new Date(), currentUserName, true );
+
+            registrationService.saveCompleteDataSetRegistration( registration );
+        }
+
+        summary.setDataSetComplete( DateUtils.getMediumDateString( completeDate ) );
+    }
+
+    /**
+     * Checks whether the given data set is locked.
+     *
+     * @param dataSet                the data set.
+     * @param period                 the period.
+     * @param organisationUnit       the organisation unit.
+     * @param skipLockExceptionCheck whether to skip lock exception check.
+     */
+    private boolean isLocked( User user, DataSet dataSet, Period period, OrganisationUnit organisationUnit, boolean skipLockExceptionCheck )
+    {
+        // Lock exceptions only exist for stored periods
+
+        return dataSet.isLocked( user, period, null ) && (skipLockExceptionCheck || period.getId() == 0
+            || lockExceptionStore.getCount( dataSet, period, organisationUnit ) == 0L);
+    }
+
+    /**
+     * Settings of a data value import which are needed to validate data
+     * values. Meta-data is referred to by identifiers only, so that the
+     * settings can be shared by the validators of all threads.
+     */
+    private static class ValidationSettings
+    {
+        private IdScheme dataElementIdScheme;
+
+        private IdScheme orgUnitIdScheme;
+
+        private IdScheme categoryOptComboIdScheme;
+
+        private boolean preheatCache;
+
+        private boolean strictPeriods;
+
+        private boolean strictDataElements;
+
+        private boolean strictCategoryOptionCombos;
+
+        private boolean strictAttrOptionCombos;
+
+        private boolean strictOrgUnits;
+
+        private boolean requireCategoryOptionCombo;
+
+        private boolean requireAttrOptionCombo;
+
+        private boolean forceDataInput;
+
+        private boolean isIso8601;
+
+        private boolean skipLockExceptionCheck;
+
+        private Long dataSet;
+
+        private String outerPeriod;
+
+        private Long outerOrgUnit;
+
+        private Long outerAttrOptionCombo;
+
+        private I18n i18n;
+
+        private String currentUserName;
+    }
+
+    /**
+     * Validates data values against meta-data, sharing, the organisation unit
+     * hierarchy, locking and approval. A validator loads meta-data and holds
+     * caches in the session of the thread which created it, and must only be
+     * used on that thread.
+     */
+    private class DataValueValidator
+        implements DataValueChecker
+    {
+        private final ValidationSettings settings;
+
+        private final User currentUser;
+
+        private final Set<OrganisationUnit> currentOrgUnits;
+
+        private final DataSet dataSet;
+
+        private final Set<DataElement> dataSetDataElements;
+
+        private final Period outerPeriod;
+
+        private final OrganisationUnit outerOrgUnit;
+
+        private final CategoryOptionCombo outerAttrOptionCombo;
+
+        private final CategoryOptionCombo fallbackCategoryOptionCombo;
+
+        private final CachingMap<String, DataElement> dataElementMap = new CachingMap<>();
+        private final CachingMap<String, OrganisationUnit> orgUnitMap = new CachingMap<>();
+        private final CachingMap<String, CategoryOptionCombo> optionComboMap = new CachingMap<>();
+        private final CachingMap<String, DataSet> dataElementDataSetMap = new CachingMap<>();
+        private final CachingMap<String, Period> periodMap = new CachingMap<>();
+        private final CachingMap<String, Set<PeriodType>> dataElementPeriodTypesMap = new CachingMap<>();
+        private final CachingMap<String, Set<CategoryOptionCombo>> dataElementCategoryOptionComboMap = new CachingMap<>();
+        private final CachingMap<String, Set<CategoryOptionCombo>> dataElementAttrOptionComboMap = new CachingMap<>();
+        private final CachingMap<String, Boolean> dataElementOrgUnitMap = new CachingMap<>();
+        private final CachingMap<String, Boolean> dataSetLockedMap = new CachingMap<>();
+        private final CachingMap<String, Period> dataElementLatestFuturePeriodMap = new CachingMap<>();
+        private final CachingMap<String, Boolean> orgUnitInHierarchyMap = new CachingMap<>();
+        private final CachingMap<String, DateRange> attrOptionComboDateRangeMap = new CachingMap<>();
+        private final CachingMap<String, Boolean> attrOptionComboOrgUnitMap = new CachingMap<>();
+        private final CachingMap<String, Optional<Set<String>>> dataElementOptionsMap = new CachingMap<>();
+        private final CachingMap<String, Boolean> approvalMap = new CachingMap<>();
+        private final CachingMap<String, Boolean> lowestApprovalLevelMap = new CachingMap<>();
+        private final CachingMap<String, Boolean> periodOpenForDataElement = new CachingMap<>();
+
+        private final IdentifiableObjectCallable<DataElement> dataElementCallable;
+        private final IdentifiableObjectCallable<OrganisationUnit> orgUnitCallable;
+        private final IdentifiableObjectCallable<CategoryOptionCombo> categoryOptionComboCallable;
+        private final IdentifiableObjectCallable<CategoryOptionCombo> attributeOptionComboCallable;
+
+        private DataValueValidator( ValidationSettings settings )
+        {
+            this.settings = settings;
+            this.currentUser = currentUserService.getCurrentUser();
+            this.currentOrgUnits = currentUserService.getCurrentUserOrganisationUnits();
+            this.dataSet = settings.dataSet != null ? identifiableObjectManager.get( DataSet.class, settings.dataSet ) : null;
+            this.dataSetDataElements = dataSet != null ? dataSet.getDataElements() : new HashSet<>();
+            this.outerPeriod = settings.outerPeriod != null ? getPeriod( settings.outerPeriod ) : null;
+            this.outerOrgUnit = settings.outerOrgUnit != null ? identifiableObjectManager.get( OrganisationUnit.class, settings.outerOrgUnit ) : null;
+            this.outerAttrOptionCombo = settings.outerAttrOptionCombo != null ? identifiableObjectManager.get( CategoryOptionCombo.class, settings.outerAttrOptionCombo ) : null;
+            this.fallbackCategoryOptionCombo = categoryService.getDefaultCategoryOptionCombo();
+
+            this.dataElementCallable = new IdentifiableObjectCallable<>(
+                identifiableObjectManager, DataElement.class, settings.dataElementIdScheme, null );
+            this.orgUnitCallable = new IdentifiableObjectCallable<>(
+                identifiableObjectManager, OrganisationUnit.class, settings.orgUnitIdScheme, null );
+            this.categoryOptionComboCallable = new CategoryOptionComboAclCallable(
+                categoryService, settings.categoryOptComboIdScheme, null );
+            this.attributeOptionComboCallable = new CategoryOptionComboAclCallable(
+                categoryService, settings.categoryOptComboIdScheme, null );
+
+            if ( settings.preheatCache )
+            {
+                dataElementMap.load( identifiableObjectManager.getAll( DataElement.class ), o -> o.getPropertyValue( settings.dataElementIdScheme ) );
+                orgUnitMap.load( identifiableObjectManager.getAll( OrganisationUnit.class ), o -> o.getPropertyValue( settings.orgUnitIdScheme ) );
+                optionComboMap.load( identifiableObjectManager.getAll( CategoryOptionCombo.class ), o -> o.getPropertyValue( settings.categoryOptComboIdScheme ) );
             }
+        }
+
+        @Override
+        public void check( CheckedDataValue checkedValue )
+        {
+            org.hisp.dhis.dxf2.datavalue.DataValue dataValue = checkedValue.getDataValue();
+
+            List<ImportConflict> conflicts = checkedValue.getConflicts();
 
-            if ( approvalDataSet != null && !forceDataInput && !approvalDataSet.isDataInputPeriodAndDateAllowed( period, new Date() ) )
+            I18n i18n = settings.i18n;
+
+            final DataElement dataElement =
+                dataElementMap.get( trimToNull( dataValue.getDataElement() ), dataElementCallable.setId( trimToNull( dataValue.getDataElement() ) ) );
+            final Period period = outerPeriod != null ? outerPeriod :
+                periodMap.get( trimToNull( dataValue.getPeriod() ), () -> getPeriod( trimToNull( dataValue.getPeriod() ) ) );
+            final OrganisationUnit orgUnit = outerOrgUnit != null ? outerOrgUnit :
+                orgUnitMap.get( trimToNull( dataValue.getOrgUnit() ), orgUnitCallable.setId( trimToNull( dataValue.getOrgUnit() ) ) );
+            CategoryOptionCombo categoryOptionCombo =
+                optionComboMap.get( trimToNull( dataValue.getCategoryOptionCombo() ), categoryOptionComboCallable.setId( trimToNull( dataValue.getCategoryOptionCombo() ) ) );
+            CategoryOptionCombo attrOptionCombo = outerAttrOptionCombo != null ? outerAttrOptionCombo :
+                optionComboMap.get( trimToNull( dataValue.getAttributeOptionCombo() ), attributeOptionComboCallable.setId( trimToNull( dataValue.getAttributeOptionCombo() ) ) );
+
+            // -----------------------------------------------------------------
+            // Potentially heat caches
+            // -----------------------------------------------------------------
+
+            if ( !dataElementMap.isCacheLoaded() && dataElementMap.getCacheMissCount() > CACHE_MISS_THRESHOLD )
             {
-                summary.getConflicts().add( new ImportConflict( orgUnit.getUid(),
-                    "Period: " + period.getIsoDate() + " is not open for this data set at this time: " + approvalDataSet.getUid() ) );
-                continue;
+                dataElementMap.load( identifiableObjectManager.getAll( DataElement.class ), o -> o.getPropertyValue( settings.dataElementIdScheme ) );
+
+                log.info( "Data element cache heated after cache miss threshold reached" );
             }
 
-            if ( !forceDataInput && !periodOpenForDataElement.get( dataElement.getUid() + period.getIsoDate(), () -> dataElement.isDataInputAllowedForPeriodAndDate( period, new Date() ) ) )
+            if ( !orgUnitMap.isCacheLoaded() && orgUnitMap.getCacheMissCount() > CACHE_MISS_THRESHOLD )
             {
-                summary.getConflicts().add( new ImportConflict( orgUnit.getUid(), "Period " + period.getName() + " does not conform to the open periods of associated data sets" ) );
-                continue;
+                orgUnitMap.load( identifiableObjectManager.getAll( OrganisationUnit.class ), o -> o.getPropertyValue( settings.orgUnitIdScheme ) );
+
+                log.info( "Org unit cache heated after cache miss threshold reached" );
             }
 
-            DataValue actualDataValue = null;
-            if ( strategy.isDelete() && dataElement.isFileType() )
+            if ( !optionComboMap.isCacheLoaded() && optionComboMap.getCacheMissCount() > CACHE_MISS_THRESHOLD )
             {
-                actualDataValue = dataValueService.getDataValue( dataElement, period, orgUnit, categoryOptionCombo, attrOptionCombo );
-                if ( actualDataValue == null )
-                {
-                    summary.getConflicts().add( new ImportConflict( dataElement.getUid(), "No data value for file resource exist for the given combination" ) );
-                    continue;
-                }
+                optionComboMap.load( identifiableObjectManager.getAll( CategoryOptionCombo.class ), o -> o.getPropertyValue(
+                    settings.categoryOptComboIdScheme ) );
+
+                log.info( "Category Option Combo cache heated after cache miss threshold reached" );
             }
 
             // -----------------------------------------------------------------
-            // Create data value
+            // Validation
             // -----------------------------------------------------------------
 
-            DataValue internalValue = new DataValue();
+            if ( dataElement == null )
+            {
+                conflicts.add( new ImportConflict( dataValue.getDataElement(), "Data element not found or not accessible" ) );
+                return;
+            }
 
-            internalValue.setDataElement( dataElement );
-            internalValue.setPeriod( period );
-            internalValue.setSource( orgUnit );
-            internalValue.setCategoryOptionCombo( categoryOptionCombo );
-            internalValue.setAttributeOptionCombo( attrOptionCombo );
-            internalValue.setValue( trimToNull( dataValue.getValue() ) );
-            internalValue.setStoredBy( storedBy );
-            internalValue.setCreated( dataValue.hasCreated() ? parseDate( dataValue.getCreated() ) : now );
-            internalValue.setLastUpdated( dataValue.hasLastUpdated() ? parseDate( dataValue.getLastUpdated() ) : now );
-            internalValue.setComment( trimToNull( dataValue.getComment() ) );
-            internalValue.setFollowup( dataValue.getFollowup() );
-            internalValue.setDeleted( BooleanUtils.isTrue( dataValue.getDeleted() ) );
+            if ( period == null )
+            {
+                conflicts.add( new ImportConflict( dataValue.getPeriod(), "Period not valid" ) );
+                return;
+            }
 
-            // -----------------------------------------------------------------
-            // Save, update or delete data value
-            // -----------------------------------------------------------------
+            if ( orgUnit == null )
+            {
+                conflicts.add( new ImportConflict( dataValue.getOrgUnit(), "Organisation unit not found or not accessible" ) );
+                return;
+            }
 
-            DataValue existingValue = !skipExistingCheck ? dataValueBatchHandler.findObject( internalValue ) : null;
+            if ( categoryOptionCombo == null && trimToNull( dataValue.getCategoryOptionCombo() ) != null )
+            {
+                conflicts.add( new ImportConflict( dataValue.getCategoryOptionCombo(), "Category option combo not found or not accessible for writing data" ) );
+                return;
+            }
 
-            // -----------------------------------------------------------------
-            // Check soft deleted data values on update and import
-            // -----------------------------------------------------------------
+            if ( categoryOptionCombo != null )
+            {
+                List<String> errors = accessManager.canWrite( currentUser, categoryOptionCombo );
+
+                if ( !errors.isEmpty() )
+                {
+                    conflicts.addAll( errors.stream().map( s -> new ImportConflict( "dataValueSet", s ) ).collect( Collectors.toList() ) );
+                    return;
+                }
+            }
 
-            if ( !skipExistingCheck && existingValue != null && !existingValue.isDeleted() )
+            if ( attrOptionCombo == null && trimToNull( dataValue.getAttributeOptionCombo() ) != null )
             {
-                if ( strategy.isCreateAndUpdate() || strategy.isUpdate() )
+                conflicts.add( new ImportConflict( dataValue.getAttributeOptionCombo(), "Attribute option combo not found or not accessible for writing data" ) );
+                return;
+            }
+
+            if ( attrOptionCombo != null )
+            {
+                List<String> errors = accessManager.canWrite( currentUser, attrOptionCombo );
+
+                if ( !errors.isEmpty() )
                 {
-                    AuditType auditType = AuditType.UPDATE;
+                    conflicts.addAll( errors.stream().map( s -> new ImportConflict( "dataValueSet", s ) ).collect( Collectors.toList() ) );
+                    return;
+                }
+            }
 
-                    if ( internalValue.isNullValue() || internalValue.isDeleted() )
-                    {
-                        internalValue.setDeleted( true );
+            boolean inUserHierarchy = orgUnitInHierarchyMap.get( orgUnit.getUid(), () -> orgUnit.isDescendant( currentOrgUnits ) );
 
-                        auditType = AuditType.DELETE;
+            if ( !inUserHierarchy )
+            {
+                conflicts.add( new ImportConflict( orgUnit.getUid(), "Organisation unit not in hierarchy of current user: " + settings.currentUserName ) );
+                return;
+            }
 
-                        deleteCount++;
-                    }
-                    else
-                    {
-                        updateCount++;
-                    }
+            if ( dataValue.isNullValue() && !dataValue.isDeletedValue() )
+            {
+                conflicts.add( new ImportConflict( "Value", "Data value or comment not specified for data element: " + dataElement.getUid() ) );
+                return;
+            }
 
-                    if ( !dryRun )
-                    {
-                        dataValueBatchHandler.updateObject( internalValue );
+            dataValue.setValueForced(
+                ValidationUtils.normalizeBoolean( dataValue.getValue(), dataElement.getValueType() ) );
 
-                        if ( !skipAudit )
-                        {
-                            DataValueAudit auditValue = new DataValueAudit( internalValue, existingValue.getValue(), storedBy, auditType );
+            String valueValid = ValidationUtils.dataValueIsValid( dataValue.getValue(), dataElement );
 
-                            auditBatchHandler.addObject( auditValue );
-                        }
+            if ( valueValid != null )
+            {
+                conflicts.add( new ImportConflict( dataValue.getValue(), i18n.getString( valueValid ) + ", must match data element type: " + dataElement.getUid() ) );
+                return;
+            }
 
-                        if ( dataElement.isFileType() )
-                        {
-                            FileResource fr = fileResourceService.getFileResource( internalValue.getValue() );
+            String commentValid = ValidationUtils.commentIsValid( dataValue.getComment() );
 
-                            fr.setAssigned( true );
+            if ( commentValid != null )
+            {
+                conflicts.add( new ImportConflict( "Comment", i18n.getString( commentValid ) ) );
+                return;
+            }
 
-                            fileResourceService.updateFileResource( fr );
-                        }
+            Optional<Set<String>> optionCodes = dataElementOptionsMap.get( dataElement.getUid(), () -> dataElement.hasOptionSet() ?
+                Optional.of( dataElement.getOptionSet().getOptionCodesAsSet() ) : Optional.empty() );
 
-                    }
+            if ( optionCodes.isPresent() && !optionCodes.get().contains( dataValue.getValue() ) )
+            {
+                conflicts.add( new ImportConflict( dataValue.getValue(), "Data value is not a valid option of the data element option set: " + dataElement.getUid() ) );
+                return;
+            }
+
+            // -----------------------------------------------------------------
+            // Constraints
+            // -----------------------------------------------------------------
+
+            if ( categoryOptionCombo == null )
+            {
+                if ( settings.requireCategoryOptionCombo )
+                {
+                    conflicts.add( new ImportConflict( dataValue.getValue(), "Category option combo is required but is not specified" ) );
+                    return;
                 }
-                else if ( strategy.isDelete() )
+                else
                 {
-                    internalValue.setDeleted( true );
+                    categoryOptionCombo = fallbackCategoryOptionCombo;
+                }
+            }
 
-                    deleteCount++;
+            if ( attrOptionCombo == null )
+            {
+                if ( settings.requireAttrOptionCombo )
+                {
+                    conflicts.add( new ImportConflict( dataValue.getValue(), "Attribute option combo is required but is not specified" ) );
+                    return;
+                }
+                else
+                {
+                    attrOptionCombo = fallbackCategoryOptionCombo;
+                }
+            }
 
-                    if ( !dryRun )
-                    {
-                        if ( dataElement.isFileType() && actualDataValue != null )
-                        {
-                            FileResource fr = fileResourceService.getFileResource( actualDataValue.getValue() );
+            if ( settings.strictPeriods && !dataElementPeriodTypesMap.get( dataElement.getUid(),
+                dataElement::getPeriodTypes ).contains( period.getPeriodType() ) )
+            {
+                conflicts.add( new ImportConflict( dataValue.getPeriod(),
+                    "Period type of period: " + period.getIsoDate() + " not valid for data element: " + dataElement.getUid() ) );
+                return;
+            }
 
-                            fileResourceService.updateFileResource( fr );
-                        }
+            if ( settings.strictDataElements && !dataSetDataElements.contains( dataElement ) )
+            {
+                conflicts.add( new ImportConflict( "DATA_IMPORT_STRICT_DATA_ELEMENTS",
+                    "Data element: " + dataValue.getDataElement() + " is not part of dataset: " + dataSet.getUid() ) );
+                return;
+            }
 
-                        dataValueBatchHandler.updateObject( internalValue );
+            if ( settings.strictCategoryOptionCombos && !dataElementCategoryOptionComboMap.get( dataElement.getUid(),
+                dataElement::getCategoryOptionCombos ).contains( categoryOptionCombo ) )
+            {
+                conflicts.add( new ImportConflict( categoryOptionCombo.getUid(),
+                    "Category option combo: " + categoryOptionCombo.getUid() + " must be part of category combo of data element: " + dataElement.getUid() ) );
+                return;
+            }
 
-                        if ( !skipAudit )
-                        {
-                            DataValueAudit auditValue = new DataValueAudit( internalValue, existingValue.getValue(), storedBy, AuditType.DELETE );
+            if ( settings.strictAttrOptionCombos && !dataElementAttrOptionComboMap.get( dataElement.getUid(),
+                dataElement::getDataSetCategoryOptionCombos ).contains( attrOptionCombo ) )
+            {
+                conflicts.add( new ImportConflict( attrOptionCombo.getUid(),
+                    "Attribute option combo: " + attrOptionCombo.getUid() + " must be part of category combo of data sets of data element: " + dataElement.getUid() ) );
+                return;
+            }
 
-                            auditBatchHandler.addObject( auditValue );
-                        }
-                    }
-                }
+            if ( settings.strictOrgUnits && BooleanUtils.isFalse( dataElementOrgUnitMap.get( dataElement.getUid() + orgUnit.getUid(),
+                () -> orgUnit.hasDataElement( dataElement ) ) ) )
+            {
+                conflicts.add( new ImportConflict( orgUnit.getUid(),
+                    "Data element: " + dataElement.getUid() + " must be assigned through data sets to organisation unit: " + orgUnit.getUid() ) );
+                return;
             }
-            else
+
+            boolean zeroAndInsignificant = ValidationUtils.dataValueIsZeroAndInsignificant( dataValue.getValue(), dataElement );
+
+            if ( zeroAndInsignificant )
             {
-                if ( strategy.isCreateAndUpdate() || strategy.isCreate() )
-                {
-                    if ( !internalValue.isNullValue() ) // Ignore null values
-                    {
-                        if ( existingValue != null && existingValue.isDeleted() )
-                        {
-                            importCount++;
+                checkedValue.setIgnored( true );
+                return; // Ignore value
+            }
 
-                            if ( !dryRun )
-                            {
-                                dataValueBatchHandler.updateObject( internalValue );
+            String storedByValid = ValidationUtils.storedByIsValid( dataValue.getStoredBy() );
 
-                                if ( dataElement.isFileType() )
-                                {
-                                    FileResource fr = fileResourceService.getFileResource( internalValue.getValue() );
+            if ( storedByValid != null )
+            {
+                conflicts.add( new ImportConflict( dataValue.getStoredBy(), i18n.getString( storedByValid ) ) );
+                return;
+            }
 
-                                    fr.setAssigned( true );
+            String storedBy = dataValue.getStoredBy() == null || dataValue.getStoredBy().trim().isEmpty() ? settings.currentUserName : dataValue.getStoredBy();
 
-                                    fileResourceService.updateFileResource( fr );
-                                }
-                            }
-                        }
-                        else
-                        {
-                            boolean added = false;
+            final CategoryOptionCombo aoc = attrOptionCombo;
 
-                            if ( !dryRun )
-                            {
-                                added = dataValueBatchHandler.addObject( internalValue );
+            DateRange aocDateRange = attrOptionComboDateRangeMap.get( attrOptionCombo.getUid(), aoc::getDateRange );
 
-                                if ( added && dataElement.isFileType() )
-                                {
-                                    FileResource fr = fileResourceService.getFileResource( internalValue.getValue() );
+            if ( (aocDateRange.getStartDate() != null && aocDateRange.getStartDate().compareTo( period.getStartDate() ) > 0)
+                || (aocDateRange.getEndDate() != null && aocDateRange.getEndDate().compareTo( period.getEndDate() ) < 0) )
+            {
+                conflicts.add( new ImportConflict( orgUnit.getUid(),
+                    "Period: " + period.getIsoDate() + " is not within date range of attribute option combo: " + attrOptionCombo.getUid() ) );
+                return;
+            }
 
-                                    fr.setAssigned( true );
+            if ( !attrOptionComboOrgUnitMap.get( attrOptionCombo.getUid() + orgUnit.getUid(), () ->
+            {
+                Set<OrganisationUnit> aocOrgUnits = aoc.getOrganisationUnits();
+                return aocOrgUnits == null || orgUnit.isDescendant( aocOrgUnits );
+            } ) )
+            {
+                conflicts.add( new ImportConflict( orgUnit.getUid(),
+                    "Organisation unit: " + orgUnit.getUid() + " is not valid for attribute option combo: " + attrOptionCombo.getUid() ) );
+                return;
+            }
 
-                                    fileResourceService.updateFileResource( fr );
-                                }
-                            }
+            final DataSet approvalDataSet = dataSet != null ? dataSet : dataElementDataSetMap.get( dataElement.getUid(),
+                dataElement::getApprovalDataSet );
 
-                            if ( dryRun || added )
-                            {
-                                importCount++;
-                            }
-                        }
+            if ( approvalDataSet != null && !settings.forceDataInput ) // Data element is assigned to at least one data set
+            {
+                if ( dataSetLockedMap.get( approvalDataSet.getUid() + period.getUid() + orgUnit.getUid(),
+                    () -> isLocked( currentUser, approvalDataSet, period, orgUnit, settings.skipLockExceptionCheck ) ) )
+                {
+                    conflicts.add( new ImportConflict( period.getIsoDate(), "Current date is past expiry days for period " +
+                        period.getIsoDate() + " and data set: " + approvalDataSet.getUid() ) );
+                    return;
+                }
+
+                Period latestFuturePeriod = dataElementLatestFuturePeriodMap.get( dataElement.getUid(), dataElement::getLatestOpenFuturePeriod );
+
+                if ( period.isAfter( latestFuturePeriod ) && settings.isIso8601 )
+                {
+                    conflicts.add( new ImportConflict( period.getIsoDate(), "Period: " +
+                        period.getIsoDate() + " is after latest open future period: " + latestFuturePeriod.getIsoDate() + " for data element: " + dataElement.getUid() ) );
+                    return;
+                }
+
+                DataApprovalWorkflow workflow = approvalDataSet.getWorkflow();
+
+                if ( workflow != null && period.getId() != 0 ) // Approvals only exist for stored periods
+                {
+                    final String workflowPeriodAoc = workflow.getUid() + period.getUid() + attrOptionCombo.getUid();
+
+                    if ( approvalMap.get( orgUnit.getUid() + workflowPeriodAoc, () ->
+                    {
+                        DataApproval lowestApproval = DataApproval.getLowestApproval( new DataApproval( null, workflow, period, orgUnit, aoc ) );
+
+                        return lowestApproval != null && lowestApprovalLevelMap.get(
+                            lowestApproval.getDataApprovalLevel().getUid()
+                                + lowestApproval.getOrganisationUnit().getUid() + workflowPeriodAoc,
+                            () -> approvalService.getDataApproval( lowestApproval ) != null );
+                    } ) )
+                    {
+                        conflicts.add( new ImportConflict( orgUnit.getUid(),
+                            "Data is already approved for data set: " + approvalDataSet.getUid() + " period: " + period.getIsoDate()
+                                + " organisation unit: " + orgUnit.getUid() + " attribute option combo: " + attrOptionCombo.getUid() ) );
+                        return;
                     }
                 }
             }
+
+            if ( approvalDataSet != null && !settings.forceDataInput && !approvalDataSet.isDataInputPeriodAndDateAllowed( period, new Date() ) )
+            {
+                conflicts.add( new ImportConflict( orgUnit.getUid(),
+                    "Period: " + period.getIsoDate() + " is not open for this data set at this time: " + approvalDataSet.getUid() ) );
+                return;
+            }
+
+            if ( !settings.forceDataInput && !periodOpenForDataElement.get( dataElement.getUid() + period.getIsoDate(), () -> dataElement.isDataInputAllowedForPeriodAndDate( period, new Date() ) ) )
+            {
+                conflicts.add( new ImportConflict( orgUnit.getUid(), "Period " + period.getName() + " does not conform to the open periods of associated data sets" ) );
+                return;
+            }
+
+            checkedValue.setResolved( dataElement.getId(), period.getIsoDate(), orgUnit.getId(),
+                categoryOptionCombo.getId(), attrOptionCombo.getId(), storedBy );
         }
+    }
 
-        dataValueBatchHandler.flush();
-        auditBatchHandler.flush();
+    /**
+     * State of a data value import which is shared by the saving of the
+     * individual data values.
+     */
+    private static class ImportContext
+    {
+        private final ImportStrategy strategy;
 
-        int ignores = totalCount - importCount - updateCount - deleteCount;
+        private final boolean dryRun;
 
-        summary.setImportCount( new ImportCount( importCount, updateCount, ignores, deleteCount ) );
-        summary.setStatus( summary.getConflicts().isEmpty() ? ImportStatus.SUCCESS : ImportStatus.WARNING );
-        summary.setDescription( "Import process completed successfully" );
+        private final boolean skipAudit;
 
-        clock.logTime( "Data value import done, total: " + totalCount + ", import: " + importCount + ", update: " + updateCount + ", delete: " + deleteCount );
-        notifier.notify( id, notificationLevel, "Import done", true ).addJobSummary( id, notificationLevel, summary, ImportSummary.class );
+        private final boolean skipExistingCheck;
 
-        dataValueSet.close();
+        /**
+         * Whether to save data values in batches of set-based lookups and
+         * upserts instead of through the data value batch handler.
+         */
+        private final boolean batch;
 
-        return summary;
-    }
+        private final BatchHandler<DataValue> dataValueBatchHandler;
 
-    // -------------------------------------------------------------------------
-    // Supportive methods
-    // -------------------------------------------------------------------------
+        private final BatchHandler<DataValueAudit> auditBatchHandler;
 
-    private void handleComplete( DataSet dataSet, Date completeDate, Period period, OrganisationUnit orgUnit,
-        CategoryOptionCombo attributeOptionCombo, String currentUserName, ImportSummary summary )
-    {
-        if ( orgUnit == null )
-        {
-            summary.getConflicts().add( new ImportConflict( OrganisationUnit.class.getSimpleName(), ERROR_OBJECT_NEEDED_TO_COMPLETE ) );
-            return;
-        }
+        private final ImportCount importCount = new ImportCount();
 
-        if ( period == null )
+        /**
+         * Data values to insert or update with the current batch.
+         */
+        private final Map<DataValue, DataValue> upserts = new LinkedHashMap<>();
+
+        private ImportContext( ImportStrategy strategy, boolean dryRun, boolean skipAudit, boolean skipExistingCheck,
+            boolean batch, BatchHandler<DataValue> dataValueBatchHandler, BatchHandler<DataValueAudit> auditBatchHandler )
         {
-            summary.getConflicts().add( new ImportConflict( Period.class.getSimpleName(), ERROR_OBJECT_NEEDED_TO_COMPLETE ) );
-            return;
+            this.strategy = strategy;
+            this.dryRun = dryRun;
+            this.skipAudit = skipAudit;
+            this.skipExistingCheck = skipExistingCheck;
+            this.batch = batch;
+            this.dataValueBatchHandler = dataValueBatchHandler;
+            this.auditBatchHandler = auditBatchHandler;
         }
 
-        period = periodService.reloadPeriod( period );
-
-        CompleteDataSetRegistration completeAlready = registrationService
-            .getCompleteDataSetRegistration( dataSet, period, orgUnit, attributeOptionCombo );
-
-        if ( completeAlready != null )
+        private boolean addDataValue( DataValue dataValue )
         {
-            // At this point, DataSet is completed. Override, eventual non-completeness
-            completeAlready.setDate( completeDate );
-            completeAlready.setStoredBy( currentUserName );
-            completeAlready.setLastUpdated( new Date() );
-            completeAlready.setLastUpdatedBy( currentUserName );
-            completeAlready.setCompleted( true );
+            if ( batch )
+            {
+                upserts.put( dataValue, dataValue );
+                return true;
+            }
 
-            registrationService.updateCompleteDataSetRegistration( completeAlready );
+            return dataValueBatchHandler.addObject( dataValue );
         }
-        else
+
+        private void updateDataValue( DataValue dataValue )
         {
-            CompleteDataSetRegistration registration = new CompleteDataSetRegistration( dataSet, period, orgUnit,
-                attributeOptionCombo, completeDate, currentUserName, new Date(), currentUserName, true );
+            if ( batch )
+            {
+                upserts.put( dataValue, dataValue );
+                return;
+            }
 
-            registrationService.saveCompleteDataSetRegistration( registration );
+            dataValueBatchHandler.updateObject( dataValue );
         }
-
-        summary.setDataSetComplete( DateUtils.getMediumDateString( completeDate ) );
     }
 
     /**
-     * Checks whether the given data set is locked.
-     *
-     * @param dataSet                the data set.
-     * @param period                 the period.
-     * @param organisationUnit       the organisation unit.
-     * @param skipLockExceptionCheck whether to skip lock exception check.
+     * Validated data value waiting to be saved with the next batch.
      */
-    private boolean isLocked( User user, DataSet dataSet, Period period, OrganisationUnit organisationUnit, boolean skipLockExceptionCheck )
+    private static class PendingDataValue
     {
-        return dataSet.isLocked( user, period, null ) && (skipLockExceptionCheck || lockExceptionStore.getCount( dataSet, period, organisationUnit ) == 0L);
+        private final DataValue internalValue;
+
+        private final DataValue actualDataValue;
+
+        private PendingDataValue( DataValue internalValue, DataValue actualDataValue )
+        {
+            this.internalValue = internalValue;
+            this.actualDataValue = actualDataValue;
+        }
     }
 }
@@ -34,18 +34,25 @@ import static org.hisp.dhis.util.DateUtils.getLongGmtDateString;
 import static org.hisp.dhis.util.DateUtils.getMediumDateString;
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.io.IOException;
 import java.io.OutputStream;
+import java.io.StringReader;
 import java.io.Writer;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import org.hisp.dhis.calendar.Calendar;
 import org.hisp.dhis.common.IdScheme;
 import org.hisp.dhis.common.IdSchemes;
 import org.hisp.dhis.commons.util.TextUtils;
 import org.hisp.dhis.datavalue.DataExportParams;
-import org.hisp.dhis.dxf2.datavalue.DataValue;
+import org.hisp.dhis.datavalue.DataValue;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.period.PeriodType;
 import org.hisp.dhis.system.util.CsvUtils;
@@ -53,6 +60,8 @@ import org.hisp.dhis.user.CurrentUserService;
 import org.hisp.dhis.user.User;
 import org.hisp.dhis.util.DateUtils;
 import org.hisp.staxwax.factory.XMLFactory;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Repository;
@@ -69,6 +78,14 @@ import lombok.extern.slf4j.Slf4j;
 public class SpringDataValueSetStore
     implements DataValueSetStore
 {
+    private static final String COPY_TABLE = "datavalue_copy";
+
+    private static final String DATA_VALUE_KEY_COLUMNS =
+        "dataelementid, periodid, sourceid, categoryoptioncomboid, attributeoptioncomboid";
+
+    private static final String DATA_VALUE_COLUMNS = DATA_VALUE_KEY_COLUMNS +
+        ", value, storedby, created, lastupdated, comment, followup, deleted";
+
     private CurrentUserService currentUserService;
 
     private final JdbcTemplate jdbcTemplate;
@@ -147,6 +164,157 @@ public class SpringDataValueSetStore
         writeDataValueSet( sql, new DataExportParams(), null, dataValueSet );
     }
 
+    @Override
+    public Map<DataValue, DataValue> getExistingDataValues( Collection<DataValue> dataValues )
+    {
+        Map<DataValue, DataValue> existingValues = new HashMap<>();
+
+        if ( dataValues.isEmpty() )
+        {
+            return existingValues;
+        }
+
+        Map<String, DataValue> keyMap = dataValues.stream()
+            .collect( Collectors.toMap( this::getDataValueKey, dv -> dv, ( dv1, dv2 ) -> dv1 ) );
+
+        final String sql =
+            "select dataelementid, periodid, sourceid, categoryoptioncomboid, attributeoptioncomboid, " +
+                "value, storedby, created, lastupdated, comment, followup, deleted " +
+                "from datavalue " +
+                "where (dataelementid, periodid, sourceid, categoryoptioncomboid, attributeoptioncomboid) in (" +
+                keyMap.keySet().stream().map( key -> "(" + key + ")" ).collect( Collectors.joining( "," ) ) + ")";
+
+        jdbcTemplate.query( sql, rs -> {
+            DataValue key = keyMap.get( rs.getLong( "dataelementid" ) + "," + rs.getLong( "periodid" ) + "," +
+                rs.getLong( "sourceid" ) + "," + rs.getLong( "categoryoptioncomboid" ) + "," + rs.getLong( "attributeoptioncomboid" ) );
+
+            if ( key != null )
+            {
+                DataValue dataValue = new DataValue( key.getDataElement(), key.getPeriod(), key.getSource(),
+                    key.getCategoryOptionCombo(), key.getAttributeOptionCombo() );
+
+                dataValue.setValue( rs.getString( "value" ) );
+                dataValue.setStoredBy( rs.getString( "storedby" ) );
+                dataValue.setCreated( rs.getTimestamp( "created" ) );
+                dataValue.setLastUpdated( rs.getTimestamp( "lastupdated" ) );
+                dataValue.setComment( rs.getString( "comment" ) );
+                dataValue.setFollowup( rs.getBoolean( "followup" ) );
+                dataValue.setDeleted( rs.getBoolean( "deleted" ) );
+
+                existingValues.put( key, dataValue );
+            }
+        } );
+
+        log.debug( String.format( "Found %d existing of %d data values", existingValues.size(), dataValues.size() ) );
+
+        return existingValues;
+    }
+
+    @Override
+    public void upsertDataValues( Collection<DataValue> dataValues )
+    {
+        if ( dataValues.isEmpty() )
+        {
+            return;
+        }
+
+        final String sql =
+            "insert into datavalue (dataelementid, periodid, sourceid, categoryoptioncomboid, attributeoptioncomboid, " +
+                "value, storedby, created, lastupdated, comment, followup, deleted) " +
+                "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+                "on conflict (dataelementid, periodid, sourceid, categoryoptioncomboid, attributeoptioncomboid) do update set " +
+                "value = excluded.value, storedby = excluded.storedby, created = excluded.created, " +
+                "lastupdated = excluded.lastupdated, comment = excluded.comment, followup = excluded.followup, " +
+                "deleted = excluded.deleted";
+
+        jdbcTemplate.batchUpdate( sql, dataValues, dataValues.size(), ( ps, dv ) -> {
+            ps.setLong( 1, dv.getDataElement().getId() );
+            ps.setLong( 2, dv.getPeriod().getId() );
+            ps.setLong( 3, dv.getSource().getId() );
+            ps.setLong( 4, dv.getCategoryOptionCombo().getId() );
+            ps.setLong( 5, dv.getAttributeOptionCombo().getId() );
+            ps.setString( 6, dv.getValue() );
+            ps.setString( 7, dv.getStoredBy() );
+            ps.setTimestamp( 8, dv.getCreated() != null ? new Timestamp( dv.getCreated().getTime() ) : null );
+            ps.setTimestamp( 9, dv.getLastUpdated() != null ? new Timestamp( dv.getLastUpdated().getTime() ) : null );
+            ps.setString( 10, dv.getComment() );
+            ps.setBoolean( 11, dv.isFollowup() );
+            ps.setBoolean( 12, dv.isDeleted() );
+        } );
+
+        log.debug( String.format( "Upserted %d data values", dataValues.size() ) );
+    }
+
+    @Override
+    public void copyDataValues( Collection<DataValue> dataValues )
+    {
+        if ( dataValues.isEmpty() )
+        {
+            return;
+        }
+
+        createCopyTable();
+
+        StringBuilder csv = new StringBuilder();
+
+        for ( DataValue dv : dataValues )
+        {
+            csv.append( dv.getDataElement().getId() ).append( ',' )
+                .append( dv.getPeriod().getId() ).append( ',' )
+                .append( dv.getSource().getId() ).append( ',' )
+                .append( dv.getCategoryOptionCombo().getId() ).append( ',' )
+                .append( dv.getAttributeOptionCombo().getId() ).append( ',' )
+                .append( getCsvValue( dv.getValue() ) ).append( ',' )
+                .append( getCsvValue( dv.getStoredBy() ) ).append( ',' )
+                .append( getCsvValue( DateUtils.getLongDateString( dv.getCreated() ) ) ).append( ',' )
+                .append( getCsvValue( DateUtils.getLongDateString( dv.getLastUpdated() ) ) ).append( ',' )
+                .append( getCsvValue( dv.getComment() ) ).append( ',' )
+                .append( dv.isFollowup() ).append( ',' )
+                .append( dv.isDeleted() ).append( '\n' );
+        }
+
+        final String sql = "copy " + COPY_TABLE + " (" + DATA_VALUE_COLUMNS + ") from stdin with (format csv)";
+
+        Long copied = jdbcTemplate.execute( (ConnectionCallback<Long>) connection ->
+        {
+            try
+            {
+                return connection.unwrap( PGConnection.class ).getCopyAPI().copyIn( sql, new StringReader( csv.toString() ) );
+            }
+            catch ( IOException ex )
+            {
+                throw new SQLException( "Failed to copy data values", ex );
+            }
+        } );
+
+        log.debug( String.format( "Copied %d data values", copied ) );
+    }
+
+    @Override
+    public int mergeCopiedDataValues()
+    {
+        final String sql =
+            "insert into datavalue (" + DATA_VALUE_COLUMNS + ") " +
+                "select distinct on (" + DATA_VALUE_KEY_COLUMNS + ") " + DATA_VALUE_COLUMNS + " " +
+                "from " + COPY_TABLE + " " +
+                "order by " + DATA_VALUE_KEY_COLUMNS + ", copyorder " +
+                "on conflict (" + DATA_VALUE_KEY_COLUMNS + ") do update set " +
+                "value = excluded.value, storedby = excluded.storedby, created = excluded.created, " +
+                "lastupdated = excluded.lastupdated, comment = excluded.comment, followup = excluded.followup, " +
+                "deleted = excluded.deleted " +
+                "where datavalue.deleted = true";
+
+        createCopyTable();
+
+        int merged = jdbcTemplate.update( sql );
+
+        jdbcTemplate.execute( "drop table " + COPY_TABLE );
+
+        log.debug( String.format( "Merged %d copied data values", merged ) );
+
+        return merged;
+    }
+
     private String buildDataValueSql( Date lastUpdated, IdSchemes idSchemes )
     {
         String deScheme = idSchemes.getDataElementIdScheme().getIdentifiableString().toLowerCase();
@@ -190,7 +358,7 @@ public class SpringDataValueSetStore
             @Override
             public void processRow( ResultSet rs ) throws SQLException
             {
-                DataValue dataValue = dataValueSet.getDataValueInstance();
+                org.hisp.dhis.dxf2.datavalue.DataValue dataValue = dataValueSet.getDataValueInstance();
                 PeriodType pt = PeriodType.getPeriodTypeByName( rs.getString( "ptname" ) );
                 boolean deleted = rs.getBoolean( "deleted" );
 
@@ -222,6 +390,41 @@ public class SpringDataValueSetStore
     // Supportive methods
     //--------------------------------------------------------------------------
 
+    /**
+     * Creates the staging table for copied data values for the current
+     * transaction unless it exists. The copy order column keeps the order in
+     * which data values were copied.
+     */
+    private void createCopyTable()
+    {
+        jdbcTemplate.execute( "create temporary table if not exists " + COPY_TABLE + " " +
+            "(like datavalue, copyorder bigserial) on commit drop" );
+    }
+
+    /**
+     * Returns the given value as a quoted CSV value for the PostgreSQL COPY
+     * CSV format, where an unquoted empty value represents null.
+     *
+     * @param value the value.
+     */
+    private String getCsvValue( String value )
+    {
+        return value != null ? "\"" + value.replace( "\"", "\"\"" ) + "\"" : "";
+    }
+
+    /**
+     * Returns the primary key of the given data value as a comma separated
+     * string of identifiers.
+     *
+     * @param dataValue the {@link DataValue}.
+     */
+    private String getDataValueKey( DataValue dataValue )
+    {
+        return dataValue.getDataElement().getId() + "," + dataValue.getPeriod().getId() + "," +
+            dataValue.getSource().getId() + "," + dataValue.getCategoryOptionCombo().getId() + "," +
+            dataValue.getAttributeOptionCombo().getId();
+    }
+
     private String getDataValueSql( DataExportParams params )
     {
         Preconditions.checkArgument( !params.getAllDataElements().isEmpty() );
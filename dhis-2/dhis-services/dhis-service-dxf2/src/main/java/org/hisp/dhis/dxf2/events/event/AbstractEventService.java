@@ -141,6 +141,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import static org.hisp.dhis.dxf2.events.event.EventSearchParams.*;
@@ -675,6 +677,40 @@ public abstract class AbstractEventService
         return events;
     }
 
+    @Transactional( readOnly = true )
+    @Override
+    public int streamEvents( EventSearchParams params, Consumer<Event> consumer )
+    {
+        validate( params );
+
+        List<OrganisationUnit> organisationUnits = getOrganisationUnits( params );
+
+        User user = currentUserService.getCurrentUser();
+
+        params.handleCurrentUserSelectionMode( user );
+
+        AtomicInteger count = new AtomicInteger();
+
+        eventStore.getEvents( params, organisationUnits, Collections.emptyMap(), event -> {
+            TrackedEntityInstance entityInstance = entityInstanceService.getTrackedEntityInstance( event.getTrackedEntityInstance() );
+
+            boolean hasAccess = trackerOwnershipAccessManager.hasAccess( user, entityInstance, programService.getProgram( event.getProgram() ) );
+
+            if ( entityInstance != null )
+            {
+                manager.evict( entityInstance ); // Keep session size independent of number of events
+            }
+
+            if ( hasAccess )
+            {
+                consumer.accept( event );
+                count.incrementAndGet();
+            }
+        } );
+
+        return count.get();
+    }
+
     @Transactional( readOnly = true )
     @Override
     public Grid getEventsGrid( EventSearchParams params )
@@ -49,6 +49,7 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * @author Morten Olav Hansen <mortenoh@gmail.com>
@@ -61,6 +62,17 @@ public interface EventService
 
     Events getEvents( EventSearchParams params );
 
+    /**
+     * Streams the events matching the given parameters to the given consumer
+     * one at a time, without holding the result in memory. Paging is applied
+     * only if requested explicitly.
+     *
+     * @param params the {@link EventSearchParams}.
+     * @param consumer the consumer of events.
+     * @return the number of events passed to the consumer.
+     */
+    int streamEvents( EventSearchParams params, Consumer<Event> consumer );
+
     EventRows getEventRows( EventSearchParams params );
 
     EventSearchParams getFromUrl( String program, String programStage, ProgramStatus programStatus, Boolean followUp,
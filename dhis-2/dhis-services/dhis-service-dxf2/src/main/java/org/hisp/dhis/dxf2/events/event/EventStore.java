@@ -31,6 +31,7 @@ package org.hisp.dhis.dxf2.events.event;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import org.hisp.dhis.dxf2.events.report.EventRow;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
@@ -42,6 +43,21 @@ public interface EventStore
 {
     List<Event> getEvents( EventSearchParams params, List<OrganisationUnit> organisationUnits, Map<String, Set<String>> psdesWithSkipSyncTrue );
 
+    /**
+     * Reads events through a server-side cursor and passes each event to the
+     * given consumer as soon as it has been read, so that memory usage does
+     * not depend on the number of events. The cursor is only used within a
+     * transaction.
+     *
+     * @param params the {@link EventSearchParams}.
+     * @param organisationUnits the organisation units to read events for.
+     * @param psdesWithSkipSyncTrue program stage data elements to skip for synchronization.
+     * @param consumer the consumer of events.
+     * @return the number of events passed to the consumer.
+     */
+    int getEvents( EventSearchParams params, List<OrganisationUnit> organisationUnits, Map<String, Set<String>> psdesWithSkipSyncTrue,
+        Consumer<Event> consumer );
+
     List<Map<String, String>> getEventsGrid( EventSearchParams params, List<OrganisationUnit> organisationUnits );
 
     List<EventRow> getEventRows( EventSearchParams params, List<OrganisationUnit> organisationUnits );
@@ -36,7 +36,10 @@ import static org.hisp.dhis.dxf2.events.event.EventSearchParams.*;
 import static org.hisp.dhis.util.DateUtils.*;
 
 import java.io.IOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.StringUtils;
@@ -65,6 +68,7 @@ import org.hisp.dhis.util.DateUtils;
 import org.hisp.dhis.util.ObjectUtils;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.rowset.ResultSetWrappingSqlRowSet;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Repository;
 
@@ -103,6 +107,10 @@ public class JdbcEventStore
     private static final ObjectReader eventDataValueJsonReader =
         JsonEventDataValueSetBinaryType.MAPPER.readerFor( new TypeReference<Map<String, EventDataValue>>() {} );
 
+    private static final int STREAM_FETCH_SIZE = 1000;
+
+    private static final int STREAM_BLOCK_SIZE = 500;
+
     private final StatementBuilder statementBuilder;
 
     private final JdbcTemplate jdbcTemplate;
@@ -136,14 +144,7 @@ public class JdbcEventStore
 
         boolean isSuperUser = isSuper( user );
 
-        if ( !isSuperUser )
-        {
-            params.setAccessiblePrograms( manager.getDataReadAll( Program.class )
-                .stream().map( Program::getUid ).collect( Collectors.toSet() ) );
-
-            params.setAccessibleProgramStages( manager.getDataReadAll( ProgramStage.class )
-                .stream().map( ProgramStage::getUid ).collect( Collectors.toSet() ) );
-        }
+        setAccessibleProgramsAndStages( params, isSuperUser );
 
         Map<String, Event> eventUidToEventMap = new HashMap<>( params.getPageSizeWithDefault() );
         List<Event> events = new ArrayList<>();
@@ -168,135 +169,265 @@ public class JdbcEventStore
 
             if ( !eventUidToEventMap.containsKey( psiUid ) )
             {
-                validateIdentifiersPresence( rowSet, params.getIdSchemes(), true );
-
-                event = new Event();
+                event = createEvent( rowSet, params, user );
                 eventUidToEventMap.put( psiUid, event );
 
-                if ( !params.isSkipEventId() )
-                {
-                    event.setUid( psiUid );
-                    event.setEvent( psiUid );
-                }
+                events.add( event );
+            }
+            else
+            {
+                event = eventUidToEventMap.get( psiUid );
+                addAttributeCategoryOptions( event, rowSet );
+            }
 
-                event.setTrackedEntityInstance( rowSet.getString( "tei_uid" ) );
-                event.setStatus( EventStatus.valueOf( rowSet.getString( "psi_status" ) ) );
+            addDataValuesAndNotes( event, rowSet, params, psdesWithSkipSyncTrue, notes );
+        }
 
-                event.setProgram( rowSet.getString( "p_identifier" ) );
-                event.setProgramStage( rowSet.getString( "ps_identifier" ) );
-                event.setOrgUnit( rowSet.getString( "ou_identifier" ) );
-                event.setDeleted( rowSet.getBoolean( "psi_deleted" ) );
+        return getAccessibleEvents( events, params, user, new CachingMap<>() );
+    }
 
-                ProgramType programType = ProgramType.fromValue( rowSet.getString( "p_type" ) );
+    @Override
+    public int getEvents( EventSearchParams params, List<OrganisationUnit> organisationUnits, Map<String, Set<String>> psdesWithSkipSyncTrue,
+        Consumer<Event> consumer )
+    {
+        User user = currentUserService.getCurrentUser();
 
-                if ( programType != ProgramType.WITHOUT_REGISTRATION )
-                {
-                    event.setEnrollment( rowSet.getString( "pi_uid" ) );
-                    event.setEnrollmentStatus( EnrollmentStatus
-                        .fromProgramStatus( ProgramStatus.valueOf( rowSet.getString( "pi_status" ) ) ) );
-                    event.setFollowup( rowSet.getBoolean( "pi_followup" ) );
-                }
+        boolean isSuperUser = isSuper( user );
 
-                if ( params.getCategoryOptionCombo() == null && !isSuper( user ) )
-                {
-                    event.setOptionSize( rowSet.getInt( "option_size" ) );
-                }
+        setAccessibleProgramsAndStages( params, isSuperUser );
+
+        // Rows of an event must be adjacent, order on event identifier last
+
+        String sql = buildSql( params, organisationUnits, user ) + ", psi_id";
 
-                event.setAttributeOptionCombo( rowSet.getString( "coc_identifier" ) );
-                event.setAttributeCategoryOptions( rowSet.getString( "deco_uid" ) );
-                event.setTrackedEntityInstance( rowSet.getString( "tei_uid" ) );
+        log.debug( "Event stream query SQL: " + sql );
 
-                event.setStoredBy( rowSet.getString( "psi_storedby" ) );
-                event.setOrgUnitName( rowSet.getString( "ou_name" ) );
-                event.setDueDate( DateUtils.getIso8601NoTz( rowSet.getDate( "psi_duedate" ) ) );
-                event.setEventDate( DateUtils.getIso8601NoTz( rowSet.getDate( "psi_executiondate" ) ) );
-                event.setCreated( DateUtils.getIso8601NoTz( rowSet.getDate( "psi_created" ) ) );
-                event.setLastUpdated( DateUtils.getIso8601NoTz( rowSet.getDate( "psi_lastupdated" ) ) );
+        CachingMap<String, String> dataElementUidToIdentifierCache = new CachingMap<>();
 
-                event.setCompletedBy( rowSet.getString( "psi_completedby" ) );
-                event.setCompletedDate( DateUtils.getIso8601NoTz( rowSet.getDate( "psi_completeddate" ) ) );
+        return jdbcTemplate.query( connection -> {
+            PreparedStatement statement = connection.prepareStatement( sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY );
+            statement.setFetchSize( STREAM_FETCH_SIZE );
+            return statement;
+        }, resultSet -> {
+            SqlRowSet rowSet = new ResultSetWrappingSqlRowSet( resultSet );
 
-                if ( rowSet.getObject( "psi_geometry" ) != null )
+            List<Event> events = new ArrayList<>( STREAM_BLOCK_SIZE );
+            Set<String> notes = new HashSet<>();
+            Event event = null;
+            int count = 0;
+
+            while ( rowSet.next() )
+            {
+                if ( rowSet.getString( "psi_uid" ) == null || (params.getCategoryOptionCombo() == null && !isSuperUser && !userHasAccess( rowSet )) )
                 {
-                    try
-                    {
-                        Geometry geom = new WKTReader().read( rowSet.getString( "psi_geometry" ) );
+                    continue;
+                }
 
-                        event.setGeometry( geom );
-                        event.setCoordinate( new Coordinate( geom.getCoordinate().x, geom.getCoordinate().y ) );
-                    }
-                    catch ( ParseException e )
+                if ( event == null || !rowSet.getString( "psi_uid" ).equals( event.getUid() ) )
+                {
+                    if ( events.size() >= STREAM_BLOCK_SIZE )
                     {
-                        log.error( "Unable to read geometry for event '" + event.getUid() + "': ", e );
+                        count += consumeEvents( events, params, user, dataElementUidToIdentifierCache, consumer );
                     }
-                }
 
-                if ( rowSet.getObject( "user_assigned" ) != null )
+                    event = createEvent( rowSet, params, user );
+                    event.setUid( rowSet.getString( "psi_uid" ) );
+                    notes.clear();
+
+                    events.add( event );
+                }
+                else
                 {
-                    event.setAssignedUser( rowSet.getString( "user_assigned" ) );
-                    event.setAssignedUserUsername( rowSet.getString( "user_assigned_username" ) );
+                    addAttributeCategoryOptions( event, rowSet );
                 }
 
-                events.add( event );
+                addDataValuesAndNotes( event, rowSet, params, psdesWithSkipSyncTrue, notes );
             }
-            else
+
+            count += consumeEvents( events, params, user, dataElementUidToIdentifierCache, consumer );
+
+            return count;
+        } );
+    }
+
+    /**
+     * Passes the accessible events of the given block to the consumer and
+     * clears the block. Events are held in blocks so that data element
+     * identifiers can be resolved in bulk.
+     *
+     * @return the number of events passed to the consumer.
+     */
+    private int consumeEvents( List<Event> events, EventSearchParams params, User user,
+        CachingMap<String, String> dataElementUidToIdentifierCache, Consumer<Event> consumer )
+    {
+        List<Event> accessibleEvents = getAccessibleEvents( events, params, user, dataElementUidToIdentifierCache );
+
+        for ( Event event : accessibleEvents )
+        {
+            if ( params.isSkipEventId() )
             {
-                event = eventUidToEventMap.get( psiUid );
-                String attributeCategoryCombination = event.getAttributeCategoryOptions();
-                String currentAttributeCategoryCombination = rowSet.getString( "deco_uid" );
+                event.setUid( null );
+            }
 
-                if ( !attributeCategoryCombination.contains( currentAttributeCategoryCombination ) )
-                {
-                    event.setAttributeCategoryOptions(
-                        attributeCategoryCombination + ";" + currentAttributeCategoryCombination );
-                }
+            consumer.accept( event );
+        }
+
+        events.clear();
+
+        return accessibleEvents.size();
+    }
+
+    private void setAccessibleProgramsAndStages( EventSearchParams params, boolean isSuperUser )
+    {
+        if ( !isSuperUser )
+        {
+            params.setAccessiblePrograms( manager.getDataReadAll( Program.class )
+                .stream().map( Program::getUid ).collect( Collectors.toSet() ) );
+
+            params.setAccessibleProgramStages( manager.getDataReadAll( ProgramStage.class )
+                .stream().map( ProgramStage::getUid ).collect( Collectors.toSet() ) );
+        }
+    }
+
+    private Event createEvent( SqlRowSet rowSet, EventSearchParams params, User user )
+    {
+        validateIdentifiersPresence( rowSet, params.getIdSchemes(), true );
+
+        Event event = new Event();
+
+        if ( !params.isSkipEventId() )
+        {
+            event.setUid( rowSet.getString( "psi_uid" ) );
+            event.setEvent( rowSet.getString( "psi_uid" ) );
+        }
+
+        event.setTrackedEntityInstance( rowSet.getString( "tei_uid" ) );
+        event.setStatus( EventStatus.valueOf( rowSet.getString( "psi_status" ) ) );
+
+        event.setProgram( rowSet.getString( "p_identifier" ) );
+        event.setProgramStage( rowSet.getString( "ps_identifier" ) );
+        event.setOrgUnit( rowSet.getString( "ou_identifier" ) );
+        event.setDeleted( rowSet.getBoolean( "psi_deleted" ) );
+
+        ProgramType programType = ProgramType.fromValue( rowSet.getString( "p_type" ) );
+
+        if ( programType != ProgramType.WITHOUT_REGISTRATION )
+        {
+            event.setEnrollment( rowSet.getString( "pi_uid" ) );
+            event.setEnrollmentStatus( EnrollmentStatus
+                .fromProgramStatus( ProgramStatus.valueOf( rowSet.getString( "pi_status" ) ) ) );
+            event.setFollowup( rowSet.getBoolean( "pi_followup" ) );
+        }
+
+        if ( params.getCategoryOptionCombo() == null && !isSuper( user ) )
+        {
+            event.setOptionSize( rowSet.getInt( "option_size" ) );
+        }
+
+        event.setAttributeOptionCombo( rowSet.getString( "coc_identifier" ) );
+        event.setAttributeCategoryOptions( rowSet.getString( "deco_uid" ) );
+        event.setTrackedEntityInstance( rowSet.getString( "tei_uid" ) );
+
+        event.setStoredBy( rowSet.getString( "psi_storedby" ) );
+        event.setOrgUnitName( rowSet.getString( "ou_name" ) );
+        event.setDueDate( DateUtils.getIso8601NoTz( rowSet.getDate( "psi_duedate" ) ) );
+        event.setEventDate( DateUtils.getIso8601NoTz( rowSet.getDate( "psi_executiondate" ) ) );
+        event.setCreated( DateUtils.getIso8601NoTz( rowSet.getDate( "psi_created" ) ) );
+        event.setLastUpdated( DateUtils.getIso8601NoTz( rowSet.getDate( "psi_lastupdated" ) ) );
+
+        event.setCompletedBy( rowSet.getString( "psi_completedby" ) );
+        event.setCompletedDate( DateUtils.getIso8601NoTz( rowSet.getDate( "psi_completeddate" ) ) );
+
+        if ( rowSet.getObject( "psi_geometry" ) != null )
+        {
+            try
+            {
+                Geometry geom = new WKTReader().read( rowSet.getString( "psi_geometry" ) );
+
+                event.setGeometry( geom );
+                event.setCoordinate( new Coordinate( geom.getCoordinate().x, geom.getCoordinate().y ) );
+            }
+            catch ( ParseException e )
+            {
+                log.error( "Unable to read geometry for event '" + event.getUid() + "': ", e );
             }
+        }
 
-            if ( !org.springframework.util.StringUtils.isEmpty( rowSet.getString( "psi_eventdatavalues" ) ) )
+        if ( rowSet.getObject( "user_assigned" ) != null )
+        {
+            event.setAssignedUser( rowSet.getString( "user_assigned" ) );
+            event.setAssignedUserUsername( rowSet.getString( "user_assigned_username" ) );
+        }
+
+        return event;
+    }
+
+    private void addAttributeCategoryOptions( Event event, SqlRowSet rowSet )
+    {
+        String attributeCategoryCombination = event.getAttributeCategoryOptions();
+        String currentAttributeCategoryCombination = rowSet.getString( "deco_uid" );
+
+        if ( !attributeCategoryCombination.contains( currentAttributeCategoryCombination ) )
+        {
+            event.setAttributeCategoryOptions(
+                attributeCategoryCombination + ";" + currentAttributeCategoryCombination );
+        }
+    }
+
+    private void addDataValuesAndNotes( Event event, SqlRowSet rowSet, EventSearchParams params,
+        Map<String, Set<String>> psdesWithSkipSyncTrue, Set<String> notes )
+    {
+        if ( !org.springframework.util.StringUtils.isEmpty( rowSet.getString( "psi_eventdatavalues" ) ) )
+        {
+            Set<EventDataValue> eventDataValues = convertEventDataValueJsonIntoSet( rowSet.getString( "psi_eventdatavalues" ) );
+
+            for( EventDataValue dv : eventDataValues )
             {
-                Set<EventDataValue> eventDataValues = convertEventDataValueJsonIntoSet( rowSet.getString( "psi_eventdatavalues" ) );
+                DataValue dataValue = convertEventDataValueIntoDtoDataValue( dv );
 
-                for( EventDataValue dv : eventDataValues )
+                if ( params.isSynchronizationQuery() )
                 {
-                    DataValue dataValue = convertEventDataValueIntoDtoDataValue( dv );
-
-                    if ( params.isSynchronizationQuery() )
+                    if ( psdesWithSkipSyncTrue.containsKey( rowSet.getString( "ps_uid" ) ) &&
+                        psdesWithSkipSyncTrue.get( rowSet.getString( "ps_uid" ) ).contains( dv.getDataElement() ) )
                     {
-                        if ( psdesWithSkipSyncTrue.containsKey( rowSet.getString( "ps_uid" ) ) &&
-                            psdesWithSkipSyncTrue.get( rowSet.getString( "ps_uid" ) ).contains( dv.getDataElement() ) )
-                        {
-                            dataValue.setSkipSynchronization( true );
-                        }
-                        else
-                        {
-                            dataValue.setSkipSynchronization( false );
-                        }
+                        dataValue.setSkipSynchronization( true );
+                    }
+                    else
+                    {
+                        dataValue.setSkipSynchronization( false );
                     }
-
-                    event.getDataValues().add( dataValue );
                 }
+
+                event.getDataValues().add( dataValue );
             }
+        }
 
-            if ( rowSet.getString( "psinote_value" ) != null && !notes.contains( rowSet.getString( "psinote_id" ) ) )
-            {
-                Note note = new Note();
-                note.setNote( rowSet.getString( "psinote_uid" ) );
-                note.setValue( rowSet.getString( "psinote_value" ) );
-                note.setStoredDate( DateUtils.getIso8601NoTz( rowSet.getDate( "psinote_storeddate" ) ) );
-                note.setStoredBy( rowSet.getString( "psinote_storedby" ) );
+        if ( rowSet.getString( "psinote_value" ) != null && !notes.contains( rowSet.getString( "psinote_id" ) ) )
+        {
+            Note note = new Note();
+            note.setNote( rowSet.getString( "psinote_uid" ) );
+            note.setValue( rowSet.getString( "psinote_value" ) );
+            note.setStoredDate( DateUtils.getIso8601NoTz( rowSet.getDate( "psinote_storeddate" ) ) );
+            note.setStoredBy( rowSet.getString( "psinote_storedby" ) );
 
-                event.getNotes().add( note );
-                notes.add( rowSet.getString( "psinote_id" ) );
-            }
+            event.getNotes().add( note );
+            notes.add( rowSet.getString( "psinote_id" ) );
         }
+    }
 
+    /**
+     * Converts data element identifiers of the given events according to the
+     * data element identifier scheme, and filters out events for which the
+     * user does not have access to all attribute category options.
+     */
+    private List<Event> getAccessibleEvents( List<Event> events, EventSearchParams params, User user,
+        CachingMap<String, String> dataElementUidToIdentifierCache )
+    {
         IdSchemes idSchemes = ObjectUtils.firstNonNull( params.getIdSchemes(), new IdSchemes() );
         IdScheme dataElementIdScheme = idSchemes.getDataElementIdScheme();
 
         if ( dataElementIdScheme != IdScheme.ID && dataElementIdScheme != IdScheme.UID )
         {
-            CachingMap<String, String> dataElementUidToIdentifierCache = new CachingMap<>();
-
             List<Collection<DataValue>> dataValuesList = events.stream().map( Event::getDataValues ).collect( Collectors.toList() );
             populateCache( dataElementIdScheme, dataValuesList, dataElementUidToIdentifierCache );
             convertDataValuesIdentifiers( dataElementIdScheme, dataValuesList, dataElementUidToIdentifierCache );
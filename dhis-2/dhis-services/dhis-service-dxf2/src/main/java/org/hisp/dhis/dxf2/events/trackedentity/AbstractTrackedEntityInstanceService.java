@@ -152,6 +152,8 @@ public abstract class AbstractTrackedEntityInstanceService
 
     protected ObjectMapper xmlMapper;
 
+    protected TrackedEntityInstanceAggregateLoader aggregateLoader;
+
     private final CachingMap<String, OrganisationUnit> organisationUnitCache = new CachingMap<>();
 
     private final CachingMap<String, Program> programCache = new CachingMap<>();
@@ -191,6 +193,8 @@ public abstract class AbstractTrackedEntityInstanceService
         List<org.hisp.dhis.trackedentity.TrackedEntityInstance> daoTEIs = teiService
             .getTrackedEntityInstances( queryParams, skipAccessValidation );
 
+        aggregateLoader.load( daoTEIs, params );
+
         List<TrackedEntityInstance> dtoTeis = new ArrayList<>();
         User user = currentUserService.getCurrentUser();
 
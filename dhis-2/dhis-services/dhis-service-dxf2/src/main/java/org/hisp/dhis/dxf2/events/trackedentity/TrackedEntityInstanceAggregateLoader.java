@@ -0,0 +1,206 @@
+package org.hisp.dhis.dxf2.events.trackedentity;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import com.google.common.collect.Lists;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hisp.dhis.common.IdentifiableObject;
+import org.hisp.dhis.dxf2.events.TrackedEntityInstanceParams;
+import org.hisp.dhis.system.util.Clock;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Initializes the associations of a page of tracked entity instances which
+ * are walked when converting them to the export representation.
+ * <p>
+ * Each association is fetched for the whole page with a single join fetch
+ * query, which populates the collections of the instances held by the current
+ * session. The number of queries is hence fixed per page instead of growing
+ * with the number of instances, enrollments and events.
+ *
+ * @see AbstractTrackedEntityInstanceService#getTrackedEntityInstances
+ */
+@Slf4j
+@Component( "org.hisp.dhis.dxf2.events.trackedentity.TrackedEntityInstanceAggregateLoader" )
+public class TrackedEntityInstanceAggregateLoader
+{
+    /**
+     * Max number of identifiers per query, keeps the parameter list well
+     * below the bind variable limit of the JDBC drivers.
+     */
+    private static final int PARTITION_SIZE = 10000;
+
+    private static final String TEI_ATTRIBUTE_VALUES_HQL =
+        "select tei from TrackedEntityInstance tei " +
+        "left join fetch tei.trackedEntityAttributeValues " +
+        "where tei.id in (:ids)";
+
+    private static final String TEI_PROGRAM_OWNERS_HQL =
+        "select tei from TrackedEntityInstance tei " +
+        "left join fetch tei.programOwners " +
+        "where tei.id in (:ids)";
+
+    private static final String TEI_RELATIONSHIPS_HQL =
+        "select tei from TrackedEntityInstance tei " +
+        "left join fetch tei.relationshipItems ri " +
+        "left join fetch ri.relationship r " +
+        "left join fetch r.from " +
+        "left join fetch r.to " +
+        "where tei.id in (:ids)";
+
+    private static final String TEI_ENROLLMENTS_HQL =
+        "select tei from TrackedEntityInstance tei " +
+        "left join fetch tei.programInstances " +
+        "where tei.id in (:ids)";
+
+    private static final String ENROLLMENT_NOTES_HQL =
+        "select pi from ProgramInstance pi " +
+        "left join fetch pi.comments " +
+        "where pi.entityInstance.id in (:ids)";
+
+    private static final String ENROLLMENT_RELATIONSHIPS_HQL =
+        "select pi from ProgramInstance pi " +
+        "left join fetch pi.relationshipItems ri " +
+        "left join fetch ri.relationship r " +
+        "left join fetch r.from " +
+        "left join fetch r.to " +
+        "where pi.entityInstance.id in (:ids)";
+
+    private static final String ENROLLMENT_EVENTS_HQL =
+        "select pi from ProgramInstance pi " +
+        "left join fetch pi.programStageInstances psi " +
+        "where pi.entityInstance.id in (:ids) " +
+        "order by psi.executionDate, psi.dueDate";
+
+    private static final String EVENT_NOTES_HQL =
+        "select psi from ProgramStageInstance psi " +
+        "left join fetch psi.comments " +
+        "where psi.programInstance.entityInstance.id in (:ids)";
+
+    private static final String EVENT_RELATIONSHIPS_HQL =
+        "select psi from ProgramStageInstance psi " +
+        "left join fetch psi.relationshipItems ri " +
+        "left join fetch ri.relationship r " +
+        "left join fetch r.from " +
+        "left join fetch r.to " +
+        "where psi.programInstance.entityInstance.id in (:ids)";
+
+    private final SessionFactory sessionFactory;
+
+    public TrackedEntityInstanceAggregateLoader( SessionFactory sessionFactory )
+    {
+        checkNotNull( sessionFactory );
+
+        this.sessionFactory = sessionFactory;
+    }
+
+    /**
+     * Initializes the associations of the given tracked entity instances which
+     * are included in the export according to the given parameters. The
+     * instances must be attached to the current session.
+     *
+     * @param trackedEntityInstances the tracked entity instances.
+     * @param params the parameters describing the associations to include.
+     */
+    public void load( List<org.hisp.dhis.trackedentity.TrackedEntityInstance> trackedEntityInstances,
+        TrackedEntityInstanceParams params )
+    {
+        if ( trackedEntityInstances == null || trackedEntityInstances.isEmpty() )
+        {
+            return;
+        }
+
+        Clock clock = new Clock().startClock();
+
+        List<Long> ids = trackedEntityInstances.stream()
+            .map( IdentifiableObject::getId )
+            .distinct()
+            .collect( Collectors.toList() );
+
+        for ( List<Long> partition : Lists.partition( ids, PARTITION_SIZE ) )
+        {
+            load( partition, params );
+        }
+
+        log.debug( String.format( "Loaded associations of %d tracked entity instances in %s", ids.size(), clock.time() ) );
+    }
+
+    private void load( List<Long> ids, TrackedEntityInstanceParams params )
+    {
+        fetch( TEI_ATTRIBUTE_VALUES_HQL, ids );
+
+        if ( params.isIncludeProgramOwners() )
+        {
+            fetch( TEI_PROGRAM_OWNERS_HQL, ids );
+        }
+
+        if ( params.isIncludeRelationships() )
+        {
+            fetch( TEI_RELATIONSHIPS_HQL, ids );
+        }
+
+        if ( params.isIncludeEnrollments() )
+        {
+            fetch( TEI_ENROLLMENTS_HQL, ids );
+            fetch( ENROLLMENT_NOTES_HQL, ids );
+
+            if ( params.isIncludeRelationships() )
+            {
+                fetch( ENROLLMENT_RELATIONSHIPS_HQL, ids );
+            }
+
+            if ( params.isIncludeEvents() )
+            {
+                fetch( ENROLLMENT_EVENTS_HQL, ids );
+                fetch( EVENT_NOTES_HQL, ids );
+                fetch( EVENT_RELATIONSHIPS_HQL, ids );
+            }
+        }
+    }
+
+    /**
+     * Runs the given join fetch query. The result is not used, the query is
+     * run for populating the collections of the entities in the session.
+     */
+    private void fetch( String hql, List<Long> ids )
+    {
+        Session session = sessionFactory.getCurrentSession();
+
+        session.createQuery( hql )
+            .setParameterList( "ids", ids )
+            .list();
+    }
+}
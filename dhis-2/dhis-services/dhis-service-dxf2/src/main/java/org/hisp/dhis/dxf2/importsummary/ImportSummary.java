@@ -36,7 +36,7 @@ import org.hisp.dhis.common.DxfNamespaces;
 import org.hisp.dhis.dxf2.common.ImportOptions;
 import org.hisp.dhis.dxf2.webmessage.AbstractWebMessageResponse;
 
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 @JacksonXmlRootElement( localName = "importSummary", namespace = DxfNamespaces.DXF_2_0 )
@@ -50,7 +50,7 @@ public class ImportSummary extends AbstractWebMessageResponse
 
     private ImportCount importCount = new ImportCount();
 
-    private Set<ImportConflict> conflicts = new HashSet<>();
+    private Set<ImportConflict> conflicts = new LinkedHashSet<>();
 
     private String dataSetComplete;
 
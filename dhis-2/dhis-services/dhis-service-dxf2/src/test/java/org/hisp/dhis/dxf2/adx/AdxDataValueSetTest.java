@@ -0,0 +1,169 @@
+package org.hisp.dhis.dxf2.adx;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.hisp.dhis.DhisConvenienceTest;
+import org.hisp.dhis.common.IdScheme;
+import org.hisp.dhis.common.IdentifiableObjectManager;
+import org.hisp.dhis.common.ValueType;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.dxf2.common.ImportOptions;
+import org.hisp.dhis.dxf2.datavalue.DataValue;
+import org.hisp.staxwax.factory.XMLFactory;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link AdxDataValueSet}.
+ */
+public class AdxDataValueSetTest
+    extends DhisConvenienceTest
+{
+    @Mock
+    private IdentifiableObjectManager manager;
+
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    private DataElement deA;
+
+    private DataElement deB;
+
+    @Before
+    public void setUp()
+    {
+        deA = createDataElement( 'A' );
+        deB = createDataElement( 'B' );
+        deB.setValueType( ValueType.TEXT );
+
+        when( manager.getObject( eq( DataElement.class ), any( IdScheme.class ), eq( deA.getUid() ) ) ).thenReturn( deA );
+        when( manager.getObject( eq( DataElement.class ), any( IdScheme.class ), eq( deB.getUid() ) ) ).thenReturn( deB );
+    }
+
+    @Test
+    public void testReadDataValues()
+    {
+        AdxDataValueSet dataValueSet = getDataValueSet(
+            "<group orgUnit='ouA' period='2015-01-01/P1M' attributeOptionCombo='aocA'>" +
+                "<dataValue dataElement='" + deA.getUid() + "' categoryOptionCombo='cocA' value='32' comment='A'/>" +
+                "<dataValue dataElement='unknown' categoryOptionCombo='cocA' value='20'/>" +
+                "<dataValue dataElement='" + deB.getUid() + "' categoryOptionCombo='cocA' value='0'>" +
+                    "<annotation>Text</annotation>" +
+                "</dataValue>" +
+            "</group>" +
+            "<group orgUnit='ouB' period='2015-02-01/P1M'>" +
+                "<dataValue dataElement='" + deA.getUid() + "' categoryOptionCombo='cocB' value='10'/>" +
+            "</group>" );
+
+        List<DataValue> dataValues = readAll( dataValueSet );
+
+        assertEquals( 3, dataValues.size() );
+
+        DataValue dataValue = dataValues.get( 0 );
+        assertEquals( deA.getUid(), dataValue.getDataElement() );
+        assertEquals( "201501", dataValue.getPeriod() );
+        assertEquals( "ouA", dataValue.getOrgUnit() );
+        assertEquals( "cocA", dataValue.getCategoryOptionCombo() );
+        assertEquals( "aocA", dataValue.getAttributeOptionCombo() );
+        assertEquals( "32", dataValue.getValue() );
+        assertEquals( "A", dataValue.getComment() );
+
+        assertEquals( deB.getUid(), dataValues.get( 1 ).getDataElement() );
+        assertEquals( "Text", dataValues.get( 1 ).getValue() );
+
+        assertEquals( "ouB", dataValues.get( 2 ).getOrgUnit() );
+        assertEquals( "201502", dataValues.get( 2 ).getPeriod() );
+        assertNull( dataValues.get( 2 ).getAttributeOptionCombo() );
+
+        assertEquals( 1, dataValueSet.getAdxConflicts().size() );
+        assertEquals( 2, dataValueSet.getGroupCount() );
+        assertNull( dataValueSet.getGroupException() );
+    }
+
+    @Test
+    public void testGroupException()
+    {
+        AdxDataValueSet dataValueSet = getDataValueSet(
+            "<group orgUnit='ouA' period='2015-01-01/P1M'>" +
+                "<dataValue dataElement='" + deA.getUid() + "' categoryOptionCombo='cocA' value='32'/>" +
+            "</group>" +
+            "<group orgUnit='ouB'>" +
+                "<dataValue dataElement='" + deA.getUid() + "' categoryOptionCombo='cocA' value='10'/>" +
+            "</group>" +
+            "<group orgUnit='ouC' period='2015-01-01/P1M'>" +
+                "<dataValue dataElement='" + deA.getUid() + "' categoryOptionCombo='cocA' value='20'/>" +
+            "</group>" );
+
+        List<DataValue> dataValues = readAll( dataValueSet );
+
+        assertEquals( 1, dataValues.size() );
+        assertEquals( 1, dataValueSet.getGroupCount() );
+        assertNotNull( dataValueSet.getGroupException() );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private AdxDataValueSet getDataValueSet( String groups )
+    {
+        String adx = "<?xml version='1.0' encoding='UTF-8'?><adx xmlns='urn:ihe:qrph:adx:2015'>" + groups + "</adx>";
+
+        return new AdxDataValueSet( XMLFactory.getXMLReader( new ByteArrayInputStream( adx.getBytes( StandardCharsets.UTF_8 ) ) ),
+            ImportOptions.getDefaultImportOptions(), manager );
+    }
+
+    private List<DataValue> readAll( AdxDataValueSet dataValueSet )
+    {
+        List<DataValue> dataValues = new ArrayList<>();
+
+        while ( dataValueSet.hasNextDataValue() )
+        {
+            dataValues.add( dataValueSet.getNextDataValue() );
+        }
+
+        return dataValues;
+    }
+}
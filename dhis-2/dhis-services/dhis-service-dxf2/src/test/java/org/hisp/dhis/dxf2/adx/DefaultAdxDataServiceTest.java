@@ -0,0 +1,152 @@
+package org.hisp.dhis.dxf2.adx;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.hisp.dhis.DhisConvenienceTest;
+import org.hisp.dhis.common.IdScheme;
+import org.hisp.dhis.common.IdentifiableObjectManager;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.dxf2.common.ImportOptions;
+import org.hisp.dhis.dxf2.datavalueset.DataValueSet;
+import org.hisp.dhis.dxf2.datavalueset.DataValueSetService;
+import org.hisp.dhis.dxf2.importsummary.ImportStatus;
+import org.hisp.dhis.dxf2.importsummary.ImportSummary;
+import org.hisp.dhis.scheduling.JobConfiguration;
+import org.hisp.dhis.system.notification.Notifier;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Answers;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link DefaultAdxDataService}.
+ */
+public class DefaultAdxDataServiceTest
+    extends DhisConvenienceTest
+{
+    @Mock
+    private DataValueSetService dataValueSetService;
+
+    @Mock
+    private IdentifiableObjectManager identifiableObjectManager;
+
+    @Mock( answer = Answers.RETURNS_SELF )
+    private Notifier notifier;
+
+    @InjectMocks
+    private DefaultAdxDataService adxDataService;
+
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    private DataElement deA;
+
+    @Before
+    public void setUp()
+    {
+        deA = createDataElement( 'A' );
+
+        when( identifiableObjectManager.getObject( eq( DataElement.class ), any( IdScheme.class ), eq( deA.getUid() ) ) ).thenReturn( deA );
+
+        // Imports all values read from the data value set, as committed values
+
+        when( dataValueSetService.saveDataValueSet( any( DataValueSet.class ), any( ImportOptions.class ), isNull() ) )
+            .thenAnswer( invocation -> {
+                DataValueSet dataValueSet = invocation.getArgument( 0 );
+                ImportSummary summary = new ImportSummary( ImportStatus.SUCCESS );
+
+                while ( dataValueSet.hasNextDataValue() )
+                {
+                    dataValueSet.getNextDataValue();
+                    summary.getImportCount().incrementImported();
+                }
+
+                return summary;
+            } );
+    }
+
+    @Test
+    public void testSaveDataValueSetKeepsCountsOfGroupsBeforeFailingGroup()
+    {
+        ImportSummary summary = saveDataValueSet(
+            "<group orgUnit='ouA' period='2015-01-01/P1M'>" +
+                "<dataValue dataElement='" + deA.getUid() + "' categoryOptionCombo='cocA' value='32'/>" +
+                "<dataValue dataElement='" + deA.getUid() + "' categoryOptionCombo='cocB' value='12'/>" +
+            "</group>" +
+            "<group orgUnit='ouB'>" +
+                "<dataValue dataElement='" + deA.getUid() + "' categoryOptionCombo='cocA' value='10'/>" +
+            "</group>" );
+
+        assertEquals( ImportStatus.ERROR, summary.getStatus() );
+        assertEquals( "Data set import failed within group number: 1", summary.getDescription() );
+        assertEquals( 2, summary.getImportCount().getImported() );
+        assertEquals( 1, summary.getConflicts().size() );
+    }
+
+    @Test
+    public void testSaveDataValueSet()
+    {
+        ImportSummary summary = saveDataValueSet(
+            "<group orgUnit='ouA' period='2015-01-01/P1M'>" +
+                "<dataValue dataElement='" + deA.getUid() + "' categoryOptionCombo='cocA' value='32'/>" +
+            "</group>" +
+            "<group orgUnit='ouB' period='2015-01-01/P1M'>" +
+                "<dataValue dataElement='" + deA.getUid() + "' categoryOptionCombo='cocA' value='10'/>" +
+            "</group>" );
+
+        assertEquals( ImportStatus.SUCCESS, summary.getStatus() );
+        assertEquals( 2, summary.getImportCount().getImported() );
+        assertEquals( 0, summary.getConflicts().size() );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private ImportSummary saveDataValueSet( String groups )
+    {
+        String adx = "<?xml version='1.0' encoding='UTF-8'?><adx xmlns='urn:ihe:qrph:adx:2015'>" + groups + "</adx>";
+
+        return adxDataService.saveDataValueSet( new ByteArrayInputStream( adx.getBytes( StandardCharsets.UTF_8 ) ),
+            ImportOptions.getDefaultImportOptions(), (JobConfiguration) null );
+    }
+}
@@ -0,0 +1,237 @@
+package org.hisp.dhis.dxf2.datavalueset;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.hisp.dhis.dxf2.datavalue.DataValue;
+import org.hisp.dhis.dxf2.datavalueset.DataValueImportPipeline.CheckedDataValue;
+import org.hisp.dhis.dxf2.datavalueset.DataValueImportPipeline.DataValueChecker;
+import org.hisp.dhis.dxf2.importsummary.ImportConflict;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DataValueImportPipelineTest
+{
+    private static final int SIZE = 2345;
+
+    @Test
+    public void testInputOrder()
+    {
+        List<CheckedDataValue> checkedValues = new ArrayList<>();
+
+        try ( DataValueImportPipeline pipeline = new DataValueImportPipeline( getDataValueSet(), 4, null, ValueChecker::new ) )
+        {
+            while ( pipeline.hasNextDataValue() )
+            {
+                checkedValues.add( pipeline.getNextDataValue() );
+            }
+        }
+
+        assertEquals( SIZE, checkedValues.size() );
+
+        for ( int i = 0; i < SIZE; i++ )
+        {
+            CheckedDataValue checkedValue = checkedValues.get( i );
+
+            assertEquals( String.valueOf( i ), checkedValue.getDataValue().getComment() );
+            assertEquals( i % 10 == 0, !checkedValue.getConflicts().isEmpty() );
+            assertEquals( i % 10 == 1, checkedValue.isIgnored() );
+            assertEquals( i % 10 > 1 ? "202001" : null, checkedValue.getPeriod() );
+        }
+    }
+
+    @Test
+    public void testSameAsSequential()
+    {
+        try ( DataValueImportPipeline sequential = new DataValueImportPipeline( getDataValueSet(), 0, null, ValueChecker::new );
+            DataValueImportPipeline parallel = new DataValueImportPipeline( getDataValueSet(), 3, null, ValueChecker::new ) )
+        {
+            while ( sequential.hasNextDataValue() )
+            {
+                assertTrue( parallel.hasNextDataValue() );
+
+                CheckedDataValue expected = sequential.getNextDataValue();
+                CheckedDataValue actual = parallel.getNextDataValue();
+
+                assertEquals( expected.getDataValue().getComment(), actual.getDataValue().getComment() );
+                assertEquals( expected.getConflicts(), actual.getConflicts() );
+                assertEquals( expected.isIgnored(), actual.isIgnored() );
+                assertEquals( expected.getPeriod(), actual.getPeriod() );
+            }
+
+            assertFalse( parallel.hasNextDataValue() );
+        }
+    }
+
+    @Test
+    public void testCheckerPerThread()
+    {
+        AtomicInteger checkers = new AtomicInteger();
+        AtomicBoolean sharedChecker = new AtomicBoolean();
+
+        try ( DataValueImportPipeline pipeline = new DataValueImportPipeline( getDataValueSet(), 3, null, () -> {
+            checkers.incrementAndGet();
+
+            Thread owner = Thread.currentThread();
+
+            return checkedValue -> {
+                if ( Thread.currentThread() != owner )
+                {
+                    sharedChecker.set( true );
+                }
+            };
+        } ) )
+        {
+            while ( pipeline.hasNextDataValue() )
+            {
+                pipeline.getNextDataValue();
+            }
+        }
+
+        assertFalse( sharedChecker.get() );
+        assertTrue( checkers.get() >= 1 && checkers.get() <= 3 );
+    }
+
+    @Test
+    public void testCloseWaitsForParser()
+    {
+        AtomicBoolean closed = new AtomicBoolean();
+        AtomicBoolean readAfterClose = new AtomicBoolean();
+
+        DataValueSet dataValueSet = new DataValueSet()
+        {
+            @Override
+            public boolean hasNextDataValue()
+            {
+                if ( closed.get() )
+                {
+                    readAfterClose.set( true );
+                }
+
+                return true;
+            }
+
+            @Override
+            public DataValue getNextDataValue()
+            {
+                return getDataValue( 2 );
+            }
+        };
+
+        try ( DataValueImportPipeline pipeline = new DataValueImportPipeline( dataValueSet, 2, null, ValueChecker::new ) )
+        {
+            assertTrue( pipeline.hasNextDataValue() );
+            pipeline.getNextDataValue();
+        }
+
+        closed.set( true );
+
+        assertFalse( readAfterClose.get() );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void testParserException()
+    {
+        DataValueSet dataValueSet = new DataValueSet()
+        {
+            @Override
+            public boolean hasNextDataValue()
+            {
+                throw new IllegalArgumentException( "Invalid input" );
+            }
+        };
+
+        try ( DataValueImportPipeline pipeline = new DataValueImportPipeline( dataValueSet, 2, null, ValueChecker::new ) )
+        {
+            pipeline.hasNextDataValue();
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private DataValueSet getDataValueSet()
+    {
+        List<DataValue> dataValues = new ArrayList<>();
+
+        for ( int i = 0; i < SIZE; i++ )
+        {
+            dataValues.add( getDataValue( i ) );
+        }
+
+        DataValueSet dataValueSet = new DataValueSet();
+        dataValueSet.setDataValues( dataValues );
+        return dataValueSet;
+    }
+
+    private static DataValue getDataValue( int i )
+    {
+        DataValue dataValue = new DataValue();
+        dataValue.setDataElement( "deabcdefghA" );
+        dataValue.setPeriod( "202001" );
+        dataValue.setOrgUnit( "ouabcdefghA" );
+        dataValue.setValue( i % 10 == 0 ? "invalid" : i % 10 == 1 ? "0" : String.valueOf( i ) );
+        dataValue.setComment( String.valueOf( i ) );
+        return dataValue;
+    }
+
+    /**
+     * Checker which rejects invalid values and ignores zero values.
+     */
+    private static class ValueChecker
+        implements DataValueChecker
+    {
+        @Override
+        public void check( CheckedDataValue checkedValue )
+        {
+            DataValue dataValue = checkedValue.getDataValue();
+
+            if ( "invalid".equals( dataValue.getValue() ) )
+            {
+                checkedValue.getConflicts().add( new ImportConflict( dataValue.getValue(), "Value not valid" ) );
+            }
+            else if ( "0".equals( dataValue.getValue() ) )
+            {
+                checkedValue.setIgnored( true );
+            }
+            else
+            {
+                checkedValue.setResolved( 1L, dataValue.getPeriod(), 2L, 3L, 3L, dataValue.getStoredBy() );
+            }
+        }
+    }
+}
@@ -53,6 +53,7 @@ import org.hisp.dhis.dataset.DataSet;
 import org.hisp.dhis.dataset.DataSetService;
 import org.hisp.dhis.datavalue.DataValue;
 import org.hisp.dhis.datavalue.DataValueAudit;
+import org.hisp.dhis.datavalue.DataValueService;
 import org.hisp.dhis.dxf2.common.ImportOptions;
 import org.hisp.dhis.dxf2.importsummary.ImportStatus;
 import org.hisp.dhis.dxf2.importsummary.ImportSummary;
@@ -72,6 +73,8 @@ import org.hisp.dhis.period.PeriodService;
 import org.hisp.dhis.period.PeriodType;
 import org.hisp.dhis.security.Authorities;
 import org.hisp.dhis.security.acl.AccessStringHelper;
+import org.hisp.dhis.setting.SettingKey;
+import org.hisp.dhis.setting.SystemSettingManager;
 import org.hisp.dhis.user.CurrentUserService;
 import org.hisp.dhis.user.User;
 import org.hisp.dhis.user.UserService;
@@ -130,6 +133,12 @@ public class DataValueSetServiceTest
     @Autowired
     private UserService _userService;
 
+    @Autowired
+    private DataValueService dataValueService;
+
+    @Autowired
+    private SystemSettingManager systemSettingManager;
+
     private Attribute attribute;
 
     private CategoryOptionCombo ocDef;
@@ -1009,6 +1018,68 @@ public class DataValueSetServiceTest
         assertEquals( 0, auditValues.size() );
     }
 
+    @Test
+    public void testImportDataValuesBatch()
+        throws Exception
+    {
+        systemSettingManager.saveSystemSetting( SettingKey.DATA_IMPORT_BATCH_SIZE, 2 );
+
+        try
+        {
+            in = new ClassPathResource( "datavalueset/dataValueSetA.xml" ).getInputStream();
+
+            ImportSummary summary = dataValueSetService.saveDataValueSet( in );
+
+            assertEquals( ImportStatus.SUCCESS, summary.getStatus() );
+            assertEquals( 3, summary.getImportCount().getImported() );
+            assertEquals( 0, summary.getImportCount().getUpdated() );
+            assertEquals( 0, mockDataValueBatchHandler.getInserts().size() );
+            assertEquals( 3, dataValueService.getAllDataValues().size() );
+
+            in = new ClassPathResource( "datavalueset/dataValueSetA.xml" ).getInputStream();
+
+            summary = dataValueSetService.saveDataValueSet( in );
+
+            assertEquals( ImportStatus.SUCCESS, summary.getStatus() );
+            assertEquals( 0, summary.getImportCount().getImported() );
+            assertEquals( 3, summary.getImportCount().getUpdated() );
+            assertEquals( 0, mockDataValueBatchHandler.getUpdates().size() );
+            assertEquals( 3, dataValueService.getAllDataValues().size() );
+            assertEquals( 3, mockDataValueAuditBatchHandler.getInserts().size() );
+        }
+        finally
+        {
+            systemSettingManager.saveSystemSetting( SettingKey.DATA_IMPORT_BATCH_SIZE, 0 );
+        }
+    }
+
+    @Test
+    public void testImportDataValuesBulkCopy()
+        throws Exception
+    {
+        in = new ClassPathResource( "datavalueset/dataValueSetA.xml" ).getInputStream();
+
+        ImportOptions importOptions = new ImportOptions()
+            .setImportStrategy( ImportStrategy.CREATE )
+            .setBulkCopy( true );
+
+        ImportSummary summary = dataValueSetService.saveDataValueSet( in, importOptions );
+
+        assertEquals( ImportStatus.SUCCESS, summary.getStatus() );
+        assertEquals( 3, summary.getImportCount().getImported() );
+        assertEquals( 0, mockDataValueBatchHandler.getInserts().size() );
+        assertEquals( 3, dataValueService.getAllDataValues().size() );
+        assertTrue( summary.getDescription().contains( "values per second" ) );
+
+        in = new ClassPathResource( "datavalueset/dataValueSetA.xml" ).getInputStream();
+
+        summary = dataValueSetService.saveDataValueSet( in, importOptions );
+
+        assertEquals( 0, summary.getImportCount().getImported() );
+        assertEquals( 3, summary.getImportCount().getIgnored() );
+        assertEquals( 3, dataValueService.getAllDataValues().size() );
+    }
+
     @Test
     public void testImportNullDataValues()
         throws Exception
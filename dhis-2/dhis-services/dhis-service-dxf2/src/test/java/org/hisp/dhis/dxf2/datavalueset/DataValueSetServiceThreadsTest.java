@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.hisp.dhis.dxf2.datavalueset;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hisp.dhis.IntegrationTestBase;
+import org.hisp.dhis.category.CategoryCombo;
+import org.hisp.dhis.category.CategoryService;
+import org.hisp.dhis.common.ValueType;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.dataelement.DataElementService;
+import org.hisp.dhis.datavalue.DataValue;
+import org.hisp.dhis.datavalue.DataValueAudit;
+import org.hisp.dhis.dxf2.common.ImportOptions;
+import org.hisp.dhis.dxf2.importsummary.ImportSummary;
+import org.hisp.dhis.jdbc.batchhandler.DataValueAuditBatchHandler;
+import org.hisp.dhis.jdbc.batchhandler.DataValueBatchHandler;
+import org.hisp.dhis.mock.MockCurrentUserService;
+import org.hisp.dhis.mock.batchhandler.MockBatchHandler;
+import org.hisp.dhis.mock.batchhandler.MockBatchHandlerFactory;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.organisationunit.OrganisationUnitService;
+import org.hisp.dhis.security.Authorities;
+import org.hisp.dhis.setting.SettingKey;
+import org.hisp.dhis.setting.SystemSettingManager;
+import org.hisp.dhis.user.User;
+import org.hisp.dhis.user.UserService;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * Imports with validation workers. The workers read meta-data through their
+ * own sessions, so the test data must be committed.
+ */
+public class DataValueSetServiceThreadsTest
+    extends IntegrationTestBase
+{
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private DataElementService dataElementService;
+
+    @Autowired
+    private OrganisationUnitService organisationUnitService;
+
+    @Autowired
+    private DataValueSetService dataValueSetService;
+
+    @Autowired
+    private SystemSettingManager systemSettingManager;
+
+    @Autowired
+    private UserService _userService;
+
+    private MockBatchHandler<DataValue> mockDataValueBatchHandler;
+
+    private DataElement deF;
+    private DataElement deG;
+
+    private OrganisationUnit ouA;
+    private OrganisationUnit ouB;
+    private OrganisationUnit ouC;
+
+    @Override
+    public boolean emptyDatabaseAfterTest()
+    {
+        return true;
+    }
+
+    @Override
+    public void setUpTest()
+    {
+        userService = _userService;
+
+        mockDataValueBatchHandler = new MockBatchHandler<>();
+        MockBatchHandlerFactory mockBatchHandlerFactory = new MockBatchHandlerFactory();
+        mockBatchHandlerFactory.registerBatchHandler( DataValueBatchHandler.class, mockDataValueBatchHandler );
+        mockBatchHandlerFactory.registerBatchHandler( DataValueAuditBatchHandler.class, new MockBatchHandler<DataValueAudit>() );
+        setDependency( dataValueSetService, "batchHandlerFactory", mockBatchHandlerFactory );
+
+        CategoryCombo categoryComboDef = categoryService.getDefaultCategoryCombo();
+
+        deF = createDataElement( 'F', categoryComboDef );
+        deF.setValueType( ValueType.BOOLEAN );
+        deF.setUid( "jH26dja2f30" );
+        deG = createDataElement( 'G', categoryComboDef );
+        deG.setValueType( ValueType.TRUE_ONLY );
+        deG.setUid( "jH26dja2f31" );
+
+        dataElementService.addDataElement( deF );
+        dataElementService.addDataElement( deG );
+
+        ouA = createOrganisationUnit( 'A' );
+        ouA.setUid( "DiszpKrYNg8" );
+        ouB = createOrganisationUnit( 'B' );
+        ouB.setUid( "BdfsJfj87js" );
+        ouC = createOrganisationUnit( 'C' );
+        ouC.setUid( "j7Hg26FpoIa" );
+
+        organisationUnitService.addOrganisationUnit( ouA );
+        organisationUnitService.addOrganisationUnit( ouB );
+        organisationUnitService.addOrganisationUnit( ouC );
+
+        User user = createUser( 'A', Lists.newArrayList( Authorities.F_SKIP_DATA_IMPORT_AUDIT.getAuthority() ) );
+        user.setOrganisationUnits( Sets.newHashSet( ouA, ouB ) );
+        userService.addUser( user );
+        injectSecurityContext( user );
+
+        setDependency( dataValueSetService, "currentUserService", new MockCurrentUserService( user ) );
+    }
+
+    @Override
+    public void tearDownTest()
+    {
+        systemSettingManager.saveSystemSetting( SettingKey.DATA_IMPORT_THREADS, 0 );
+    }
+
+    // -------------------------------------------------------------------------
+    // Tests
+    // -------------------------------------------------------------------------
+
+    @Test
+    public void testImportDataValuesBooleanCsvThreads()
+        throws Exception
+    {
+        InputStream in = new ClassPathResource( "datavalueset/dataValueSetBooleanTest.csv" ).getInputStream();
+
+        ImportSummary sequentialSummary = dataValueSetService.saveDataValueSetCsv( in, new ImportOptions().setDryRun( true ), null );
+
+        systemSettingManager.saveSystemSetting( SettingKey.DATA_IMPORT_THREADS, 4 );
+
+        in = new ClassPathResource( "datavalueset/dataValueSetBooleanTest.csv" ).getInputStream();
+
+        ImportSummary summary = dataValueSetService.saveDataValueSetCsv( in, null, null );
+        assertEquals( summary.getConflicts().toString(), 4, summary.getConflicts().size() ); // False rows
+        assertEquals( new ArrayList<>( sequentialSummary.getConflicts() ), new ArrayList<>( summary.getConflicts() ) );
+
+        List<String> expectedBools = Lists.newArrayList( "true", "false" );
+        List<DataValue> resultBools = mockDataValueBatchHandler.getInserts();
+
+        assertEquals( summary.getImportCount().getImported(), resultBools.size() );
+
+        for ( DataValue dataValue : resultBools )
+        {
+            assertTrue( expectedBools.contains( dataValue.getValue() ) );
+        }
+    }
+
+    @Test
+    public void testImportDataValuesCsvThreadsResolvesOnWorkers()
+        throws Exception
+    {
+        String csv = "\"dataelement\",\"period\",\"orgunit\",\"categoryoptioncombo\",\"attributeoptioncombo\",\"value\"\n" +
+            "\"jH26dja2f30\",\"201201\",\"DiszpKrYNg8\",\"\",\"\",\"true\"\n" +
+            "\"jH26dja2f30\",\"201201\",\"j7Hg26FpoIa\",\"\",\"\",\"true\"\n" +
+            "\"xxxxxxxxxxx\",\"201201\",\"DiszpKrYNg8\",\"\",\"\",\"true\"\n" +
+            "\"jH26dja2f30\",\"201201\",\"yyyyyyyyyyy\",\"\",\"\",\"true\"\n" +
+            "\"jH26dja2f31\",\"201202\",\"BdfsJfj87js\",\"\",\"\",\"true\"\n";
+
+        systemSettingManager.saveSystemSetting( SettingKey.DATA_IMPORT_THREADS, 2 );
+
+        ImportSummary summary = dataValueSetService.saveDataValueSetCsv( toInputStream( csv ), null, null );
+
+        assertEquals( summary.getConflicts().toString(), 3, summary.getConflicts().size() );
+        assertEquals( 2, summary.getImportCount().getImported() );
+
+        List<DataValue> inserts = mockDataValueBatchHandler.getInserts();
+
+        assertEquals( 2, inserts.size() );
+        assertEquals( deF.getUid(), inserts.get( 0 ).getDataElement().getUid() );
+        assertEquals( ouA.getUid(), inserts.get( 0 ).getSource().getUid() );
+        assertEquals( "201201", inserts.get( 0 ).getPeriod().getIsoDate() );
+        assertEquals( deG.getUid(), inserts.get( 1 ).getDataElement().getUid() );
+        assertEquals( ouB.getUid(), inserts.get( 1 ).getSource().getUid() );
+        assertEquals( "201202", inserts.get( 1 ).getPeriod().getIsoDate() );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private InputStream toInputStream( String content )
+    {
+        return new ByteArrayInputStream( content.getBytes( StandardCharsets.UTF_8 ) );
+    }
+}
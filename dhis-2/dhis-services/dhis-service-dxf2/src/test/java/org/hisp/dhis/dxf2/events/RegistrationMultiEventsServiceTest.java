@@ -30,8 +30,12 @@ package org.hisp.dhis.dxf2.events;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.hamcrest.CoreMatchers;
 import org.hisp.dhis.IntegrationTest;
@@ -245,6 +249,45 @@ public class RegistrationMultiEventsServiceTest
         assertEquals( 3, eventService.getEvents( params ).getEvents().size() );
     }
 
+    @Test
+    public void testStreamEvents()
+    {
+        Enrollment enrollment = createEnrollment( programA.getUid(), trackedEntityInstanceMaleA.getTrackedEntityInstance() );
+        ImportSummary importSummary = enrollmentService.addEnrollment( enrollment, null, null );
+        assertEquals( ImportStatus.SUCCESS, importSummary.getStatus() );
+
+        Event event = createEvent( programA.getUid(), programStageA.getUid(), organisationUnitA.getUid(),
+            trackedEntityInstanceMaleA.getTrackedEntityInstance(), dataElementA.getUid() );
+        importSummary = eventService.addEvent( event, null, false );
+        assertEquals( ImportStatus.SUCCESS, importSummary.getStatus() );
+
+        event = createEvent( programA.getUid(), programStageB.getUid(), organisationUnitA.getUid(),
+            trackedEntityInstanceMaleA.getTrackedEntityInstance(), dataElementB.getUid() );
+        importSummary = eventService.addEvent( event, null, false );
+        assertEquals( ImportStatus.SUCCESS, importSummary.getStatus() );
+
+        EventSearchParams params = new EventSearchParams();
+        params.setProgram( programA );
+        params.setOrgUnit( organisationUnitA );
+        params.setOrgUnitSelectionMode( OrganisationUnitSelectionMode.SELECTED );
+        params.setSkipPaging( true );
+
+        List<Event> streamedEvents = new ArrayList<>();
+
+        assertEquals( 2, eventService.streamEvents( params, streamedEvents::add ) );
+        assertEquals( 2, streamedEvents.size() );
+
+        Set<String> expected = eventService.getEvents( params ).getEvents().stream().map( Event::getEvent ).collect( Collectors.toSet() );
+        Set<String> actual = streamedEvents.stream().map( Event::getEvent ).collect( Collectors.toSet() );
+
+        assertEquals( expected, actual );
+
+        for ( Event streamedEvent : streamedEvents )
+        {
+            assertEquals( 1, streamedEvent.getDataValues().size() );
+        }
+    }
+
     @Test
     public void testDeleteEnrollmentWithEvents()
     {
@@ -37,6 +37,8 @@ import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.apache.commons.lang3.StringUtils;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
 import org.hisp.dhis.DhisSpringTest;
 import org.hisp.dhis.common.IdentifiableObjectManager;
 import org.hisp.dhis.common.Objects;
@@ -46,6 +48,7 @@ import org.hisp.dhis.dxf2.events.enrollment.EnrollmentStatus;
 import org.hisp.dhis.dxf2.events.event.Event;
 import org.hisp.dhis.dxf2.events.trackedentity.Attribute;
 import org.hisp.dhis.dxf2.events.trackedentity.TrackedEntityInstance;
+import org.hisp.dhis.dxf2.events.trackedentity.TrackedEntityInstanceAggregateLoader;
 import org.hisp.dhis.dxf2.events.trackedentity.TrackedEntityInstanceService;
 import org.hisp.dhis.dxf2.importsummary.ImportConflict;
 import org.hisp.dhis.dxf2.importsummary.ImportStatus;
@@ -55,6 +58,7 @@ import org.hisp.dhis.event.EventStatus;
 import org.hisp.dhis.importexport.ImportStrategy;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.program.Program;
+import org.hisp.dhis.program.ProgramInstance;
 import org.hisp.dhis.program.ProgramInstanceService;
 import org.hisp.dhis.program.ProgramStage;
 import org.hisp.dhis.program.ProgramType;
@@ -103,6 +107,12 @@ public class TrackedEntityInstanceServiceTest
     @Autowired
     private IdentifiableObjectManager manager;
 
+    @Autowired
+    private TrackedEntityInstanceAggregateLoader aggregateLoader;
+
+    @Autowired
+    private SessionFactory sessionFactory;
+
     private org.hisp.dhis.trackedentity.TrackedEntityInstance maleA;
     private org.hisp.dhis.trackedentity.TrackedEntityInstance maleB;
     private org.hisp.dhis.trackedentity.TrackedEntityInstance femaleA;
@@ -608,4 +618,39 @@ public class TrackedEntityInstanceServiceTest
 
         assertTrue( Sets.difference( new HashSet<>( uids ), new HashSet<>( fetchedUids ) ).isEmpty() );
     }
+
+    @Test
+    public void testLoadAggregates()
+    {
+        sessionFactory.getCurrentSession().flush();
+        sessionFactory.getCurrentSession().clear();
+
+        List<org.hisp.dhis.trackedentity.TrackedEntityInstance> teis = Lists.newArrayList(
+            teiDaoService.getTrackedEntityInstance( maleA.getUid() ),
+            teiDaoService.getTrackedEntityInstance( femaleA.getUid() ) );
+
+        teis.forEach( tei -> assertFalse( Hibernate.isInitialized( tei.getProgramInstances() ) ) );
+
+        aggregateLoader.load( teis, TrackedEntityInstanceParams.TRUE );
+
+        for ( org.hisp.dhis.trackedentity.TrackedEntityInstance tei : teis )
+        {
+            assertTrue( Hibernate.isInitialized( tei.getTrackedEntityAttributeValues() ) );
+            assertTrue( Hibernate.isInitialized( tei.getProgramOwners() ) );
+            assertTrue( Hibernate.isInitialized( tei.getRelationshipItems() ) );
+            assertTrue( Hibernate.isInitialized( tei.getProgramInstances() ) );
+            assertEquals( 1, tei.getProgramInstances().size() );
+
+            for ( ProgramInstance programInstance : tei.getProgramInstances() )
+            {
+                assertTrue( Hibernate.isInitialized( programInstance.getComments() ) );
+                assertTrue( Hibernate.isInitialized( programInstance.getRelationshipItems() ) );
+                assertTrue( Hibernate.isInitialized( programInstance.getProgramStageInstances() ) );
+            }
+        }
+
+        assertEquals( 1, teis.get( 0 ).getTrackedEntityAttributeValues().size() );
+        assertEquals( teis.get( 0 ).getProgramInstances().iterator().next().getUid(),
+            trackedEntityInstanceService.getTrackedEntityInstance( teis.get( 0 ) ).getEnrollments().get( 0 ).getEnrollment() );
+    }
 }
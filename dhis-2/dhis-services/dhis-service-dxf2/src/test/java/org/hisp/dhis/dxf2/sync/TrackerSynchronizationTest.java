@@ -37,6 +37,7 @@ import org.hisp.dhis.dbms.DbmsManager;
 import org.hisp.dhis.dxf2.events.TrackedEntityInstanceParams;
 import org.hisp.dhis.dxf2.events.enrollment.EnrollmentService;
 import org.hisp.dhis.dxf2.events.trackedentity.JacksonTrackedEntityInstanceService;
+import org.hisp.dhis.dxf2.events.trackedentity.TrackedEntityInstanceAggregateLoader;
 import org.hisp.dhis.dxf2.events.trackedentity.TrackedEntityInstanceService;
 import org.hisp.dhis.fileresource.FileResourceService;
 import org.hisp.dhis.mock.MockCurrentUserService;
@@ -134,6 +135,9 @@ public class TrackerSynchronizationTest extends DhisSpringTest
     @Qualifier( "xmlMapper" )
     private ObjectMapper xmlMapper;
 
+    @Autowired
+    private TrackedEntityInstanceAggregateLoader aggregateLoader;
+
     private TrackedEntityInstanceService subject;
 
     private TrackedEntityInstanceQueryParams queryParams;
@@ -191,7 +195,7 @@ public class TrackerSynchronizationTest extends DhisSpringTest
             _relationshipService, relationshipService, trackedEntityAttributeValueService, manager, _userService,
             dbmsManager, enrollmentService, programInstanceService, currentUserService, schemaService, queryService,
             reservedValueService, trackerAccessManager, fileResourceService, trackerOwnershipAccessManager, notifier,
-            jsonMapper, xmlMapper );
+            jsonMapper, xmlMapper, aggregateLoader );
 
         prepareSyncParams();
         prepareDataForTest();
@@ -39,6 +39,10 @@ import static org.hisp.dhis.system.notification.NotificationLevel.ERROR;
 import static org.hisp.dhis.system.util.ValidationUtils.dataValueIsZeroAndInsignificant;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 import org.apache.commons.collections4.CollectionUtils;
@@ -50,6 +54,7 @@ import org.hisp.dhis.category.CategoryService;
 import org.hisp.dhis.common.*;
 import org.hisp.dhis.commons.collection.CachingMap;
 import org.hisp.dhis.commons.util.DebugUtils;
+import org.hisp.dhis.commons.util.SystemUtils;
 import org.hisp.dhis.constant.Constant;
 import org.hisp.dhis.constant.ConstantService;
 import org.hisp.dhis.dataelement.DataElement;
@@ -71,6 +76,7 @@ import org.hisp.dhis.program.AnalyticsType;
 import org.hisp.dhis.program.ProgramIndicator;
 import org.hisp.dhis.scheduling.JobConfiguration;
 import org.hisp.dhis.scheduling.parameters.PredictorJobParameters;
+import org.hisp.dhis.security.SecurityContextRunnable;
 import org.hisp.dhis.system.notification.NotificationLevel;
 import org.hisp.dhis.system.notification.Notifier;
 import org.hisp.dhis.system.util.MathUtils;
@@ -80,10 +86,14 @@ import org.hisp.dhis.util.DateUtils;
 import org.hisp.quick.BatchHandler;
 import org.hisp.quick.BatchHandlerFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.google.common.base.Throwables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -120,11 +130,23 @@ public class DefaultPredictionService
 
     private CurrentUserService currentUserService;
 
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Template for work which must be committed before the prediction
+     * workers can see it, such as adding new output periods.
+     */
+    private final TransactionTemplate newTransactionTemplate;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool( SystemUtils.getCpuCores(),
+        new ThreadFactoryBuilder().setNameFormat( "prediction-%d" ).setDaemon( true ).build() );
+
     public DefaultPredictionService( PredictorService predictorService, ConstantService constantService,
         ExpressionService expressionService, DataValueService dataValueService, CategoryService categoryService,
         OrganisationUnitService organisationUnitService, PeriodService periodService,
         IdentifiableObjectManager idObjectManager, AnalyticsService analyticsService, Notifier notifier,
-        BatchHandlerFactory batchHandlerFactory, CurrentUserService currentUserService )
+        BatchHandlerFactory batchHandlerFactory, CurrentUserService currentUserService,
+        TransactionTemplate transactionTemplate )
     {
         checkNotNull( predictorService );
         checkNotNull( constantService );
@@ -137,6 +159,7 @@ public class DefaultPredictionService
         checkNotNull( notifier );
         checkNotNull( batchHandlerFactory );
         checkNotNull( currentUserService );
+        checkNotNull( transactionTemplate );
 
         this.predictorService = predictorService;
         this.constantService = constantService;
@@ -150,6 +173,10 @@ public class DefaultPredictionService
         this.notifier = notifier;
         this.batchHandlerFactory = batchHandlerFactory;
         this.currentUserService = currentUserService;
+        this.transactionTemplate = transactionTemplate;
+
+        this.newTransactionTemplate = new TransactionTemplate( transactionTemplate.getTransactionManager() );
+        this.newTransactionTemplate.setPropagationBehavior( TransactionDefinition.PROPAGATION_REQUIRES_NEW );
     }
 
     /**
@@ -245,11 +272,23 @@ public class DefaultPredictionService
 
         PredictionSummary predictionSummary = new PredictionSummary();
 
-        log.info( "Running " + predictorList.size() + " predictors from " + startDate.toString() + " to " + endDate.toString() );
+        List<List<Predictor>> stages = getPredictorStages( new ArrayList<>( new LinkedHashSet<>( predictorList ) ) );
+
+        log.info( "Running " + predictorList.size() + " predictors in " + stages.size() + " stages from " + startDate.toString() + " to " + endDate.toString() );
 
-        for ( Predictor predictor : predictorList )
+        // Predictors within a stage do not use each other's output, so they
+        // are run concurrently. Each stage completes before the next starts.
+
+        for ( List<Predictor> stage : stages )
         {
-            predict( predictor, startDate, endDate, predictionSummary );
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+            for ( Predictor predictor : stage )
+            {
+                futures.add( predictAsync( predictor, startDate, endDate, predictionSummary ) );
+            }
+
+            join( CompletableFuture.allOf( futures.toArray( new CompletableFuture[0] ) ) );
         }
 
         log.info( "Finished predictors from " + startDate.toString() + " to " + endDate.toString() + ": " + predictionSummary.toString() );
@@ -260,52 +299,56 @@ public class DefaultPredictionService
     @Override
     public void predict( Predictor predictor, Date startDate, Date endDate, PredictionSummary predictionSummary )
     {
-        Expression generator = predictor.getGenerator();
-        Expression skipTest = predictor.getSampleSkipTest();
-        DataElement outputDataElement = predictor.getOutput();
-
-        // Note that data is collected for the output (predicted) period based
-        // on items that are not enclosed within vector functions (like sum,
-        // stddev, etc.) For items that are within vector functions, and
-        // for skip tests, data is collected separately for the set of sample
-        // periods defined by the sequential and annual sample counts. These
-        // two types of data are fetched and stored in different collections.
-
-        Set<DimensionalItemObject> items = new HashSet<>(); // Non-sampled items.
-        Set<DimensionalItemObject> sampleItems = new HashSet<>(); // Sampled items.
-        expressionService.getExpressionDimensionalItemObjects( generator.getExpression(), PREDICTOR_EXPRESSION, items, sampleItems );
-        if ( skipTest != null )
-        {
-            expressionService.getExpressionDimensionalItemObjects( skipTest.getExpression(), PREDICTOR_SKIP_TEST, sampleItems, new HashSet<>() );
-        }
-        Map<String, Constant> constantMap = constantService.getConstantMap();
-        List<Period> outputPeriods = getPeriodsBetweenDates( predictor.getPeriodType(), startDate, endDate );
-        Set<Period> existingOutputPeriods = getExistingPeriods( outputPeriods );
-        ListMap<Period, Period> samplePeriodsMap = getSamplePeriodsMap( outputPeriods, predictor );
+        join( predictAsync( predictor, startDate, endDate, predictionSummary ) );
+    }
+
+    /**
+     * Prepares a predictor in the calling thread and then predicts each
+     * partition of organisation units in a worker thread, each in its own
+     * transaction.
+     *
+     * Only identifiers, expression strings and periods are passed to the
+     * workers. Each worker loads the organisation units, data elements and
+     * option combos it needs in its own session, so that no Hibernate managed
+     * object is shared between the calling thread and the workers.
+     *
+     * @return a future which completes when all partitions are predicted.
+     */
+    private CompletableFuture<Void> predictAsync( Predictor predictor, Date startDate, Date endDate,
+        PredictionSummary predictionSummary )
+    {
+        long startTime = System.currentTimeMillis();
+        String predictorUid = predictor.getUid();
+        Expression generator = copyOf( predictor.getGenerator() );
+        Expression skipTest = copyOf( predictor.getSampleSkipTest() );
+
+        Set<DimensionalItemObject> items = new HashSet<>();
+        Set<DimensionalItemObject> sampleItems = new HashSet<>();
+        getPredictorItems( generator, skipTest, items, sampleItems );
+        boolean requireData = generator.getMissingValueStrategy() != NEVER_SKIP && ( !items.isEmpty() || !sampleItems.isEmpty() );
+
+        List<Period> periods = getPeriodsBetweenDates( predictor.getPeriodType(), startDate, endDate );
+        Set<Period> existingOutputPeriods = getExistingPeriods( periods );
+        ListMap<Period, Period> samplePeriodsMap = getSamplePeriodsMap( periods, predictor );
         Set<Period> allSamplePeriods = samplePeriodsMap.uniqueValues();
         Set<Period> existingSamplePeriods = getExistingPeriods( new ArrayList<>( allSamplePeriods ) );
-        outputPeriods = periodService.reloadPeriods( outputPeriods );
+        List<Period> outputPeriods = newTransactionTemplate.execute( status -> periodService.reloadPeriods( periods ) );
         Set<Period> outputPeriodSet = new HashSet<>( outputPeriods );
-        CategoryOptionCombo defaultCategoryOptionCombo = categoryService.getDefaultCategoryOptionCombo();
-        Set<String> defaultOptionComboAsSet = Sets.newHashSet( defaultCategoryOptionCombo.getUid() );
-        CategoryOptionCombo outputOptionCombo = predictor.getOutputCombo() == null ? defaultCategoryOptionCombo : predictor.getOutputCombo();
-        CachingMap<String, CategoryOptionCombo> cocMap = new CachingMap<>();
+
+        long outputDataElementId = predictor.getOutput().getId();
+        long outputOptionComboId = predictor.getOutputCombo() == null ?
+            categoryService.getDefaultCategoryOptionCombo().getId() : predictor.getOutputCombo().getId();
+        Set<String> defaultOptionComboAsSet = Sets.newHashSet( categoryService.getDefaultCategoryOptionCombo().getUid() );
         Date now = new Date();
-        boolean requireData = generator.getMissingValueStrategy() != NEVER_SKIP && ( !items.isEmpty() || !sampleItems.isEmpty() );
-        DimensionalItemObject predictionReference = getPredictionReference( outputDataElement, outputOptionCombo, sampleItems );
 
-        Set<OrganisationUnit> currentUserOrgUnits = new HashSet<>();
-        String storedBy = "system-process";
         User currentUser = currentUserService.getCurrentUser();
-
-        if ( currentUser != null )
-        {
-            currentUserOrgUnits = currentUser.getOrganisationUnits();
-            storedBy = currentUser.getUsername();
-        }
+        Set<OrganisationUnit> currentUserOrgUnits = currentUser != null ? currentUser.getOrganisationUnits() : new HashSet<>();
+        String storedBy = currentUser != null ? currentUser.getUsername() : "system-process";
 
         predictionSummary.incrementPredictors();
 
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+
         // Do separate predictor processing for each organisation unit level
         // selected. This is because at each level, predictions might be based
         // on data aggregated from all descendant org units. So to prevent
@@ -313,102 +356,304 @@ public class DefaultPredictionService
 
         for ( OrganisationUnitLevel orgUnitLevel : predictor.getOrganisationUnitLevels() )
         {
-            List<OrganisationUnit> orgUnitsAtLevel = organisationUnitService.getOrganisationUnitsAtOrgUnitLevels(
-                    Lists.newArrayList( orgUnitLevel ), currentUserOrgUnits );
+            List<Long> orgUnitIdsAtLevel = organisationUnitService.getOrganisationUnitsAtOrgUnitLevels(
+                    Lists.newArrayList( orgUnitLevel ), currentUserOrgUnits ).stream()
+                .map( OrganisationUnit::getId )
+                .collect( Collectors.toList() );
 
-            if ( orgUnitsAtLevel.size() == 0 )
+            if ( orgUnitIdsAtLevel.size() == 0 )
             {
                 continue;
             }
 
             // For performance, fetch the data from a bunch of orgUnits at once.
+            // Each bunch is predicted and written by a worker thread.
 
-            List<List<OrganisationUnit>> orgUnitLists = Lists.partition( orgUnitsAtLevel, 500 );
-
-            for ( List<OrganisationUnit> orgUnits : orgUnitLists )
+            for ( List<Long> orgUnitIds : Lists.partition( orgUnitIdsAtLevel, 500 ) )
             {
-                Map4<OrganisationUnit, String, Period, DimensionalItemObject, Double> sampleMap4 = sampleItems.isEmpty() ?
-                    new Map4<>() : getDataValues( sampleItems, allSamplePeriods, existingSamplePeriods, orgUnits );
-
-                Map4<OrganisationUnit, String, Period, DimensionalItemObject, Double> valueMap4 = items.isEmpty() ?
-                        new Map4<>() : getDataValues( items, outputPeriodSet, existingOutputPeriods, orgUnits );
-
-                List<DataValue> predictions = new ArrayList<>();
-
-                // For each org unit, find its sample data and its non-sample
-                // data values.
-                //
-                // We will make independent predictions for each attribute
-                // option combination, but some analytics data that is not
-                // stored by AOC must be evaluated with every AOC found.
-
-                for ( OrganisationUnit orgUnit : orgUnits )
-                {
-                    MapMapMap<String, Period, DimensionalItemObject, Double> sampleMap3 = firstNonNull( sampleMap4.get( orgUnit ), new MapMapMap<>() );
-                    MapMapMap<String, Period, DimensionalItemObject, Double> valueMap3 = firstNonNull( valueMap4.get( orgUnit ), new MapMapMap<>() );
-
-                    MapMap<Period, DimensionalItemObject, Double> sampleMapNonAoc = firstNonNull( sampleMap3.get( NON_AOC ), new MapMap<>() );
-                    MapMap<Period, DimensionalItemObject, Double> valueMapNonAoc = firstNonNull( valueMap3.get( NON_AOC ), new MapMap<>() );
-
-                    Set<String> attributeOptionCombos = getAttributeOptionCombos( sampleMap3, valueMap3, defaultOptionComboAsSet );
-
-                    // Predict independently for each AOC, adding in the data,
-                    // if any, that is stored without an AOC.
-
-                    for ( String aoc : attributeOptionCombos )
+                futures.add( runAsync( () -> {
+
+                    // Note that data is collected for the output (predicted)
+                    // period based on items that are not enclosed within
+                    // vector functions (like sum, stddev, etc.) For items that
+                    // are within vector functions, and for skip tests, data is
+                    // collected separately for the set of sample periods
+                    // defined by the sequential and annual sample counts. These
+                    // two types of data are fetched and stored in different
+                    // collections. The items are loaded again in the worker's
+                    // own session.
+
+                    Set<DimensionalItemObject> workerItems = new HashSet<>(); // Non-sampled items.
+                    Set<DimensionalItemObject> workerSampleItems = new HashSet<>(); // Sampled items.
+                    getPredictorItems( generator, skipTest, workerItems, workerSampleItems );
+
+                    List<OrganisationUnit> orgUnits = organisationUnitService.getOrganisationUnits( orgUnitIds );
+                    DataElement outputDataElement = idObjectManager.get( DataElement.class, outputDataElementId );
+                    CategoryOptionCombo outputOptionCombo = categoryService.getCategoryOptionCombo( outputOptionComboId );
+                    DimensionalItemObject predictionReference = getPredictionReference( outputDataElement, outputOptionCombo, workerSampleItems );
+                    Map<String, Constant> constantMap = constantService.getConstantMap();
+                    CachingMap<String, CategoryOptionCombo> cocMap = new CachingMap<>();
+
+                    Map4<OrganisationUnit, String, Period, DimensionalItemObject, Double> sampleMap4 = workerSampleItems.isEmpty() ?
+                        new Map4<>() : getDataValues( workerSampleItems, allSamplePeriods, existingSamplePeriods, orgUnits );
+
+                    Map4<OrganisationUnit, String, Period, DimensionalItemObject, Double> valueMap4 = workerItems.isEmpty() ?
+                            new Map4<>() : getDataValues( workerItems, outputPeriodSet, existingOutputPeriods, orgUnits );
+
+                    List<DataValue> predictions = new ArrayList<>();
+
+                    // For each org unit, find its sample data and its non-sample
+                    // data values.
+                    //
+                    // We will make independent predictions for each attribute
+                    // option combination, but some analytics data that is not
+                    // stored by AOC must be evaluated with every AOC found.
+
+                    for ( OrganisationUnit orgUnit : orgUnits )
                     {
-                        MapMap<Period, DimensionalItemObject, Double> sampleMap2 = firstNonNull( sampleMap3.get( aoc ), new MapMap<>() );
-                        MapMap<Period, DimensionalItemObject, Double> valueMap2 = firstNonNull( valueMap3.get( aoc ), new MapMap<>() );
+                        MapMapMap<String, Period, DimensionalItemObject, Double> sampleMap3 = firstNonNull( sampleMap4.get( orgUnit ), new MapMapMap<>() );
+                        MapMapMap<String, Period, DimensionalItemObject, Double> valueMap3 = firstNonNull( valueMap4.get( orgUnit ), new MapMapMap<>() );
 
-                        sampleMap2.putMap( sampleMapNonAoc );
-                        valueMap2.putMap( valueMapNonAoc );
+                        MapMap<Period, DimensionalItemObject, Double> sampleMapNonAoc = firstNonNull( sampleMap3.get( NON_AOC ), new MapMap<>() );
+                        MapMap<Period, DimensionalItemObject, Double> valueMapNonAoc = firstNonNull( valueMap3.get( NON_AOC ), new MapMap<>() );
 
-                        MapMap<Period, DimensionalItemObject, Double> periodValueMap = applySkipTest( sampleMap2, skipTest, constantMap );
+                        Set<String> attributeOptionCombos = getAttributeOptionCombos( sampleMap3, valueMap3, defaultOptionComboAsSet );
 
-                        // Predict for each output period.
+                        // Predict independently for each AOC, adding in the data,
+                        // if any, that is stored without an AOC.
 
-                        for ( Period outputPeriod : outputPeriods )
+                        for ( String aoc : attributeOptionCombos )
                         {
-                            Map<DimensionalItemObject, Double> valueMap = firstNonNull( valueMap2.get( outputPeriod ), new HashMap<>() );
+                            MapMap<Period, DimensionalItemObject, Double> sampleMap2 = firstNonNull( sampleMap3.get( aoc ), new MapMap<>() );
+                            MapMap<Period, DimensionalItemObject, Double> valueMap2 = firstNonNull( valueMap3.get( aoc ), new MapMap<>() );
 
-                            if ( requireData && dataIsAbsent( outputPeriod, valueMap, samplePeriodsMap, periodValueMap ) )
-                            {
-                                continue;
-                            }
+                            sampleMap2.putMap( sampleMapNonAoc );
+                            valueMap2.putMap( valueMapNonAoc );
 
-                            Double value = castDouble( expressionService.getExpressionValue( generator.getExpression(),
-                                    PREDICTOR_EXPRESSION, valueMap, constantMap, null,
-                                    outputPeriod.getDaysInPeriod(), generator.getMissingValueStrategy(),
-                                    samplePeriodsMap.get( outputPeriod ), periodValueMap ) );
+                            MapMap<Period, DimensionalItemObject, Double> periodValueMap = applySkipTest( sampleMap2, skipTest, constantMap );
 
-                            carryPredictionForward( value, outputPeriod, predictionReference, periodValueMap );
+                            // Predict for each output period.
 
-                            if ( value != null && !value.isNaN() && !value.isInfinite() &&
-                                !dataValueIsZeroAndInsignificant( Double.toString( value ), outputDataElement ) )
+                            for ( Period outputPeriod : outputPeriods )
                             {
-                                String valueString = outputDataElement.getValueType().isInteger() ?
-                                    Long.toString( Math.round( value ) ) :
-                                    Double.toString( MathUtils.roundFraction( value, 4 ) );
-
-                                predictions.add( new DataValue( outputDataElement,
-                                    outputPeriod, orgUnit, outputOptionCombo,
-                                    cocMap.get( aoc, () -> categoryService.getCategoryOptionCombo( aoc ) ),
-                                    valueString, storedBy, now, null ) );
+                                Map<DimensionalItemObject, Double> valueMap = firstNonNull( valueMap2.get( outputPeriod ), new HashMap<>() );
+
+                                if ( requireData && dataIsAbsent( outputPeriod, valueMap, samplePeriodsMap, periodValueMap ) )
+                                {
+                                    continue;
+                                }
+
+                                Double value = castDouble( expressionService.getExpressionValue( generator.getExpression(),
+                                        PREDICTOR_EXPRESSION, valueMap, constantMap, null,
+                                        outputPeriod.getDaysInPeriod(), generator.getMissingValueStrategy(),
+                                        samplePeriodsMap.get( outputPeriod ), periodValueMap ) );
+
+                                carryPredictionForward( value, outputPeriod, predictionReference, periodValueMap );
+
+                                if ( value != null && !value.isNaN() && !value.isInfinite() &&
+                                    !dataValueIsZeroAndInsignificant( Double.toString( value ), outputDataElement ) )
+                                {
+                                    String valueString = outputDataElement.getValueType().isInteger() ?
+                                        Long.toString( Math.round( value ) ) :
+                                        Double.toString( MathUtils.roundFraction( value, 4 ) );
+
+                                    predictions.add( new DataValue( outputDataElement,
+                                        outputPeriod, orgUnit, outputOptionCombo,
+                                        cocMap.get( aoc, () -> categoryService.getCategoryOptionCombo( aoc ) ),
+                                        valueString, storedBy, now, null ) );
+                                }
                             }
                         }
                     }
-                }
 
-                writePredictions( predictions, outputDataElement, outputOptionCombo,
-                    outputPeriodSet, existingOutputPeriods, orgUnits, storedBy, predictionSummary );
+                    writePredictions( predictions, outputDataElement, outputOptionCombo,
+                        outputPeriodSet, orgUnits, storedBy, predictionSummary );
+                } ) );
             }
         }
+
+        return CompletableFuture.allOf( futures.toArray( new CompletableFuture[0] ) )
+            .whenComplete( ( result, ex ) -> predictionSummary.addPredictorTime(
+                predictorUid, System.currentTimeMillis() - startTime ) );
     }
 
     // -------------------------------------------------------------------------
     // Supportive Methods
     // -------------------------------------------------------------------------
 
+    /**
+     * Groups predictors into stages which can be run in sequence, where each
+     * predictor runs in a stage after any predictors whose output it uses,
+     * and after any predictors earlier in the list with the same output.
+     * Predictors in the same stage neither read nor write each other's
+     * output. If there is a dependency cycle, the first remaining predictor
+     * is run by itself.
+     *
+     * @param predictors the predictors to run.
+     * @return the predictors grouped into stages.
+     */
+    List<List<Predictor>> getPredictorStages( List<Predictor> predictors )
+    {
+        Map<Predictor, Set<DataElement>> inputMap = new HashMap<>();
+
+        for ( Predictor predictor : predictors )
+        {
+            inputMap.put( predictor, getInputDataElements( predictor ) );
+        }
+
+        List<List<Predictor>> stages = new ArrayList<>();
+        List<Predictor> remaining = new ArrayList<>( predictors );
+
+        while ( !remaining.isEmpty() )
+        {
+            List<Predictor> stage = new ArrayList<>();
+
+            for ( int i = 0; i < remaining.size(); i++ )
+            {
+                Predictor predictor = remaining.get( i );
+                Set<DataElement> inputs = inputMap.get( predictor );
+                List<Predictor> earlier = remaining.subList( 0, i );
+
+                boolean dependent = remaining.stream().anyMatch( p -> p != predictor && inputs.contains( p.getOutput() ) )
+                    || earlier.stream().anyMatch( p -> p.getOutput().equals( predictor.getOutput() ) );
+
+                if ( !dependent )
+                {
+                    stage.add( predictor );
+                }
+            }
+
+            if ( stage.isEmpty() )
+            {
+                stage.add( remaining.get( 0 ) );
+            }
+
+            remaining.removeAll( stage );
+            stages.add( stage );
+        }
+
+        return stages;
+    }
+
+    /**
+     * Gets the data elements used as input by a predictor's generator and
+     * skip test, either directly or through data element operands.
+     *
+     * @param predictor the predictor.
+     * @return the input data elements.
+     */
+    private Set<DataElement> getInputDataElements( Predictor predictor )
+    {
+        Set<DimensionalItemObject> items = new HashSet<>();
+
+        expressionService.getExpressionDimensionalItemObjects( predictor.getGenerator().getExpression(),
+            PREDICTOR_EXPRESSION, items, items );
+
+        if ( predictor.getSampleSkipTest() != null )
+        {
+            expressionService.getExpressionDimensionalItemObjects( predictor.getSampleSkipTest().getExpression(),
+                PREDICTOR_SKIP_TEST, items, items );
+        }
+
+        Set<DataElement> dataElements = new HashSet<>();
+
+        for ( DimensionalItemObject item : items )
+        {
+            if ( item instanceof DataElement )
+            {
+                dataElements.add( (DataElement) item );
+            }
+            else if ( item instanceof DataElementOperand )
+            {
+                dataElements.add( ( (DataElementOperand) item ).getDataElement() );
+            }
+        }
+
+        return dataElements;
+    }
+
+    /**
+     * Gets the items used by a predictor's generator and skip test. Items
+     * which are not sampled are added to items, and items which are sampled
+     * (including all skip test items) are added to sampleItems.
+     *
+     * @param generator the generator expression.
+     * @param skipTest the skip test expression, or null.
+     * @param items set to add the non-sampled items to.
+     * @param sampleItems set to add the sampled items to.
+     */
+    private void getPredictorItems( Expression generator, Expression skipTest,
+        Set<DimensionalItemObject> items, Set<DimensionalItemObject> sampleItems )
+    {
+        expressionService.getExpressionDimensionalItemObjects( generator.getExpression(), PREDICTOR_EXPRESSION, items, sampleItems );
+
+        if ( skipTest != null )
+        {
+            expressionService.getExpressionDimensionalItemObjects( skipTest.getExpression(), PREDICTOR_SKIP_TEST, sampleItems, new HashSet<>() );
+        }
+    }
+
+    /**
+     * Makes a transient copy of an expression, so that it can be used in
+     * worker threads without referring to a Hibernate managed object.
+     *
+     * @param expression the expression, or null.
+     * @return a copy of the expression, or null.
+     */
+    private static Expression copyOf( Expression expression )
+    {
+        return expression == null ? null : new Expression( expression.getExpression(),
+            expression.getDescription(), expression.getMissingValueStrategy() );
+    }
+
+    /**
+     * Runs a task in a worker thread, in its own transaction and in the
+     * security context of the calling thread.
+     *
+     * @param task the task to run.
+     * @return a future which completes when the task is done.
+     */
+    private CompletableFuture<Void> runAsync( Runnable task )
+    {
+        return CompletableFuture.runAsync( new SecurityContextRunnable()
+        {
+            @Override
+            public void call()
+            {
+                transactionTemplate.execute( status -> {
+                    task.run();
+                    return null;
+                } );
+            }
+
+            @Override
+            public void handleError( Throwable ex )
+            {
+                Throwables.throwIfUnchecked( ex );
+                throw new RuntimeException( ex );
+            }
+        }, executor );
+    }
+
+    /**
+     * Waits for a future to complete, rethrowing any runtime exception
+     * thrown by the task as is.
+     *
+     * @param future the future.
+     */
+    private static void join( CompletableFuture<Void> future )
+    {
+        try
+        {
+            future.join();
+        }
+        catch ( CompletionException ex )
+        {
+            Throwables.throwIfUnchecked( ex.getCause() );
+            throw ex;
+        }
+    }
+
     /**
      * For a predictor and orgUnit, determines the set of attribute option
      * combos for which predictions will be generated.
@@ -899,12 +1144,11 @@ public class DefaultPredictionService
      * @param outputDataElement Predictor output data elmeent.
      * @param outputOptionCombo Predictor output category option commbo.
      * @param periods Periods to predict for.
-     * @param existingPeriods Those periods to predict for already in DB.
      * @param orgUnits Organisation units to predict for.
      * @param summary Prediction summary to update.
      */
     private void writePredictions( List<DataValue> predictions, DataElement outputDataElement,
-        CategoryOptionCombo outputOptionCombo, Set<Period> periods, Set<Period> existingPeriods,
+        CategoryOptionCombo outputOptionCombo, Set<Period> periods,
         List<OrganisationUnit> orgUnits, String storedBy, PredictionSummary summary )
     {
         DataExportParams params = new DataExportParams();
@@ -938,19 +1182,11 @@ public class DefaultPredictionService
                 summary.incrementInserted();
 
                 /*
-                 * Note: BatchHandler can be used for inserts only when the
-                 * period previously existed. To insert values into new periods
-                 * (just added to the database within this transaction), the
-                 * dataValueService must be used.
+                 * Note: BatchHandler writes through its own connection, so it
+                 * can insert values only into periods which are committed.
+                 * Output periods are committed before predicting starts.
                  */
-                if ( existingPeriods.contains( newValue.getPeriod() ) )
-                {
-                    dataValueBatchHandler.addObject( newValue );
-                }
-                else
-                {
-                    dataValueService.addDataValue( newValue );
-                }
+                dataValueBatchHandler.addObject( newValue );
             }
             else
             {
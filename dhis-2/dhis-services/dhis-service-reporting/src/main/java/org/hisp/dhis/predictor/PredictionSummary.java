@@ -28,6 +28,9 @@ package org.hisp.dhis.predictor;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlProperty;
 import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlRootElement;
@@ -55,6 +58,11 @@ public class PredictionSummary extends AbstractWebMessageResponse
 
     private int unchanged = 0;
 
+    /**
+     * Run time in milliseconds of each predictor, by predictor UID.
+     */
+    private Map<String, Long> predictorTimes = new ConcurrentHashMap<>();
+
     public PredictionSummary()
     {
     }
@@ -65,32 +73,37 @@ public class PredictionSummary extends AbstractWebMessageResponse
         this.description = description;
     }
 
-    public void incrementInserted()
+    public synchronized void incrementInserted()
     {
         inserted += 1;
     }
 
-    public void incrementPredictors()
+    public synchronized void incrementPredictors()
     {
         predictors += 1;
     }
 
-    public void incrementUpdated()
+    public synchronized void incrementUpdated()
     {
         updated += 1;
     }
 
-    public void incrementDeleted()
+    public synchronized void incrementDeleted()
     {
         deleted += 1;
     }
 
-    public void incrementUnchanged()
+    public synchronized void incrementUnchanged()
     {
         unchanged += 1;
     }
 
-    public int getPredictions()
+    public void addPredictorTime( String predictorUid, long millis )
+    {
+        predictorTimes.put( predictorUid, millis );
+    }
+
+    public synchronized int getPredictions()
     {
         return inserted + updated + unchanged;
     }
@@ -156,6 +169,13 @@ public class PredictionSummary extends AbstractWebMessageResponse
         return unchanged;
     }
 
+    @JsonProperty
+    @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
+    public Map<String, Long> getPredictorTimes()
+    {
+        return predictorTimes;
+    }
+
     @Override
     public String toString()
     {
@@ -167,6 +187,7 @@ public class PredictionSummary extends AbstractWebMessageResponse
             ", updated=" + updated +
             ", deleted=" + deleted +
             ", unchanged=" + unchanged +
+            ", predictorTimes=" + predictorTimes +
             '}';
     }
 }
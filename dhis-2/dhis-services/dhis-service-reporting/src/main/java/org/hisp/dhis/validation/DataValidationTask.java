@@ -53,6 +53,7 @@ import org.hisp.dhis.datavalue.DataExportParams;
 import org.hisp.dhis.datavalue.DataValueService;
 import org.hisp.dhis.datavalue.DeflatedDataValue;
 import org.hisp.dhis.expression.Expression;
+import org.hisp.dhis.expression.ExpressionEvaluator;
 import org.hisp.dhis.expression.ExpressionService;
 import org.hisp.dhis.expression.Operator;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
@@ -379,7 +380,7 @@ public class DataValidationTask
     {
         if ( validationResults.size() > 0 )
         {
-            context.getValidationResults().addAll( validationResults );
+            context.addValidationResults( validationResults );
         }
     }
 
@@ -474,6 +475,9 @@ public class DataValidationTask
             }
         }
 
+        ExpressionEvaluator evaluator = expressionService.compileExpression( expression.getExpression(),
+            VALIDATION_RULE_EXPRESSION, context.getConstantMap(), expression.getMissingValueStrategy() );
+
         for ( Map.Entry<String, Map<DimensionalItemObject, Double>> entry : aocValues.entrySet() )
         {
             Map<DimensionalItemObject, Double> values = entry.getValue();
@@ -483,9 +487,7 @@ public class DataValidationTask
                 values.putAll( nonAocValues );
             }
 
-            Double value = expressionService.getExpressionValue( expression.getExpression(),
-                VALIDATION_RULE_EXPRESSION, values, context.getConstantMap(), null,
-                period.getDaysInPeriod(), expression.getMissingValueStrategy() );
+            Double value = (Double) evaluator.evaluate( values, null, period.getDaysInPeriod() );
 
             if ( MathUtils.isValidDouble( value ) )
             {
@@ -44,6 +44,7 @@ import org.hisp.dhis.dataset.DataSet;
 import org.hisp.dhis.datavalue.DataValue;
 import org.hisp.dhis.datavalue.DataValueService;
 import org.hisp.dhis.expression.ExpressionService;
+import org.hisp.dhis.jdbc.batchhandler.ValidationResultBatchHandler;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.organisationunit.OrganisationUnitService;
 import org.hisp.dhis.period.Period;
@@ -55,11 +56,14 @@ import org.hisp.dhis.system.util.Clock;
 import org.hisp.dhis.user.CurrentUserService;
 import org.hisp.dhis.user.User;
 import org.hisp.dhis.validation.notification.ValidationNotificationService;
+import org.hisp.quick.BatchHandler;
+import org.hisp.quick.BatchHandlerFactory;
 import org.springframework.context.ApplicationContext;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.*;
+import java.util.stream.Collectors;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static org.hisp.dhis.expression.ParseType.VALIDATION_RULE_EXPRESSION;
@@ -97,6 +101,8 @@ public class DefaultValidationService
 
     private final ValidationResultService validationResultService;
 
+    private final BatchHandlerFactory batchHandlerFactory;
+
     private AnalyticsService analyticsService;
     
     private CurrentUserService currentUserService;
@@ -106,7 +112,8 @@ public class DefaultValidationService
         CategoryService categoryService, ConstantService constantService,
         ValidationNotificationService notificationService, ValidationRuleService validationRuleService,
         ApplicationContext applicationContext, ValidationResultService validationResultService,
-        AnalyticsService analyticsService, CurrentUserService currentUserService )
+        AnalyticsService analyticsService, CurrentUserService currentUserService,
+        BatchHandlerFactory batchHandlerFactory )
     {
         checkNotNull( periodService );
         checkNotNull( organisationUnitService );
@@ -121,6 +128,7 @@ public class DefaultValidationService
         checkNotNull( validationResultService );
         checkNotNull( analyticsService );
         checkNotNull( currentUserService );
+        checkNotNull( batchHandlerFactory );
 
         this.periodService = periodService;
         this.organisationUnitService = organisationUnitService;
@@ -135,6 +143,7 @@ public class DefaultValidationService
         this.validationResultService = validationResultService;
         this.analyticsService = analyticsService;
         this.currentUserService = currentUserService;
+        this.batchHandlerFactory = batchHandlerFactory;
     }
 
     /**
@@ -171,18 +180,34 @@ public class DefaultValidationService
             + ( parameters.isPersistResults() ? ", persisting results" : "" )
             + ( parameters.isSendNotifications() ? ", sending notifications" : "" ) );
 
-        ValidationRunContext context = getValidationContext( parameters );
+        BatchHandler<ValidationResult> validationResultBatchHandler = parameters.isPersistResults()
+            && parameters.isStreamResults()
+            ? batchHandlerFactory.createBatchHandler( ValidationResultBatchHandler.class ).init() : null;
+
+        ValidationRunContext context = getValidationContext( parameters, validationResultBatchHandler );
 
         clock.logTime( "Initialized validation analysis" );
 
-        Collection<ValidationResult> results = Validator.validate( context, applicationContext, analyticsService );
+        Collection<ValidationResult> results;
+
+        try
+        {
+            results = Validator.validate( context, applicationContext, analyticsService );
+        }
+        finally
+        {
+            if ( validationResultBatchHandler != null )
+            {
+                validationResultBatchHandler.flush();
+            }
+        }
 
-        if ( context.isPersistResults() )
+        if ( context.isPersistResults() && validationResultBatchHandler == null )
         {
             validationResultService.saveValidationResults( context.getValidationResults() );
         }
 
-        clock.logTime( "Finished validation analysis, " +  context.getValidationResults().size() + " results").stop();
+        clock.logTime( "Finished validation analysis, " +  context.getValidationResultCount() + " results").stop();
 
         if ( context.isSendNotifications() )
         {
@@ -260,9 +285,11 @@ public class DefaultValidationService
      * Returns a new Builder with basic configuration based on the input parameters.
      *
      * @param parameters        ValidationRuleParameters for creating ValidationRuleContext
+     * @param validationResultBatchHandler batch handler to stream results to, or null to keep them in memory
      * @return Builder with basic configuration based on input.
      */
-    private ValidationRunContext getValidationContext( ValidationAnalysisParams parameters )
+    private ValidationRunContext getValidationContext( ValidationAnalysisParams parameters,
+        BatchHandler<ValidationResult> validationResultBatchHandler )
     {
         User currentUser = currentUserService.getCurrentUser();
 
@@ -283,7 +310,10 @@ public class DefaultValidationService
 
         Map<PeriodType, PeriodTypeExtended> periodTypeXMap = new HashMap<>();
 
-        addPeriodsToContext( periodTypeXMap, parameters.getPeriods() );
+        // Streamed results refer to their period by id, so it must be stored
+
+        addPeriodsToContext( periodTypeXMap, validationResultBatchHandler != null
+            ? periodService.reloadPeriods( new ArrayList<>( parameters.getPeriods() ) ) : parameters.getPeriods() );
         addRulesToContext( periodTypeXMap, parameters.getRules() );
         removeAnyUnneededPeriodTypes( periodTypeXMap );
 
@@ -300,6 +330,25 @@ public class DefaultValidationService
             .withDefaultAttributeCombo( categoryService.getDefaultCategoryOptionCombo() )
             .withMaxResults( parameters.getMaxResults() );
 
+        if ( validationResultBatchHandler != null )
+        {
+            builder.withValidationResultConsumer( validationResults ->
+                addValidationResults( validationResultBatchHandler, validationResults ) );
+
+            if ( parameters.isSendNotifications() )
+            {
+                // Notifications only need results of rules with notification templates
+
+                Set<Long> notificationRules = parameters.getRules().stream()
+                    .filter( rule -> !rule.getNotificationTemplates().isEmpty() )
+                    .map( ValidationRule::getId )
+                    .collect( Collectors.toSet() );
+
+                builder.withRetainedValidationResults( validationResult ->
+                    notificationRules.contains( validationResult.getValidationRule().getId() ) );
+            }
+        }
+
         if ( currentUser != null )
         {
             builder
@@ -312,6 +361,27 @@ public class DefaultValidationService
         return builder.build();
     }
 
+    /**
+     * Writes validation results to the database through a batch handler.
+     * Validation tasks call this concurrently, so access to the batch
+     * handler is synchronized.
+     *
+     * @param validationResultBatchHandler the batch handler.
+     * @param validationResults the validation results to write.
+     */
+    private static void addValidationResults( BatchHandler<ValidationResult> validationResultBatchHandler,
+        Collection<ValidationResult> validationResults )
+    {
+        synchronized ( validationResultBatchHandler )
+        {
+            for ( ValidationResult validationResult : validationResults )
+            {
+                validationResult.setCreated( new Date() );
+                validationResultBatchHandler.addObject( validationResult );
+            }
+        }
+    }
+
     /**
      * Adds Periods to the context, grouped by period type.
      *
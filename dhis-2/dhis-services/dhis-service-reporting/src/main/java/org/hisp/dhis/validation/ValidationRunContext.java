@@ -47,6 +47,9 @@ import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * This class keeps track of a validation analysis. It contains information about the initial params of the analysis,
@@ -62,6 +65,12 @@ public class ValidationRunContext
 
     private Queue<ValidationResult> validationResults;
 
+    private AtomicInteger validationResultCount = new AtomicInteger();
+
+    private Consumer<Collection<ValidationResult>> validationResultConsumer;
+
+    private Predicate<ValidationResult> retainedValidationResults;
+
     private List<OrganisationUnit> orgUnits;
 
     private List<PeriodTypeExtended> periodTypeXs;
@@ -162,6 +171,11 @@ public class ValidationRunContext
         return validationResults;
     }
 
+    public int getValidationResultCount()
+    {
+        return validationResultCount.get();
+    }
+
     public Map<Long, Period> getPeriodIdMap()
     {
         return periodIdMap;
@@ -181,6 +195,34 @@ public class ValidationRunContext
     // Logic
     // -------------------------------------------------------------------------
 
+    /**
+     * Adds validation results found by a validation task. The results are
+     * passed on to the validation result consumer if there is one, otherwise
+     * they are kept in memory until the analysis is done. With a consumer,
+     * results matching the retained validation results filter are kept in
+     * memory as well.
+     *
+     * @param results the validation results.
+     */
+    public void addValidationResults( Collection<ValidationResult> results )
+    {
+        validationResultCount.addAndGet( results.size() );
+
+        if ( validationResultConsumer != null )
+        {
+            validationResultConsumer.accept( results );
+
+            if ( retainedValidationResults != null )
+            {
+                results.stream().filter( retainedValidationResults ).forEach( validationResults::add );
+            }
+        }
+        else
+        {
+            validationResults.addAll( results );
+        }
+    }
+
     public boolean skipValidationOfTuple( OrganisationUnit organisationUnit, ValidationRule validationRule,
         Period period, String attributeOptionCombo, int dayInPeriod )
     {
@@ -203,14 +245,9 @@ public class ValidationRunContext
 
     }
 
-    public int getNumberOfTasks()
-    {
-        return ( orgUnits.size() + ORG_UNITS_PER_TASK - 1 ) / ORG_UNITS_PER_TASK;
-    }
-
     public boolean isAnalysisComplete()
     {
-        return validationResults.size() >= maxResults;
+        return validationResultCount.get() >= maxResults;
     }
 
     // -------------------------------------------------------------------------
@@ -342,9 +379,37 @@ public class ValidationRunContext
             return this;
         }
 
+        /**
+         * Streams the validation results to the given consumer as they are
+         * found, instead of keeping them in memory. The consumer is called
+         * concurrently by the validation tasks.
+         *
+         * @param validationResultConsumer the validation result consumer.
+         */
+        public Builder withValidationResultConsumer( Consumer<Collection<ValidationResult>> validationResultConsumer )
+        {
+            this.context.validationResultConsumer = validationResultConsumer;
+            return this;
+        }
+
+        /**
+         * Keeps the streamed validation results which match the given filter
+         * in memory as well, for instance those needed to send notifications
+         * once the analysis is done. The filter is called concurrently by the
+         * validation tasks.
+         *
+         * @param retainedValidationResults the filter of results to keep.
+         */
+        public Builder withRetainedValidationResults( Predicate<ValidationResult> retainedValidationResults )
+        {
+            this.context.retainedValidationResults = retainedValidationResults;
+            return this;
+        }
+
         public Builder withInitialResults( Collection<ValidationResult> results )
         {
             this.context.validationResults.addAll( results );
+            this.context.validationResultCount.addAndGet( results.size() );
 
             results.forEach( validationResult -> {
                 List<ValidationResult> res = context.initialValidationResults
@@ -28,7 +28,6 @@ package org.hisp.dhis.validation;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
-import com.google.common.collect.Lists;
 import org.hisp.dhis.analytics.AnalyticsService;
 import org.hisp.dhis.category.CategoryService;
 import org.hisp.dhis.commons.util.SystemUtils;
@@ -36,10 +35,11 @@ import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.springframework.context.ApplicationContext;
 
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * Evaluates validation rules.
@@ -48,51 +48,48 @@ import java.util.concurrent.TimeUnit;
  */
 public class Validator
 {
+    /**
+     * Pool shared by all validation runs. Uses one thread less than the
+     * number of CPU cores when there are more than two.
+     */
+    private static final ForkJoinPool POOL = new ForkJoinPool( getParallelism() );
+
+    /**
+     * Number of organisation unit chunks to aim for per pool thread, so that
+     * idle threads can steal chunks from busy ones.
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+
     /**
      * Evaluates validation rules for a collection of organisation units. This
-     * method breaks the job down by organisation unit. It assigns the
-     * evaluation for each organisation unit to a task that can be evaluated
-     * independently in a multi-threaded environment.
+     * method breaks the job down by organisation unit. The organisation units
+     * are split recursively into chunks of about the same expected workload,
+     * which are evaluated independently in a shared work-stealing pool.
      * <p/>
      * Return early with no results if there are no organisation units
      * or no validation rules.
      *
-     * @return a collection of any validations that were found
+     * @return a collection of any validations that were found, not including
+     *         results passed to the validation result consumer of the context
      */
     public static Collection<ValidationResult> validate( ValidationRunContext context,
         ApplicationContext applicationContext, AnalyticsService analyticsService )
     {
         CategoryService categoryService = applicationContext.getBean( CategoryService.class );
-                
-        int threadPoolSize = getThreadPoolSize( context );
 
-        if ( threadPoolSize == 0 || context.getPeriodTypeXs().isEmpty() )
+        int orgUnitCount = context.getOrgUnits().size();
+
+        if ( orgUnitCount == 0 || context.getPeriodTypeXs().isEmpty() )
         {
             return context.getValidationResults();
         }
 
-        ExecutorService executor = Executors.newFixedThreadPool( threadPoolSize );
-
-        List<List<OrganisationUnit>> orgUnitLists = Lists.partition( context.getOrgUnits(), ValidationRunContext.ORG_UNITS_PER_TASK );
-
-        for ( List<OrganisationUnit> orgUnits : orgUnitLists )
-        {
-            ValidationTask task = (ValidationTask) applicationContext.getBean( DataValidationTask.NAME );
-            task.init( orgUnits, context, analyticsService );
-
-            executor.execute( task );
-        }
+        long[] cumulativeWorkload = getCumulativeWorkload( context );
 
-        executor.shutdown();
+        long chunkWorkload = Math.max( 1, cumulativeWorkload[orgUnitCount] / ( POOL.getParallelism() * CHUNKS_PER_THREAD ) );
 
-        try
-        {
-            executor.awaitTermination( 6, TimeUnit.HOURS );
-        }
-        catch ( InterruptedException e )
-        {
-            executor.shutdownNow();
-        }
+        POOL.invoke( new ValidationAction( context, applicationContext, analyticsService,
+            cumulativeWorkload, chunkWorkload, 0, orgUnitCount ) );
 
         reloadAttributeOptionCombos( context.getValidationResults(), categoryService );
 
@@ -102,10 +99,9 @@ public class Validator
     /**
      * Determines how many threads we should use for testing validation rules.
      * 
-     * @param context validation run context
      * @return number of threads we should use for testing validation rules
      */
-    private static int getThreadPoolSize( ValidationRunContext context )
+    private static int getParallelism()
     {
         int threadPoolSize = SystemUtils.getCpuCores();
 
@@ -114,14 +110,86 @@ public class Validator
             threadPoolSize--;
         }
 
-        int numberOfTasks = context.getNumberOfTasks();
+        return threadPoolSize;
+    }
 
-        if ( threadPoolSize > numberOfTasks )
+    /**
+     * Estimates the workload of each organisation unit as the number of rule
+     * and period combinations to evaluate for it. Indicators and event items
+     * are fetched from analytics, which aggregates the data of all descendants,
+     * so for period types using them the workload of an organisation unit
+     * grows with the number of its descendants in the analysis.
+     *
+     * @param context validation run context
+     * @return the cumulative workload, where element i is the workload of
+     *         the first i organisation units
+     */
+    private static long[] getCumulativeWorkload( ValidationRunContext context )
+    {
+        List<OrganisationUnit> orgUnits = context.getOrgUnits();
+
+        boolean analyticsNeeded = context.getPeriodTypeXs().stream()
+            .anyMatch( ptx -> !ptx.getIndicators().isEmpty() || !ptx.getEventItems().isEmpty() );
+
+        Map<Long, Integer> descendantCounts = analyticsNeeded ? getDescendantCounts( orgUnits ) : new HashMap<>();
+
+        Map<PeriodTypeExtended, Map<Integer, Long>> levelRuleCounts = new HashMap<>();
+
+        long[] cumulativeWorkload = new long[orgUnits.size() + 1];
+
+        for ( int i = 0; i < orgUnits.size(); i++ )
         {
-            threadPoolSize = numberOfTasks;
+            OrganisationUnit orgUnit = orgUnits.get( i );
+
+            long workload = 0;
+
+            for ( PeriodTypeExtended periodTypeX : context.getPeriodTypeXs() )
+            {
+                long ruleCount = levelRuleCounts.computeIfAbsent( periodTypeX, ptx -> new HashMap<>() )
+                    .computeIfAbsent( orgUnit.getLevel(), level -> periodTypeX.getRuleXs().stream()
+                        .filter( r -> r.getOrganisationUnitLevels().isEmpty() || r.getOrganisationUnitLevels().contains( level ) )
+                        .count() );
+
+                long periodTypeWorkload = ruleCount * periodTypeX.getPeriods().size();
+
+                if ( !periodTypeX.getIndicators().isEmpty() || !periodTypeX.getEventItems().isEmpty() )
+                {
+                    periodTypeWorkload *= 1 + descendantCounts.getOrDefault( orgUnit.getId(), 0 );
+                }
+
+                workload += periodTypeWorkload;
+            }
+
+            cumulativeWorkload[i + 1] = cumulativeWorkload[i] + Math.max( 1, workload );
         }
 
-        return threadPoolSize;
+        return cumulativeWorkload;
+    }
+
+    /**
+     * Counts the descendants of each organisation unit among the given
+     * organisation units.
+     *
+     * @param orgUnits the organisation units
+     * @return map from organisation unit id to number of descendants
+     */
+    private static Map<Long, Integer> getDescendantCounts( List<OrganisationUnit> orgUnits )
+    {
+        Map<Long, Integer> descendantCounts = new HashMap<>();
+
+        for ( OrganisationUnit orgUnit : orgUnits )
+        {
+            OrganisationUnit ancestor = orgUnit.getParent();
+
+            for ( int i = 1; ancestor != null && i < orgUnit.getLevel(); i++ ) // Level limit protects against cycles
+            {
+                descendantCounts.merge( ancestor.getId(), 1, Integer::sum );
+
+                ancestor = ancestor.getParent();
+            }
+        }
+
+        return descendantCounts;
     }
 
     /**
@@ -139,4 +207,110 @@ public class Validator
                 .getCategoryOptionCombo( result.getAttributeOptionCombo().getId() ) );
         }
     }
+
+    /**
+     * Evaluates validation rules for a range of the organisation units in a
+     * validation run. Ranges with more than the chunk workload, or with more
+     * than {@link ValidationRunContext#ORG_UNITS_PER_TASK} organisation units,
+     * are split in two halves of about the same workload.
+     */
+    private static class ValidationAction
+        extends RecursiveAction
+    {
+        private final ValidationRunContext context;
+
+        private final ApplicationContext applicationContext;
+
+        private final AnalyticsService analyticsService;
+
+        private final long[] cumulativeWorkload;
+
+        private final long chunkWorkload;
+
+        private final int from;
+
+        private final int to;
+
+        private ValidationAction( ValidationRunContext context, ApplicationContext applicationContext,
+            AnalyticsService analyticsService, long[] cumulativeWorkload, long chunkWorkload, int from, int to )
+        {
+            this.context = context;
+            this.applicationContext = applicationContext;
+            this.analyticsService = analyticsService;
+            this.cumulativeWorkload = cumulativeWorkload;
+            this.chunkWorkload = chunkWorkload;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if ( context.isAnalysisComplete() )
+            {
+                return;
+            }
+
+            int size = to - from;
+
+            long workload = cumulativeWorkload[to] - cumulativeWorkload[from];
+
+            if ( size == 1 || ( size <= ValidationRunContext.ORG_UNITS_PER_TASK && workload <= chunkWorkload ) )
+            {
+                validate();
+                return;
+            }
+
+            int split = getSplit( cumulativeWorkload[from] + workload / 2 );
+
+            invokeAll( subAction( from, split ), subAction( split, to ) );
+        }
+
+        /**
+         * Finds the index where the cumulative workload first reaches the
+         * given value, keeping both halves non-empty.
+         */
+        private int getSplit( long halfWorkload )
+        {
+            int low = from + 1;
+            int high = to - 1;
+
+            while ( low < high )
+            {
+                int mid = ( low + high ) >>> 1;
+
+                if ( cumulativeWorkload[mid] < halfWorkload )
+                {
+                    low = mid + 1;
+                }
+                else
+                {
+                    high = mid;
+                }
+            }
+
+            return low;
+        }
+
+        private ValidationAction subAction( int from, int to )
+        {
+            return new ValidationAction( context, applicationContext, analyticsService,
+                cumulativeWorkload, chunkWorkload, from, to );
+        }
+
+        private void validate()
+        {
+            ValidationTask task = (ValidationTask) applicationContext.getBean( DataValidationTask.NAME );
+            task.init( context.getOrgUnits().subList( from, to ), context, analyticsService );
+
+            try
+            {
+                task.run();
+            }
+            catch ( RuntimeException ex )
+            {
+                // Already logged by the task, carry on with the other chunks
+            }
+        }
+    }
 }
@@ -61,6 +61,7 @@ import org.hisp.quick.BatchHandler;
 import org.hisp.quick.BatchHandlerFactory;
 import org.joda.time.DateTime;
 import org.junit.Test;
+import org.springframework.aop.framework.Advised;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.util.Date;
@@ -1125,6 +1126,62 @@ public class PredictionServiceTest
         assertEquals( "Pred 2 Ins 0 Upd 0 Del 0 Unch 2", shortSummary( summary ) );
     }
 
+    @Test
+    public void testPredictTaskDependentPredictors()
+    {
+        useDataValue( dataElementA, makeMonth( 2001, 6 ), sourceA, 10 );
+
+        dataValueBatchHandler.flush();
+
+        Predictor predictorA = createPredictor( dataElementX, defaultCombo, "A", expressionA, null,
+            periodTypeMonthly, orgUnitLevel1, 1, 0, 0 );
+
+        Predictor predictorB = createPredictor( dataElementY, defaultCombo, "B",
+            new Expression( "#{" + dataElementX.getUid() + "}", "descriptionX" ), null,
+            periodTypeMonthly, orgUnitLevel1, 1, 0, 0 );
+
+        predictorService.addPredictor( predictorA );
+        predictorService.addPredictor( predictorB );
+
+        List<String> predictors = Lists.newArrayList( predictorB.getUid(), predictorA.getUid() );
+
+        summary = predictionService.predictTask( monthStart( 2001, 7 ), monthStart( 2001, 8 ), predictors, null, null );
+
+        assertEquals( "Pred 2 Ins 2 Upd 0 Del 0 Unch 0", shortSummary( summary ) );
+
+        assertEquals( "10.0", getDataValue( dataElementX, defaultCombo, sourceA, makeMonth( 2001, 7 ) ) );
+        assertEquals( "10", getDataValue( dataElementY, defaultCombo, sourceA, makeMonth( 2001, 7 ) ) );
+
+        assertEquals( newHashSet( predictorA.getUid(), predictorB.getUid() ), summary.getPredictorTimes().keySet() );
+    }
+
+    @Test
+    public void testGetPredictorStagesSharedOutput()
+        throws Exception
+    {
+        Expression expressionX = new Expression( "#{" + dataElementX.getUid() + "}", "descriptionX" );
+
+        Predictor predictorA = createPredictor( dataElementX, defaultCombo, "A", expressionA, null,
+            periodTypeMonthly, orgUnitLevel1, 1, 0, 0 );
+        Predictor predictorB = createPredictor( dataElementX, defaultCombo, "B", expressionX, null,
+            periodTypeMonthly, orgUnitLevel1, 1, 0, 0 );
+        Predictor predictorC = createPredictor( dataElementY, defaultCombo, "C", expressionA, null,
+            periodTypeMonthly, orgUnitLevel1, 1, 0, 0 );
+        Predictor predictorD = createPredictor( dataElementX, defaultCombo, "D", expressionB, null,
+            periodTypeMonthly, orgUnitLevel1, 1, 0, 0 );
+
+        DefaultPredictionService defaultPredictionService = (DefaultPredictionService)
+            ( (Advised) predictionService ).getTargetSource().getTarget();
+
+        List<List<Predictor>> stages = defaultPredictionService.getPredictorStages(
+            Lists.newArrayList( predictorA, predictorB, predictorC, predictorD ) );
+
+        assertEquals( Lists.newArrayList(
+            Lists.newArrayList( predictorA, predictorC ),
+            Lists.newArrayList( predictorB ),
+            Lists.newArrayList( predictorD ) ), stages );
+    }
+
     @Test
     public void testPredictTaskPredictorGroups()
     {
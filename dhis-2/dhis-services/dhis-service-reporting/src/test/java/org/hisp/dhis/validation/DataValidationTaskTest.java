@@ -218,14 +218,9 @@ public class DataValidationTaskTest
 
     private void mockExpressionService(Expression expression, Map<DimensionalItemObject, Double> vals, ValidationRunContext ctx, Double val) {
 
-        when( expressionService.getExpressionValue( expression.getExpression(), VALIDATION_RULE_EXPRESSION, vals,
-                ctx.getConstantMap(), null, p1.getDaysInPeriod(), expression.getMissingValueStrategy() ) ).thenReturn( val );
-
-        when( expressionService.getExpressionValue( expression.getExpression(), VALIDATION_RULE_EXPRESSION, vals,
-                ctx.getConstantMap(), null, p2.getDaysInPeriod(), expression.getMissingValueStrategy() ) ).thenReturn( val );
-
-        when( expressionService.getExpressionValue( expression.getExpression(), VALIDATION_RULE_EXPRESSION, vals,
-                ctx.getConstantMap(), null, p3.getDaysInPeriod(), expression.getMissingValueStrategy() ) ).thenReturn( val );
+        when( expressionService.compileExpression( expression.getExpression(), VALIDATION_RULE_EXPRESSION,
+                ctx.getConstantMap(), expression.getMissingValueStrategy() ) )
+            .thenReturn( ( valueMap, orgUnitCountMap, days, samplePeriods, periodValueMap ) -> vals.equals( valueMap ) ? val : null );
     }
 
 
@@ -0,0 +1,138 @@
+package org.hisp.dhis.validation;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hisp.dhis.DhisConvenienceTest.createCategoryOptionCombo;
+import static org.hisp.dhis.DhisConvenienceTest.createOrganisationUnit;
+import static org.hisp.dhis.DhisConvenienceTest.createPeriod;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import org.hisp.dhis.category.CategoryOptionCombo;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.period.Period;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class ValidationRunContextTest
+{
+    private CategoryOptionCombo defaultCombo;
+
+    private ValidationRule ruleA;
+
+    private ValidationRule ruleB;
+
+    private ValidationResult resultA;
+
+    private ValidationResult resultB;
+
+    @Before
+    public void setUp()
+    {
+        defaultCombo = createCategoryOptionCombo( 'A', 'B' );
+
+        ruleA = new ValidationRule();
+        ruleA.setId( 1 );
+        ruleA.setName( "RuleA" );
+        ruleB = new ValidationRule();
+        ruleB.setId( 2 );
+        ruleB.setName( "RuleB" );
+
+        OrganisationUnit ouA = createOrganisationUnit( 'A' );
+        Period periodA = createPeriod( "201901" );
+
+        resultA = new ValidationResult( ruleA, periodA, ouA, defaultCombo, 3.0, -1.0, 1 );
+        resultB = new ValidationResult( ruleB, periodA, ouA, defaultCombo, -1.0, 4.0, 1 );
+    }
+
+    @Test
+    public void testAddValidationResults()
+    {
+        ValidationRunContext context = createContextBuilder().build();
+
+        context.addValidationResults( Lists.newArrayList( resultA, resultB ) );
+
+        assertEquals( 2, context.getValidationResults().size() );
+        assertEquals( 2, context.getValidationResultCount() );
+    }
+
+    @Test
+    public void testAddValidationResultsStreamed()
+    {
+        List<ValidationResult> streamed = new ArrayList<>();
+
+        ValidationRunContext context = createContextBuilder()
+            .withValidationResultConsumer( streamed::addAll )
+            .build();
+
+        context.addValidationResults( Lists.newArrayList( resultA, resultB ) );
+
+        assertEquals( 2, streamed.size() );
+        assertTrue( context.getValidationResults().isEmpty() );
+        assertEquals( 2, context.getValidationResultCount() );
+    }
+
+    @Test
+    public void testAddValidationResultsStreamedAndRetained()
+    {
+        List<ValidationResult> streamed = new ArrayList<>();
+
+        ValidationRunContext context = createContextBuilder()
+            .withValidationResultConsumer( streamed::addAll )
+            .withRetainedValidationResults( validationResult -> validationResult.getValidationRule().getId() == ruleA.getId() )
+            .build();
+
+        context.addValidationResults( Lists.newArrayList( resultA, resultB ) );
+
+        assertEquals( 2, streamed.size() );
+        assertEquals( 1, context.getValidationResults().size() );
+        assertTrue( context.getValidationResults().contains( resultA ) );
+        assertEquals( 2, context.getValidationResultCount() );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private ValidationRunContext.Builder createContextBuilder()
+    {
+        return ValidationRunContext.newBuilder()
+            .withOrgUnits( new ArrayList<>() )
+            .withConstantMap( new HashMap<>() )
+            .withDefaultAttributeCombo( defaultCombo )
+            .withPeriodTypeXs( new ArrayList<>() )
+            .withMaxResults( 500 );
+    }
+}
@@ -98,6 +98,9 @@ public class ValidationServiceTest
     @Autowired
     private PeriodService periodService;
 
+    @Autowired
+    private ValidationResultService validationResultService;
+
     private DataElement dataElementA;
     private DataElement dataElementB;
     private DataElement dataElementC;
@@ -694,6 +697,34 @@ public class ValidationServiceTest
         assertResultsEquals( reference, results );
     }
 
+    @Test
+    public void testValidateStreamResults()
+    {
+        useDataValue( dataElementA, periodA, sourceA, "1" );
+        useDataValue( dataElementB, periodA, sourceA, "2" );
+        useDataValue( dataElementC, periodA, sourceA, "3" );
+        useDataValue( dataElementD, periodA, sourceA, "4" );
+
+        validationRuleService.saveValidationRule( validationRuleA );
+        validationRuleService.saveValidationRule( validationRuleB );
+        validationRuleService.saveValidationRule( validationRuleC );
+        validationRuleService.saveValidationRule( validationRuleD );
+
+        Collection<ValidationResult> results = validationService.validationAnalysis( validationService.newParamsBuilder( dataSetMonthly, sourceA, periodA )
+            .withPersistResults( true )
+            .withStreamResults( true )
+            .build() );
+
+        assertEquals( 0, results.size() );
+
+        Collection<ValidationResult> reference = new HashSet<>();
+
+        reference.add( new ValidationResult( validationRuleA, periodA, sourceA, defaultCombo, 3.0, -1.0, dayInPeriodA ) );
+        reference.add( new ValidationResult( validationRuleB, periodA, sourceA, defaultCombo, -1.0, 4.0, dayInPeriodA ) );
+
+        assertResultsEquals( reference, validationResultService.getAllValidationResults() );
+    }
+
     @Test
     public void testValidateForm()
     {
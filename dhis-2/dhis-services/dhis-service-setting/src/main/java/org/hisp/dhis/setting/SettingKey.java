@@ -103,6 +103,11 @@ public enum SettingKey
     CAN_GRANT_OWN_USER_AUTHORITY_GROUPS( "keyCanGrantOwnUserAuthorityGroups", Boolean.FALSE, Boolean.class ),
     IGNORE_ANALYTICS_APPROVAL_YEAR_THRESHOLD( "keyIgnoreAnalyticsApprovalYearThreshold", -1, Integer.class ),
     ANALYTICS_MAX_LIMIT( "keyAnalyticsMaxLimit", 100000, Integer.class ),
+    ANALYTICS_COLUMNAR_GRID( "keyAnalyticsColumnarGrid", Boolean.FALSE, Boolean.class ),
+    ANALYTICS_MAX_QUERY_COST( "keyAnalyticsMaxQueryCost", 0, Integer.class ),
+    ANALYTICS_MAX_CONCURRENT_QUERIES( "keyAnalyticsMaxConcurrentQueries", 0, Integer.class ),
+    ANALYTICS_MAX_CONCURRENT_QUERIES_PER_USER( "keyAnalyticsMaxConcurrentQueriesPerUser", 0, Integer.class ),
+    ANALYTICS_QUERY_QUEUE_TIMEOUT( "keyAnalyticsQueryQueueTimeout", 120, Integer.class ),
     SQL_VIEW_MAX_LIMIT( "keySqlViewMaxLimit", -1, Integer.class ),
     RESPECT_META_DATA_START_END_DATES_IN_ANALYTICS_TABLE_EXPORT( "keyRespectMetaDataStartEndDatesInAnalyticsTableExport", Boolean.FALSE, Boolean.class ),
     SKIP_DATA_TYPE_VALIDATION_IN_ANALYTICS_TABLE_EXPORT( "keySkipDataTypeValidationInAnalyticsTableExport", Boolean.FALSE, Boolean.class ),
@@ -140,6 +145,8 @@ public enum SettingKey
     DATA_IMPORT_STRICT_ATTRIBUTE_OPTION_COMBOS( "keyDataImportStrictAttributeOptionCombos", Boolean.FALSE, Boolean.class ),
     DATA_IMPORT_REQUIRE_CATEGORY_OPTION_COMBO( "keyDataImportRequireCategoryOptionCombo", Boolean.FALSE, Boolean.class ),
     DATA_IMPORT_REQUIRE_ATTRIBUTE_OPTION_COMBO( "keyDataImportRequireAttributeOptionCombo", Boolean.FALSE, Boolean.class ),
+    DATA_IMPORT_BATCH_SIZE( "keyDataImportBatchSize", 0, Integer.class ),
+    DATA_IMPORT_THREADS( "keyDataImportThreads", 0, Integer.class ),
     CUSTOM_JS( "keyCustomJs" ),
     CUSTOM_CSS( "keyCustomCss" ),
     CALENDAR( "keyCalendar", "iso8601", String.class ),
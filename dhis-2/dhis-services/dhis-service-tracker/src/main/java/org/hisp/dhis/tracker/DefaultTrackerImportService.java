@@ -28,6 +28,7 @@ package org.hisp.dhis.tracker;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.Enums;
 import lombok.extern.slf4j.Slf4j;
 import org.hisp.dhis.common.CodeGenerator;
@@ -49,8 +50,11 @@ import org.hisp.dhis.user.CurrentUserService;
 import org.hisp.dhis.user.User;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
 
@@ -62,6 +66,11 @@ import java.util.Map;
 public class DefaultTrackerImportService
     implements TrackerImportService
 {
+    /**
+     * Max number of top level objects per chunk of a streamed payload.
+     */
+    private static final int STREAM_CHUNK_SIZE = 1000;
+
     private final TrackerBundleService trackerBundleService;
 
     private final TrackerValidationService trackerValidationService;
@@ -72,18 +81,26 @@ public class DefaultTrackerImportService
 
     private final Notifier notifier;
 
+    private final TransactionTemplate transactionTemplate;
+
+    private final ObjectMapper jsonMapper;
+
     public DefaultTrackerImportService(
         TrackerBundleService trackerBundleService,
         TrackerValidationService trackerValidationService,
         CurrentUserService currentUserService,
         IdentifiableObjectManager manager,
-        Notifier notifier )
+        Notifier notifier,
+        TransactionTemplate transactionTemplate,
+        ObjectMapper jsonMapper )
     {
         this.trackerBundleService = trackerBundleService;
         this.trackerValidationService = trackerValidationService;
         this.currentUserService = currentUserService;
         this.manager = manager;
         this.notifier = notifier;
+        this.transactionTemplate = transactionTemplate;
+        this.jsonMapper = jsonMapper;
     }
 
     @Override
@@ -160,6 +177,39 @@ public class DefaultTrackerImportService
         return importReport;
     }
 
+    @Override
+    public TrackerImportReport importTracker( TrackerImportParams params, InputStream inputStream ) throws IOException
+    {
+        TrackerImportReport importReport = new TrackerImportReport();
+
+        try ( TrackerPayloadReader reader = new TrackerPayloadReader( jsonMapper, inputStream, STREAM_CHUNK_SIZE ) )
+        {
+            TrackerBundleParams chunk;
+
+            while ( (chunk = reader.next()) != null )
+            {
+                TrackerImportParams chunkParams = getChunkParams( params, chunk );
+
+                TrackerImportReport chunkReport = transactionTemplate.execute( status -> importTracker( chunkParams ) );
+
+                importReport.getBundleReports().addAll( chunkReport.getBundleReports() );
+
+                if ( chunkReport.getStatus().ordinal() > importReport.getStatus().ordinal() )
+                {
+                    importReport.setStatus( chunkReport.getStatus() );
+                }
+
+                if ( TrackerStatus.ERROR == chunkReport.getStatus() )
+                {
+                    log.warn( "(" + params.getUsername() + ") Import:Stream stopped after failed chunk" );
+                    break;
+                }
+            }
+        }
+
+        return importReport;
+    }
+
     @Override
     public TrackerImportParams getParamsFromMap( Map<String, List<String>> parameters )
     {
@@ -182,6 +232,26 @@ public class DefaultTrackerImportService
     // Utility Methods
     //-----------------------------------------------------------------------------------
 
+    private TrackerImportParams getChunkParams( TrackerImportParams params, TrackerBundleParams chunk )
+    {
+        return TrackerImportParams.builder()
+            .userId( params.getUserId() )
+            .user( params.getUser() )
+            .importMode( params.getImportMode() )
+            .identifiers( params.getIdentifiers() )
+            .importStrategy( params.getImportStrategy() )
+            .atomicMode( params.getAtomicMode() )
+            .flushMode( params.getFlushMode() )
+            .validationMode( params.getValidationMode() )
+            .filename( params.getFilename() )
+            .reportMode( params.getReportMode() )
+            .trackedEntities( chunk.getTrackedEntities() )
+            .enrollments( chunk.getEnrollments() )
+            .events( chunk.getEvents() )
+            .relationships( chunk.getRelationships() )
+            .build();
+    }
+
     private TrackerIdentifierParams getTrackerIdentifiers( Map<String, List<String>> parameters )
     {
         TrackerIdScheme idScheme = getEnumWithDefault( TrackerIdScheme.class, parameters, "idScheme", TrackerIdScheme.UID );
@@ -42,4 +42,10 @@ public enum FlushMode
      * Let the importer decide the flushing.
      */
     AUTO,
+
+    /**
+     * Write objects with JDBC batches grouped by table, flushing once per
+     * object type.
+     */
+    BATCH,
 }
@@ -30,6 +30,8 @@ package org.hisp.dhis.tracker;
 
 import org.hisp.dhis.tracker.report.TrackerImportReport;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
 
@@ -47,6 +49,20 @@ public interface TrackerImportService
      */
     TrackerImportReport importTracker( TrackerImportParams params );
 
+    /**
+     * Import objects read incrementally from the given JSON payload. The payload is
+     * imported in chunks of a bounded number of objects, each taken through all phases
+     * of the importer in a transaction of its own, so that memory use does not grow
+     * with the size of the payload. Atomic mode applies to each chunk, and no further
+     * chunks are imported once a chunk fails.
+     *
+     * @param params Parameters for import, objects are read from the payload
+     * @param inputStream JSON payload with tracked entities, enrollments, events and relationships
+     * @return Report combining the reports of all chunks
+     * @throws IOException if the payload could not be read
+     */
+    TrackerImportReport importTracker( TrackerImportParams params, InputStream inputStream ) throws IOException;
+
     /**
      * Parses, and creates a TrackerImportParams instance based on given map of parameters.
      *
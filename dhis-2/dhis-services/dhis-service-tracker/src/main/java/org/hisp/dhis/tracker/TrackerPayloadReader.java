@@ -0,0 +1,172 @@
+package org.hisp.dhis.tracker;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hisp.dhis.tracker.bundle.TrackerBundleParams;
+import org.hisp.dhis.tracker.converter.TrackerBundleParamsConverter;
+import org.hisp.dhis.tracker.domain.Enrollment;
+import org.hisp.dhis.tracker.domain.Event;
+import org.hisp.dhis.tracker.domain.Relationship;
+import org.hisp.dhis.tracker.domain.TrackedEntity;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads a tracker payload incrementally and returns its objects in chunks of
+ * a bounded number of top level objects. A tracked entity counts as one object
+ * together with its nested enrollments and events, which are flattened in the
+ * same chunk. The arrays of the payload are read in payload order, so objects
+ * should be listed after the objects they refer to.
+ */
+public class TrackerPayloadReader
+    implements Closeable
+{
+    private static final String TRACKED_ENTITIES = "trackedEntities";
+
+    private static final String ENROLLMENTS = "enrollments";
+
+    private static final String EVENTS = "events";
+
+    private static final String RELATIONSHIPS = "relationships";
+
+    private final ObjectMapper jsonMapper;
+
+    private final JsonParser parser;
+
+    private final int chunkSize;
+
+    private final TrackerBundleParamsConverter converter = new TrackerBundleParamsConverter();
+
+    /**
+     * Name of the array currently read, null when between arrays.
+     */
+    private String currentArray;
+
+    public TrackerPayloadReader( ObjectMapper jsonMapper, InputStream inputStream, int chunkSize )
+        throws IOException
+    {
+        this.jsonMapper = jsonMapper;
+        this.parser = jsonMapper.getFactory().createParser( inputStream );
+        this.chunkSize = chunkSize;
+
+        if ( parser.nextToken() != JsonToken.START_OBJECT )
+        {
+            throw new IllegalArgumentException( "Tracker payload must be a JSON object" );
+        }
+    }
+
+    /**
+     * Reads the next chunk of the payload.
+     *
+     * @return the next chunk, or null if the payload is exhausted.
+     * @throws IOException if the payload could not be read.
+     */
+    public TrackerBundleParams next()
+        throws IOException
+    {
+        TrackerBundleParams chunk = TrackerBundleParams.builder().build();
+        int size = 0;
+
+        while ( size < chunkSize )
+        {
+            if ( currentArray == null )
+            {
+                JsonToken token = parser.nextToken();
+
+                if ( token == null || token == JsonToken.END_OBJECT )
+                {
+                    break;
+                }
+
+                String field = parser.getCurrentName();
+
+                if ( parser.nextToken() == JsonToken.START_ARRAY && isSupported( field ) )
+                {
+                    currentArray = field;
+                }
+                else
+                {
+                    parser.skipChildren();
+                }
+            }
+            else if ( parser.nextToken() == JsonToken.END_ARRAY )
+            {
+                currentArray = null;
+            }
+            else
+            {
+                read( chunk );
+                size++;
+            }
+        }
+
+        return size > 0 ? converter.convert( chunk ) : null;
+    }
+
+    @Override
+    public void close()
+        throws IOException
+    {
+        parser.close();
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private boolean isSupported( String field )
+    {
+        return TRACKED_ENTITIES.equals( field ) || ENROLLMENTS.equals( field ) || EVENTS.equals( field )
+            || RELATIONSHIPS.equals( field );
+    }
+
+    private void read( TrackerBundleParams chunk )
+        throws IOException
+    {
+        switch ( currentArray )
+        {
+            case TRACKED_ENTITIES:
+                chunk.getTrackedEntities().add( jsonMapper.readValue( parser, TrackedEntity.class ) );
+                break;
+            case ENROLLMENTS:
+                chunk.getEnrollments().add( jsonMapper.readValue( parser, Enrollment.class ) );
+                break;
+            case EVENTS:
+                chunk.getEvents().add( jsonMapper.readValue( parser, Event.class ) );
+                break;
+            default:
+                chunk.getRelationships().add( jsonMapper.readValue( parser, Relationship.class ) );
+        }
+    }
+}
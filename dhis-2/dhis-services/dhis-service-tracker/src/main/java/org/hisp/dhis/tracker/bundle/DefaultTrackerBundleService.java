@@ -80,6 +80,11 @@ import org.springframework.util.StringUtils;
 public class DefaultTrackerBundleService
     implements TrackerBundleService
 {
+    /**
+     * Number of statements per JDBC batch for {@link FlushMode#BATCH}.
+     */
+    private static final int JDBC_BATCH_SIZE = 500;
+
     private final TrackerPreheatService trackerPreheatService;
 
     private final TrackerConverterService<TrackedEntity, org.hisp.dhis.trackedentity.TrackedEntityInstance> trackedEntityTrackerConverterService;
@@ -184,10 +189,36 @@ public class DefaultTrackerBundleService
 
         bundleHooks.forEach( hook -> hook.preCommit( bundle ) );
 
-        TrackerTypeReport trackedEntityReport = handleTrackedEntities( session, bundle );
-        TrackerTypeReport enrollmentReport = handleEnrollments( session, bundle );
-        TrackerTypeReport eventReport = handleEvents( session, bundle );
-        TrackerTypeReport relationshipReport = handleRelationships( session, bundle );
+        Integer jdbcBatchSize = session.getJdbcBatchSize();
+        org.hibernate.FlushMode hibernateFlushMode = session.getHibernateFlushMode();
+
+        if ( FlushMode.BATCH == bundle.getFlushMode() )
+        {
+            // queries issued while persisting must not flush the pending
+            // inserts, which would break up the batches, objects are flushed
+            // explicitly per type
+
+            session.setJdbcBatchSize( JDBC_BATCH_SIZE );
+            session.setHibernateFlushMode( org.hibernate.FlushMode.COMMIT );
+        }
+
+        TrackerTypeReport trackedEntityReport;
+        TrackerTypeReport enrollmentReport;
+        TrackerTypeReport eventReport;
+        TrackerTypeReport relationshipReport;
+
+        try
+        {
+            trackedEntityReport = handleTrackedEntities( session, bundle );
+            enrollmentReport = handleEnrollments( session, bundle );
+            eventReport = handleEvents( session, bundle );
+            relationshipReport = handleRelationships( session, bundle );
+        }
+        finally
+        {
+            session.setJdbcBatchSize( jdbcBatchSize );
+            session.setHibernateFlushMode( hibernateFlushMode );
+        }
 
         bundleReport.getTypeReportMap().put( TrackerType.TRACKED_ENTITY, trackedEntityReport );
         bundleReport.getTypeReportMap().put( TrackerType.ENROLLMENT, enrollmentReport );
@@ -212,6 +243,8 @@ public class DefaultTrackerBundleService
 
         Date now = new Date();
 
+        List<Runnable> attributeValueHandlers = new ArrayList<>();
+
         for ( int idx = 0; idx < trackedEntities.size(); idx++ )
         {
             TrackedEntity trackedEntity = trackedEntities.get( idx );
@@ -236,8 +269,8 @@ public class DefaultTrackerBundleService
             bundle.getPreheat().putTrackedEntities( bundle.getIdentifier(),
                 Collections.singletonList( trackedEntityInstance ) );
 
-            handleTrackedEntityAttributeValues( session, bundle.getPreheat(), trackedEntity.getAttributes(),
-                trackedEntityInstance );
+            handleTrackedEntityAttributeValues( session, bundle, trackedEntity.getAttributes(),
+                trackedEntityInstance, attributeValueHandlers );
 
             if ( FlushMode.OBJECT == bundle.getFlushMode() )
             {
@@ -245,6 +278,8 @@ public class DefaultTrackerBundleService
             }
         }
 
+        attributeValueHandlers.forEach( Runnable::run );
+
         session.flush();
         trackedEntities
             .forEach( o -> bundleHooks.forEach( hook -> hook.postCreate( TrackedEntity.class, o, bundle ) ) );
@@ -262,6 +297,8 @@ public class DefaultTrackerBundleService
 
         Date now = new Date();
 
+        List<Runnable> attributeValueHandlers = new ArrayList<>();
+
         for ( int idx = 0; idx < enrollments.size(); idx++ )
         {
             Enrollment enrollment = enrollments.get( idx );
@@ -284,8 +321,8 @@ public class DefaultTrackerBundleService
             session.persist( programInstance );
             bundle.getPreheat().putEnrollments( bundle.getIdentifier(), Collections.singletonList( programInstance ) );
 
-            handleTrackedEntityAttributeValues( session, bundle.getPreheat(), enrollment.getAttributes(),
-                programInstance.getEntityInstance() );
+            handleTrackedEntityAttributeValues( session, bundle, enrollment.getAttributes(),
+                programInstance.getEntityInstance(), attributeValueHandlers );
 
             if ( FlushMode.OBJECT == bundle.getFlushMode() )
             {
@@ -304,6 +341,8 @@ public class DefaultTrackerBundleService
             sideEffectHandlers.forEach( handler -> handler.handleSideEffect( sideEffectDataBundle ) );
         }
 
+        attributeValueHandlers.forEach( Runnable::run );
+
         session.flush();
         enrollments.forEach( o -> bundleHooks.forEach( hook -> hook.postCreate( Enrollment.class, o, bundle ) ) );
 
@@ -403,6 +442,11 @@ public class DefaultTrackerBundleService
             }
         }
 
+        if ( FlushMode.BATCH == bundle.getFlushMode() )
+        {
+            session.flush();
+        }
+
         relationships.forEach( o -> bundleHooks.forEach( hook -> hook.postCreate( Relationship.class, o, bundle ) ) );
 
         return typeReport;
@@ -412,6 +456,26 @@ public class DefaultTrackerBundleService
     // Utility Methods
     // -----------------------------------------------------------------------------------
 
+    /**
+     * Handles the attribute values of the given tracked entity instance. With
+     * {@link FlushMode#BATCH} the handling is added to the given list, to be
+     * run once all instances of the type are persisted, so that inserts are
+     * grouped by table.
+     */
+    private void handleTrackedEntityAttributeValues( Session session, TrackerBundle bundle,
+        List<Attribute> attributes, TrackedEntityInstance trackedEntityInstance, List<Runnable> deferredHandlers )
+    {
+        if ( FlushMode.BATCH == bundle.getFlushMode() )
+        {
+            deferredHandlers.add( () -> handleTrackedEntityAttributeValues( session, bundle.getPreheat(), attributes,
+                trackedEntityInstance ) );
+        }
+        else
+        {
+            handleTrackedEntityAttributeValues( session, bundle.getPreheat(), attributes, trackedEntityInstance );
+        }
+    }
+
     private void handleTrackedEntityAttributeValues( Session session, TrackerPreheat preheat,
         List<Attribute> attributes, TrackedEntityInstance trackedEntityInstance )
     {
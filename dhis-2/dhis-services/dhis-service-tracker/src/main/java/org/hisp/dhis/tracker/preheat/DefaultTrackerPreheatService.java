@@ -53,6 +53,7 @@ import org.hisp.dhis.relationship.RelationshipStore;
 import org.hisp.dhis.relationship.RelationshipType;
 import org.hisp.dhis.schema.Schema;
 import org.hisp.dhis.schema.SchemaService;
+import org.hisp.dhis.security.acl.AclService;
 import org.hisp.dhis.trackedentity.TrackedEntityInstance;
 import org.hisp.dhis.trackedentity.TrackedEntityInstanceStore;
 import org.hisp.dhis.trackedentity.TrackedEntityType;
@@ -64,6 +65,9 @@ import org.hisp.dhis.tracker.domain.Event;
 import org.hisp.dhis.tracker.domain.Relationship;
 import org.hisp.dhis.tracker.domain.TrackedEntity;
 import org.hisp.dhis.user.CurrentUserService;
+import org.hisp.dhis.user.User;
+import org.hisp.dhis.user.UserAuthorityGroup;
+import org.hisp.dhis.user.UserGroup;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -71,7 +75,9 @@ import org.springframework.transaction.annotation.Transactional;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 
 /**
@@ -102,6 +108,10 @@ public class DefaultTrackerPreheatService
 
     private final RelationshipStore relationshipStore;
 
+    private final TrackerMetadataSnapshotCache metadataSnapshotCache;
+
+    private final AclService aclService;
+
     private List<TrackerPreheatHook> preheatHooks = new ArrayList<>();
 
     @Autowired( required = false )
@@ -120,7 +130,9 @@ public class DefaultTrackerPreheatService
         ProgramInstanceStore programInstanceStore,
         ProgramStageInstanceStore programStageInstanceStore,
         IdentifiableObjectManager identifiableObjectManager,
-        RelationshipStore relationshipStore )
+        RelationshipStore relationshipStore,
+        TrackerMetadataSnapshotCache metadataSnapshotCache,
+        AclService aclService )
     {
         this.schemaService = schemaService;
         this.queryService = queryService;
@@ -132,6 +144,8 @@ public class DefaultTrackerPreheatService
         this.identifiableObjectManager = identifiableObjectManager;
         this.programStageInstanceStore = programStageInstanceStore;
         this.relationshipStore = relationshipStore;
+        this.metadataSnapshotCache = metadataSnapshotCache;
+        this.aclService = aclService;
     }
 
     @Override
@@ -192,24 +206,21 @@ public class DefaultTrackerPreheatService
             }
             else if ( klass.isAssignableFrom( Program.class ) )
             {
-                Schema schema = schemaService.getDynamicSchema( Program.class );
                 TrackerIdentifier identifier = params.getIdentifiers().getProgramIdScheme();
 
-                queryForIdentifiableObjects( preheat, schema, identifier, splitList );
+                queryForMetadata( preheat, Program.class, identifier, identifiers, splitList );
             }
             else if ( klass.isAssignableFrom( ProgramStage.class ) )
             {
-                Schema schema = schemaService.getDynamicSchema( ProgramStage.class );
                 TrackerIdentifier identifier = params.getIdentifiers().getProgramStageIdScheme();
 
-                queryForIdentifiableObjects( preheat, schema, identifier, splitList );
+                queryForMetadata( preheat, ProgramStage.class, identifier, identifiers, splitList );
             }
             else if ( klass.isAssignableFrom( DataElement.class ) )
             {
-                Schema schema = schemaService.getDynamicSchema( DataElement.class );
                 TrackerIdentifier identifier = params.getIdentifiers().getDataElementIdScheme();
 
-                queryForIdentifiableObjects( preheat, schema, identifier, splitList );
+                queryForMetadata( preheat, DataElement.class, identifier, identifiers, splitList );
             }
             else if ( klass.isAssignableFrom( Relationship.class ) )
             {
@@ -229,9 +240,13 @@ public class DefaultTrackerPreheatService
         }
 
         // since TrackedEntityTypes are not really required by incoming payload, and they are small in size/count, we preload them all here
-        preheat.put( TrackerIdentifier.UID, manager.getAll( TrackedEntityType.class ) );
+        TrackerMetadataSnapshot trackedEntityTypes = metadataSnapshotCache.getSnapshot( TrackedEntityType.class );
+        preheat.put( TrackerIdentifier.UID, getReadableObjects( preheat.getUser(), TrackedEntityType.class,
+            trackedEntityTypes, trackedEntityTypes.getIds() ) );
         // since RelationshipTypes are not really required by incoming payload, and they are small in size/count, we preload them all here
-        preheat.put( TrackerIdentifier.UID, manager.getAll( RelationshipType.class ) );
+        TrackerMetadataSnapshot relationshipTypes = metadataSnapshotCache.getSnapshot( RelationshipType.class );
+        preheat.put( TrackerIdentifier.UID, getReadableObjects( preheat.getUser(), RelationshipType.class,
+            relationshipTypes, relationshipTypes.getIds() ) );
 
         periodStore.getAll().forEach( period -> preheat.getPeriodMap().put( period.getName(), period ) );
         periodStore.getAllPeriodTypes()
@@ -265,6 +280,92 @@ public class DefaultTrackerPreheatService
         }
     }
 
+    /**
+     * Resolves metadata identifiers against the shared snapshot of the type,
+     * and falls back to querying when the identifier scheme is not supported
+     * by snapshots.
+     */
+    private <T extends IdentifiableObject> void queryForMetadata( TrackerPreheat preheat, Class<T> klass,
+        TrackerIdentifier identifier, Set<String> identifiers, List<List<String>> splitList )
+    {
+        if ( !TrackerMetadataSnapshot.isSupported( identifier.getIdScheme() ) )
+        {
+            queryForIdentifiableObjects( preheat, schemaService.getDynamicSchema( klass ), identifier, splitList );
+            return;
+        }
+
+        TrackerMetadataSnapshot snapshot = metadataSnapshotCache.getSnapshot( klass );
+
+        List<Long> ids = identifiers.stream()
+            .map( id -> snapshot.getId( identifier.getIdScheme(), id ) )
+            .filter( Objects::nonNull )
+            .collect( Collectors.toList() );
+
+        preheat.put( identifier, getReadableObjects( preheat.getUser(), klass, snapshot, ids ) );
+    }
+
+    /**
+     * Loads the objects with the given database identifiers which the user can
+     * read into the session with a single query, consistent with the sharing
+     * restriction applied by metadata queries. Sharing is evaluated once per
+     * user and object for the lifetime of the snapshot, and objects known to
+     * be unreadable are not loaded.
+     */
+    private <T extends IdentifiableObject> List<T> getReadableObjects( User user, Class<T> klass,
+        TrackerMetadataSnapshot snapshot, List<Long> ids )
+    {
+        String userKey = getUserKey( user );
+
+        List<Long> candidateIds = ids.stream()
+            .filter( id -> !Boolean.FALSE.equals( snapshot.isReadable( userKey, id ) ) )
+            .collect( Collectors.toList() );
+
+        List<T> objects = new ArrayList<>();
+
+        for ( T object : metadataSnapshotCache.getObjects( klass, candidateIds ) )
+        {
+            Boolean readable = snapshot.isReadable( userKey, object.getId() );
+
+            if ( readable == null )
+            {
+                readable = aclService.canRead( user, object );
+
+                snapshot.setReadable( userKey, object.getId(), readable );
+            }
+
+            if ( readable )
+            {
+                objects.add( object );
+            }
+        }
+
+        return objects;
+    }
+
+    /**
+     * Returns a key for the given user which changes with the user groups and
+     * user roles of the user, which sharing is evaluated against.
+     */
+    private String getUserKey( User user )
+    {
+        if ( user == null )
+        {
+            return "";
+        }
+
+        String groups = user.getGroups().stream()
+            .map( UserGroup::getUid )
+            .sorted()
+            .collect( Collectors.joining( "," ) );
+
+        String roles = user.getUserCredentials() == null ? "" : user.getUserCredentials().getUserAuthorityGroups().stream()
+            .map( UserAuthorityGroup::getUid )
+            .sorted()
+            .collect( Collectors.joining( "," ) );
+
+        return user.getUid() + ";" + groups + ";" + roles;
+    }
+
     @SuppressWarnings("unchecked")
     private void queryForIdentifiableObjects( TrackerPreheat preheat, Schema schema, TrackerIdentifier identifier,
         List<List<String>> splitList )
@@ -0,0 +1,177 @@
+package org.hisp.dhis.tracker.preheat;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.hisp.dhis.tracker.TrackerIdScheme;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lookup of the database identifiers of all objects of a metadata type, by UID
+ * and code. A snapshot is shared between imports running on different threads
+ * and is discarded when objects of the type are changed.
+ * <p>
+ * The identifier lookups are immutable. Alongside, the snapshot remembers for
+ * each user which objects the user can read, so that sharing is evaluated
+ * once per user and object for the lifetime of the snapshot. The objects
+ * themselves are loaded into the session of each import, so that no entity
+ * is ever shared between sessions.
+ */
+public final class TrackerMetadataSnapshot
+{
+    private final Class<?> klass;
+
+    private final long created;
+
+    private final ImmutableList<Long> ids;
+
+    private final ImmutableMap<String, Long> uidMap;
+
+    private final ImmutableMap<String, Long> codeMap;
+
+    private final Map<String, Map<Long, Boolean>> readableMap = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a snapshot.
+     *
+     * @param klass the metadata type.
+     * @param created the time in milliseconds at which the snapshot was created.
+     * @param rows the rows of the type, each holding the id, the uid and the code.
+     */
+    public TrackerMetadataSnapshot( Class<?> klass, long created, List<Object[]> rows )
+    {
+        this.klass = klass;
+        this.created = created;
+
+        ImmutableList.Builder<Long> ids = ImmutableList.builder();
+        Map<String, Long> uidMap = new HashMap<>();
+        Map<String, Long> codeMap = new HashMap<>();
+
+        for ( Object[] row : rows )
+        {
+            Long id = ((Number) row[0]).longValue();
+
+            ids.add( id );
+            uidMap.put( (String) row[1], id );
+
+            if ( row[2] != null )
+            {
+                codeMap.put( (String) row[2], id );
+            }
+        }
+
+        this.ids = ids.build();
+        this.uidMap = ImmutableMap.copyOf( uidMap );
+        this.codeMap = ImmutableMap.copyOf( codeMap );
+    }
+
+    /**
+     * Indicates whether this snapshot is older than the given age.
+     *
+     * @param now the current time in milliseconds.
+     * @param maxAge the maximum age in milliseconds.
+     */
+    public boolean isExpired( long now, long maxAge )
+    {
+        return now - created > maxAge;
+    }
+
+    /**
+     * Returns the database identifier of the object with the given identifier,
+     * or null if no such object exists. Only the UID and CODE schemes are
+     * supported.
+     *
+     * @param idScheme the identifier scheme.
+     * @param identifier the identifier.
+     */
+    public Long getId( TrackerIdScheme idScheme, String identifier )
+    {
+        if ( TrackerIdScheme.CODE.equals( idScheme ) )
+        {
+            return codeMap.get( identifier );
+        }
+
+        return uidMap.get( identifier );
+    }
+
+    /**
+     * Returns whether the user with the given key can read the object with the
+     * given database identifier, or null if this is not known yet.
+     *
+     * @param userKey the key of the user and the user groups and roles of the user.
+     * @param id the database identifier.
+     */
+    public Boolean isReadable( String userKey, Long id )
+    {
+        Map<Long, Boolean> readable = readableMap.get( userKey );
+
+        return readable != null ? readable.get( id ) : null;
+    }
+
+    /**
+     * Remembers whether the user with the given key can read the object with
+     * the given database identifier.
+     *
+     * @param userKey the key of the user and the user groups and roles of the user.
+     * @param id the database identifier.
+     * @param readable whether the user can read the object.
+     */
+    public void setReadable( String userKey, Long id, boolean readable )
+    {
+        readableMap.computeIfAbsent( userKey, key -> new ConcurrentHashMap<>() ).put( id, readable );
+    }
+
+    /**
+     * Indicates whether the given identifier scheme can be resolved by a snapshot.
+     */
+    public static boolean isSupported( TrackerIdScheme idScheme )
+    {
+        return TrackerIdScheme.UID.equals( idScheme ) || TrackerIdScheme.CODE.equals( idScheme );
+    }
+
+    public Class<?> getKlass()
+    {
+        return klass;
+    }
+
+    public List<Long> getIds()
+    {
+        return ids;
+    }
+
+    public int size()
+    {
+        return ids.size();
+    }
+}
@@ -0,0 +1,145 @@
+package org.hisp.dhis.tracker.preheat;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hisp.dhis.common.IdentifiableObject;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Holds the current {@link TrackerMetadataSnapshot} of the metadata types
+ * referenced by tracker payloads. Snapshots are invalidated by
+ * {@link TrackerMetadataSnapshotListener} when objects of the type are
+ * committed on this node, and are rebuilt at the latest after
+ * {@link #MAX_AGE}, which covers changes made on other nodes of a cluster.
+ */
+@Slf4j
+@Component( "org.hisp.dhis.tracker.preheat.TrackerMetadataSnapshotCache" )
+public class TrackerMetadataSnapshotCache
+{
+    /**
+     * Maximum age of a snapshot in milliseconds.
+     */
+    public static final long MAX_AGE = TimeUnit.SECONDS.toMillis( 60 );
+
+    private final Map<Class<?>, TrackerMetadataSnapshot> snapshots = new ConcurrentHashMap<>();
+
+    private final SessionFactory sessionFactory;
+
+    public TrackerMetadataSnapshotCache( SessionFactory sessionFactory )
+    {
+        checkNotNull( sessionFactory );
+
+        this.sessionFactory = sessionFactory;
+    }
+
+    /**
+     * Returns the snapshot of the given metadata type. Must be invoked within
+     * a transaction.
+     *
+     * @param klass the metadata type.
+     * @return a {@link TrackerMetadataSnapshot}.
+     */
+    public TrackerMetadataSnapshot getSnapshot( Class<? extends IdentifiableObject> klass )
+    {
+        long now = System.currentTimeMillis();
+
+        TrackerMetadataSnapshot snapshot = snapshots.get( klass );
+
+        if ( snapshot == null || snapshot.isExpired( now, MAX_AGE ) )
+        {
+            @SuppressWarnings( "unchecked" )
+            List<Object[]> rows = sessionFactory.getCurrentSession()
+                .createQuery( "select id, uid, code from " + klass.getName() )
+                .list();
+
+            snapshot = new TrackerMetadataSnapshot( klass, now, rows );
+
+            snapshots.put( klass, snapshot );
+
+            log.debug( String.format( "Rebuilt metadata snapshot of %s with %d objects", klass.getSimpleName(), snapshot.size() ) );
+        }
+
+        return snapshot;
+    }
+
+    /**
+     * Loads the objects of the given type with the given database identifiers
+     * into the current session with a single query. Must be invoked within a
+     * transaction.
+     *
+     * @param klass the metadata type.
+     * @param ids the database identifiers.
+     * @return the objects which exist.
+     */
+    public <T extends IdentifiableObject> List<T> getObjects( Class<T> klass, List<Long> ids )
+    {
+        if ( ids.isEmpty() )
+        {
+            return new ArrayList<>();
+        }
+
+        Session session = sessionFactory.getCurrentSession();
+
+        return session.byMultipleIds( klass ).multiLoad( ids ).stream()
+            .filter( Objects::nonNull )
+            .collect( Collectors.toList() );
+    }
+
+    /**
+     * Removes the snapshots of the types which the given object is an
+     * instance of.
+     *
+     * @param object the object which was changed.
+     */
+    public void invalidate( Object object )
+    {
+        snapshots.keySet().removeIf( klass -> klass.isInstance( object ) );
+    }
+
+    /**
+     * Removes all snapshots.
+     */
+    public void invalidateAll()
+    {
+        snapshots.clear();
+    }
+}
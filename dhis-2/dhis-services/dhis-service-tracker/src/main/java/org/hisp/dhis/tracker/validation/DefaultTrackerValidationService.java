@@ -30,22 +30,45 @@ package org.hisp.dhis.tracker.validation;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import javax.annotation.PreDestroy;
+
+import org.hisp.dhis.commons.util.SystemUtils;
 import org.hisp.dhis.tracker.ValidationMode;
 import org.hisp.dhis.tracker.bundle.TrackerBundle;
+import org.hisp.dhis.tracker.report.TrackerErrorReport;
 import org.hisp.dhis.tracker.report.TrackerValidationReport;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 import lombok.extern.slf4j.Slf4j;
 
 /**
+ * Runs the validation hooks in order. Consecutive read only hooks which do
+ * not depend on each other form a stage and run concurrently on a bounded
+ * executor. The error reports are always merged in hook order, so that the
+ * validation report and the fail fast behaviour are the same as when running
+ * the hooks one after another.
+ *
  * @author Morten Olav Hansen <mortenoh@gmail.com>
  */
 @Slf4j
 @Service
 public class DefaultTrackerValidationService implements TrackerValidationService
 {
+    /**
+     * Executor for stages of read only hooks, created on first use and guarded
+     * by this.
+     */
+    private ExecutorService executor;
+
     private List<TrackerValidationHook> validationHooks = new ArrayList<>();
 
     @Autowired( required = false )
@@ -54,6 +77,27 @@ public class DefaultTrackerValidationService implements TrackerValidationService
         this.validationHooks = validationHooks;
     }
 
+    @PreDestroy
+    public synchronized void shutdown()
+    {
+        if ( executor != null )
+        {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private synchronized ExecutorService getExecutor()
+    {
+        if ( executor == null )
+        {
+            executor = Executors.newFixedThreadPool( SystemUtils.getCpuCores(),
+                new ThreadFactoryBuilder().setNameFormat( "tracker-validation-%d" ).setDaemon( true ).build() );
+        }
+
+        return executor;
+    }
+
     @Override
     public TrackerValidationReport validate( TrackerBundle bundle )
     {
@@ -65,11 +109,9 @@ public class DefaultTrackerValidationService implements TrackerValidationService
             return validationReport;
         }
 
-        for ( TrackerValidationHook hook : validationHooks )
+        for ( List<TrackerValidationHook> stage : getStages( validationHooks ) )
         {
-            validationReport.add( hook.validate( bundle ) );
-
-            if ( !validationReport.isEmpty() && ValidationMode.FAIL_FAST == bundle.getValidationMode() )
+            if ( !validate( bundle, stage, validationReport ) )
             {
                 break;
             }
@@ -77,4 +119,107 @@ public class DefaultTrackerValidationService implements TrackerValidationService
 
         return validationReport;
     }
+
+    /**
+     * Runs a stage of hooks and adds their error reports in hook order.
+     *
+     * @return false if validation should stop after this stage.
+     */
+    private boolean validate( TrackerBundle bundle, List<TrackerValidationHook> stage,
+        TrackerValidationReport validationReport )
+    {
+        boolean failFast = ValidationMode.FAIL_FAST == bundle.getValidationMode();
+
+        if ( stage.size() == 1 )
+        {
+            validationReport.add( stage.get( 0 ).validate( bundle ) );
+
+            return !(failFast && !validationReport.isEmpty());
+        }
+
+        List<Future<List<TrackerErrorReport>>> futures = new ArrayList<>();
+        ExecutorService executor = getExecutor();
+
+        for ( TrackerValidationHook hook : stage )
+        {
+            futures.add( executor.submit( () -> hook.validate( bundle ) ) );
+        }
+
+        for ( int i = 0; i < futures.size(); i++ )
+        {
+            validationReport.add( getErrorReports( futures.get( i ) ) );
+
+            if ( failFast && !validationReport.isEmpty() )
+            {
+                futures.subList( i + 1, futures.size() ).forEach( future -> future.cancel( true ) );
+
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private List<TrackerErrorReport> getErrorReports( Future<List<TrackerErrorReport>> future )
+    {
+        try
+        {
+            return future.get();
+        }
+        catch ( InterruptedException ex )
+        {
+            Thread.currentThread().interrupt();
+
+            throw new CancellationException( "Tracker validation was interrupted" );
+        }
+        catch ( ExecutionException ex )
+        {
+            if ( ex.getCause() instanceof RuntimeException )
+            {
+                throw (RuntimeException) ex.getCause();
+            }
+
+            throw new IllegalStateException( ex.getCause() );
+        }
+    }
+
+    /**
+     * Splits the ordered hooks into consecutive stages. A hook which is not
+     * read only forms a stage of its own. A read only hook joins the current
+     * stage of read only hooks, unless it depends on a hook of that stage.
+     *
+     * @param hooks the hooks in order.
+     * @return the stages in order.
+     */
+    static List<List<TrackerValidationHook>> getStages( List<TrackerValidationHook> hooks )
+    {
+        List<List<TrackerValidationHook>> stages = new ArrayList<>();
+        List<TrackerValidationHook> stage = new ArrayList<>();
+
+        for ( TrackerValidationHook hook : hooks )
+        {
+            boolean joinStage = hook.isReadOnly() && !stage.isEmpty() && stage.get( 0 ).isReadOnly()
+                && stage.stream().noneMatch( h -> dependsOn( hook, h ) );
+
+            if ( !joinStage && !stage.isEmpty() )
+            {
+                stages.add( stage );
+                stage = new ArrayList<>();
+            }
+
+            stage.add( hook );
+        }
+
+        if ( !stage.isEmpty() )
+        {
+            stages.add( stage );
+        }
+
+        return stages;
+    }
+
+    private static boolean dependsOn( TrackerValidationHook hook, TrackerValidationHook other )
+    {
+        return hook.getDependencies().stream().anyMatch( dependency -> dependency.isInstance( other ) );
+    }
 }
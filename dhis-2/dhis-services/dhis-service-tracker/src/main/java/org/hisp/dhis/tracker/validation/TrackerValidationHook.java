@@ -32,7 +32,9 @@ import org.hisp.dhis.tracker.bundle.TrackerBundle;
 import org.hisp.dhis.tracker.report.TrackerErrorReport;
 import org.springframework.core.Ordered;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 /**
  * @author Morten Olav Hansen <mortenoh@gmail.com>
@@ -46,4 +48,28 @@ public interface TrackerValidationHook extends Ordered
     {
         return Ordered.LOWEST_PRECEDENCE;
     }
+
+    /**
+     * Indicates whether this hook only reads the bundle and its preheat. Such
+     * hooks do not modify the bundle and do not access the persistence session
+     * or other thread bound state, and may hence run concurrently with other
+     * read only hooks on a separate thread.
+     *
+     * @return true if this hook is read only.
+     */
+    default boolean isReadOnly()
+    {
+        return false;
+    }
+
+    /**
+     * Returns the hooks which must have completed before this hook runs.
+     * Dependencies are expected to have a lower order than this hook.
+     *
+     * @return a set of hook types.
+     */
+    default Set<Class<? extends TrackerValidationHook>> getDependencies()
+    {
+        return Collections.emptySet();
+    }
 }
@@ -0,0 +1,125 @@
+package org.hisp.dhis.tracker;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hisp.dhis.tracker.bundle.TrackerBundleParams;
+import org.hisp.dhis.tracker.domain.Enrollment;
+import org.hisp.dhis.tracker.domain.Event;
+import org.hisp.dhis.tracker.domain.TrackedEntity;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TrackerPayloadReaderTest
+{
+    private static final String PAYLOAD = "{" +
+        "'importMode':'COMMIT'," +
+        "'trackedEntities':[" +
+        "{'trackedEntity':'TEI00000001','enrollments':[{'enrollment':'ENR00000001','events':[{'event':'EVT00000001'}]}]}," +
+        "{'trackedEntity':'TEI00000002'}," +
+        "{'trackedEntity':'TEI00000003'}]," +
+        "'metadata':{'ignored':[1,2,3]}," +
+        "'events':[{'event':'EVT00000002'}]" +
+        "}";
+
+    @Test
+    public void testReadChunks() throws IOException
+    {
+        try ( TrackerPayloadReader reader = getReader( PAYLOAD, 2 ) )
+        {
+            TrackerBundleParams chunk = reader.next();
+
+            assertEquals( 2, chunk.getTrackedEntities().size() );
+            assertEquals( "TEI00000001", chunk.getTrackedEntities().get( 0 ).getTrackedEntity() );
+            assertEquals( "TEI00000002", chunk.getTrackedEntities().get( 1 ).getTrackedEntity() );
+            assertEquals( 1, chunk.getEnrollments().size() );
+
+            Enrollment enrollment = chunk.getEnrollments().get( 0 );
+            assertEquals( "ENR00000001", enrollment.getEnrollment() );
+            assertEquals( "TEI00000001", enrollment.getTrackedEntity() );
+            assertEquals( 1, chunk.getEvents().size() );
+            assertEquals( "ENR00000001", chunk.getEvents().get( 0 ).getEnrollment() );
+
+            chunk = reader.next();
+
+            assertEquals( 1, chunk.getTrackedEntities().size() );
+            assertEquals( "TEI00000003", chunk.getTrackedEntities().get( 0 ).getTrackedEntity() );
+            assertTrue( chunk.getEnrollments().isEmpty() );
+            assertEquals( 1, chunk.getEvents().size() );
+            assertEquals( "EVT00000002", chunk.getEvents().get( 0 ).getEvent() );
+
+            assertNull( reader.next() );
+            assertNull( reader.next() );
+        }
+    }
+
+    @Test
+    public void testReadSingleChunk() throws IOException
+    {
+        try ( TrackerPayloadReader reader = getReader( PAYLOAD, 1000 ) )
+        {
+            TrackerBundleParams chunk = reader.next();
+
+            List<String> trackedEntities = chunk.getTrackedEntities().stream()
+                .map( TrackedEntity::getTrackedEntity )
+                .collect( Collectors.toList() );
+
+            List<String> events = chunk.getEvents().stream()
+                .map( Event::getEvent )
+                .collect( Collectors.toList() );
+
+            assertEquals( 3, trackedEntities.size() );
+            assertEquals( 2, events.size() );
+            assertTrue( events.contains( "EVT00000001" ) );
+            assertTrue( events.contains( "EVT00000002" ) );
+            assertNull( reader.next() );
+        }
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void testReadArrayPayload() throws IOException
+    {
+        getReader( "[]", 10 );
+    }
+
+    private TrackerPayloadReader getReader( String payload, int chunkSize ) throws IOException
+    {
+        return new TrackerPayloadReader( new ObjectMapper(),
+            new ByteArrayInputStream( payload.replace( '\'', '"' ).getBytes( StandardCharsets.UTF_8 ) ), chunkSize );
+    }
+}
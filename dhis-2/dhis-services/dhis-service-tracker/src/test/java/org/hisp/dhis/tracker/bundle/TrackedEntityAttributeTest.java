@@ -46,6 +46,7 @@ import org.hisp.dhis.trackedentity.TrackedEntityInstance;
 import org.hisp.dhis.trackedentity.TrackedEntityType;
 import org.hisp.dhis.trackedentityattributevalue.TrackedEntityAttributeValue;
 import org.hisp.dhis.trackedentityattributevalue.TrackedEntityAttributeValueService;
+import org.hisp.dhis.tracker.FlushMode;
 import org.hisp.dhis.tracker.TrackerIdScheme;
 import org.hisp.dhis.tracker.preheat.TrackerPreheat;
 import org.hisp.dhis.tracker.preheat.TrackerPreheatParams;
@@ -168,4 +169,31 @@ public class TrackedEntityAttributeTest
 
         assertEquals( 3, attributeValues.size() );
     }
+
+    @Test
+    public void testTrackedAttributeValueBundleImporterBatch() throws IOException
+    {
+        TrackerBundle trackerBundle = renderService.fromJson( new ClassPathResource( "tracker/te_with_tea_data.json" ).getInputStream(),
+            TrackerBundleParams.class ).toTrackerBundle();
+
+        List<TrackerBundle> trackerBundles = trackerBundleService.create( TrackerBundleParams.builder()
+            .trackedEntities( trackerBundle.getTrackedEntities() )
+            .enrollments( trackerBundle.getEnrollments() )
+            .events( trackerBundle.getEvents() )
+            .flushMode( FlushMode.BATCH )
+            .build() );
+
+        assertEquals( 1, trackerBundles.size() );
+        assertEquals( FlushMode.BATCH, trackerBundles.get( 0 ).getFlushMode() );
+
+        trackerBundleService.commit( trackerBundles.get( 0 ) );
+
+        List<TrackedEntityInstance> trackedEntityInstances = manager.getAll( TrackedEntityInstance.class );
+        assertEquals( 1, trackedEntityInstances.size() );
+
+        List<TrackedEntityAttributeValue> attributeValues = trackedEntityAttributeValueService.getTrackedEntityAttributeValues(
+            trackedEntityInstances.get( 0 ) );
+
+        assertEquals( 3, attributeValues.size() );
+    }
 }
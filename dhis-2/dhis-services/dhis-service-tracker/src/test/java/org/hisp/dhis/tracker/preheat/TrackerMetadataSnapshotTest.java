@@ -0,0 +1,87 @@
+package org.hisp.dhis.tracker.preheat;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import com.google.common.collect.Lists;
+import org.hisp.dhis.program.Program;
+import org.hisp.dhis.tracker.TrackerIdScheme;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TrackerMetadataSnapshotTest
+{
+    private final TrackerMetadataSnapshot snapshot = new TrackerMetadataSnapshot( Program.class, 1000L,
+        Lists.newArrayList(
+            new Object[] { 1L, "ProgramUidA", "PROGRAM_A" },
+            new Object[] { 2, "ProgramUidB", null } ) );
+
+    @Test
+    public void testGetId()
+    {
+        assertEquals( Long.valueOf( 1L ), snapshot.getId( TrackerIdScheme.UID, "ProgramUidA" ) );
+        assertEquals( Long.valueOf( 2L ), snapshot.getId( TrackerIdScheme.UID, "ProgramUidB" ) );
+        assertEquals( Long.valueOf( 1L ), snapshot.getId( TrackerIdScheme.CODE, "PROGRAM_A" ) );
+        assertNull( snapshot.getId( TrackerIdScheme.CODE, "ProgramUidA" ) );
+        assertNull( snapshot.getId( TrackerIdScheme.UID, "ProgramUidC" ) );
+        assertEquals( Lists.newArrayList( 1L, 2L ), snapshot.getIds() );
+    }
+
+    @Test
+    public void testIsExpired()
+    {
+        assertFalse( snapshot.isExpired( 1500L, 1000L ) );
+        assertFalse( snapshot.isExpired( 2000L, 1000L ) );
+        assertTrue( snapshot.isExpired( 2001L, 1000L ) );
+    }
+
+    @Test
+    public void testIsReadable()
+    {
+        assertNull( snapshot.isReadable( "userA", 1L ) );
+
+        snapshot.setReadable( "userA", 1L, true );
+        snapshot.setReadable( "userA", 2L, false );
+
+        assertTrue( snapshot.isReadable( "userA", 1L ) );
+        assertFalse( snapshot.isReadable( "userA", 2L ) );
+        assertNull( snapshot.isReadable( "userB", 1L ) );
+    }
+
+    @Test
+    public void testIsSupported()
+    {
+        assertTrue( TrackerMetadataSnapshot.isSupported( TrackerIdScheme.UID ) );
+        assertTrue( TrackerMetadataSnapshot.isSupported( TrackerIdScheme.CODE ) );
+        assertFalse( TrackerMetadataSnapshot.isSupported( TrackerIdScheme.ATTRIBUTE ) );
+    }
+}
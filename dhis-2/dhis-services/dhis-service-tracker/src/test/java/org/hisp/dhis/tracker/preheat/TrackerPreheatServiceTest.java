@@ -30,7 +30,9 @@ package org.hisp.dhis.tracker.preheat;
 
 import com.google.common.collect.Lists;
 import org.hisp.dhis.IntegrationTestBase;
+import org.hisp.dhis.common.CodeGenerator;
 import org.hisp.dhis.common.IdentifiableObject;
+import org.hisp.dhis.common.IdentifiableObjectManager;
 import org.hisp.dhis.dataelement.DataElement;
 import org.hisp.dhis.dxf2.metadata.objectbundle.ObjectBundle;
 import org.hisp.dhis.dxf2.metadata.objectbundle.ObjectBundleMode;
@@ -42,14 +44,17 @@ import org.hisp.dhis.importexport.ImportStrategy;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.program.Program;
 import org.hisp.dhis.program.ProgramStage;
+import org.hisp.dhis.program.ProgramType;
 import org.hisp.dhis.render.RenderFormat;
 import org.hisp.dhis.render.RenderService;
+import org.hisp.dhis.trackedentity.TrackedEntityType;
 import org.hisp.dhis.tracker.TrackerIdScheme;
 import org.hisp.dhis.tracker.TrackerIdentifier;
 import org.hisp.dhis.tracker.TrackerIdentifierCollector;
 import org.hisp.dhis.tracker.TrackerIdentifierParams;
 import org.hisp.dhis.tracker.bundle.TrackerBundle;
 import org.hisp.dhis.tracker.bundle.TrackerBundleParams;
+import org.hisp.dhis.tracker.domain.Enrollment;
 import org.hisp.dhis.tracker.domain.TrackedEntity;
 import org.hisp.dhis.user.UserService;
 import org.junit.Test;
@@ -64,6 +69,7 @@ import java.util.Set;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -87,6 +93,9 @@ public class TrackerPreheatServiceTest
     @Autowired
     private TrackerPreheatService trackerPreheatService;
 
+    @Autowired
+    private IdentifiableObjectManager manager;
+
     @Override
     protected void setUpTest()
     {
@@ -254,4 +263,54 @@ public class TrackerPreheatServiceTest
         assertNotNull( preheat.getMap().get( TrackerIdScheme.UID ).get( Program.class ) );
         assertNotNull( preheat.getMap().get( TrackerIdScheme.UID ).get( ProgramStage.class ) );
     }
+
+    @Test
+    public void testPreheatResolvesMetadataCommittedAfterPreviousPreheat()
+    {
+        OrganisationUnit ouA = createOrganisationUnit( 'A' );
+        manager.save( ouA );
+
+        TrackedEntityType tetA = createTrackedEntityType( 'A' );
+        manager.save( tetA );
+
+        Program programA = createProgram( 'A' );
+        programA.setTrackedEntityType( tetA );
+        programA.setProgramType( ProgramType.WITH_REGISTRATION );
+        manager.save( programA );
+
+        TrackerPreheat preheat = trackerPreheatService.preheat( createPreheatParams( programA, ouA ) );
+
+        assertNotNull( preheat.get( TrackerIdScheme.UID, Program.class, programA.getUid() ) );
+        assertNotNull( preheat.get( TrackerIdScheme.UID, TrackedEntityType.class, tetA.getUid() ) );
+
+        TrackedEntityType tetB = createTrackedEntityType( 'B' );
+        manager.save( tetB );
+
+        Program programB = createProgram( 'B' );
+        programB.setTrackedEntityType( tetB );
+        programB.setProgramType( ProgramType.WITH_REGISTRATION );
+        manager.save( programB );
+
+        preheat = trackerPreheatService.preheat( createPreheatParams( programB, ouA ) );
+
+        assertNotNull( preheat.get( TrackerIdScheme.UID, Program.class, programB.getUid() ) );
+        assertNotNull( preheat.get( TrackerIdScheme.UID, TrackedEntityType.class, tetB.getUid() ) );
+
+        manager.delete( programA );
+
+        preheat = trackerPreheatService.preheat( createPreheatParams( programA, ouA ) );
+
+        assertNull( preheat.get( TrackerIdScheme.UID, Program.class, programA.getUid() ) );
+    }
+
+    private TrackerPreheatParams createPreheatParams( Program program, OrganisationUnit organisationUnit )
+    {
+        return TrackerPreheatParams.builder()
+            .enrollments( Lists.newArrayList( Enrollment.builder()
+                .enrollment( CodeGenerator.generateUid() )
+                .program( program.getUid() )
+                .orgUnit( organisationUnit.getUid() )
+                .build() ) )
+            .build();
+    }
 }
@@ -0,0 +1,250 @@
+package org.hisp.dhis.tracker.validation;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.hisp.dhis.tracker.TrackerErrorCode;
+import org.hisp.dhis.tracker.ValidationMode;
+import org.hisp.dhis.tracker.bundle.TrackerBundle;
+import org.hisp.dhis.tracker.report.TrackerErrorReport;
+import org.hisp.dhis.tracker.report.TrackerValidationReport;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DefaultTrackerValidationServiceTest
+{
+    private final DefaultTrackerValidationService validationService = new DefaultTrackerValidationService();
+
+    private final List<String> invoked = Collections.synchronizedList( new ArrayList<>() );
+
+    @After
+    public void tearDown()
+    {
+        validationService.shutdown();
+    }
+
+    @Test
+    public void testGetStages()
+    {
+        TestHook a = new TestHook( "A", false, 0 );
+        TestHook b = new TestHook( "B", true, 0 );
+        TestHook c = new TestHook( "C", true, 0 );
+        DependentHook d = new DependentHook( "D", 0 );
+        TestHook e = new TestHook( "E", true, 0 );
+        TestHook f = new TestHook( "F", false, 0 );
+        TestHook g = new TestHook( "G", true, 0 );
+
+        List<List<TrackerValidationHook>> stages = DefaultTrackerValidationService
+            .getStages( Lists.newArrayList( a, b, c, d, e, f, g ) );
+
+        assertEquals( 5, stages.size() );
+        assertEquals( Lists.newArrayList( a ), stages.get( 0 ) );
+        assertEquals( Lists.newArrayList( b, c ), stages.get( 1 ) );
+        assertEquals( Lists.newArrayList( d, e ), stages.get( 2 ) );
+        assertEquals( Lists.newArrayList( f ), stages.get( 3 ) );
+        assertEquals( Lists.newArrayList( g ), stages.get( 4 ) );
+    }
+
+    @Test
+    public void testMergeInHookOrder()
+    {
+        validationService.setValidationHooks( Lists.newArrayList(
+            new TestHook( "A", true, 2 ),
+            new SlowHook( "B", 1 ),
+            new TestHook( "C", true, 1 ),
+            new TestHook( "D", false, 1 ) ) );
+
+        TrackerValidationReport report = validationService.validate( TrackerBundle.builder().build() );
+
+        assertEquals( Lists.newArrayList( "A", "A", "B", "C", "D" ), getMainIds( report ) );
+        assertEquals( Sets.newHashSet( "A", "B", "C", "D" ), Sets.newHashSet( invoked ) );
+    }
+
+    @Test
+    public void testFailFast()
+    {
+        validationService.setValidationHooks( Lists.newArrayList(
+            new TestHook( "A", true, 0 ),
+            new SlowHook( "B", 1 ),
+            new TestHook( "C", true, 1 ),
+            new TestHook( "D", false, 1 ) ) );
+
+        TrackerValidationReport report = validationService.validate( TrackerBundle.builder()
+            .validationMode( ValidationMode.FAIL_FAST ).build() );
+
+        assertEquals( Lists.newArrayList( "B" ), getMainIds( report ) );
+        assertTrue( !invoked.contains( "D" ) );
+    }
+
+    @Test
+    public void testReadOnlyHooksRunConcurrently()
+    {
+        CountDownLatch latch = new CountDownLatch( 2 );
+
+        validationService.setValidationHooks( Lists.newArrayList(
+            new RendezvousHook( "A", latch ),
+            new RendezvousHook( "B", latch ) ) );
+
+        TrackerValidationReport report = validationService.validate( TrackerBundle.builder().build() );
+
+        assertTrue( report.isEmpty() );
+        assertEquals( Sets.newHashSet( "A", "B" ), Sets.newHashSet( invoked ) );
+    }
+
+    private List<String> getMainIds( TrackerValidationReport report )
+    {
+        return report.getErrorReports().stream()
+            .map( TrackerErrorReport::getMainId )
+            .collect( Collectors.toList() );
+    }
+
+    private class TestHook
+        implements TrackerValidationHook
+    {
+        private final String name;
+
+        private final boolean readOnly;
+
+        private final int errors;
+
+        TestHook( String name, boolean readOnly, int errors )
+        {
+            this.name = name;
+            this.readOnly = readOnly;
+            this.errors = errors;
+        }
+
+        @Override
+        public List<TrackerErrorReport> validate( TrackerBundle bundle )
+        {
+            invoked.add( name );
+
+            List<TrackerErrorReport> errorReports = new ArrayList<>();
+
+            for ( int i = 0; i < errors; i++ )
+            {
+                TrackerErrorReport errorReport = new TrackerErrorReport( TrackerBundle.class, TrackerErrorCode.NONE );
+                errorReport.setMainId( name );
+                errorReports.add( errorReport );
+            }
+
+            return errorReports;
+        }
+
+        @Override
+        public boolean isReadOnly()
+        {
+            return readOnly;
+        }
+    }
+
+    private class SlowHook
+        extends TestHook
+    {
+        SlowHook( String name, int errors )
+        {
+            super( name, true, errors );
+        }
+
+        @Override
+        public List<TrackerErrorReport> validate( TrackerBundle bundle )
+        {
+            try
+            {
+                Thread.sleep( 100 );
+            }
+            catch ( InterruptedException ex )
+            {
+                Thread.currentThread().interrupt();
+            }
+
+            return super.validate( bundle );
+        }
+    }
+
+    /**
+     * Read only hook which fails unless the other hooks sharing its latch run
+     * at the same time.
+     */
+    private class RendezvousHook
+        extends TestHook
+    {
+        private final CountDownLatch latch;
+
+        RendezvousHook( String name, CountDownLatch latch )
+        {
+            super( name, true, 0 );
+            this.latch = latch;
+        }
+
+        @Override
+        public List<TrackerErrorReport> validate( TrackerBundle bundle )
+        {
+            latch.countDown();
+
+            try
+            {
+                assertTrue( latch.await( 10, TimeUnit.SECONDS ) );
+            }
+            catch ( InterruptedException ex )
+            {
+                Thread.currentThread().interrupt();
+            }
+
+            return super.validate( bundle );
+        }
+    }
+
+    private class DependentHook
+        extends TestHook
+    {
+        DependentHook( String name, int errors )
+        {
+            super( name, true, errors );
+        }
+
+        @Override
+        public Set<Class<? extends TrackerValidationHook>> getDependencies()
+        {
+            return Sets.newHashSet( TestHook.class );
+        }
+    }
+}
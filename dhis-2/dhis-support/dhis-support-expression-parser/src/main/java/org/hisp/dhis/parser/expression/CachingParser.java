@@ -0,0 +1,108 @@
+package org.hisp.dhis.parser.expression;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.hisp.dhis.antlr.ParserException;
+import org.hisp.dhis.cache.Cache;
+import org.hisp.dhis.cache.SimpleCacheBuilder;
+import org.hisp.dhis.parser.expression.antlr.ExpressionLexer;
+import org.hisp.dhis.parser.expression.antlr.ExpressionParser;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses expressions and keeps the resulting parse trees in a bounded cache,
+ * so that an expression which is evaluated for many organisation units,
+ * periods and attribute option combos is lexed and parsed only once.
+ * <p>
+ * The parse tree does not depend on the type of the expression, as the
+ * items allowed for a parse type are resolved by the visitor, so trees are
+ * cached by expression only. Parse trees are not modified by visitors and
+ * can be visited by several threads at the same time. Since trees depend on
+ * the expression text only, cached trees never become stale.
+ */
+public class CachingParser
+{
+    private static final Cache<ParseTree> PARSE_TREE_CACHE = new SimpleCacheBuilder<ParseTree>()
+        .forRegion( "expressionParseTree" )
+        .expireAfterAccess( 10, TimeUnit.HOURS )
+        .withInitialCapacity( 1000 )
+        .withMaximumSize( 20000 )
+        .build();
+
+    private static final BaseErrorListener ERROR_LISTENER = new BaseErrorListener()
+    {
+        @Override
+        public void syntaxError( Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
+            int charPositionInLine, String msg, RecognitionException e )
+        {
+            throw new ParserException( msg + " at character " + charPositionInLine );
+        }
+    };
+
+    private CachingParser()
+    {
+    }
+
+    /**
+     * Returns the parse tree of the given expression, parsing the expression
+     * only if it is not cached already.
+     *
+     * @param expression the expression to parse.
+     * @return the parse tree.
+     * @throws ParserException if the expression cannot be parsed.
+     */
+    public static ParseTree getParseTree( String expression )
+    {
+        return PARSE_TREE_CACHE.get( expression, CachingParser::parse ).orElse( null );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private static ParseTree parse( String expression )
+    {
+        ExpressionLexer lexer = new ExpressionLexer( CharStreams.fromString( expression ) );
+        lexer.removeErrorListeners();
+        lexer.addErrorListener( ERROR_LISTENER );
+
+        ExpressionParser parser = new ExpressionParser( new CommonTokenStream( lexer ) );
+        parser.removeErrorListeners();
+        parser.addErrorListener( ERROR_LISTENER );
+
+        return parser.expression();
+    }
+}
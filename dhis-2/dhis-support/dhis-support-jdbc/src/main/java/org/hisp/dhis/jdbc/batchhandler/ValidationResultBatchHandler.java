@@ -27,6 +27,8 @@ package org.hisp.dhis.jdbc.batchhandler;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import static org.hisp.dhis.util.DateUtils.getLongDateString;
+
 import org.hisp.dhis.validation.ValidationResult;
 import org.hisp.quick.JdbcConfiguration;
 import org.hisp.quick.batchhandler.AbstractBatchHandler;
@@ -104,13 +106,15 @@ public class ValidationResultBatchHandler
     public List<String> getColumns()
     {
         return getStringList(
+            "created",
             "leftsidevalue",
             "rightsidevalue",
             "validationruleid",
             "periodid",
             "organisationunitid",
             "attributeoptioncomboid",
-            "dayinperiod"
+            "dayinperiod",
+            "notificationsent"
         );
     }
 
@@ -118,13 +122,15 @@ public class ValidationResultBatchHandler
     public List<Object> getValues( ValidationResult validationResult )
     {
         return getObjectList(
+            getLongDateString( validationResult.getCreated() ),
             validationResult.getLeftsideValue(),
             validationResult.getRightsideValue(),
             validationResult.getValidationRule().getId(),
             validationResult.getPeriod().getId(),
             validationResult.getOrganisationUnit().getId(),
             validationResult.getAttributeOptionCombo().getId(),
-            validationResult.getDayInPeriod()
+            validationResult.getDayInPeriod(),
+            validationResult.getNotificationSent()
         );
     }
 
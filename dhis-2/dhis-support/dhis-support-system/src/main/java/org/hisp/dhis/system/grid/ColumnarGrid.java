@@ -0,0 +1,1633 @@
+package org.hisp.dhis.system.grid;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.google.common.collect.Iterables;
+
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JRField;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+import org.apache.commons.math3.stat.regression.SimpleRegression;
+import org.apache.commons.math3.util.Precision;
+import org.hisp.dhis.common.Grid;
+import org.hisp.dhis.common.GridHeader;
+import org.hisp.dhis.common.adapter.JacksonRowDataSerializer;
+import org.hisp.dhis.system.util.MathUtils;
+import org.springframework.jdbc.support.rowset.SqlRowSet;
+import org.springframework.jdbc.support.rowset.SqlRowSetMetaData;
+
+import java.io.Serializable;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Grid implementation which stores values column by column. Double values are
+ * kept in primitive arrays, other values are dictionary encoded per column and
+ * nulls are tracked in a bitmap. Rows returned by {@link #getRow(int)} and
+ * {@link #getRows()} are views backed by the columns, so that setting a value
+ * in a row writes through to the grid.
+ * <p>
+ * Rows are always rectangular. Values which are not written for a row are
+ * treated as null.
+ */
+public class ColumnarGrid
+    implements Grid, Serializable
+{
+    private static final String REGRESSION_SUFFIX = "_regression";
+    private static final String CUMULATIVE_SUFFIX = "_cumulative";
+
+    /**
+     * The title of the grid.
+     */
+    private String title;
+
+    /**
+     * The subtitle of the grid.
+     */
+    private String subtitle;
+
+    /**
+     * The name of a potential corresponding table.
+     */
+    private String table;
+
+    /**
+     * A List which represents the column headers of the grid.
+     */
+    private List<GridHeader> headers;
+
+    /**
+     * A Map which can hold arbitrary meta-data.
+     */
+    private Map<String, Object> metaData;
+
+    /**
+     * A Map which can hold internal arbitrary meta data. Will not be
+     * serialized.
+     */
+    private Map<String, Object> internalMetaData;
+
+    /**
+     * The columns of the grid.
+     */
+    private List<Column> columns;
+
+    /**
+     * The number of rows in the grid.
+     */
+    private int height = 0;
+
+    /**
+     * Indicating the current column in the current row for writing data.
+     */
+    private int currentColumnWriteIndex = 0;
+
+    /**
+     * Indicating the current row in the grid for reading data.
+     */
+    private int currentRowReadIndex = -1;
+
+    /**
+     * Represents a mapping between column names and the index of the column in the grid.
+     */
+    private Map<String, Integer> columnIndexMap = new HashMap<>();
+
+    /**
+     * Default constructor.
+     */
+    public ColumnarGrid()
+    {
+        this.headers = new ArrayList<>();
+        this.metaData = new HashMap<>();
+        this.internalMetaData = new HashMap<>();
+        this.columns = new ArrayList<>();
+    }
+
+    /**
+     * @param metaData meta data.
+     * @param internalMetaData internal meta data.
+     */
+    public ColumnarGrid( Map<String, Object> metaData, Map<String, Object> internalMetaData )
+    {
+        this.headers = new ArrayList<>();
+        this.metaData = metaData;
+        this.internalMetaData = internalMetaData;
+        this.columns = new ArrayList<>();
+    }
+
+    // ---------------------------------------------------------------------
+    // Public methods
+    // ---------------------------------------------------------------------
+
+    @Override
+    @JsonProperty
+    public String getTitle()
+    {
+        return title;
+    }
+
+    @Override
+    public Grid setTitle( String title )
+    {
+        this.title = title;
+
+        return this;
+    }
+
+    @Override
+    @JsonProperty
+    public String getSubtitle()
+    {
+        return subtitle;
+    }
+
+    @Override
+    public Grid setSubtitle( String subtitle )
+    {
+        this.subtitle = subtitle;
+
+        return this;
+    }
+
+    @Override
+    @JsonProperty
+    public String getTable()
+    {
+        return table;
+    }
+
+    @Override
+    public Grid setTable( String table )
+    {
+        this.table = table;
+
+        return this;
+    }
+
+    @Override
+    public Grid addHeader( GridHeader header )
+    {
+        headers.add( header );
+
+        updateColumnIndexMap();
+
+        return this;
+    }
+
+    @Override
+    public Grid addHeader( int headerIndex, GridHeader header )
+    {
+        headers.add( headerIndex, header );
+
+        updateColumnIndexMap();
+
+        return this;
+    }
+
+    @Override
+    public Grid addHeaders( int headerIndex, List<GridHeader> gridHeaders )
+    {
+        if ( gridHeaders == null || gridHeaders.isEmpty() )
+        {
+            return this;
+        }
+
+        headers.addAll( headerIndex, gridHeaders );
+
+        updateColumnIndexMap();
+
+        return this;
+    }
+
+    @Override
+    public Grid addEmptyHeaders( int number )
+    {
+        for ( int i = 0; i < number; i++ )
+        {
+            headers.add( new GridHeader( "", false, false ) );
+        }
+
+        updateColumnIndexMap();
+
+        return this;
+    }
+
+    @Override
+    @JsonProperty
+    public List<GridHeader> getHeaders()
+    {
+        return headers;
+    }
+
+    @Override
+    public List<GridHeader> getVisibleHeaders()
+    {
+        return headers.stream()
+            .filter( h -> !h.isHidden() )
+            .collect( Collectors.toList() );
+    }
+
+    @Override
+    public List<GridHeader> getMetadataHeaders()
+    {
+        return headers.stream()
+            .filter( GridHeader::isMeta )
+            .collect( Collectors.toList() );
+    }
+
+    @Override
+    public int getIndexOfHeader( String name )
+    {
+        return headers.indexOf( new GridHeader( name, null ) );
+    }
+
+    @Override
+    @JsonProperty
+    public int getHeight()
+    {
+        return height;
+    }
+
+    @Override
+    @JsonProperty
+    public int getWidth()
+    {
+        return height > 0 ? columns.size() : 0;
+    }
+
+    @Override
+    @JsonProperty
+    public int getHeaderWidth()
+    {
+        return headers.size();
+    }
+
+    @Override
+    @JsonProperty
+    public Map<String, Object> getMetaData()
+    {
+        return metaData;
+    }
+
+    @Override
+    public Grid setMetaData( Map<String, Object> metaData )
+    {
+        this.metaData = metaData;
+        return this;
+    }
+
+    @Override
+    public Grid addMetaData( String key, Object value )
+    {
+        this.metaData.put( key, value );
+        return this;
+    }
+
+    @Override
+    @JsonIgnore
+    public Map<String, Object> getInternalMetaData()
+    {
+        return internalMetaData;
+    }
+
+    @Override
+    public Grid setInternalMetaData( Map<String, Object> internalMetaData )
+    {
+        this.internalMetaData = internalMetaData;
+        return this;
+    }
+
+    @Override
+    public int getVisibleWidth()
+    {
+        return height > 0 && !headers.isEmpty() ? getVisibleColumnIndexes().length : 0;
+    }
+
+    @Override
+    public Grid addRow()
+    {
+        height++;
+
+        currentColumnWriteIndex = 0;
+
+        return this;
+    }
+
+    @Override
+    public Grid addRows( Grid grid )
+    {
+        for ( List<Object> row : grid.getRows() )
+        {
+            addRow();
+            addValuesAsList( row );
+        }
+
+        return this;
+    }
+
+    @Override
+    public Grid addValue( Object value )
+    {
+        if ( height == 0 )
+        {
+            throw new IllegalStateException( "A row must be added before values can be added" );
+        }
+
+        int columnIndex = currentColumnWriteIndex++;
+
+        if ( columnIndex >= columns.size() )
+        {
+            columns.add( new Column( height ) );
+        }
+
+        Column column = columns.get( columnIndex );
+
+        int rowIndex = height - 1;
+
+        if ( column.size() > rowIndex )
+        {
+            column.set( rowIndex, value );
+        }
+        else
+        {
+            column.pad( rowIndex );
+            column.add( value );
+        }
+
+        return this;
+    }
+
+    @Override
+    public Grid addValues( Object[] values )
+    {
+        for ( Object value : values )
+        {
+            addValue( value );
+        }
+
+        return this;
+    }
+
+    @Override
+    public Grid addValuesVar( Object... values )
+    {
+        return addValues( values );
+    }
+
+    @Override
+    public Grid addValuesAsList( List<Object> values )
+    {
+        for ( Object value : values )
+        {
+            addValue( value );
+        }
+
+        return this;
+    }
+
+    @Override
+    public Grid addEmptyValue()
+    {
+        addValue( StringUtils.EMPTY );
+
+        return this;
+    }
+
+    @Override
+    public Grid addEmptyValues( int number )
+    {
+        for ( int i = 0; i < number; i++ )
+        {
+            addEmptyValue();
+        }
+
+        return this;
+    }
+
+    @Override
+    public Grid addNullValues( int number )
+    {
+        for ( int i = 0; i < number; i++ )
+        {
+            addValue( null );
+        }
+
+        return this;
+    }
+
+    @Override
+    public List<Object> getRow( int rowIndex )
+    {
+        verifyRowIndex( rowIndex );
+
+        return new RowView( rowIndex );
+    }
+
+    @Override
+    @JsonProperty
+    @JsonSerialize( using = JacksonRowDataSerializer.class )
+    public List<List<Object>> getRows()
+    {
+        return new AbstractList<List<Object>>()
+        {
+            @Override
+            public List<Object> get( int index )
+            {
+                return getRow( index );
+            }
+
+            @Override
+            public int size()
+            {
+                return height;
+            }
+        };
+    }
+
+    @Override
+    public List<List<Object>> getVisibleRows()
+    {
+        List<List<Object>> tempGrid = new ArrayList<>();
+
+        if ( headers != null && headers.size() > 0 )
+        {
+            int[] visibleColumns = getVisibleColumnIndexes();
+
+            for ( int rowIndex = 0; rowIndex < height; rowIndex++ )
+            {
+                List<Object> tempRow = new ArrayList<>( visibleColumns.length );
+
+                for ( int columnIndex : visibleColumns )
+                {
+                    tempRow.add( columns.get( columnIndex ).get( rowIndex ) );
+                }
+
+                tempGrid.add( tempRow );
+            }
+        }
+
+        return tempGrid;
+    }
+
+    @Override
+    public List<Object> getColumn( int columnIndex )
+    {
+        List<Object> column = new ArrayList<>( height );
+
+        if ( height == 0 )
+        {
+            return column;
+        }
+
+        Column col = columns.get( columnIndex );
+
+        for ( int rowIndex = 0; rowIndex < height; rowIndex++ )
+        {
+            column.add( col.get( rowIndex ) );
+        }
+
+        return column;
+    }
+
+    @Override
+    public Object getValue( int rowIndex, int columnIndex )
+    {
+        if ( rowIndex >= height || columnIndex >= columns.size() )
+        {
+            throw new IllegalArgumentException( "Grid does not contain the requested row / column" );
+        }
+
+        return columns.get( columnIndex ).get( rowIndex );
+    }
+
+    @Override
+    public Grid addColumn( List<Object> columnValues )
+    {
+        return addColumn( columns.size(), columnValues );
+    }
+
+    @Override
+    public Grid addColumn( int columnIndex, List<Object> columnValues )
+    {
+        if ( height != columnValues.size() )
+        {
+            throw new IllegalStateException( "Number of column values (" + columnValues.size() + ") is not equal to number of rows (" + height + ")" );
+        }
+
+        Column column = new Column( height );
+
+        for ( Object value : columnValues )
+        {
+            column.add( value );
+        }
+
+        columns.add( columnIndex, column );
+
+        return this;
+    }
+
+    @Override
+    public Grid addAndPopulateColumnsBefore( int referenceColumnIndex, Map<Object, List<?>> valueMap, int newColumns )
+    {
+        Validate.inclusiveBetween( 0, getWidth() - 1, referenceColumnIndex );
+        Validate.notNull( valueMap );
+
+        Column referenceColumn = columns.get( referenceColumnIndex );
+
+        for ( int i = 0; i < newColumns; i++ )
+        {
+            Column column = new Column( height );
+
+            for ( int rowIndex = 0; rowIndex < height; rowIndex++ )
+            {
+                List<?> list = valueMap.get( referenceColumn.get( rowIndex ) );
+
+                column.add( list == null ? null : Iterables.get( list, i, null ) );
+            }
+
+            columns.add( referenceColumnIndex + i, column );
+        }
+
+        return this;
+    }
+
+    @Override
+    public Grid removeEmptyColumns()
+    {
+        if ( getWidth() == 0 )
+        {
+            return this;
+        }
+
+        int lastCol = getWidth() - 1;
+
+        for ( int i = lastCol; i >= 0; i-- )
+        {
+            if ( columnIsEmpty( i ) )
+            {
+                removeColumn( i );
+            }
+        }
+
+        return this;
+    }
+
+    @Override
+    public boolean columnIsEmpty( int columnIndex )
+    {
+        return height == 0 || columns.get( columnIndex ).isEmpty();
+    }
+
+    @Override
+    public Grid removeColumn( int columnIndex )
+    {
+        if ( headers.size() > 0 )
+        {
+            headers.remove( columnIndex );
+        }
+
+        if ( columnIndex < columns.size() )
+        {
+            columns.remove( columnIndex );
+        }
+
+        updateColumnIndexMap();
+
+        return this;
+    }
+
+    @Override
+    public Grid removeColumn( GridHeader header )
+    {
+        int index = headers.indexOf( header );
+
+        if ( index != -1 )
+        {
+            removeColumn( index );
+        }
+
+        return this;
+    }
+
+    @Override
+    public Grid removeCurrentWriteRow()
+    {
+        verifyRowIndex( height - 1 );
+
+        height--;
+
+        for ( Column column : columns )
+        {
+            column.truncate( height );
+        }
+
+        return this;
+    }
+
+    @Override
+    public boolean hasMetaDataKey( String key )
+    {
+        return metaData != null && metaData.containsKey( key );
+    }
+
+    @Override
+    public boolean hasInternalMetaDataKey( String key )
+    {
+        return internalMetaData != null && internalMetaData.containsKey( key );
+    }
+
+    @Override
+    public Grid limitGrid( int limit )
+    {
+        if ( limit < 0 )
+        {
+            throw new IllegalStateException( "Illegal limit: " + limit );
+        }
+
+        if ( limit > 0 && limit <= getHeight() )
+        {
+            sliceRows( 0, limit );
+        }
+
+        return this;
+    }
+
+    @Override
+    public Grid limitGrid( int startPos, int endPos )
+    {
+        if ( startPos < 0 || endPos < startPos || endPos > getHeight() )
+        {
+            throw new IllegalStateException( "Illegal start / end pos: " + startPos + ", " + endPos + ", " + getHeight() );
+        }
+
+        sliceRows( startPos, endPos );
+
+        return this;
+    }
+
+    @Override
+    public Grid sortGrid( int columnIndex, int order )
+    {
+        if ( order == 0 )
+        {
+            return this; // No sorting
+        }
+
+        columnIndex--;
+
+        if ( columnIndex < 0 || columnIndex >= getWidth() )
+        {
+            throw new IllegalArgumentException( "Column index out of bounds: " + columnIndex );
+        }
+
+        Column column = columns.get( columnIndex );
+
+        column.pad( height );
+
+        Integer[] indexes = new Integer[height];
+
+        for ( int i = 0; i < height; i++ )
+        {
+            indexes[i] = i;
+        }
+
+        // Stable sort of row indexes, equal to sorting the rows of a list grid
+
+        Arrays.sort( indexes, column.isNumeric() ? new NumericRowComparator( column, order ) : new RowComparator( column, order ) );
+
+        int[] permutation = new int[height];
+
+        for ( int i = 0; i < height; i++ )
+        {
+            permutation[i] = indexes[i];
+        }
+
+        for ( int i = 0; i < columns.size(); i++ )
+        {
+            columns.set( i, columns.get( i ).permute( permutation ) );
+        }
+
+        return this;
+    }
+
+    @Override
+    public Grid addRegressionColumn( int columnIndex, boolean addHeader )
+    {
+        SimpleRegression regression = new SimpleRegression();
+
+        Column column = columns.get( columnIndex );
+
+        int index = 0;
+
+        for ( int rowIndex = 0; rowIndex < height; rowIndex++ )
+        {
+            // 0 omitted from regression
+
+            if ( !column.isNull( rowIndex ) )
+            {
+                double value = column.getDouble( rowIndex );
+
+                if ( !MathUtils.isEqual( value, 0d ) )
+                {
+                    regression.addData( index++, value );
+                }
+            }
+        }
+
+        Column regressionColumn = new Column( height );
+
+        for ( int i = 0; i < height; i++ )
+        {
+            final double predicted = regression.predict( i );
+
+            // Enough values must exist for regression
+
+            if ( !Double.isNaN( predicted ) )
+            {
+                regressionColumn.addDouble( Precision.round( predicted, 1 ) );
+            }
+            else
+            {
+                regressionColumn.add( null );
+            }
+        }
+
+        columns.add( regressionColumn );
+
+        if ( addHeader && columnIndex < headers.size() )
+        {
+            GridHeader header = headers.get( columnIndex );
+
+            if ( header != null )
+            {
+                GridHeader regressionHeader = new GridHeader( header.getName() + REGRESSION_SUFFIX,
+                    header.getColumn() + REGRESSION_SUFFIX, header.getValueType(), header.getType(), header.isHidden(), header.isMeta() );
+
+                addHeader( regressionHeader );
+            }
+        }
+
+        return this;
+    }
+
+    @Override
+    public Grid addRegressionToGrid( int startColumnIndex, int numberOfColumns )
+    {
+        for ( int i = 0; i < numberOfColumns; i++ )
+        {
+            int columnIndex = i + startColumnIndex;
+
+            this.addRegressionColumn( columnIndex, true );
+        }
+
+        return this;
+    }
+
+    @Override
+    public Grid addCumulativeColumn( int columnIndex, boolean addHeader )
+    {
+        Column column = columns.get( columnIndex );
+
+        Column cumulativeColumn = new Column( height );
+
+        double sum = 0d;
+
+        for ( int rowIndex = 0; rowIndex < height; rowIndex++ )
+        {
+            sum += column.isNull( rowIndex ) ? 0d : column.getDouble( rowIndex );
+
+            cumulativeColumn.addDouble( sum );
+        }
+
+        columns.add( cumulativeColumn );
+
+        if ( addHeader && columnIndex < headers.size() )
+        {
+            GridHeader header = headers.get( columnIndex );
+
+            if ( header != null )
+            {
+                GridHeader cumulativeHeader = new GridHeader( header.getName() + CUMULATIVE_SUFFIX,
+                    header.getColumn() + CUMULATIVE_SUFFIX, header.getValueType(), header.getType(), header.isHidden(), header.isMeta() );
+
+                addHeader( cumulativeHeader );
+            }
+        }
+
+        return this;
+    }
+
+    @Override
+    public Grid addCumulativesToGrid( int startColumnIndex, int numberOfColumns )
+    {
+        for ( int i = 0; i < numberOfColumns; i++ )
+        {
+            int columnIndex = i + startColumnIndex;
+
+            this.addCumulativeColumn( columnIndex, true );
+        }
+
+        return this;
+    }
+
+    @Override
+    public Grid substituteMetaData( Map<? extends Object, ? extends Object> metaDataMap )
+    {
+        if ( metaDataMap == null || headers == null || headers.isEmpty() )
+        {
+            return this;
+        }
+
+        for ( int colIndex = 0; colIndex < headers.size(); colIndex++ )
+        {
+            GridHeader header = headers.get( colIndex );
+
+            // Header
+
+            Object headerMetaName = metaDataMap.get( header.getName() );
+
+            if ( headerMetaName != null )
+            {
+                header.setName( String.valueOf( headerMetaName ) );
+            }
+
+            if ( header.isMeta() && colIndex < columns.size() )
+            {
+                // Column cells
+
+                substituteMetaData( colIndex, colIndex, metaDataMap );
+            }
+        }
+
+        return this;
+    }
+
+    @Override
+    public Grid substituteMetaData( int sourceColumnIndex, int targetColumnIndex, Map<? extends Object, ? extends Object> metaDataMap )
+    {
+        if ( metaDataMap == null || height == 0 )
+        {
+            return this;
+        }
+
+        Column sourceColumn = columns.get( sourceColumnIndex );
+        Column targetColumn = columns.get( targetColumnIndex );
+
+        sourceColumn.pad( height );
+        targetColumn.pad( height );
+
+        if ( sourceColumnIndex == targetColumnIndex )
+        {
+            // Substitute each distinct value once
+
+            sourceColumn.substitute( metaDataMap );
+
+            return this;
+        }
+
+        for ( int rowIndex = 0; rowIndex < height; rowIndex++ )
+        {
+            Object metaValue = metaDataMap.get( sourceColumn.get( rowIndex ) );
+
+            if ( metaValue != null )
+            {
+                targetColumn.set( rowIndex, metaValue );
+            }
+        }
+
+        return this;
+    }
+
+    @Override
+    public List<Integer> getMetaColumnIndexes()
+    {
+        List<Integer> indexes = new ArrayList<>();
+
+        for ( int i = 0; i < headers.size(); i++ )
+        {
+            GridHeader header = headers.get( i );
+
+            if ( header != null && header.isMeta() )
+            {
+                indexes.add( i );
+            }
+        }
+
+        return indexes;
+    }
+
+    @Override
+    public Set<Object> getUniqueValues( String columnName )
+    {
+        int columnIndex = getIndexOfHeader( columnName );
+
+        Set<Object> values = new HashSet<>();
+
+        if ( columnIndex != -1 )
+        {
+            values.addAll( getColumn( columnIndex ) );
+        }
+
+        return values;
+    }
+
+    @Override
+    @SuppressWarnings( "unchecked" )
+    public <T> Map<String, T> getAsMap( int valueIndex, String keySeparator )
+    {
+        Map<String, T> map = new HashMap<>();
+
+        for ( List<Object> row : getRows() )
+        {
+            List<Object> metaDataRow = new ArrayList<>( row );
+
+            metaDataRow.remove( valueIndex );
+
+            String key = StringUtils.join( metaDataRow, keySeparator );
+
+            T value = (T) row.get( valueIndex );
+
+            map.put( key, value );
+        }
+
+        return map;
+    }
+
+    // -------------------------------------------------------------------------
+    // JRDataSource implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public boolean next()
+        throws JRException
+    {
+        boolean next = ++currentRowReadIndex < getHeight();
+
+        if ( !next )
+        {
+            currentRowReadIndex = -1; // Reset and return false
+        }
+
+        return next;
+    }
+
+    @Override
+    public Object getFieldValue( JRField field )
+        throws JRException
+    {
+        Integer index = columnIndexMap.get( field.getName() );
+
+        return index != null ? getValue( currentRowReadIndex, index ) : null;
+    }
+
+    // -------------------------------------------------------------------------
+    // SQL utility methods
+    // -------------------------------------------------------------------------
+
+    @Override
+    public Grid addHeaders( ResultSet rs )
+    {
+        try
+        {
+            ResultSetMetaData rsmd = rs.getMetaData();
+
+            int columnNo = rsmd.getColumnCount();
+
+            for ( int i = 1; i <= columnNo; i++ )
+            {
+                addHeader( new GridHeader( rsmd.getColumnLabel( i ), false, false ) );
+            }
+        }
+        catch ( SQLException ex )
+        {
+            throw new RuntimeException( ex );
+        }
+
+        return this;
+    }
+
+    @Override
+    public Grid addHeaders( SqlRowSet rs )
+    {
+        SqlRowSetMetaData rsmd = rs.getMetaData();
+
+        int columnNo = rsmd.getColumnCount();
+
+        for ( int i = 1; i <= columnNo; i++ )
+        {
+            addHeader( new GridHeader( rsmd.getColumnLabel( i ), false, false ) );
+        }
+
+        return this;
+    }
+
+    @Override
+    public Grid addRows( ResultSet rs )
+    {
+        try
+        {
+            int cols = rs.getMetaData().getColumnCount();
+
+            while ( rs.next() )
+            {
+                addRow();
+
+                for ( int i = 1; i <= cols; i++ )
+                {
+                    addValue( rs.getObject( i ) );
+                }
+            }
+        }
+        catch ( SQLException ex )
+        {
+            throw new RuntimeException( ex );
+        }
+
+        return this;
+    }
+
+    @Override
+    public Grid addRows( SqlRowSet rs, int maxLimit )
+    {
+        int cols = rs.getMetaData().getColumnCount();
+
+        while ( rs.next() )
+        {
+            addRow();
+
+            for ( int i = 1; i <= cols; i++ )
+            {
+                addValue( rs.getObject( i ) );
+
+                if ( maxLimit > 0 && i > maxLimit )
+                {
+                    throw new IllegalStateException( "Number of rows produced by query is larger than the max limit: " + maxLimit );
+                }
+            }
+        }
+
+        return this;
+    }
+
+    @Override
+    public Grid addRows( SqlRowSet rs )
+    {
+        return addRows( rs, -1 );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void verifyRowIndex( int rowIndex )
+    {
+        if ( rowIndex < 0 || rowIndex >= height )
+        {
+            throw new IndexOutOfBoundsException( "Row index: " + rowIndex + ", height: " + height );
+        }
+    }
+
+    /**
+     * Returns the indexes of columns with a visible header.
+     */
+    private int[] getVisibleColumnIndexes()
+    {
+        return IntStream.range( 0, Math.min( headers.size(), columns.size() ) )
+            .filter( i -> !headers.get( i ).isHidden() )
+            .toArray();
+    }
+
+    /**
+     * Retains the rows from the given start position inclusive to the given
+     * end position exclusive.
+     */
+    private void sliceRows( int startPos, int endPos )
+    {
+        for ( int i = 0; i < columns.size(); i++ )
+        {
+            columns.set( i, columns.get( i ).slice( startPos, endPos ) );
+        }
+
+        height = endPos - startPos;
+    }
+
+    /**
+     * Updates the mapping between header columns and grid indexes. This method
+     * should be invoked whenever the columns are manipulated.
+     */
+    private void updateColumnIndexMap()
+    {
+        columnIndexMap.clear();
+
+        for ( int i = 0; i < headers.size(); i++ )
+        {
+            columnIndexMap.put( headers.get( i ).getColumn(), i );
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // toString
+    // -------------------------------------------------------------------------
+
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder( "[\n" );
+
+        if ( headers != null && headers.size() > 0 )
+        {
+            List<String> headerNames = new ArrayList<>();
+
+            for ( GridHeader header : headers )
+            {
+                headerNames.add( header.getName() );
+            }
+
+            builder.append( headerNames ).append( "\n" );
+        }
+
+        for ( List<Object> row : getRows() )
+        {
+            builder.append( row ).append( "\n" );
+        }
+
+        return builder.append( "]" ).toString();
+    }
+
+    // -------------------------------------------------------------------------
+    // Row view
+    // -------------------------------------------------------------------------
+
+    /**
+     * Row backed by the columns of the grid.
+     */
+    private class RowView
+        extends AbstractList<Object>
+    {
+        private final int rowIndex;
+
+        RowView( int rowIndex )
+        {
+            this.rowIndex = rowIndex;
+        }
+
+        @Override
+        public Object get( int columnIndex )
+        {
+            return columns.get( columnIndex ).get( rowIndex );
+        }
+
+        @Override
+        public Object set( int columnIndex, Object value )
+        {
+            Column column = columns.get( columnIndex );
+
+            Object previous = column.get( rowIndex );
+
+            column.pad( rowIndex + 1 );
+            column.set( rowIndex, value );
+
+            return previous;
+        }
+
+        @Override
+        public int size()
+        {
+            return columns.size();
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Column
+    // -------------------------------------------------------------------------
+
+    /**
+     * Column of values. Double values are stored in a primitive array. Other
+     * values are stored as codes referring to a dictionary of distinct values.
+     * The code array is only allocated once a non-double value is added, and
+     * the number array is only allocated once a double value is added.
+     */
+    private static final class Column
+        implements Serializable
+    {
+        private static final int MIN_CAPACITY = 16;
+
+        /**
+         * Code indicating that the value is stored in the number array.
+         */
+        private static final int NUMBER = -1;
+
+        private double[] numbers;
+
+        private int[] codes;
+
+        private BitSet nulls = new BitSet();
+
+        private List<Object> dictionary = new ArrayList<>();
+
+        private Map<Object, Integer> dictionaryIndex = new HashMap<>();
+
+        private int capacity;
+
+        private int size;
+
+        Column( int capacity )
+        {
+            this.capacity = Math.max( capacity, MIN_CAPACITY );
+        }
+
+        int size()
+        {
+            return size;
+        }
+
+        /**
+         * Indicates whether all non-null values of this column are doubles.
+         */
+        boolean isNumeric()
+        {
+            return codes == null;
+        }
+
+        boolean isEmpty()
+        {
+            return nulls.nextClearBit( 0 ) >= size;
+        }
+
+        boolean isNull( int index )
+        {
+            return index >= size || nulls.get( index );
+        }
+
+        Object get( int index )
+        {
+            if ( isNull( index ) )
+            {
+                return null;
+            }
+
+            if ( codes != null && codes[index] != NUMBER )
+            {
+                return dictionary.get( codes[index] );
+            }
+
+            return numbers[index];
+        }
+
+        /**
+         * Returns the value at the given index as a double. Must not be
+         * invoked for null values.
+         */
+        double getDouble( int index )
+        {
+            if ( codes == null || codes[index] == NUMBER )
+            {
+                return numbers[index];
+            }
+
+            return Double.parseDouble( String.valueOf( dictionary.get( codes[index] ) ) );
+        }
+
+        void add( Object value )
+        {
+            ensureCapacity( size + 1 );
+            size++;
+            set( size - 1, value );
+        }
+
+        void addDouble( double value )
+        {
+            ensureCapacity( size + 1 );
+            size++;
+            setDouble( size - 1, value );
+        }
+
+        void set( int index, Object value )
+        {
+            if ( value == null )
+            {
+                nulls.set( index );
+            }
+            else if ( value instanceof Double )
+            {
+                setDouble( index, (Double) value );
+            }
+            else
+            {
+                if ( codes == null )
+                {
+                    codes = new int[capacity];
+                    Arrays.fill( codes, NUMBER );
+                }
+
+                nulls.clear( index );
+                codes[index] = encode( value );
+            }
+        }
+
+        private void setDouble( int index, double value )
+        {
+            if ( numbers == null )
+            {
+                numbers = new double[capacity];
+            }
+
+            nulls.clear( index );
+            numbers[index] = value;
+
+            if ( codes != null )
+            {
+                codes[index] = NUMBER;
+            }
+        }
+
+        /**
+         * Pads this column with null values up to the given size.
+         */
+        void pad( int newSize )
+        {
+            if ( newSize > size )
+            {
+                ensureCapacity( newSize );
+                nulls.set( size, newSize );
+                size = newSize;
+            }
+        }
+
+        void truncate( int newSize )
+        {
+            if ( newSize < size )
+            {
+                nulls.clear( newSize, size );
+                size = newSize;
+            }
+        }
+
+        /**
+         * Returns a column with the values from the given start index inclusive
+         * to the given end index exclusive.
+         */
+        Column slice( int from, int to )
+        {
+            Column column = new Column( to - from );
+            column.numbers = numbers != null ? Arrays.copyOfRange( numbers, from, from + column.capacity ) : null;
+            column.codes = codes != null ? Arrays.copyOfRange( codes, from, from + column.capacity ) : null;
+            column.nulls = nulls.get( from, to );
+            column.dictionary = dictionary;
+            column.dictionaryIndex = dictionaryIndex;
+            column.size = Math.max( 0, Math.min( size, to ) - from );
+            column.pad( to - from );
+            return column;
+        }
+
+        /**
+         * Returns a column with the values reordered so that position i holds
+         * the value at position permutation[i] of this column.
+         */
+        Column permute( int[] permutation )
+        {
+            pad( permutation.length );
+
+            Column column = new Column( permutation.length );
+            column.numbers = numbers != null ? new double[column.capacity] : null;
+            column.codes = codes != null ? new int[column.capacity] : null;
+            column.dictionary = dictionary;
+            column.dictionaryIndex = dictionaryIndex;
+            column.size = permutation.length;
+
+            for ( int i = 0; i < permutation.length; i++ )
+            {
+                int source = permutation[i];
+
+                if ( nulls.get( source ) )
+                {
+                    column.nulls.set( i );
+                }
+
+                if ( numbers != null )
+                {
+                    column.numbers[i] = numbers[source];
+                }
+
+                if ( codes != null )
+                {
+                    column.codes[i] = codes[source];
+                }
+            }
+
+            return column;
+        }
+
+        /**
+         * Replaces values which have a mapping in the given map with the mapped
+         * value. Dictionary values are substituted once per distinct value.
+         */
+        void substitute( Map<? extends Object, ? extends Object> map )
+        {
+            if ( !dictionary.isEmpty() )
+            {
+                dictionary = new ArrayList<>( dictionary );
+                dictionaryIndex = new HashMap<>();
+
+                for ( int i = 0; i < dictionary.size(); i++ )
+                {
+                    Object metaValue = map.get( dictionary.get( i ) );
+
+                    if ( metaValue != null )
+                    {
+                        dictionary.set( i, metaValue );
+                    }
+
+                    dictionaryIndex.putIfAbsent( dictionary.get( i ), i );
+                }
+            }
+
+            Object nullMetaValue = nulls.isEmpty() ? null : map.get( null );
+
+            for ( int i = 0; i < size; i++ )
+            {
+                if ( nulls.get( i ) )
+                {
+                    if ( nullMetaValue != null )
+                    {
+                        set( i, nullMetaValue );
+                    }
+                }
+                else if ( codes == null || codes[i] == NUMBER )
+                {
+                    Object metaValue = map.get( numbers[i] );
+
+                    if ( metaValue != null )
+                    {
+                        set( i, metaValue );
+                    }
+                }
+            }
+        }
+
+        private int encode( Object value )
+        {
+            Integer code = dictionaryIndex.get( value );
+
+            if ( code == null )
+            {
+                code = dictionary.size();
+                dictionary.add( value );
+                dictionaryIndex.put( value, code );
+            }
+
+            return code;
+        }
+
+        private void ensureCapacity( int minCapacity )
+        {
+            if ( minCapacity > capacity )
+            {
+                capacity = Math.max( minCapacity, capacity + (capacity >> 1) );
+
+                if ( numbers != null )
+                {
+                    numbers = Arrays.copyOf( numbers, capacity );
+                }
+
+                if ( codes != null )
+                {
+                    int previous = codes.length;
+                    codes = Arrays.copyOf( codes, capacity );
+                    Arrays.fill( codes, previous, capacity, NUMBER );
+                }
+            }
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Comparators
+    // -------------------------------------------------------------------------
+
+    /**
+     * Compares row indexes by the values of a column with the same semantics as
+     * {@link ListGrid.GridRowComparator}.
+     */
+    private static class RowComparator
+        implements Comparator<Integer>
+    {
+        private final Column column;
+        private final int order;
+
+        RowComparator( Column column, int order )
+        {
+            this.column = column;
+            this.order = order;
+        }
+
+        @Override
+        @SuppressWarnings( "unchecked" )
+        public int compare( Integer row1, Integer row2 )
+        {
+            Object value1 = column.get( row1 );
+            Object value2 = column.get( row2 );
+
+            boolean value1Invalid = !(value1 instanceof Comparable<?>);
+            boolean value2Invalid = !(value2 instanceof Comparable<?>);
+
+            if ( value1Invalid && value2Invalid )
+            {
+                return 0;
+            }
+            else if ( value1Invalid )
+            {
+                return order > 0 ? 1 : -1;
+            }
+            else if ( value2Invalid )
+            {
+                return order > 0 ? -1 : 1;
+            }
+
+            return order > 0 ? ((Comparable<Object>) value2).compareTo( value1 ) : ((Comparable<Object>) value1).compareTo( value2 );
+        }
+    }
+
+    /**
+     * Compares row indexes of a numeric column without boxing values.
+     */
+    private static class NumericRowComparator
+        implements Comparator<Integer>
+    {
+        private final Column column;
+        private final int order;
+
+        NumericRowComparator( Column column, int order )
+        {
+            this.column = column;
+            this.order = order;
+        }
+
+        @Override
+        public int compare( Integer row1, Integer row2 )
+        {
+            boolean value1Invalid = column.isNull( row1 );
+            boolean value2Invalid = column.isNull( row2 );
+
+            if ( value1Invalid && value2Invalid )
+            {
+                return 0;
+            }
+            else if ( value1Invalid )
+            {
+                return order > 0 ? 1 : -1;
+            }
+            else if ( value2Invalid )
+            {
+                return order > 0 ? -1 : 1;
+            }
+
+            double value1 = column.numbers[row1];
+            double value2 = column.numbers[row2];
+
+            return order > 0 ? Double.compare( value2, value1 ) : Double.compare( value1, value2 );
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package org.hisp.dhis.system.grid;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+
+import org.hisp.dhis.common.GridHeader;
+import org.hisp.dhis.common.GridRowSink;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * {@link GridRowSink} which writes rows as JSON to an {@link OutputStream} as
+ * they are added. The output has the same structure as the JSON representation
+ * of a {@link ListGrid}, where the height and width properties are written
+ * after the rows. Row values are written as strings, as done by
+ * {@link org.hisp.dhis.common.adapter.JacksonRowDataSerializer}.
+ */
+public class JsonGridRowSink
+    implements GridRowSink
+{
+    private static final String EMPTY = "";
+
+    private final JsonGenerator generator;
+
+    private int headerWidth = 0;
+
+    private int width = 0;
+
+    private int height = 0;
+
+    public JsonGridRowSink( ObjectMapper jsonMapper, OutputStream out )
+    {
+        try
+        {
+            this.generator = jsonMapper.getFactory().createGenerator( out );
+        }
+        catch ( IOException ex )
+        {
+            throw new UncheckedIOException( ex );
+        }
+    }
+
+    @Override
+    public void start( List<GridHeader> headers, Map<String, Object> metaData )
+    {
+        try
+        {
+            headerWidth = headers.size();
+
+            generator.writeStartObject();
+            generator.writeFieldName( "headers" );
+            generator.writeObject( headers );
+
+            if ( metaData != null && !metaData.isEmpty() )
+            {
+                generator.writeFieldName( "metaData" );
+                generator.writeObject( metaData );
+            }
+
+            generator.writeArrayFieldStart( "rows" );
+        }
+        catch ( IOException ex )
+        {
+            throw new UncheckedIOException( ex );
+        }
+    }
+
+    @Override
+    public void addRow( List<Object> row )
+    {
+        try
+        {
+            generator.writeStartArray();
+
+            for ( Object value : row )
+            {
+                generator.writeString( value != null ? String.valueOf( value ) : EMPTY );
+            }
+
+            generator.writeEndArray();
+
+            width = row.size();
+            height++;
+        }
+        catch ( IOException ex )
+        {
+            throw new UncheckedIOException( ex );
+        }
+    }
+
+    @Override
+    public void finish()
+    {
+        try
+        {
+            generator.writeEndArray();
+            generator.writeNumberField( "headerWidth", headerWidth );
+            generator.writeNumberField( "width", width );
+            generator.writeNumberField( "height", height );
+            generator.writeEndObject();
+            generator.flush();
+        }
+        catch ( IOException ex )
+        {
+            throw new UncheckedIOException( ex );
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package org.hisp.dhis.system.grid;
+
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hisp.dhis.common.Grid;
+import org.junit.Test;
+
+/**
+ * Runs the grid tests against {@link ColumnarGrid} in addition to tests of
+ * column specific behavior.
+ */
+public class ColumnarGridTest
+    extends GridTest
+{
+    @Override
+    protected Grid createGrid()
+    {
+        return new ColumnarGrid();
+    }
+
+    @Test
+    public void testRowWritesThrough()
+    {
+        Grid grid = createGrid()
+            .addRow().addValuesVar( "A", 1d )
+            .addRow().addValuesVar( "B", 2d );
+
+        List<Object> row = grid.getRow( 1 );
+        row.set( 1, 5d );
+        row.set( 0, "C" );
+
+        assertEquals( "C", grid.getValue( 1, 0 ) );
+        assertEquals( 5d, grid.getValue( 1, 1 ) );
+        assertEquals( "A", grid.getValue( 0, 0 ) );
+    }
+
+    @Test
+    public void testMixedValueTypes()
+    {
+        Grid grid = createGrid()
+            .addRow().addValuesVar( 1d )
+            .addRow().addValuesVar( (Object) null )
+            .addRow().addValuesVar( "two" )
+            .addRow().addValuesVar( 3 )
+            .addRow().addValuesVar( 4d );
+
+        assertEquals( 1d, grid.getValue( 0, 0 ) );
+        assertNull( grid.getValue( 1, 0 ) );
+        assertEquals( "two", grid.getValue( 2, 0 ) );
+        assertEquals( 3, grid.getValue( 3, 0 ) );
+        assertEquals( 4d, grid.getValue( 4, 0 ) );
+    }
+
+    @Test
+    public void testIncompleteRowsArePadded()
+    {
+        Grid grid = createGrid()
+            .addRow().addValuesVar( "A1", "A2", "A3" )
+            .addRow().addValuesVar( "B1" )
+            .addRow().addValuesVar( "C1", "C2", "C3" );
+
+        assertEquals( 3, grid.getWidth() );
+        assertNull( grid.getValue( 1, 1 ) );
+        assertNull( grid.getValue( 1, 2 ) );
+        assertEquals( "C3", grid.getValue( 2, 2 ) );
+    }
+
+    @Test
+    public void testSortNumericColumnWithNulls()
+    {
+        Grid grid = createGrid()
+            .addRow().addValuesVar( "two", 2d )
+            .addRow().addValuesVar( "null", null )
+            .addRow().addValuesVar( "three", 3d )
+            .addRow().addValuesVar( "one", 1d );
+
+        grid.sortGrid( 2, 1 );
+
+        assertEquals( "three", grid.getValue( 0, 0 ) );
+        assertEquals( "two", grid.getValue( 1, 0 ) );
+        assertEquals( "one", grid.getValue( 2, 0 ) );
+        assertEquals( "null", grid.getValue( 3, 0 ) );
+
+        grid.sortGrid( 2, -1 );
+
+        assertEquals( "null", grid.getValue( 0, 0 ) );
+        assertEquals( "one", grid.getValue( 1, 0 ) );
+        assertEquals( "two", grid.getValue( 2, 0 ) );
+        assertEquals( "three", grid.getValue( 3, 0 ) );
+    }
+
+    @Test
+    public void testLimitThenAddRow()
+    {
+        Grid grid = createGrid()
+            .addRow().addValuesVar( "A", 1d )
+            .addRow().addValuesVar( "B", 2d )
+            .addRow().addValuesVar( "C", 3d );
+
+        grid.limitGrid( 1, 3 );
+        grid.addRow().addValuesVar( "D", 4d );
+
+        assertEquals( 3, grid.getHeight() );
+        assertEquals( "B", grid.getValue( 0, 0 ) );
+        assertEquals( 4d, grid.getValue( 2, 1 ) );
+    }
+
+    @Test
+    public void testSubstituteMetaDataNumericColumn()
+    {
+        Map<Object, Object> metaData = new HashMap<>();
+        metaData.put( 1d, "One" );
+        metaData.put( "b", "Bee" );
+
+        Grid grid = createGrid()
+            .addRow().addValuesVar( 1d )
+            .addRow().addValuesVar( "b" )
+            .addRow().addValuesVar( 2d );
+
+        grid.substituteMetaData( 0, 0, metaData );
+
+        assertEquals( "One", grid.getValue( 0, 0 ) );
+        assertEquals( "Bee", grid.getValue( 1, 0 ) );
+        assertEquals( 2d, grid.getValue( 2, 0 ) );
+    }
+}
@@ -0,0 +1,168 @@
+package org.hisp.dhis.system.grid;
+
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.hisp.dhis.common.Grid;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares {@link ListGrid} and {@link ColumnarGrid} for grids shaped like
+ * analytics responses, with a few dimension columns with repeating
+ * identifiers and a numeric value column. Not run as part of the test suite,
+ * run the main method from the test class path. The GC profiler reports the
+ * bytes allocated per operation, which for the build benchmark is the memory
+ * footprint of the grid.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class GridBenchmark
+{
+    private static final int DX_ITEMS = 50;
+    private static final int OU_ITEMS = 1000;
+    private static final int PE_ITEMS = 12;
+
+    @Param( { "ListGrid", "ColumnarGrid" } )
+    private String type;
+
+    @Param( { "100000" } )
+    private int rows;
+
+    private String[] dx;
+    private String[] ou;
+    private String[] pe;
+    private double[] values;
+
+    private Grid grid;
+
+    @Setup( Level.Trial )
+    public void setUpData()
+    {
+        Random random = new Random( 42 );
+
+        dx = new String[rows];
+        ou = new String[rows];
+        pe = new String[rows];
+        values = new double[rows];
+
+        for ( int i = 0; i < rows; i++ )
+        {
+            dx[i] = "dataElem" + random.nextInt( DX_ITEMS );
+            ou[i] = "orgUnit" + random.nextInt( OU_ITEMS );
+            pe[i] = "2019" + String.format( "%02d", random.nextInt( PE_ITEMS ) + 1 );
+            values[i] = random.nextInt( 100000 ) / 10d;
+        }
+    }
+
+    @Setup( Level.Invocation )
+    public void setUpGrid()
+    {
+        grid = buildGrid();
+    }
+
+    @Benchmark
+    public Grid build()
+    {
+        return buildGrid();
+    }
+
+    @Benchmark
+    public Grid sortByValue()
+    {
+        return grid.sortGrid( 4, 1 );
+    }
+
+    @Benchmark
+    public Grid sortByDimension()
+    {
+        return grid.sortGrid( 2, -1 );
+    }
+
+    @Benchmark
+    public Grid limit()
+    {
+        return grid.limitGrid( rows / 4, rows / 2 );
+    }
+
+    @Benchmark
+    public Grid regression()
+    {
+        return grid.addRegressionColumn( 3, false );
+    }
+
+    private Grid buildGrid()
+    {
+        Grid grid = "ColumnarGrid".equals( type ) ? new ColumnarGrid() : new ListGrid();
+
+        for ( int i = 0; i < rows; i++ )
+        {
+            grid.addRow()
+                .addValue( dx[i] )
+                .addValue( ou[i] )
+                .addValue( pe[i] )
+                .addValue( values[i] );
+        }
+
+        return grid;
+    }
+
+    public static void main( String[] args )
+        throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+            .include( GridBenchmark.class.getSimpleName() )
+            .addProfiler( GCProfiler.class )
+            .build();
+
+        new Runner( options ).run();
+    }
+}
@@ -0,0 +1,104 @@
+package org.hisp.dhis.system.grid;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.hisp.dhis.common.Grid;
+import org.hisp.dhis.common.GridHeader;
+import org.hisp.dhis.common.GridRowSink;
+import org.hisp.dhis.common.ValueType;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class GridRowSinkTest
+{
+    private final List<GridHeader> headers = Arrays.asList(
+        new GridHeader( "dx", "Data", ValueType.TEXT, String.class.getName(), false, true ),
+        new GridHeader( "value", "Value", ValueType.NUMBER, Double.class.getName(), false, false ) );
+
+    @Test
+    public void testCsvSinkMatchesGridUtils()
+        throws Exception
+    {
+        Grid grid = new ListGrid();
+        headers.forEach( grid::addHeader );
+        grid.addRow().addValue( "deA" ).addValue( 1.5 );
+        grid.addRow().addValue( "deB" ).addValue( null );
+
+        StringWriter expected = new StringWriter();
+        GridUtils.toCsv( grid, expected );
+
+        StringWriter actual = new StringWriter();
+        write( new CsvGridRowSink( actual ), grid );
+
+        assertEquals( expected.toString(), actual.toString() );
+    }
+
+    @Test
+    public void testJsonSink()
+        throws Exception
+    {
+        Grid grid = new ListGrid();
+        headers.forEach( grid::addHeader );
+        grid.addRow().addValue( "deA" ).addValue( 1.5 );
+        grid.addRow().addValue( "deB" ).addValue( 2.0 );
+
+        ObjectMapper jsonMapper = new ObjectMapper();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        write( new JsonGridRowSink( jsonMapper, out ), grid );
+
+        JsonNode json = jsonMapper.readTree( new String( out.toByteArray(), StandardCharsets.UTF_8 ) );
+
+        assertEquals( 2, json.get( "headers" ).size() );
+        assertEquals( "dx", json.get( "headers" ).get( 0 ).get( "name" ).asText() );
+        assertEquals( 2, json.get( "rows" ).size() );
+        assertEquals( "deB", json.get( "rows" ).get( 1 ).get( 0 ).asText() );
+        assertEquals( "2.0", json.get( "rows" ).get( 1 ).get( 1 ).asText() );
+        assertEquals( 2, json.get( "height" ).asInt() );
+        assertEquals( 2, json.get( "width" ).asInt() );
+        assertEquals( 2, json.get( "headerWidth" ).asInt() );
+    }
+
+    private void write( GridRowSink sink, Grid grid )
+    {
+        sink.start( grid.getHeaders(), Collections.emptyMap() );
+        grid.getRows().forEach( sink::addRow );
+        sink.finish();
+    }
+}
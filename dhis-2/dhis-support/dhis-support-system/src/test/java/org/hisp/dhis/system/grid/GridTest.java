@@ -61,11 +61,19 @@ public class GridTest
     private GridHeader headerB;
     private GridHeader headerC;
 
+    /**
+     * Creates the grid implementation under test.
+     */
+    protected Grid createGrid()
+    {
+        return new ListGrid();
+    }
+
     @Before
     public void setUp()
     {
-        gridA = new ListGrid();
-        gridB = new ListGrid();
+        gridA = createGrid();
+        gridB = createGrid();
 
         headerA = new GridHeader( "ColA", "colA", ValueType.TEXT, String.class.getName(), false, true );
         headerB = new GridHeader( "ColB", "colB", ValueType.TEXT, String.class.getName(), false, true );
@@ -112,7 +120,7 @@ public class GridTest
     @Test
     public void testAddHeaders()
     {
-        Grid grid = new ListGrid();
+        Grid grid = createGrid();
 
         GridHeader headerA = new GridHeader( "DataElementA", "Data element A" );
         GridHeader headerB = new GridHeader( "DataElementB", "Data element B" );
@@ -136,7 +144,7 @@ public class GridTest
     @Test
     public void testColumnIsEmpty()
     {
-        Grid grid = new ListGrid()
+        Grid grid = createGrid()
             .addRow().addValuesVar( "A1", null, "A3", null )
             .addRow().addValuesVar( "B1", null, "B3", null )
             .addRow().addValuesVar( null, null, "C3", null )
@@ -151,7 +159,7 @@ public class GridTest
     @Test
     public void testRemoveEmptyColumns()
     {
-        Grid grid = new ListGrid()
+        Grid grid = createGrid()
             .addHeader( new GridHeader( "H1" ) )
             .addHeader( new GridHeader( "H2" ) )
             .addHeader( new GridHeader( "H3" ) )
@@ -172,7 +180,7 @@ public class GridTest
     @Test
     public void testRemoveEmptyColumnsWithoutHeaders()
     {
-        Grid grid = new ListGrid()
+        Grid grid = createGrid()
             .addRow().addValuesVar( "A1", null, "A3", null )
             .addRow().addValuesVar( "B1", null, "B3", null )
             .addRow().addValuesVar( null, null, "C3", null )
@@ -188,7 +196,7 @@ public class GridTest
     @Test
     public void testAddHeaderList()
     {
-        Grid grid = new ListGrid();
+        Grid grid = createGrid();
 
         GridHeader headerA = new GridHeader( "DataElementA", "Data element A" );
         GridHeader headerB = new GridHeader( "DataElementB", "Data element B" );
@@ -599,7 +607,7 @@ public class GridTest
     @Test
     public void testSortA()
     {
-        Grid grid = new ListGrid();
+        Grid grid = createGrid();
 
         grid.addRow().addValue( 1 ).addValue( "a" );
         grid.addRow().addValue( 2 ).addValue( "b" );
@@ -620,7 +628,7 @@ public class GridTest
     @Test
     public void testSortB()
     {
-        Grid grid = new ListGrid();
+        Grid grid = createGrid();
 
         grid.addRow().addValue( 3 ).addValue( "a" );
         grid.addRow().addValue( 2 ).addValue( "b" );
@@ -641,7 +649,7 @@ public class GridTest
     @Test
     public void testSortC()
     {
-        Grid grid = new ListGrid();
+        Grid grid = createGrid();
 
         grid.addRow().addValue( 1 ).addValue( "c" );
         grid.addRow().addValue( 3 ).addValue( "a" );
@@ -662,7 +670,7 @@ public class GridTest
     @Test
     public void testSortD()
     {
-        Grid grid = new ListGrid();
+        Grid grid = createGrid();
 
         grid.addRow().addValue( "a" ).addValue( "a" ).addValue( 5.2 );
         grid.addRow().addValue( "b" ).addValue( "b" ).addValue( 0.0 );
@@ -695,7 +703,7 @@ public class GridTest
     @Test
     public void testSortE()
     {
-        Grid grid = new ListGrid();
+        Grid grid = createGrid();
 
         grid.addRow().addValue( "two" ).addValue( 2 );
         grid.addRow().addValue( "null" ).addValue( null );
@@ -716,7 +724,7 @@ public class GridTest
     @Test
     public void testSortF()
     {
-        Grid grid = new ListGrid();
+        Grid grid = createGrid();
 
         grid.addRow().addValue( "two" ).addValue( 2 );
         grid.addRow().addValue( "null" ).addValue( null );
@@ -756,7 +764,7 @@ public class GridTest
     @Test
     public void testAddRegressionColumn()
     {
-        gridA = new ListGrid();
+        gridA = createGrid();
 
         gridA.addRow();
         gridA.addValue( 10.0 );
@@ -781,7 +789,7 @@ public class GridTest
     @Test
     public void testAddCumulativeColumn()
     {
-        gridA = new ListGrid();
+        gridA = createGrid();
 
         gridA.addRow();
         gridA.addValue( 10.0 );
@@ -871,7 +879,7 @@ public class GridTest
     @Test
     public void testAddValuesAsList()
     {
-        Grid grid = new ListGrid();
+        Grid grid = createGrid();
 
         grid.addRow().addValuesAsList( Lists.newArrayList( "colA1", "colB1", "colC1" ) );
         grid.addRow().addValuesAsList( Lists.newArrayList( "colA2", "colB2", "colC2" ) );
@@ -40,7 +40,9 @@ import org.hisp.dhis.analytics.util.AnalyticsUtils;
 import org.hisp.dhis.common.*;
 import org.hisp.dhis.common.cache.CacheStrategy;
 import org.hisp.dhis.dxf2.datavalueset.DataValueSet;
+import org.hisp.dhis.system.grid.CsvGridRowSink;
 import org.hisp.dhis.system.grid.GridUtils;
+import org.hisp.dhis.system.grid.JsonGridRowSink;
 import org.hisp.dhis.webapi.mvc.annotation.ApiVersion;
 import org.hisp.dhis.webapi.utils.ContextUtils;
 import org.springframework.stereotype.Controller;
@@ -50,6 +52,8 @@ import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 /**
  * @author Lars Helge Overland
  */
@@ -67,12 +71,15 @@ public class AnalyticsController
 
     private final ContextUtils contextUtils;
 
+    private final ObjectMapper jsonMapper;
+
     public AnalyticsController( DataQueryService dataQueryService, AnalyticsService analyticsService,
-        ContextUtils contextUtils )
+        ContextUtils contextUtils, ObjectMapper jsonMapper )
     {
         this.dataQueryService = dataQueryService;
         this.analyticsService = analyticsService;
         this.contextUtils = contextUtils;
+        this.jsonMapper = jsonMapper;
     }
 
     // -------------------------------------------------------------------------
@@ -518,7 +525,7 @@ public class AnalyticsController
     // -------------------------------------------------------------------------
 
     @RequestMapping( value = RESOURCE_PATH + RAW_DATA_PATH + ".json", method = RequestMethod.GET )
-    public @ResponseBody Grid getRawDataJson(
+    public void getRawDataJson(
         @RequestParam Set<String> dimension,
         @RequestParam( required = false ) Date startDate,
         @RequestParam( required = false ) Date endDate,
@@ -545,7 +552,7 @@ public class AnalyticsController
         DataQueryParams params = dataQueryService.getFromRequest( request );
 
         contextUtils.configureAnalyticsResponse( response, ContextUtils.CONTENT_TYPE_JSON, CacheStrategy.RESPECT_SYSTEM_SETTING, null, false, params.getLatestEndDate() );
-        return analyticsService.getRawDataValues( params );
+        analyticsService.streamRawDataValues( params, new JsonGridRowSink( jsonMapper, response.getOutputStream() ) );
     }
 
     @RequestMapping( value = RESOURCE_PATH + RAW_DATA_PATH + ".csv", method = RequestMethod.GET )
@@ -577,8 +584,7 @@ public class AnalyticsController
 
         contextUtils.configureAnalyticsResponse( response, ContextUtils.CONTENT_TYPE_CSV,
             CacheStrategy.RESPECT_SYSTEM_SETTING, null, false, params.getLatestEndDate() );
-        Grid grid = analyticsService.getRawDataValues( params );
-        GridUtils.toCsv( grid, response.getWriter() );
+        analyticsService.streamRawDataValues( params, new CsvGridRowSink( response.getWriter() ) );
     }
 
     // -------------------------------------------------------------------------
@@ -39,6 +39,7 @@ import org.hisp.dhis.common.*;
 import org.hisp.dhis.common.cache.CacheStrategy;
 import org.hisp.dhis.event.EventStatus;
 import org.hisp.dhis.program.ProgramStatus;
+import org.hisp.dhis.system.grid.CsvGridRowSink;
 import org.hisp.dhis.system.grid.GridUtils;
 import org.hisp.dhis.webapi.mvc.annotation.ApiVersion;
 import org.hisp.dhis.webapi.utils.ContextUtils;
@@ -661,8 +662,7 @@ public class EventAnalyticsController
         EventQueryParams params = eventDataQueryService.getFromRequest( request );
 
         contextUtils.configureResponse( response, ContextUtils.CONTENT_TYPE_CSV, CacheStrategy.RESPECT_SYSTEM_SETTING, "events.csv", true );
-        Grid grid = analyticsService.getEvents( params );
-        GridUtils.toCsv( grid, response.getWriter() );
+        analyticsService.streamEvents( params, new CsvGridRowSink( response.getWriter() ) );
     }
 
     @RequestMapping( value = RESOURCE_PATH + "/query/{program}.html", method = RequestMethod.GET )
@@ -79,6 +79,7 @@ public class ResourceTableController
         @RequestParam( required = false ) boolean skipEvents,
         @RequestParam( required = false ) boolean skipEnrollment,
         @RequestParam( required = false ) Integer lastYears,
+        @RequestParam( required = false ) boolean dirtyPartitionsOnly,
         HttpServletResponse response, HttpServletRequest request )
     {
         Set<AnalyticsTableType> skipTableTypes = new HashSet<>();
@@ -100,7 +101,8 @@ public class ResourceTableController
             skipTableTypes.add( AnalyticsTableType.ENROLLMENT );
         }
 
-        AnalyticsJobParameters analyticsJobParameters = new AnalyticsJobParameters( lastYears, skipTableTypes, skipResourceTables );
+        AnalyticsJobParameters analyticsJobParameters = new AnalyticsJobParameters( lastYears, skipTableTypes, skipResourceTables,
+            dirtyPartitionsOnly );
 
         JobConfiguration analyticsTableJob = new JobConfiguration( "inMemoryAnalyticsJob", JobType.ANALYTICS_TABLE, "",
             analyticsJobParameters, true, true );
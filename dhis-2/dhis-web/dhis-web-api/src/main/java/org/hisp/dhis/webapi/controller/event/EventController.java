@@ -34,6 +34,7 @@ import static org.hisp.dhis.scheduling.JobType.EVENT_IMPORT;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.*;
 import java.util.zip.GZIPOutputStream;
 
@@ -94,6 +95,8 @@ import org.springframework.ui.Model;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.MoreObjects;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
@@ -142,6 +145,9 @@ public class EventController
     @Autowired
     private RenderService renderService;
 
+    @Autowired
+    private ObjectMapper jsonMapper;
+
     @Autowired
     private ProgramStageInstanceService programStageInstanceService;
 
@@ -727,8 +733,6 @@ public class EventController
             eventIds, skipEventId, assignedUserMode, assignedUserIds, filter, dataElementOrders.keySet(), false,
             includeDeleted );
 
-        Events events = eventService.getEvents( params );
-
         OutputStream outputStream = response.getOutputStream();
         response.setContentType( "application/csv" );
 
@@ -744,7 +748,113 @@ public class EventController
             response.addHeader( "Content-Disposition", "attachment; filename=" + attachment );
         }
 
-        csvEventService.writeEvents( outputStream, events, !skipHeader );
+        if ( params.isSkipPaging() )
+        {
+            csvEventService.writeEvents( outputStream, consumer -> eventService.streamEvents( params, consumer ), !skipHeader );
+        }
+        else
+        {
+            Events events = eventService.getEvents( params );
+
+            csvEventService.writeEvents( outputStream, events, !skipHeader );
+        }
+    }
+
+    /**
+     * Streams events as JSON. Events are written to the response as they are
+     * read from the database, which makes unpaged exports of any size safe.
+     * Paging is only applied if requested explicitly, and events are always
+     * written in full, without field filtering.
+     */
+    @RequestMapping( value = "/stream", method = RequestMethod.GET, produces = ContextUtils.CONTENT_TYPE_JSON )
+    public void streamJsonEvents(
+        @RequestParam( required = false ) String program,
+        @RequestParam( required = false ) String programStage,
+        @RequestParam( required = false ) ProgramStatus programStatus,
+        @RequestParam( required = false ) Boolean followUp,
+        @RequestParam( required = false ) String trackedEntityInstance,
+        @RequestParam( required = false ) String orgUnit,
+        @RequestParam( required = false ) OrganisationUnitSelectionMode ouMode,
+        @RequestParam( required = false ) AssignedUserSelectionMode assignedUserMode,
+        @RequestParam( required = false ) String assignedUser,
+        @RequestParam( required = false ) Date startDate,
+        @RequestParam( required = false ) Date endDate,
+        @RequestParam( required = false ) Date dueDateStart,
+        @RequestParam( required = false ) Date dueDateEnd,
+        @RequestParam( required = false ) Date lastUpdated,
+        @RequestParam( required = false ) Date lastUpdatedStartDate,
+        @RequestParam( required = false ) Date lastUpdatedEndDate,
+        @RequestParam( required = false ) String lastUpdatedDuration,
+        @RequestParam( required = false ) EventStatus status,
+        @RequestParam( required = false ) String attributeCc,
+        @RequestParam( required = false ) String attributeCos,
+        @RequestParam( required = false ) Integer page,
+        @RequestParam( required = false ) Integer pageSize,
+        @RequestParam( required = false ) String order,
+        @RequestParam( required = false ) String event,
+        @RequestParam( required = false ) Boolean skipEventId,
+        @RequestParam( required = false ) Set<String> filter,
+        @RequestParam( required = false ) String attachment,
+        @RequestParam( required = false, defaultValue = "false" ) boolean includeDeleted,
+        IdSchemes idSchemes, HttpServletResponse response, HttpServletRequest request ) throws IOException, WebMessageException
+    {
+        CategoryOptionCombo attributeOptionCombo = inputUtils.getAttributeOptionCombo( attributeCc, attributeCos, true );
+
+        Set<String> eventIds = TextUtils.splitToArray( event, TextUtils.SEMICOLON );
+
+        Set<String> assignedUserIds = TextUtils.splitToArray( assignedUser, TextUtils.SEMICOLON );
+
+        Map<String, String> dataElementOrders = getDataElementsFromOrder( order );
+
+        lastUpdatedStartDate = lastUpdatedStartDate != null ? lastUpdatedStartDate : lastUpdated;
+
+        boolean skipPaging = page == null && pageSize == null;
+
+        EventSearchParams params = eventService.getFromUrl( program, programStage, programStatus, followUp,
+            orgUnit, ouMode, trackedEntityInstance, startDate, endDate, dueDateStart, dueDateEnd, lastUpdatedStartDate,
+            lastUpdatedEndDate, lastUpdatedDuration, status, attributeOptionCombo, idSchemes, page, pageSize,
+            false, skipPaging, getOrderParams( order ), getGridOrderParams( order, dataElementOrders ), false,
+            eventIds, skipEventId, assignedUserMode, assignedUserIds, filter, dataElementOrders.keySet(), false,
+            includeDeleted );
+
+        OutputStream outputStream = response.getOutputStream();
+        response.setContentType( ContextUtils.CONTENT_TYPE_JSON );
+
+        if ( !StringUtils.isEmpty( attachment ) )
+        {
+            response.addHeader( ContextUtils.HEADER_CONTENT_DISPOSITION, "attachment; filename=" + attachment );
+        }
+
+        String hrefBase = ContextUtils.getRootPath( request ) + RESOURCE_PATH + "/";
+
+        try ( JsonGenerator generator = jsonMapper.getFactory().createGenerator( outputStream ) )
+        {
+            generator.writeStartObject();
+            generator.writeArrayFieldStart( "events" );
+
+            eventService.streamEvents( params, e -> {
+                try
+                {
+                    if ( e.getEvent() != null )
+                    {
+                        e.setHref( hrefBase + e.getEvent() );
+                    }
+
+                    jsonMapper.writeValue( generator, e );
+                }
+                catch ( IOException ex )
+                {
+                    throw new UncheckedIOException( ex );
+                }
+            } );
+
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+        catch ( UncheckedIOException ex )
+        {
+            throw ex.getCause();
+        }
     }
 
     // -------------------------------------------------------------------------
@@ -118,6 +118,19 @@ public class TrackerController
             ) );
     }
 
+    @PostMapping( value = "/stream", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE )
+    @PreAuthorize( "hasRole('ALL') or hasRole('F_TRACKER_IMPORTER_EXPERIMENTAL')" )
+    public TrackerImportReport postJsonTrackerStream( HttpServletRequest request, HttpServletResponse response, User currentUser ) throws IOException
+    {
+        TrackerImportParams params = trackerImportService.getParamsFromMap( contextService.getParameterValuesMap() );
+        params.setUser( currentUser );
+
+        TrackerImportReport importReport = trackerImportService.importTracker( params, request.getInputStream() );
+        setNoStore( response );
+
+        return importReport;
+    }
+
     @GetMapping( value = "/jobs/{uid}", produces = MediaType.APPLICATION_JSON_VALUE )
     public List<Notification> getJob( @PathVariable String uid, HttpServletResponse response ) throws HttpStatusCodeException
     {